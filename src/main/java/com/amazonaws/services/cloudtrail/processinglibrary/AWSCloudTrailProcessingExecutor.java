@@ -23,21 +23,36 @@ import com.amazonaws.services.cloudtrail.processinglibrary.factory.ThreadPoolFac
 import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultExceptionHandler;
 import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultEventFilter;
 import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultEventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultLogFilter;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.NoOpProcessedLogLedger;
 import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultProgressReporter;
 import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultSourceFilter;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ArrowEventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.CursorEventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ColumnarEventsProcessor;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ExceptionHandler;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.EventFilter;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.EventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.LogFilter;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProcessedLogLedger;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProgressReporter;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.SourceFilter;
 import com.amazonaws.services.cloudtrail.processinglibrary.manager.BasicS3Manager;
+import com.amazonaws.services.cloudtrail.processinglibrary.manager.HedgingS3ObjectFetcher;
+import com.amazonaws.services.cloudtrail.processinglibrary.manager.RegionRoutingS3ObjectFetcher;
 import com.amazonaws.services.cloudtrail.processinglibrary.manager.S3Manager;
+import com.amazonaws.services.cloudtrail.processinglibrary.manager.S3ObjectFetcher;
 import com.amazonaws.services.cloudtrail.processinglibrary.manager.SqsManager;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.jfr.FlightRecorderSupport;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEvent;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
 import com.amazonaws.services.cloudtrail.processinglibrary.reader.EventReader;
+import com.amazonaws.services.cloudtrail.processinglibrary.reader.LogPrefetcher;
+import com.amazonaws.services.cloudtrail.processinglibrary.reader.MemoryGovernor;
 import com.amazonaws.services.cloudtrail.processinglibrary.serializer.SourceSerializer;
 import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import software.amazon.awssdk.http.SdkHttpClient;
 import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
@@ -49,6 +64,7 @@ import org.apache.commons.logging.LogFactory;
 
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -59,7 +75,9 @@ import java.util.concurrent.TimeUnit;
  * <p>
  * It has two thread pools: <code>scheduledThreadPool</code>, which is a single-threaded scheduled
  * thread pool used to poll SQS for messages, and <code>mainThreadPool</code>, which has a
- * configurable size and processes each {@link CloudTrailSource} in parallel.
+ * configurable size and processes each {@link CloudTrailSource} in parallel. When download-ahead is enabled, a
+ * {@link LogPrefetcher} also downloads the log files of received sources on its own I/O threads. When a memory budget
+ * is set, a {@link MemoryGovernor} holds back downloads, and the polling of SQS, while the budget is exhausted.
  */
 public class AWSCloudTrailProcessingExecutor {
     private static final Log logger = LogFactory.getLog(AWSCloudTrailProcessingExecutor.class);
@@ -75,8 +93,13 @@ public class AWSCloudTrailProcessingExecutor {
 
     private ProcessingConfiguration config;
     private SourceFilter sourceFilter;
+    private LogFilter logFilter;
+    private ProcessedLogLedger ledger;
     private EventFilter eventFilter;
     private EventsProcessor eventsProcessor;
+    private ColumnarEventsProcessor columnarEventsProcessor;
+    private ArrowEventsProcessor arrowEventsProcessor;
+    private CursorEventsProcessor cursorEventsProcessor;
     private ProgressReporter progressReporter;
     private ExceptionHandler exceptionHandler;
 
@@ -93,17 +116,43 @@ public class AWSCloudTrailProcessingExecutor {
 
     private EventReaderFactory readerFactory;
 
+    /**
+     * Downloads log files ahead of processing; <code>null</code> when download-ahead is disabled.
+     */
+    private LogPrefetcher logPrefetcher;
+
+    /**
+     * Bounds the bytes of log files being processed; <code>null</code> when no memory budget is set.
+     */
+    private MemoryGovernor memoryGovernor;
+
+    /**
+     * The region routing fetcher created for the default S3 client, and the HTTP client its regional clients share;
+     * <code>null</code> unless S3 region routing is enabled.
+     */
+    private RegionRoutingS3ObjectFetcher regionRoutingFetcher;
+    private SdkHttpClient regionRoutingHttpClient;
+
     private AWSCloudTrailProcessingExecutor(Builder builder) {
         this.config = builder.config;
         this.sourceFilter = builder.sourceFilter;
+        this.logFilter = builder.logFilter;
+        this.ledger = builder.ledger;
         this.eventFilter = builder.eventFilter;
         this.eventsProcessor = builder.eventsProcessor;
+        this.columnarEventsProcessor = builder.columnarEventsProcessor;
+        this.arrowEventsProcessor = builder.arrowEventsProcessor;
+        this.cursorEventsProcessor = builder.cursorEventsProcessor;
         this.progressReporter = builder.progressReporter;
         this.exceptionHandler = builder.exceptionHandler;
 
         this.scheduledThreadPool = builder.scheduledThreadPool;
         this.mainThreadPool = builder.mainThreadPool;
         this.readerFactory = builder.readerFactory;
+        this.logPrefetcher = builder.logPrefetcher;
+        this.memoryGovernor = builder.memoryGovernor;
+        this.regionRoutingFetcher = builder.regionRoutingFetcher;
+        this.regionRoutingHttpClient = builder.regionRoutingHttpClient;
     }
 
     /**
@@ -121,6 +170,13 @@ public class AWSCloudTrailProcessingExecutor {
     public void stop() {
         stopThreadPool(mainThreadPool);
         stopThreadPool(scheduledThreadPool);
+        if (logPrefetcher != null) {
+            logPrefetcher.close();
+        }
+        if (regionRoutingFetcher != null) {
+            regionRoutingFetcher.close();
+            regionRoutingHttpClient.close();
+        }
         logger.info("Stopped AWSCloudTrailProcessingLibrary.");
     }
 
@@ -160,12 +216,15 @@ public class AWSCloudTrailProcessingExecutor {
      * <p>
      * If any execution of the task raises an exception, then {@link ScheduledExecutorService} will
      * suppress any subsequent executions. Therefore, we try/catch a Throwable here.
+     * <p>
+     * Each thread of the scheduled thread pool creates its {@link EventReader} on its first execution and reuses it for
+     * every later one, instead of creating a reader for every poll.
      */
     private class ScheduledJob implements Runnable {
-        private EventReaderFactory eventReaderFactory;
+        private final ThreadLocal<EventReader> readers;
 
         public ScheduledJob(EventReaderFactory eventReaderFactory) {
-            this.eventReaderFactory = eventReaderFactory;
+            this.readers = ThreadLocal.withInitial(eventReaderFactory::createReader);
         }
 
         /**
@@ -173,16 +232,37 @@ public class AWSCloudTrailProcessingExecutor {
          */
         public void run() {
             try {
-                final EventReader reader = eventReaderFactory.createReader();
+                // do not receive messages that would only wait for memory until their visibility timeout expires
+                if (memoryGovernor != null) {
+                    memoryGovernor.awaitHeadroom();
+                }
+
+                final EventReader reader = readers.get();
                 List<CloudTrailSource> sources = reader.getSources();
-                for (final CloudTrailSource source : sources) {
-
-                    // process each CloudTrailSource in main thread pool
-                    mainThreadPool.execute(new Runnable() {
-                        public void run() {
-                            reader.processSource(source);
-                        }
-                    });
+
+                // screen every source and start downloading its accepted logs while the sources wait for a thread
+                for (CloudTrailSource source : sources) {
+                    reader.prefetch(source);
+                }
+
+                int dispatched = 0;
+                try {
+                    for (final CloudTrailSource source : sources) {
+
+                        // process each CloudTrailSource in main thread pool
+                        mainThreadPool.execute(new Runnable() {
+                            public void run() {
+                                reader.processSource(source);
+                            }
+                        });
+                        dispatched++;
+                    }
+                } catch (RejectedExecutionException e) {
+                    // the messages become visible again after their visibility timeout
+                    logger.warn("Main thread pool rejected " + (sources.size() - dispatched) + " sources.", e);
+                    for (CloudTrailSource source : sources.subList(dispatched, sources.size())) {
+                        reader.cancelPrefetch(source);
+                    }
                 }
 
             } catch (Throwable t) {
@@ -199,8 +279,11 @@ public class AWSCloudTrailProcessingExecutor {
         config.validate();
 
         LibraryUtils.checkArgumentNotNull(sourceFilter, "sourceFilter is null.");
+        LibraryUtils.checkArgumentNotNull(logFilter, "logFilter is null.");
+        LibraryUtils.checkArgumentNotNull(ledger, "ledger is null.");
         LibraryUtils.checkArgumentNotNull(eventFilter, "eventFilter is null.");
-        LibraryUtils.checkArgumentNotNull(eventsProcessor, "eventsProcessor is null.");
+        LibraryUtils.checkCondition(eventsProcessor == null && columnarEventsProcessor == null
+                && arrowEventsProcessor == null && cursorEventsProcessor == null, "eventsProcessor is null.");
         LibraryUtils.checkArgumentNotNull(progressReporter, "progressReporter is null.");
         LibraryUtils.checkArgumentNotNull(exceptionHandler, "exceptionHandler is null.");
 
@@ -222,25 +305,36 @@ public class AWSCloudTrailProcessingExecutor {
 
         //provide default implementation to AWSCloudTrailProcessingLibrary interfaces.
         private SourceFilter sourceFilter = new DefaultSourceFilter();
+        private LogFilter logFilter = new DefaultLogFilter();
+        private ProcessedLogLedger ledger = new NoOpProcessedLogLedger();
         private EventFilter eventFilter = new DefaultEventFilter();
         private EventsProcessor eventsProcessor = new DefaultEventsProcessor();
+        private ColumnarEventsProcessor columnarEventsProcessor;
+        private ArrowEventsProcessor arrowEventsProcessor;
+        private CursorEventsProcessor cursorEventsProcessor;
         private ProgressReporter progressReporter = new DefaultProgressReporter();
         private ExceptionHandler exceptionHandler = new DefaultExceptionHandler();
 
         private ScheduledExecutorService scheduledThreadPool;
         private ExecutorService mainThreadPool;
         private EventReaderFactory readerFactory;
+        private LogPrefetcher logPrefetcher;
+        private MemoryGovernor memoryGovernor;
+        private RegionRoutingS3ObjectFetcher regionRoutingFetcher;
+        private SdkHttpClient regionRoutingHttpClient;
 
         private SourceSerializer sourceSerializer = SourceSerializerFactory.createSourceSerializerChain();
         private String propertyFilePath;
         private S3Client s3Client;
         private SqsClient sqsClient;
         private S3Manager s3Manager;
+        private S3ObjectFetcher s3ObjectFetcher;
 
         /**
          * Builder for {@link AWSCloudTrailProcessingExecutor}.
          *
-         * @param eventsProcessor  The {@link EventsProcessor} that will process {@link CloudTrailEvent}s.
+         * @param eventsProcessor  The {@link EventsProcessor} that will process {@link CloudTrailEvent}s; may be
+         *                         <code>null</code> if a processor of another kind is registered instead.
          * @param propertyFilePath The path to a property file containing the AWS CloudTrail Processing Library's
          *                         configuration.
          */
@@ -252,7 +346,8 @@ public class AWSCloudTrailProcessingExecutor {
         /**
          * Builder for {@link AWSCloudTrailProcessingExecutor}.
          *
-         * @param eventsProcessor The {@link EventsProcessor} instance that will process {@link CloudTrailEvent}s.
+         * @param eventsProcessor The {@link EventsProcessor} instance that will process {@link CloudTrailEvent}s; may be
+         *                        <code>null</code> if a processor of another kind is registered instead.
          * @param config          An {@link ProcessingConfiguration} instance that provides the library's
          *                        configuration details.
          */
@@ -261,6 +356,42 @@ public class AWSCloudTrailProcessingExecutor {
             this.config = config;
         }
 
+        /**
+         * Delivers events to a {@link ColumnarEventsProcessor} in column-oriented batches instead of to the
+         * {@link EventsProcessor}, which is then never invoked.
+         *
+         * @param columnarEventsProcessor The <code>ColumnarEventsProcessor</code> that will process the events.
+         * @return This <code>Builder</code> instance, using the specified <code>ColumnarEventsProcessor</code>.
+         */
+        public Builder withColumnarEventsProcessor(ColumnarEventsProcessor columnarEventsProcessor) {
+            this.columnarEventsProcessor = columnarEventsProcessor;
+            return this;
+        }
+
+        /**
+         * Delivers events to an {@link ArrowEventsProcessor} in the Apache Arrow columnar layout instead of to the
+         * {@link EventsProcessor}, which is then never invoked.
+         *
+         * @param arrowEventsProcessor The <code>ArrowEventsProcessor</code> that will process the events.
+         * @return This <code>Builder</code> instance, using the specified <code>ArrowEventsProcessor</code>.
+         */
+        public Builder withArrowEventsProcessor(ArrowEventsProcessor arrowEventsProcessor) {
+            this.arrowEventsProcessor = arrowEventsProcessor;
+            return this;
+        }
+
+        /**
+         * Delivers events to a {@link CursorEventsProcessor} one at a time through an <code>EventCursor</code>
+         * instead of to the {@link EventsProcessor}, which is then never invoked.
+         *
+         * @param cursorEventsProcessor The <code>CursorEventsProcessor</code> that will process the events.
+         * @return This <code>Builder</code> instance, using the specified <code>CursorEventsProcessor</code>.
+         */
+        public Builder withCursorEventsProcessor(CursorEventsProcessor cursorEventsProcessor) {
+            this.cursorEventsProcessor = cursorEventsProcessor;
+            return this;
+        }
+
         /**
          * Applies a user-defined {@link SourceFilter} to this instance.
          *
@@ -272,6 +403,30 @@ public class AWSCloudTrailProcessingExecutor {
             return this;
         }
 
+        /**
+         * Applies a user-defined {@link LogFilter} to this instance.
+         *
+         * @param logFilter The <code>LogFilter</code> that will be used to filter {@link CloudTrailLog}s before they
+         *                  are downloaded.
+         * @return This <code>Builder</code> instance, using the specified <code>LogFilter</code>.
+         */
+        public Builder withLogFilter(LogFilter logFilter) {
+            this.logFilter = logFilter;
+            return this;
+        }
+
+        /**
+         * Applies a user-defined {@link ProcessedLogLedger} to this instance.
+         *
+         * @param ledger The <code>ProcessedLogLedger</code> that will be used to skip {@link CloudTrailLog}s that
+         *               were already processed.
+         * @return This <code>Builder</code> instance, using the specified <code>ProcessedLogLedger</code>.
+         */
+        public Builder withProcessedLogLedger(ProcessedLogLedger ledger) {
+            this.ledger = ledger;
+            return this;
+        }
+
         /**
          * Applies a user-defined {@link EventFilter} to this instance.
          *
@@ -348,6 +503,20 @@ public class AWSCloudTrailProcessingExecutor {
             return this;
         }
 
+        /**
+         * Applies a user-defined {@link S3ObjectFetcher} to this instance, for example a
+         * {@link HedgingS3ObjectFetcher} wrapping the user-defined <code>S3Client</code>.
+         * The default S3Manager issues its GET requests through this fetcher instead of the s3Client.
+         * It will not be used if user provides the user-defined S3Manager.
+         *
+         * @param s3ObjectFetcher the <code>S3ObjectFetcher</code> object used to issue S3 GET requests
+         * @return This <code>Builder</code> instance, using the specified <code>S3ObjectFetcher</code>.
+         */
+        public Builder withS3ObjectFetcher(S3ObjectFetcher s3ObjectFetcher) {
+            this.s3ObjectFetcher = s3ObjectFetcher;
+            return this;
+        }
+
         /**
          * Applies a user-defined {@link S3Manager} to this instance.
          * User-defined s3Client will not be used if user provides the user-defined S3Manager.
@@ -383,6 +552,7 @@ public class AWSCloudTrailProcessingExecutor {
         public AWSCloudTrailProcessingExecutor build() {
             buildConfig();
             validateBeforeBuild();
+            buildProgressReporter();
             buildS3Client();
             buildS3Manager();
             buildSqsClient();
@@ -404,16 +574,38 @@ public class AWSCloudTrailProcessingExecutor {
             LibraryUtils.checkArgumentNotNull(config.getAwsCredentialsProvider(),
                     "ProcessingConfiguration missing AwsCredentialsProvider attribute");
 
-            LibraryUtils.checkArgumentNotNull(eventsProcessor, "eventsProcessor is null.");
+            LibraryUtils.checkCondition(eventsProcessor == null && columnarEventsProcessor == null
+                    && arrowEventsProcessor == null && cursorEventsProcessor == null, "eventsProcessor is null.");
+            int alternativeProcessors = (columnarEventsProcessor != null ? 1 : 0) + (arrowEventsProcessor != null ? 1 : 0)
+                    + (cursorEventsProcessor != null ? 1 : 0);
+            LibraryUtils.checkCondition(alternativeProcessors > 1,
+                    "Only one of columnarEventsProcessor, arrowEventsProcessor and cursorEventsProcessor can be set.");
             LibraryUtils.checkArgumentNotNull(sourceFilter, "sourceFilter is null.");
+            LibraryUtils.checkArgumentNotNull(logFilter, "logFilter is null.");
+            LibraryUtils.checkArgumentNotNull(ledger, "ledger is null.");
             LibraryUtils.checkArgumentNotNull(eventFilter, "eventFilter is null.");
             LibraryUtils.checkArgumentNotNull(progressReporter, "progressReporter is null.");
             LibraryUtils.checkArgumentNotNull(exceptionHandler, "exceptionHandler is null.");
             LibraryUtils.checkArgumentNotNull(sourceSerializer, "sourceSerializer is null.");
         }
 
+        private void buildProgressReporter() {
+            // FlightRecorderSupport is only loaded when the user asks for Java Flight Recorder events.
+            if (config.isEnableFlightRecorderEvents()) {
+                progressReporter = FlightRecorderSupport.wrap(progressReporter);
+            }
+        }
+
         private void buildS3Client() {
-            if (s3Client == null) {
+            if (s3Client == null && useS3RegionRouting()) {
+                // Regional clients share one connection pool instead of each opening their own.
+                regionRoutingHttpClient = createHttpClientBuilder(
+                        SDK_TIME_OUT, Math.max(DEFAULT_MAX_CONNECTIONS, config.getThreadCount())).build();
+                regionRoutingFetcher = new RegionRoutingS3ObjectFetcher(Region.of(config.getS3Region()),
+                        config.getAwsCredentialsProvider(), regionRoutingHttpClient);
+                s3ObjectFetcher = regionRoutingFetcher;
+
+            } else if (s3Client == null) {
                 s3Client = S3Client.builder()
                         .credentialsProvider(config.getAwsCredentialsProvider())
                         .region(Region.of(config.getS3Region()))
@@ -423,9 +615,19 @@ public class AWSCloudTrailProcessingExecutor {
             }
         }
 
+        /**
+         * Region routing replaces the default S3 client only; it is not applied to a user-defined S3Client,
+         * S3ObjectFetcher or S3Manager.
+         */
+        private boolean useS3RegionRouting() {
+            return config.isEnableS3RegionRouting() && s3ObjectFetcher == null && s3Manager == null;
+        }
+
         private void buildS3Manager() {
             if (s3Manager == null) {
-                s3Manager = new BasicS3Manager(s3Client, config, exceptionHandler, progressReporter);
+                s3Manager = s3ObjectFetcher != null
+                        ? new BasicS3Manager(s3ObjectFetcher, config, exceptionHandler, progressReporter)
+                        : new BasicS3Manager(s3Client, config, exceptionHandler, progressReporter);
             }
         }
 
@@ -453,14 +655,30 @@ public class AWSCloudTrailProcessingExecutor {
         private void buildReaderFactory() {
             SqsManager sqsManager = new SqsManager(sqsClient, config, exceptionHandler, progressReporter, sourceSerializer);
 
+            if (config.getMemoryBudgetBytes() > 0) {
+                memoryGovernor = new MemoryGovernor(config.getMemoryBudgetBytes(), config.getMemoryExpansionFactor());
+            }
+
+            if (config.getPrefetchBudgetBytes() > 0) {
+                logPrefetcher = new LogPrefetcher(s3Manager, config.getPrefetchBudgetBytes(),
+                        config.getPrefetchThreadCount(), memoryGovernor);
+            }
+
             readerFactory = new EventReaderFactory.Builder(config)
                     .withEventsProcessor(eventsProcessor)
+                    .withColumnarEventsProcessor(columnarEventsProcessor)
+                    .withArrowEventsProcessor(arrowEventsProcessor)
+                    .withCursorEventsProcessor(cursorEventsProcessor)
                     .withSourceFilter(sourceFilter)
+                    .withLogFilter(logFilter)
+                    .withProcessedLogLedger(ledger)
                     .withEventFilter(eventFilter)
                     .withProgressReporter(progressReporter)
                     .withExceptionHandler(exceptionHandler)
                     .withS3Manager(s3Manager)
-                    .withSQSManager(sqsManager).build();
+                    .withSQSManager(sqsManager)
+                    .withLogPrefetcher(logPrefetcher)
+                    .withMemoryGovernor(memoryGovernor).build();
         }
 
         private void buildThreadPools() {
@@ -111,6 +111,65 @@ public class ClientConfiguration implements ProcessingConfiguration{
      */
     public boolean deleteMessageUponFailure = DEFAULT_DELETE_MESSAGE_UPON_FAILURE;
 
+    /**
+     * The object size, in bytes, above which log files are downloaded with parallel byte-range GETs.
+     * <p>
+     * If not specified, ranged downloads are disabled.
+     * </p>
+     */
+    public long rangedGetThresholdBytes = DEFAULT_RANGED_GET_THRESHOLD_BYTES;
+
+    /**
+     * The size, in bytes, of each byte-range GET.
+     */
+    public int rangedGetPartSizeBytes = DEFAULT_RANGED_GET_PART_SIZE_BYTES;
+
+    /**
+     * The maximum number of byte-range GETs in flight or buffered for a single log file.
+     */
+    public int rangedGetParallelism = DEFAULT_RANGED_GET_PARALLELISM;
+
+    /**
+     * Whether to send S3 requests to the region of each bucket instead of the configured S3 region.
+     */
+    public boolean enableS3RegionRouting = DEFAULT_ENABLE_S3_REGION_ROUTING;
+
+    /**
+     * The number of bytes of log files that may be downloaded ahead of processing.
+     * <p>
+     * If not specified, download-ahead is disabled.
+     * </p>
+     */
+    public long prefetchBudgetBytes = DEFAULT_PREFETCH_BUDGET_BYTES;
+
+    /**
+     * The number of threads that download log files ahead of processing.
+     */
+    public int prefetchThreadCount = DEFAULT_PREFETCH_THREAD_COUNT;
+
+    /**
+     * The number of bytes that log files being downloaded, held and processed may keep alive at once.
+     * <p>
+     * If not specified, memory is unbounded.
+     * </p>
+     */
+    public long memoryBudgetBytes = DEFAULT_MEMORY_BUDGET_BYTES;
+
+    /**
+     * The number of bytes kept alive for each compressed byte of a log file being processed.
+     */
+    public int memoryExpansionFactor = DEFAULT_MEMORY_EXPANSION_FACTOR;
+
+    /**
+     * Whether to decode the fields of each event only when they are read.
+     */
+    public boolean enableTapeParsing = DEFAULT_ENABLE_TAPE_PARSING;
+
+    /**
+     * Whether to emit a Java Flight Recorder event for each processing stage.
+     */
+    public boolean enableFlightRecorderEvents = DEFAULT_ENABLE_FLIGHT_RECORDER_EVENTS;
+
     /**
      * Initializes a new <code>ClientConfiguration</code>.
      * <p>
@@ -216,6 +275,86 @@ public class ClientConfiguration implements ProcessingConfiguration{
         return deleteMessageUponFailure;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRangedGetThresholdBytes() {
+        return rangedGetThresholdBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRangedGetPartSizeBytes() {
+        return rangedGetPartSizeBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRangedGetParallelism() {
+        return rangedGetParallelism;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnableS3RegionRouting() {
+        return enableS3RegionRouting;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPrefetchBudgetBytes() {
+        return prefetchBudgetBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPrefetchThreadCount() {
+        return prefetchThreadCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMemoryExpansionFactor() {
+        return memoryExpansionFactor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnableTapeParsing() {
+        return enableTapeParsing;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnableFlightRecorderEvents() {
+        return enableFlightRecorderEvents;
+    }
+
     /**
     * {@inheritDoc}
     */
@@ -230,8 +369,13 @@ public class ClientConfiguration implements ProcessingConfiguration{
         LibraryUtils.checkCondition(getThreadCount() <= 0, "Thread Count is a non-positive integer.");
         LibraryUtils.checkCondition(getThreadTerminationDelaySeconds() <= 0, "Thread Termination Delay Seconds is a non-positive integer.");
         LibraryUtils.checkCondition(getVisibilityTimeout() <= 0, "Visibility Timeout is a non-positive integer.");
-
-
+        LibraryUtils.checkCondition(getRangedGetThresholdBytes() < 0, "Ranged GET Threshold Bytes is a negative number.");
+        LibraryUtils.checkCondition(getRangedGetPartSizeBytes() <= 0, "Ranged GET Part Size Bytes is a non-positive integer.");
+        LibraryUtils.checkCondition(getRangedGetParallelism() <= 0, "Ranged GET Parallelism is a non-positive integer.");
+        LibraryUtils.checkCondition(getPrefetchBudgetBytes() < 0, "Prefetch Budget Bytes is a negative number.");
+        LibraryUtils.checkCondition(getPrefetchThreadCount() <= 0, "Prefetch Thread Count is a non-positive integer.");
+        LibraryUtils.checkCondition(getMemoryBudgetBytes() < 0, "Memory Budget Bytes is a negative number.");
+        LibraryUtils.checkCondition(getMemoryExpansionFactor() < 0, "Memory Expansion Factor is a negative integer.");
     }
 
     /**
@@ -340,4 +484,94 @@ public class ClientConfiguration implements ProcessingConfiguration{
     public void setDeleteMessageUponFailure(boolean deleteMessageUponFailure) {
         this.deleteMessageUponFailure = deleteMessageUponFailure;
     }
+
+    /**
+     * Set the object size, in bytes, above which log files are downloaded with parallel byte-range GETs.
+     *
+     * @param rangedGetThresholdBytes the threshold, in bytes; <code>0</code> disables ranged downloads.
+     */
+    public void setRangedGetThresholdBytes(long rangedGetThresholdBytes) {
+        this.rangedGetThresholdBytes = rangedGetThresholdBytes;
+    }
+
+    /**
+     * Set the size, in bytes, of each byte-range GET.
+     *
+     * @param rangedGetPartSizeBytes the part size, in bytes.
+     */
+    public void setRangedGetPartSizeBytes(int rangedGetPartSizeBytes) {
+        this.rangedGetPartSizeBytes = rangedGetPartSizeBytes;
+    }
+
+    /**
+     * Set the maximum number of byte-range GETs in flight or buffered for a single log file.
+     *
+     * @param rangedGetParallelism the ranged GET parallelism.
+     */
+    public void setRangedGetParallelism(int rangedGetParallelism) {
+        this.rangedGetParallelism = rangedGetParallelism;
+    }
+
+    /**
+     * Set whether S3 requests are sent to the region of each bucket instead of the configured S3 region.
+     *
+     * @param enableS3RegionRouting set to <code>true</code> to discover and use the region of each bucket.
+     */
+    public void setEnableS3RegionRouting(boolean enableS3RegionRouting) {
+        this.enableS3RegionRouting = enableS3RegionRouting;
+    }
+
+    /**
+     * Set the number of bytes of log files that may be downloaded ahead of processing and held in memory.
+     *
+     * @param prefetchBudgetBytes the download-ahead budget, in bytes; <code>0</code> disables download-ahead.
+     */
+    public void setPrefetchBudgetBytes(long prefetchBudgetBytes) {
+        this.prefetchBudgetBytes = prefetchBudgetBytes;
+    }
+
+    /**
+     * Set the number of threads that download log files ahead of processing.
+     *
+     * @param prefetchThreadCount the number of download-ahead threads.
+     */
+    public void setPrefetchThreadCount(int prefetchThreadCount) {
+        this.prefetchThreadCount = prefetchThreadCount;
+    }
+
+    /**
+     * Set the number of bytes that log files being downloaded, held and processed may keep alive at once.
+     *
+     * @param memoryBudgetBytes the memory budget, in bytes; <code>0</code> leaves memory unbounded.
+     */
+    public void setMemoryBudgetBytes(long memoryBudgetBytes) {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    /**
+     * Set the number of bytes kept alive for each compressed byte of a log file being processed.
+     *
+     * @param memoryExpansionFactor the memory expansion factor.
+     */
+    public void setMemoryExpansionFactor(int memoryExpansionFactor) {
+        this.memoryExpansionFactor = memoryExpansionFactor;
+    }
+
+    /**
+     * Set whether the fields of each event are decoded only when they are read.
+     *
+     * @param enableTapeParsing set to <code>true</code> to index log files and decode fields on demand.
+     */
+    public void setEnableTapeParsing(boolean enableTapeParsing) {
+        this.enableTapeParsing = enableTapeParsing;
+    }
+
+    /**
+     * Set whether a Java Flight Recorder event is emitted for each processing stage.
+     *
+     * @param enableFlightRecorderEvents set to <code>true</code> to emit Java Flight Recorder events.
+     */
+    public void setEnableFlightRecorderEvents(boolean enableFlightRecorderEvents) {
+        this.enableFlightRecorderEvents = enableFlightRecorderEvents;
+    }
 }
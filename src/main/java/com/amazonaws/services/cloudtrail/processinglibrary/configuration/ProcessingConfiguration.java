@@ -80,6 +80,59 @@ public interface ProcessingConfiguration {
      */
     public static final boolean DEFAULT_DELETE_MESSAGE_UPON_FAILURE = false;
 
+    /**
+     * The default object size, in bytes, above which logs are downloaded with parallel ranged GETs; {@value}.
+     * A value of <code>0</code> disables ranged downloads.
+     */
+    public static final long DEFAULT_RANGED_GET_THRESHOLD_BYTES = 0L;
+
+    /**
+     * The default size, in bytes, of each ranged GET; {@value}.
+     */
+    public static final int DEFAULT_RANGED_GET_PART_SIZE_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * The default number of ranged GETs in flight for a single log file; {@value}.
+     */
+    public static final int DEFAULT_RANGED_GET_PARALLELISM = 4;
+
+    /**
+     * Whether to send S3 requests to the region of each bucket; {@value}.
+     */
+    public static final boolean DEFAULT_ENABLE_S3_REGION_ROUTING = false;
+
+    /**
+     * The default number of bytes of log files that may be downloaded ahead of processing; {@value}.
+     * A value of <code>0</code> disables download-ahead.
+     */
+    public static final long DEFAULT_PREFETCH_BUDGET_BYTES = 0L;
+
+    /**
+     * The default number of threads that download log files ahead of processing; {@value}.
+     */
+    public static final int DEFAULT_PREFETCH_THREAD_COUNT = 2;
+
+    /**
+     * The default number of bytes that log files being downloaded, held and processed may keep alive at once; {@value}.
+     * A value of <code>0</code> leaves memory unbounded.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = 0L;
+
+    /**
+     * The default number of bytes kept alive for each compressed byte of a log file being processed; {@value}.
+     */
+    public static final int DEFAULT_MEMORY_EXPANSION_FACTOR = 10;
+
+    /**
+     * Whether to decode the fields of each event only when they are read; {@value}.
+     */
+    public static final boolean DEFAULT_ENABLE_TAPE_PARSING = false;
+
+    /**
+     * Whether to emit a Java Flight Recorder event for each processing stage; {@value}.
+     */
+    public static final boolean DEFAULT_ENABLE_FLIGHT_RECORDER_EVENTS = false;
+
     /**
      * Get the AWS Credentials provider used to access AWS.
      *
@@ -164,6 +217,122 @@ public interface ProcessingConfiguration {
      */
     public boolean isDeleteMessageUponFailure();
 
+    /**
+     * Get the object size, in bytes, above which a log file is downloaded as concurrent byte-range GETs.
+     * <p>
+     * A value of <code>0</code> downloads every log file with a single GET. Otherwise a log file whose notification
+     * does not report its size is also downloaded in ranges, after a first range that learns the size.
+     * </p>
+     *
+     * @return the ranged GET threshold, in bytes.
+     */
+    public default long getRangedGetThresholdBytes() {
+        return DEFAULT_RANGED_GET_THRESHOLD_BYTES;
+    }
+
+    /**
+     * Get the size, in bytes, of each byte-range GET.
+     *
+     * @return the ranged GET part size, in bytes.
+     */
+    public default int getRangedGetPartSizeBytes() {
+        return DEFAULT_RANGED_GET_PART_SIZE_BYTES;
+    }
+
+    /**
+     * Get the maximum number of byte-range GETs that are in flight or buffered for a single log file.
+     *
+     * @return the ranged GET parallelism.
+     */
+    public default int getRangedGetParallelism() {
+        return DEFAULT_RANGED_GET_PARALLELISM;
+    }
+
+    /**
+     * Indicates whether S3 requests are sent to the region of each bucket, discovered once per bucket, instead of
+     * the configured S3 region.
+     *
+     * @return <code>true</code> if S3 region routing is enabled; <code>false</code> otherwise.
+     */
+    public default boolean isEnableS3RegionRouting() {
+        return DEFAULT_ENABLE_S3_REGION_ROUTING;
+    }
+
+    /**
+     * Get the number of bytes of log files that may be downloaded ahead of processing and held in memory.
+     * <p>
+     * A value of <code>0</code> downloads each log file only when it is processed.
+     * </p>
+     *
+     * @return the download-ahead budget, in bytes.
+     */
+    public default long getPrefetchBudgetBytes() {
+        return DEFAULT_PREFETCH_BUDGET_BYTES;
+    }
+
+    /**
+     * Get the number of threads that download log files ahead of processing.
+     *
+     * @return the number of download-ahead threads.
+     */
+    public default int getPrefetchThreadCount() {
+        return DEFAULT_PREFETCH_THREAD_COUNT;
+    }
+
+    /**
+     * Get the number of bytes that log files being downloaded, held and processed may keep alive at once.
+     * <p>
+     * Logs wait for room in the budget before they are downloaded, and no messages are received while the budget is
+     * exhausted. A value of <code>0</code> leaves memory unbounded.
+     * </p>
+     *
+     * @return the memory budget, in bytes.
+     */
+    public default long getMemoryBudgetBytes() {
+        return DEFAULT_MEMORY_BUDGET_BYTES;
+    }
+
+    /**
+     * Get the number of bytes kept alive for each compressed byte of a log file being processed, besides the
+     * compressed byte itself, used to estimate the share of the memory budget a log needs.
+     *
+     * @return the memory expansion factor.
+     */
+    public default int getMemoryExpansionFactor() {
+        return DEFAULT_MEMORY_EXPANSION_FACTOR;
+    }
+
+    /**
+     * Indicates whether log files are indexed in a single pass and the fields of each event decoded only when they
+     * are read, instead of parsing every field of every event.
+     * <p>
+     * Events read this way are equal to parsed ones, but a field that cannot be decoded makes its getter throw an
+     * {@link java.io.UncheckedIOException} instead of failing the log file, and each event keeps the whole log file in
+     * memory while it is reachable. The events of a log file must be read by one thread at a time, unless they were
+     * fully decoded first, for example by <code>toString()</code>. It does not apply to columnar or Arrow processors, and is ignored when raw event
+     * information is enabled.
+     * </p>
+     *
+     * @return <code>true</code> if tape parsing is enabled; <code>false</code> otherwise.
+     */
+    public default boolean isEnableTapeParsing() {
+        return DEFAULT_ENABLE_TAPE_PARSING;
+    }
+
+    /**
+     * Indicates whether a Java Flight Recorder event is emitted for each processing stage, in addition to the calls
+     * to the {@link com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProgressReporter}.
+     * <p>
+     * The events need Java 11 or later. On older runtimes, or where Java Flight Recorder is not available, this
+     * setting is ignored.
+     * </p>
+     *
+     * @return <code>true</code> if Java Flight Recorder events are enabled; <code>false</code> otherwise.
+     */
+    public default boolean isEnableFlightRecorderEvents() {
+        return DEFAULT_ENABLE_FLIGHT_RECORDER_EVENTS;
+    }
+
     /**
      * Validate that all necessary parameters are set in the provided configuration.
      * <p>
@@ -51,6 +51,16 @@ public class PropertiesFileConfiguration implements ProcessingConfiguration{
     public static final String MAX_EVENTS_PER_EMIT = "maxEventsPerEmit";
     public static final String ENABLE_RAW_EVENT_INFO = "enableRawEventInfo";
     public static final String DELETE_MESSAGE_UPON_FAILURE = "deleteMessageUponFailure";
+    public static final String RANGED_GET_THRESHOLD_BYTES = "rangedGetThresholdBytes";
+    public static final String RANGED_GET_PART_SIZE_BYTES = "rangedGetPartSizeBytes";
+    public static final String RANGED_GET_PARALLELISM = "rangedGetParallelism";
+    public static final String ENABLE_S3_REGION_ROUTING = "enableS3RegionRouting";
+    public static final String PREFETCH_BUDGET_BYTES = "prefetchBudgetBytes";
+    public static final String PREFETCH_THREAD_COUNT = "prefetchThreadCount";
+    public static final String MEMORY_BUDGET_BYTES = "memoryBudgetBytes";
+    public static final String MEMORY_EXPANSION_FACTOR = "memoryExpansionFactor";
+    public static final String ENABLE_TAPE_PARSING = "enableTapeParsing";
+    public static final String ENABLE_FLIGHT_RECORDER_EVENTS = "enableFlightRecorderEvents";
 
     private static final String ERROR_CREDENTIALS_PROVIDER_NULL = "CredentialsProvider is null. Either put your " +
             "access key and secret key in the configuration file in your class path, or spcify it in the " +
@@ -130,6 +140,57 @@ public class PropertiesFileConfiguration implements ProcessingConfiguration{
      * {@link EventReader#processSource(CloudTrailSource)}.
      */
     private boolean deleteMessageUponFailure = DEFAULT_DELETE_MESSAGE_UPON_FAILURE;
+
+    /**
+     * The object size, in bytes, above which log files are downloaded with parallel byte-range GETs.
+     */
+    private long rangedGetThresholdBytes = DEFAULT_RANGED_GET_THRESHOLD_BYTES;
+
+    /**
+     * The size, in bytes, of each byte-range GET.
+     */
+    private int rangedGetPartSizeBytes = DEFAULT_RANGED_GET_PART_SIZE_BYTES;
+
+    /**
+     * The maximum number of byte-range GETs in flight or buffered for a single log file.
+     */
+    private int rangedGetParallelism = DEFAULT_RANGED_GET_PARALLELISM;
+
+    /**
+     * Whether to send S3 requests to the region of each bucket instead of the configured S3 region.
+     */
+    private boolean enableS3RegionRouting = DEFAULT_ENABLE_S3_REGION_ROUTING;
+
+    /**
+     * The number of bytes of log files that may be downloaded ahead of processing.
+     */
+    private long prefetchBudgetBytes = DEFAULT_PREFETCH_BUDGET_BYTES;
+
+    /**
+     * The number of threads that download log files ahead of processing.
+     */
+    private int prefetchThreadCount = DEFAULT_PREFETCH_THREAD_COUNT;
+
+    /**
+     * The number of bytes that log files being downloaded, held and processed may keep alive at once.
+     */
+    private long memoryBudgetBytes = DEFAULT_MEMORY_BUDGET_BYTES;
+
+    /**
+     * The number of bytes kept alive for each compressed byte of a log file being processed.
+     */
+    private int memoryExpansionFactor = DEFAULT_MEMORY_EXPANSION_FACTOR;
+
+    /**
+     * Whether to decode the fields of each event only when they are read.
+     */
+    private boolean enableTapeParsing = DEFAULT_ENABLE_TAPE_PARSING;
+
+    /**
+     * Whether to emit a Java Flight Recorder event for each processing stage.
+     */
+    private boolean enableFlightRecorderEvents = DEFAULT_ENABLE_FLIGHT_RECORDER_EVENTS;
+
     /**
      * Creates a {@link PropertiesFileConfiguration} from values provided in a classpath properties file.
      *
@@ -162,6 +223,19 @@ public class PropertiesFileConfiguration implements ProcessingConfiguration{
         enableRawEventInfo = getBooleanProperty(prop, ENABLE_RAW_EVENT_INFO);
 
         deleteMessageUponFailure  = getBooleanProperty(prop, DELETE_MESSAGE_UPON_FAILURE);
+
+        rangedGetThresholdBytes = getLongProperty(prop, RANGED_GET_THRESHOLD_BYTES, DEFAULT_RANGED_GET_THRESHOLD_BYTES);
+        rangedGetPartSizeBytes = getIntProperty(prop, RANGED_GET_PART_SIZE_BYTES, DEFAULT_RANGED_GET_PART_SIZE_BYTES);
+        rangedGetParallelism = getIntProperty(prop, RANGED_GET_PARALLELISM, DEFAULT_RANGED_GET_PARALLELISM);
+        enableS3RegionRouting = getBooleanProperty(prop, ENABLE_S3_REGION_ROUTING);
+
+        prefetchBudgetBytes = getLongProperty(prop, PREFETCH_BUDGET_BYTES, DEFAULT_PREFETCH_BUDGET_BYTES);
+        prefetchThreadCount = getIntProperty(prop, PREFETCH_THREAD_COUNT, DEFAULT_PREFETCH_THREAD_COUNT);
+
+        memoryBudgetBytes = getLongProperty(prop, MEMORY_BUDGET_BYTES, DEFAULT_MEMORY_BUDGET_BYTES);
+        memoryExpansionFactor = getIntProperty(prop, MEMORY_EXPANSION_FACTOR, DEFAULT_MEMORY_EXPANSION_FACTOR);
+        enableTapeParsing = getBooleanProperty(prop, ENABLE_TAPE_PARSING);
+        enableFlightRecorderEvents = getBooleanProperty(prop, ENABLE_FLIGHT_RECORDER_EVENTS);
     }
 
     /**
@@ -251,6 +325,86 @@ public class PropertiesFileConfiguration implements ProcessingConfiguration{
         return deleteMessageUponFailure;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRangedGetThresholdBytes() {
+        return rangedGetThresholdBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRangedGetPartSizeBytes() {
+        return rangedGetPartSizeBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRangedGetParallelism() {
+        return rangedGetParallelism;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnableS3RegionRouting() {
+        return enableS3RegionRouting;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPrefetchBudgetBytes() {
+        return prefetchBudgetBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPrefetchThreadCount() {
+        return prefetchThreadCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMemoryExpansionFactor() {
+        return memoryExpansionFactor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnableTapeParsing() {
+        return enableTapeParsing;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnableFlightRecorderEvents() {
+        return enableFlightRecorderEvents;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -266,6 +420,13 @@ public class PropertiesFileConfiguration implements ProcessingConfiguration{
         LibraryUtils.checkCondition(getNumOfParallelReaders() <= 0, "Thread Count is a non-positive integer.");
         LibraryUtils.checkCondition(getThreadTerminationDelaySeconds() <= 0, "Thread Termination Delay Seconds is a non-positive integer.");
         LibraryUtils.checkCondition(getVisibilityTimeout() <= 0, "Visibility Timeout is a non-positive integer.");
+        LibraryUtils.checkCondition(getRangedGetThresholdBytes() < 0, "Ranged GET Threshold Bytes is a negative number.");
+        LibraryUtils.checkCondition(getRangedGetPartSizeBytes() <= 0, "Ranged GET Part Size Bytes is a non-positive integer.");
+        LibraryUtils.checkCondition(getRangedGetParallelism() <= 0, "Ranged GET Parallelism is a non-positive integer.");
+        LibraryUtils.checkCondition(getPrefetchBudgetBytes() < 0, "Prefetch Budget Bytes is a negative number.");
+        LibraryUtils.checkCondition(getPrefetchThreadCount() <= 0, "Prefetch Thread Count is a non-positive integer.");
+        LibraryUtils.checkCondition(getMemoryBudgetBytes() < 0, "Memory Budget Bytes is a negative number.");
+        LibraryUtils.checkCondition(getMemoryExpansionFactor() < 0, "Memory Expansion Factor is a negative integer.");
     }
 
     /**
@@ -299,6 +460,32 @@ public class PropertiesFileConfiguration implements ProcessingConfiguration{
         return Integer.parseInt(propertyValue);
     }
 
+    /**
+     * Convert a string representation of an optional property to an integer type.
+     *
+     * @param prop the {@link Properties} needs conversion.
+     * @param name a name to evaluate in the property file.
+     * @param defaultValue the value used when the property is not set.
+     * @return an integer representation of the value associated with the property name.
+     */
+    private int getIntProperty(Properties prop, String name, int defaultValue) {
+        String propertyValue = prop.getProperty(name);
+        return propertyValue == null ? defaultValue : Integer.parseInt(propertyValue.trim());
+    }
+
+    /**
+     * Convert a string representation of an optional property to a long type.
+     *
+     * @param prop the {@link Properties} needs conversion.
+     * @param name a name to evaluate in the property file.
+     * @param defaultValue the value used when the property is not set.
+     * @return a long representation of the value associated with the property name.
+     */
+    private long getLongProperty(Properties prop, String name, long defaultValue) {
+        String propertyValue = prop.getProperty(name);
+        return propertyValue == null ? defaultValue : Long.parseLong(propertyValue.trim());
+    }
+
     /**
      * Convert a string representation of a property to a boolean type.
      *
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.exceptions;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ExceptionHandler;
+import com.amazonaws.services.cloudtrail.processinglibrary.manager.S3Manager;
+
+import java.io.IOException;
+
+/**
+ * Signals that a log file stream returned by {@link S3Manager#downloadLogStream} failed while it was being downloaded.
+ * <p>
+ * The {@link S3Manager} reports the failure to the {@link ExceptionHandler} itself, so callers should treat the log as
+ * not downloaded rather than report it again. A stream returned by {@link S3Manager#fetchLogStream} does not report
+ * its failures.
+ * </p>
+ */
+public class LogDownloadException extends IOException {
+    private static final long serialVersionUID = -2915493016328551472L;
+
+    /**
+     * Initializes a new <code>LogDownloadException</code> with a message and the cause of the failure.
+     *
+     * @param message a description of the failure.
+     * @param cause the underlying exception.
+     */
+    public LogDownloadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.factory;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Factory for creating the {@link JsonParser}s that read CloudTrail log files.
+ * <p>
+ * All parsers come from a single {@link JsonFactory}, which is thread-safe. Field names are canonicalized, so the
+ * symbol tables the factory keeps for byte and character input are shared by every parser and stay warm across log
+ * files and readers. Both tables are filled with the CloudTrail field names when the class is loaded, so even the
+ * first log file is parsed without building them. The factory is bound to an {@link ObjectMapper}, so fields kept as
+ * JSON text can be read as trees.
+ * </p>
+ */
+public class EventParserFactory {
+
+    private static final JsonFactory jsonFactory = createJsonFactory();
+
+    /**
+     * Get the shared {@link JsonFactory}.
+     *
+     * @return the {@link JsonFactory} used to read CloudTrail log files.
+     */
+    public static JsonFactory getJsonFactory() {
+        return jsonFactory;
+    }
+
+    /**
+     * Create a parser that reads a CloudTrail log file from a stream.
+     *
+     * @param inputStream the decompressed content of a CloudTrail log file.
+     * @return the {@link JsonParser}.
+     * @throws IOException if the parser cannot be created.
+     */
+    public static JsonParser createParser(InputStream inputStream) throws IOException {
+        return jsonFactory.createParser(inputStream);
+    }
+
+    /**
+     * Create a parser that reads a CloudTrail log file from a string.
+     *
+     * @param content the content of a CloudTrail log file.
+     * @return the {@link JsonParser}.
+     * @throws IOException if the parser cannot be created.
+     */
+    public static JsonParser createParser(String content) throws IOException {
+        return jsonFactory.createParser(content);
+    }
+
+    private static JsonFactory createJsonFactory() {
+        JsonFactory factory = new ObjectMapper(JsonFactory.builder()
+                .enable(JsonFactory.Feature.CANONICALIZE_FIELD_NAMES)
+                .enable(JsonFactory.Feature.INTERN_FIELD_NAMES)
+                .build()).getFactory();
+
+        // A parser merges the names it found into the symbol table of the factory when it is closed.
+        StringBuilder document = new StringBuilder("{");
+        for (CloudTrailEventField field : CloudTrailEventField.values()) {
+            document.append(document.length() > 1 ? "," : "").append('"').append(field.name()).append("\":0");
+        }
+        String content = document.append('}').toString();
+        try {
+            warm(factory.createParser(content.getBytes(StandardCharsets.UTF_8)));
+            warm(factory.createParser(content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return factory;
+    }
+
+    private static void warm(JsonParser parser) throws IOException {
+        try (JsonParser jsonParser = parser) {
+            while (jsonParser.nextToken() != null) {
+                // only the field names matter
+            }
+        }
+    }
+}
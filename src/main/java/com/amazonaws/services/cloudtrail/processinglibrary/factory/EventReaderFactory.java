@@ -16,14 +16,23 @@
 package com.amazonaws.services.cloudtrail.processinglibrary.factory;
 
 import com.amazonaws.services.cloudtrail.processinglibrary.configuration.ProcessingConfiguration;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultLogFilter;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.NoOpProcessedLogLedger;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ArrowEventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ColumnarEventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.CursorEventsProcessor;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ExceptionHandler;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProgressReporter;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.EventFilter;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.EventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.LogFilter;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProcessedLogLedger;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.SourceFilter;
 import com.amazonaws.services.cloudtrail.processinglibrary.manager.S3Manager;
 import com.amazonaws.services.cloudtrail.processinglibrary.manager.SqsManager;
 import com.amazonaws.services.cloudtrail.processinglibrary.reader.EventReader;
+import com.amazonaws.services.cloudtrail.processinglibrary.reader.LogPrefetcher;
+import com.amazonaws.services.cloudtrail.processinglibrary.reader.MemoryGovernor;
 import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
 
 
@@ -37,7 +46,12 @@ public class EventReaderFactory {
 
     private ProcessingConfiguration config;
     private EventsProcessor eventsProcessor;
+    private ColumnarEventsProcessor columnarEventsProcessor;
+    private ArrowEventsProcessor arrowEventsProcessor;
+    private CursorEventsProcessor cursorEventsProcessor;
     private SourceFilter sourceFilter;
+    private LogFilter logFilter;
+    private ProcessedLogLedger ledger;
     private EventFilter eventFilter;
     private ProgressReporter progressReporter;
     private ExceptionHandler exceptionHandler;
@@ -48,6 +62,12 @@ public class EventReaderFactory {
     /* The class responsible for S3-related operations. */
     private S3Manager s3Manager;
 
+    /* Downloads log files ahead of processing; null when download-ahead is disabled. */
+    private LogPrefetcher prefetcher;
+
+    /* Bounds the bytes of logs being processed; null when no memory budget is set. */
+    private MemoryGovernor memoryGovernor;
+
     /**
      * EventReaderFactory constructor.
      * <p>
@@ -58,12 +78,19 @@ public class EventReaderFactory {
     private EventReaderFactory(Builder builder) {
         config = builder.config;
         eventsProcessor = builder.eventsProcessor;
+        columnarEventsProcessor = builder.columnarEventsProcessor;
+        arrowEventsProcessor = builder.arrowEventsProcessor;
+        cursorEventsProcessor = builder.cursorEventsProcessor;
         sourceFilter = builder.sourceFilter;
+        logFilter = builder.logFilter;
+        ledger = builder.ledger;
         eventFilter = builder.eventFilter;
         progressReporter = builder.progressReporter;
         exceptionHandler = builder.exceptionHandler;
         sqsManager = builder.sqsManager;
         s3Manager = builder.s3Manager;
+        prefetcher = builder.prefetcher;
+        memoryGovernor = builder.memoryGovernor;
 
         validate();
     }
@@ -71,12 +98,19 @@ public class EventReaderFactory {
     public static class Builder {
         private final ProcessingConfiguration config;
         private EventsProcessor eventsProcessor;
+        private ColumnarEventsProcessor columnarEventsProcessor;
+        private ArrowEventsProcessor arrowEventsProcessor;
+        private CursorEventsProcessor cursorEventsProcessor;
         private SourceFilter sourceFilter;
+        private LogFilter logFilter = new DefaultLogFilter();
+        private ProcessedLogLedger ledger = new NoOpProcessedLogLedger();
         private EventFilter eventFilter;
         private ProgressReporter progressReporter;
         private ExceptionHandler exceptionHandler;
         private S3Manager s3Manager;
         private SqsManager sqsManager;
+        private LogPrefetcher prefetcher;
+        private MemoryGovernor memoryGovernor;
 
         public Builder(ProcessingConfiguration config) {
             this.config = config;
@@ -87,11 +121,36 @@ public class EventReaderFactory {
             return this;
         }
 
+        public Builder withColumnarEventsProcessor(ColumnarEventsProcessor columnarEventsProcessor) {
+            this.columnarEventsProcessor = columnarEventsProcessor;
+            return this;
+        }
+
+        public Builder withArrowEventsProcessor(ArrowEventsProcessor arrowEventsProcessor) {
+            this.arrowEventsProcessor = arrowEventsProcessor;
+            return this;
+        }
+
+        public Builder withCursorEventsProcessor(CursorEventsProcessor cursorEventsProcessor) {
+            this.cursorEventsProcessor = cursorEventsProcessor;
+            return this;
+        }
+
         public Builder withSourceFilter(SourceFilter sourceFilter) {
             this.sourceFilter = sourceFilter;
             return this;
         }
 
+        public Builder withLogFilter(LogFilter logFilter) {
+            this.logFilter = logFilter;
+            return this;
+        }
+
+        public Builder withProcessedLogLedger(ProcessedLogLedger ledger) {
+            this.ledger = ledger;
+            return this;
+        }
+
         public Builder withEventFilter(EventFilter eventFilter) {
             this.eventFilter = eventFilter;
             return this;
@@ -117,6 +176,16 @@ public class EventReaderFactory {
             return this;
         }
 
+        public Builder withLogPrefetcher(LogPrefetcher prefetcher) {
+            this.prefetcher = prefetcher;
+            return this;
+        }
+
+        public Builder withMemoryGovernor(MemoryGovernor memoryGovernor) {
+            this.memoryGovernor = memoryGovernor;
+            return this;
+        }
+
         public EventReaderFactory build() {
             return new EventReaderFactory(this);
         }
@@ -128,7 +197,22 @@ public class EventReaderFactory {
      * @return the {@link EventReader}.
      */
     public EventReader createReader() {
-        return new EventReader(eventsProcessor, sourceFilter, eventFilter, progressReporter, exceptionHandler, sqsManager, s3Manager, config);
+        return new EventReader.Builder(config)
+                .withEventsProcessor(eventsProcessor)
+                .withColumnarEventsProcessor(columnarEventsProcessor)
+                .withArrowEventsProcessor(arrowEventsProcessor)
+                .withCursorEventsProcessor(cursorEventsProcessor)
+                .withSourceFilter(sourceFilter)
+                .withLogFilter(logFilter)
+                .withProcessedLogLedger(ledger)
+                .withEventFilter(eventFilter)
+                .withProgressReporter(progressReporter)
+                .withExceptionHandler(exceptionHandler)
+                .withSQSManager(sqsManager)
+                .withS3Manager(s3Manager)
+                .withLogPrefetcher(prefetcher)
+                .withMemoryGovernor(memoryGovernor)
+                .build();
     }
 
     /**
@@ -136,8 +220,10 @@ public class EventReaderFactory {
      */
     private void validate() {
         LibraryUtils.checkArgumentNotNull(config, "Configuration is null.");
-        LibraryUtils.checkArgumentNotNull(eventsProcessor, "Events Processor is null.");
+        LibraryUtils.checkCondition(eventsProcessor == null && columnarEventsProcessor == null && arrowEventsProcessor == null && cursorEventsProcessor == null, "Events Processor is null.");
         LibraryUtils.checkArgumentNotNull(sourceFilter, "Source Filter is null.");
+        LibraryUtils.checkArgumentNotNull(logFilter, "Log Filter is null.");
+        LibraryUtils.checkArgumentNotNull(ledger, "Processed Log Ledger is null.");
         LibraryUtils.checkArgumentNotNull(eventFilter, "Event Filter is null.");
         LibraryUtils.checkArgumentNotNull(progressReporter, "Progress Reporter is null.");
         LibraryUtils.checkArgumentNotNull(exceptionHandler, "Exception Handler is null.");
@@ -0,0 +1,342 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.impl;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.SelectiveProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStatus;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Implementation of {@link ProgressReporter} that hands every call over to a dedicated thread, so a slow delegate
+ * {@link ProgressReporter} does not hold up the processing threads.
+ * <p>
+ * Calls are published into a preallocated, lock-free ring buffer and replayed, in order, on a single daemon thread
+ * that invokes the delegate. {@link #reportStart(ProgressStatus)} returns a token that carries the object returned by
+ * the delegate's <code>reportStart</code> to its <code>reportEnd</code>. When the ring buffer is full, the call is
+ * either dropped and counted or the processing thread waits for room, depending on the {@link OverflowPolicy}. If a
+ * start is dropped, the matching end is dropped as well, so the delegate never sees an end without its start; an end
+ * dropped on its own leaves the delegate with a start that never ends.
+ * </p>
+ * <p>
+ * The {@link ProgressStatus} objects are handed over as they are. A status may therefore already carry its final
+ * success flag when the delegate receives its start. {@link #close()} stops the dispatching thread after it has
+ * delivered everything that was published.
+ * </p>
+ */
+public class AsyncProgressReporter implements SelectiveProgressReporter, AutoCloseable {
+    private static final Log logger = LogFactory.getLog(AsyncProgressReporter.class);
+
+    /**
+     * Default number of slots in the ring buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int IDLE_YIELDS = 64;
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /* Results of offer. */
+    private static final int PUBLISHED = 0;
+    private static final int CLOSED = 1;
+    private static final int FULL = 2;
+
+    /**
+     * What to do with a call when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drop the call and count it in {@link #getDroppedCount()}.
+         */
+        DROP,
+
+        /**
+         * Wait on the processing thread until there is room in the ring buffer.
+         */
+        BLOCK
+    }
+
+    private final ProgressReporter delegate;
+    private final OverflowPolicy overflowPolicy;
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final ProgressStatus[] statuses;
+    private final Object[] tokens;
+    private final boolean[] ends;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder delegateFailures = new LongAdder();
+
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    /**
+     * Set by the dispatching thread before it parks for lack of calls, so publishers know to unpark it.
+     */
+    private volatile boolean idle;
+
+    /**
+     * Create an <code>AsyncProgressReporter</code> with {@value #DEFAULT_CAPACITY} slots that drops calls when full.
+     *
+     * @param delegate the {@link ProgressReporter} to invoke on the dispatching thread.
+     */
+    public AsyncProgressReporter(ProgressReporter delegate) {
+        this(delegate, DEFAULT_CAPACITY, OverflowPolicy.DROP);
+    }
+
+    /**
+     * Create an <code>AsyncProgressReporter</code>.
+     *
+     * @param delegate the {@link ProgressReporter} to invoke on the dispatching thread.
+     * @param capacity number of slots in the ring buffer, rounded up to a power of two. Each reported action uses two.
+     * @param overflowPolicy the {@link OverflowPolicy} applied when the ring buffer is full.
+     */
+    public AsyncProgressReporter(ProgressReporter delegate, int capacity, OverflowPolicy overflowPolicy) {
+        LibraryUtils.checkArgumentNotNull(delegate, "delegate is null");
+        LibraryUtils.checkArgumentNotNull(overflowPolicy, "overflowPolicy is null");
+        LibraryUtils.checkCondition(capacity <= 0 || capacity > (1 << 30), "Capacity must be between 1 and 2^30.");
+
+        this.delegate = delegate;
+        this.overflowPolicy = overflowPolicy;
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.statuses = new ProgressStatus[size];
+        this.tokens = new Object[size];
+        this.ends = new boolean[size];
+
+        this.dispatcher = new Thread(this::dispatch, "AsyncProgressReporter");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Delegates to the delegate {@link ProgressReporter} if it is a {@link SelectiveProgressReporter}. The decision
+     * is taken on the processing thread.
+     */
+    @Override
+    public boolean isReportable(ProgressState progressState) {
+        return LibraryUtils.isReportable(delegate, progressState);
+    }
+
+    @Override
+    public boolean isReportable(ProgressState progressState, Message sqsMessage, CloudTrailLog ctLog) {
+        return LibraryUtils.isReportable(delegate, progressState, sqsMessage, ctLog);
+    }
+
+    @Override
+    public Object reportStart(ProgressStatus status) {
+        Token token = new Token();
+        publish(status, token, false);
+        return token;
+    }
+
+    @Override
+    public void reportEnd(ProgressStatus status, Object object) {
+        publish(status, object, true);
+    }
+
+    /**
+     * @return the number of calls dropped because the ring buffer was full, including ends whose start was dropped.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the number of times the delegate {@link ProgressReporter} threw an exception.
+     */
+    public long getDelegateFailureCount() {
+        return delegateFailures.sum();
+    }
+
+    /**
+     * @return the number of calls published but not yet delivered to the delegate {@link ProgressReporter}.
+     */
+    public long getBacklog() {
+        return Math.max(0L, tail.get() - head);
+    }
+
+    /**
+     * Stop accepting calls, deliver everything already published, then stop the dispatching thread. If the calling
+     * thread is interrupted while waiting, this method returns with its interrupt status set and the dispatching
+     * thread finishes delivering on its own.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(ProgressStatus status, Object token, boolean end) {
+        if (end && token instanceof Token && ((Token) token).dropped) {
+            dropped.increment();
+            return;
+        }
+
+        for (;;) {
+            if (closed) {
+                drop(token);
+                return;
+            }
+            int result = offer(status, token, end);
+            if (result != FULL) {
+                if (idle) {
+                    LockSupport.unpark(dispatcher);
+                }
+                if (result == CLOSED) {
+                    drop(token);
+                }
+                return;
+            }
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                drop(token);
+                return;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    private void drop(Object token) {
+        if (token instanceof Token) {
+            ((Token) token).dropped = true;
+        }
+        dropped.increment();
+    }
+
+    /**
+     * Claim a slot and fill it. <code>closed</code> is checked again once the slot is claimed: the dispatching thread
+     * only stops when no slot is claimed past the ones it delivered, so a call either sees <code>closed</code> here
+     * and is dropped, or is delivered.
+     *
+     * @return {@link #PUBLISHED}, {@link #CLOSED} if the slot was filled with nothing because the reporter was closed,
+     * or {@link #FULL} if the ring buffer is full.
+     */
+    private int offer(ProgressStatus status, Object token, boolean end) {
+        long position = tail.get();
+        for (;;) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    boolean accepted = !closed;
+                    statuses[index] = accepted ? status : null;
+                    tokens[index] = accepted ? token : null;
+                    ends[index] = end;
+                    sequences.set(index, position + 1);
+                    return accepted ? PUBLISHED : CLOSED;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return FULL;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private void dispatch() {
+        int spins = 0;
+        for (;;) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                if (closed && tail.get() == head) {
+                    return;
+                }
+                if (++spins < IDLE_YIELDS) {
+                    Thread.yield();
+                    continue;
+                }
+                // publishers unpark this thread when they see idle, so check again after setting it
+                idle = true;
+                if (sequences.get(index) != head + 1 && !(closed && tail.get() == head)) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                continue;
+            }
+            spins = 0;
+
+            ProgressStatus status = statuses[index];
+            Object token = tokens[index];
+            boolean end = ends[index];
+            statuses[index] = null;
+            tokens[index] = null;
+            sequences.set(index, head + mask + 1);
+            head++;
+
+            if (status != null) {
+                deliver(status, token, end);
+            }
+        }
+    }
+
+    private void deliver(ProgressStatus status, Object token, boolean end) {
+        try {
+            if (!end) {
+                ((Token) token).delegateObject = delegate.reportStart(status);
+            } else if (token instanceof Token) {
+                delegate.reportEnd(status, ((Token) token).delegateObject);
+            } else {
+                delegate.reportEnd(status, token);
+            }
+        } catch (RuntimeException e) {
+            delegateFailures.increment();
+            logger.error("ProgressReporter failed to report " + status.getProgressState(), e);
+        }
+    }
+
+    /**
+     * Returned by {@link #reportStart(ProgressStatus)} to correlate the delegate's start object with its end.
+     */
+    private static final class Token {
+        /**
+         * Only accessed on the dispatching thread.
+         */
+        private Object delegateObject;
+
+        /**
+         * Set on the processing thread that owns the action when its start could not be published.
+         */
+        private boolean dropped;
+    }
+}
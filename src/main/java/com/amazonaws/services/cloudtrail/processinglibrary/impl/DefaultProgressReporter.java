@@ -19,14 +19,22 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.SelectiveProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState;
 import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStatus;
 
 /**
- * Default implementation of {@link ProgressReporter} that simply logs the {@link ProgressStatus}.
+ * Default implementation of {@link ProgressReporter} that simply logs the {@link ProgressStatus}. Nothing is
+ * reported when INFO logging is disabled.
  */
-public class DefaultProgressReporter implements ProgressReporter{
+public class DefaultProgressReporter implements SelectiveProgressReporter {
     private static final Log logger = LogFactory.getLog(DefaultProgressReporter.class);
 
+    @Override
+    public boolean isReportable(ProgressState progressState) {
+        return logger.isInfoEnabled();
+    }
+
     @Override
     public Object reportStart(ProgressStatus status) {
         logger.info(status.getProgressState().toString());
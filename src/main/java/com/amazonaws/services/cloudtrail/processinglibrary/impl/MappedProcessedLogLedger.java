@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.impl;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProcessedLogLedger;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link ProcessedLogLedger} backed by a memory-mapped hash index on local disk, so it survives restarts.
+ * <p>
+ * A log is identified by its bucket, object key and, when the notification carries it, ETag. The file holds a
+ * fixed-size open-addressing table of 24-byte slots: a 128-bit hash of the identity and the time the log was marked
+ * processed. Entries expire after the time to live and their slots are reused; when every slot within the probe
+ * distance is live, the oldest one is evicted, so the file never grows. A small LRU cache in front of the table answers
+ * the most recent lookups without touching the mapped pages.
+ * </p>
+ * <p>
+ * Updates are written to the mapping and reach the disk when the operating system writes the pages back, or on
+ * {@link #close()}. Losing the latest updates in a crash only means those logs are processed again.
+ * </p>
+ */
+public class MappedProcessedLogLedger implements ProcessedLogLedger, Closeable {
+    private static final Log logger = LogFactory.getLog(MappedProcessedLogLedger.class);
+
+    /**
+     * Default number of slots: 2^20, a 24 MiB file.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    /**
+     * Default time a processed log is remembered: 7 days.
+     */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * Default number of entries in the in-memory cache.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private static final int MAGIC = 0x43544C47;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 24;
+    private static final int MAX_PROBE = 32;
+
+    private final MappedByteBuffer table;
+    private final int mask;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Long> cache;
+
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates a ledger with the default capacity, time to live and cache size.
+     *
+     * @param file the ledger file, created if it does not exist.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public MappedProcessedLogLedger(Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY, DEFAULT_TTL_MILLIS, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a ledger.
+     *
+     * @param file the ledger file, created if it does not exist. An existing file with a different capacity is reset.
+     * @param capacity the number of slots, rounded up to a power of two.
+     * @param ttlMillis how long a processed log is remembered, in milliseconds.
+     * @param cacheSize the number of entries in the in-memory cache.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public MappedProcessedLogLedger(Path file, int capacity, long ttlMillis, final int cacheSize) throws IOException {
+        LibraryUtils.checkCondition(capacity <= 0 || capacity > 1 << 26, "Ledger capacity must be between 1 and 2^26.");
+        LibraryUtils.checkCondition(ttlMillis <= 0, "Ledger time to live must be positive.");
+        LibraryUtils.checkCondition(cacheSize < 0, "Ledger cache size must not be negative.");
+
+        int slots = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.mask = slots - 1;
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > cacheSize;
+            }
+        };
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        long size = HEADER_SIZE + (long) slots * SLOT_SIZE;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() != size && channel.size() > 0) {
+                logger.warn("Ledger " + file + " has a different capacity, starting with an empty ledger.");
+                channel.truncate(0);
+            }
+            this.table = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION || table.getInt(8) != slots) {
+            for (int offset = HEADER_SIZE; offset < size; offset += SLOT_SIZE) {
+                table.putLong(offset + 16, 0);
+            }
+            table.putInt(4, VERSION);
+            table.putInt(8, slots);
+            table.putInt(12, SLOT_SIZE);
+            table.putInt(0, MAGIC);
+        }
+    }
+
+    @Override
+    public boolean isProcessed(CloudTrailLog log) {
+        String identity = identity(log);
+        long now = System.currentTimeMillis();
+        boolean processed;
+        synchronized (this) {
+            Long completedAt = cache.get(identity);
+            if (completedAt == null) {
+                completedAt = lookup(hash(identity, 0x9E3779B97F4A7C15L), hash(identity, 0xC2B2AE3D27D4EB4FL));
+                if (completedAt != 0) {
+                    cache.put(identity, completedAt);
+                }
+            }
+            processed = completedAt != 0 && now - completedAt < ttlMillis;
+        }
+        if (processed) {
+            skippedCount.incrementAndGet();
+        }
+        return processed;
+    }
+
+    @Override
+    public void markProcessed(CloudTrailLog log) {
+        String identity = identity(log);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            insert(hash(identity, 0x9E3779B97F4A7C15L), hash(identity, 0xC2B2AE3D27D4EB4FL), now);
+            cache.put(identity, now);
+        }
+    }
+
+    /**
+     * @return the number of lookups that found a log already processed.
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * @return the number of live entries evicted because every slot within the probe distance was taken.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Force the ledger to disk.
+     */
+    @Override
+    public synchronized void close() {
+        table.force();
+    }
+
+    /**
+     * @return the time the log was marked processed, or 0 if it is not in the table.
+     */
+    private long lookup(long hash1, long hash2) {
+        int index = (int) hash1 & mask;
+        for (int probe = 0; probe < MAX_PROBE; probe++) {
+            int offset = slotOffset((index + probe) & mask);
+            long completedAt = table.getLong(offset + 16);
+            if (completedAt == 0) {
+                return 0;
+            }
+            if (table.getLong(offset) == hash1 && table.getLong(offset + 8) == hash2) {
+                return completedAt;
+            }
+        }
+        return 0;
+    }
+
+    private void insert(long hash1, long hash2, long now) {
+        int index = (int) hash1 & mask;
+        int target = -1;
+        int oldest = -1;
+        long oldestCompletedAt = Long.MAX_VALUE;
+        for (int probe = 0; probe < MAX_PROBE; probe++) {
+            int offset = slotOffset((index + probe) & mask);
+            long completedAt = table.getLong(offset + 16);
+            if (completedAt == 0) {
+                if (target < 0) {
+                    target = offset;
+                }
+                break;
+            }
+            if (table.getLong(offset) == hash1 && table.getLong(offset + 8) == hash2) {
+                target = offset;
+                break;
+            }
+            if (target < 0 && now - completedAt >= ttlMillis) {
+                // Reuse the first expired slot, unless the key itself is further along the probe sequence.
+                target = offset;
+            }
+            if (completedAt < oldestCompletedAt) {
+                oldestCompletedAt = completedAt;
+                oldest = offset;
+            }
+        }
+        if (target < 0) {
+            evictionCount.incrementAndGet();
+            target = oldest;
+        }
+        table.putLong(target, hash1);
+        table.putLong(target + 8, hash2);
+        table.putLong(target + 16, now);
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static String identity(CloudTrailLog log) {
+        String eTag = log.getETag();
+        return log.getS3Bucket() + '\n' + log.getS3ObjectKey() + '\n' + (eTag == null ? "" : eTag);
+    }
+
+    /**
+     * A seeded 64-bit FNV-1a hash with a final avalanche; two seeds together give a 128-bit identity.
+     */
+    private static long hash(String value, long seed) {
+        long hash = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.impl;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.metrics.ConcurrentHistogram;
+import com.amazonaws.services.cloudtrail.processinglibrary.metrics.HistogramSnapshot;
+import com.amazonaws.services.cloudtrail.processinglibrary.metrics.ProgressMetricsMXBean;
+import com.amazonaws.services.cloudtrail.processinglibrary.metrics.StageMetricsSnapshot;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressInfo;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressLogInfo;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStatus;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementation of {@link ProgressReporter} that records, for each {@link ProgressState}, a latency histogram and
+ * success and failure counters. It also records the number of bytes downloaded and the number of events per log.
+ * <p>
+ * Recording is lock-free and does not allocate beyond the object returned by {@link #reportStart(ProgressStatus)}.
+ * Metrics can be pulled with {@link #getSnapshot(ProgressState)} and {@link #getSnapshots()}, or published to the
+ * platform MBean server with {@link #registerMBean(String)}.
+ * </p>
+ * <p>
+ * An optional delegate {@link ProgressReporter} receives every call, so metrics can be collected alongside an
+ * existing reporter.
+ * </p>
+ */
+public class MetricsProgressReporter implements ProgressReporter, ProgressMetricsMXBean {
+    private static final String OBJECT_NAME_PREFIX = "com.amazonaws.services.cloudtrail.processinglibrary:type=ProgressMetrics,name=";
+
+    private static final ProgressState[] STATES = ProgressState.values();
+
+    private final ProgressReporter delegate;
+
+    private final ConcurrentHistogram[] latencies = new ConcurrentHistogram[STATES.length];
+    private final LongAdder[] successes = new LongAdder[STATES.length];
+    private final LongAdder[] failures = new LongAdder[STATES.length];
+
+    private final LongAdder bytesDownloaded = new LongAdder();
+    private final LongAdder eventsProcessed = new LongAdder();
+    private final ConcurrentHistogram eventsPerLog = new ConcurrentHistogram();
+
+    private volatile ObjectName objectName;
+
+    /**
+     * Create a <code>MetricsProgressReporter</code> that only collects metrics.
+     */
+    public MetricsProgressReporter() {
+        this(null);
+    }
+
+    /**
+     * Create a <code>MetricsProgressReporter</code> that collects metrics and forwards every call to
+     * <code>delegate</code>.
+     *
+     * @param delegate the {@link ProgressReporter} to forward to, may be <code>null</code>.
+     */
+    public MetricsProgressReporter(ProgressReporter delegate) {
+        this.delegate = delegate;
+        for (int i = 0; i < STATES.length; i++) {
+            latencies[i] = new ConcurrentHistogram();
+            successes[i] = new LongAdder();
+            failures[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public Object reportStart(ProgressStatus status) {
+        long startNanos = System.nanoTime();
+        if (delegate == null) {
+            return startNanos;
+        }
+        return new StartToken(startNanos, delegate.reportStart(status));
+    }
+
+    @Override
+    public void reportEnd(ProgressStatus status, Object object) {
+        long endNanos = System.nanoTime();
+
+        Object delegateObject = object;
+        long startNanos = -1;
+        if (object instanceof StartToken) {
+            StartToken token = (StartToken) object;
+            startNanos = token.startNanos;
+            delegateObject = token.delegateObject;
+        } else if (object instanceof Long) {
+            startNanos = (Long) object;
+        }
+
+        try {
+            record(status, startNanos < 0 ? -1 : endNanos - startNanos);
+        } finally {
+            if (delegate != null) {
+                delegate.reportEnd(status, delegateObject);
+            }
+        }
+    }
+
+    private void record(ProgressStatus status, long elapsedNanos) {
+        ProgressState state = status.getProgressState();
+        if (state == null) {
+            return;
+        }
+        int i = state.ordinal();
+        if (elapsedNanos >= 0) {
+            latencies[i].record(elapsedNanos);
+        }
+
+        ProgressInfo info = status.getProgressInfo();
+        if (info == null || !info.isSuccess()) {
+            failures[i].increment();
+            return;
+        }
+        successes[i].increment();
+
+        if (info instanceof ProgressLogInfo) {
+            CloudTrailLog log = ((ProgressLogInfo) info).getLog();
+            if (log == null) {
+                return;
+            }
+            if (state == ProgressState.downloadLog) {
+                bytesDownloaded.add(log.getLogFileSize());
+            } else if (state == ProgressState.processLog) {
+                eventsPerLog.record(log.getEventCount());
+                eventsProcessed.add(log.getEventCount());
+            }
+        }
+    }
+
+    /**
+     * Get the metrics collected so far for a single stage.
+     *
+     * @param state the {@link ProgressState} of the stage.
+     * @return a {@link StageMetricsSnapshot} of the stage.
+     */
+    public StageMetricsSnapshot getSnapshot(ProgressState state) {
+        int i = state.ordinal();
+        return new StageMetricsSnapshot(state.name(), successes[i].sum(), failures[i].sum(), latencies[i].snapshot());
+    }
+
+    /**
+     * Get the metrics collected so far for every stage.
+     *
+     * @return a {@link StageMetricsSnapshot} per {@link ProgressState}.
+     */
+    public Map<ProgressState, StageMetricsSnapshot> getSnapshots() {
+        Map<ProgressState, StageMetricsSnapshot> snapshots = new EnumMap<>(ProgressState.class);
+        for (ProgressState state : STATES) {
+            snapshots.put(state, getSnapshot(state));
+        }
+        return snapshots;
+    }
+
+    @Override
+    public Map<String, StageMetricsSnapshot> getStages() {
+        Map<String, StageMetricsSnapshot> stages = new LinkedHashMap<>();
+        for (ProgressState state : STATES) {
+            stages.put(state.name(), getSnapshot(state));
+        }
+        return stages;
+    }
+
+    @Override
+    public long getBytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    @Override
+    public long getEventsProcessed() {
+        return eventsProcessed.sum();
+    }
+
+    @Override
+    public HistogramSnapshot getEventsPerLog() {
+        return eventsPerLog.snapshot();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < STATES.length; i++) {
+            latencies[i].reset();
+            successes[i].reset();
+            failures[i].reset();
+        }
+        bytesDownloaded.reset();
+        eventsProcessed.reset();
+        eventsPerLog.reset();
+    }
+
+    /**
+     * Register this reporter with the platform MBean server under
+     * <code>com.amazonaws.services.cloudtrail.processinglibrary:type=ProgressMetrics,name=&lt;name&gt;</code>.
+     *
+     * @param name the value of the <code>name</code> key of the object name.
+     * @return the {@link ObjectName} this reporter was registered under.
+     * @throws IllegalStateException if the MBean cannot be registered.
+     */
+    public synchronized ObjectName registerMBean(String name) {
+        try {
+            ObjectName newName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+            objectName = newName;
+            return newName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register progress metrics MBean " + name, e);
+        }
+    }
+
+    /**
+     * Unregister this reporter from the platform MBean server, if it was registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister progress metrics MBean " + objectName, e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    /**
+     * Carries the start time together with the object returned by the delegate reporter.
+     */
+    private static final class StartToken {
+        private final long startNanos;
+        private final Object delegateObject;
+
+        private StartToken(long startNanos, Object delegateObject) {
+            this.startNanos = startNanos;
+            this.delegateObject = delegateObject;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.impl;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.SelectiveProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStatus;
+
+/**
+ * Implementation of {@link SelectiveProgressReporter} that reports nothing, so the library skips progress reporting
+ * altogether.
+ */
+public class NoOpProgressReporter implements SelectiveProgressReporter {
+
+    @Override
+    public boolean isReportable(ProgressState progressState) {
+        return false;
+    }
+
+    @Override
+    public Object reportStart(ProgressStatus status) {
+        return null;
+    }
+
+    @Override
+    public void reportEnd(ProgressStatus status, Object object) {
+    }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.impl;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.SelectiveProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStatus;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of {@link SelectiveProgressReporter} that forwards the actions of one in every
+ * <code>sampleRate</code> messages to a delegate {@link ProgressReporter}.
+ * <p>
+ * The decision is a hash of the SQS message ID, so every action of a sampled message is reported: parsing it,
+ * processing its source, downloading and processing each of its logs, and deleting it. CloudTrail delivers one log per
+ * S3 event notification, which makes this one in every <code>sampleRate</code> logs. An action about a log without a
+ * message is sampled on the bucket and key of the log instead. {@link ProgressState#pollQueue} happens once per poll
+ * and is always forwarded; other actions about neither a message nor a log are sampled by counting them. If the
+ * delegate is itself a {@link SelectiveProgressReporter}, it is consulted for the sampled actions as well.
+ * </p>
+ */
+public class SamplingProgressReporter implements SelectiveProgressReporter {
+    private final ProgressReporter delegate;
+    private final int sampleRate;
+    private final AtomicLong[] counters;
+
+    /**
+     * Create a <code>SamplingProgressReporter</code>.
+     *
+     * @param delegate the {@link ProgressReporter} sampled actions are forwarded to.
+     * @param sampleRate report one in every <code>sampleRate</code> actions; 1 reports every action.
+     */
+    public SamplingProgressReporter(ProgressReporter delegate, int sampleRate) {
+        LibraryUtils.checkArgumentNotNull(delegate, "delegate is null");
+        LibraryUtils.checkCondition(sampleRate <= 0, "Sample rate must be greater than 0.");
+
+        this.delegate = delegate;
+        this.sampleRate = sampleRate;
+        this.counters = new AtomicLong[ProgressState.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new AtomicLong();
+        }
+    }
+
+    @Override
+    public boolean isReportable(ProgressState progressState) {
+        if (progressState != ProgressState.pollQueue && sampleRate > 1
+                && counters[progressState.ordinal()].getAndIncrement() % sampleRate != 0) {
+            return false;
+        }
+        return LibraryUtils.isReportable(delegate, progressState);
+    }
+
+    @Override
+    public boolean isReportable(ProgressState progressState, Message sqsMessage, CloudTrailLog ctLog) {
+        int hash;
+        if (sqsMessage != null && sqsMessage.messageId() != null) {
+            hash = sqsMessage.messageId().hashCode();
+        } else if (ctLog != null) {
+            hash = 31 * Objects.hashCode(ctLog.getS3Bucket()) + Objects.hashCode(ctLog.getS3ObjectKey());
+        } else {
+            return isReportable(progressState);
+        }
+
+        if (progressState != ProgressState.pollQueue && sampleRate > 1 && Math.floorMod(mix(hash), sampleRate) != 0) {
+            return false;
+        }
+        return LibraryUtils.isReportable(delegate, progressState, sqsMessage, ctLog);
+    }
+
+    /**
+     * Spreads the bits of <code>String</code> hash codes, whose low bits vary little across similar IDs and keys.
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public Object reportStart(ProgressStatus status) {
+        return delegate.reportStart(status);
+    }
+
+    @Override
+    public void reportEnd(ProgressStatus status, Object object) {
+        delegate.reportEnd(status, object);
+    }
+
+    /**
+     * @return the sample rate this reporter was created with.
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+}
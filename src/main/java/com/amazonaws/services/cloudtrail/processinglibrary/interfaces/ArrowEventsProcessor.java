@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.interfaces;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.AWSCloudTrailProcessingExecutor;
+import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.CallbackException;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEvent;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.arrow.CloudTrailRecordBatch;
+import org.apache.arrow.memory.BufferAllocator;
+
+/**
+ * Provides a callback method that receives events as {@link CloudTrailRecordBatch}es of Apache Arrow vectors instead
+ * of lists of {@link CloudTrailEvent}.
+ * <p>
+ * When an <code>ArrowEventsProcessor</code> is registered with
+ * {@link AWSCloudTrailProcessingExecutor.Builder#withArrowEventsProcessor(ArrowEventsProcessor)}, it replaces the
+ * {@link EventsProcessor}: log files are read straight into vectors whose buffers are taken from
+ * {@link #getAllocator()}, and no {@link CloudTrailEvent} is created. As with {@link ColumnarEventsProcessor}, the
+ * {@link EventFilter} is not invoked and raw event info is not available on this path. A batch holds at most
+ * <code>maxEventsPerEmit</code> events and never spans more than one log file. This interface needs
+ * <code>arrow-vector</code>, an optional dependency of the library.
+ * </p>
+ */
+public interface ArrowEventsProcessor {
+
+    /**
+     * The allocator every batch takes its buffers from, for example a <code>RootAllocator</code> or a child of it. It
+     * should be the same instance for the lifetime of the processor.
+     *
+     * @return the {@link BufferAllocator} to use.
+     */
+    public BufferAllocator getAllocator();
+
+    /**
+     * A callback method that processes a batch of events.
+     * <p>
+     * The library closes the batch when this method returns or throws. To keep the events,
+     * {@link CloudTrailRecordBatch#transferTo(BufferAllocator) transfer} them to a <code>VectorSchemaRoot</code> that
+     * the processor closes itself.
+     * </p>
+     *
+     * @param batch a {@link CloudTrailRecordBatch}.
+     * @throws CallbackException if an error occurs while processing <code>batch</code>.
+     */
+    public void process(CloudTrailRecordBatch batch) throws CallbackException;
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.interfaces;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.AWSCloudTrailProcessingExecutor;
+import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.CallbackException;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEvent;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.columnar.CloudTrailEventBatch;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.columnar.ColumnType;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+
+import java.util.Set;
+
+/**
+ * Provides a callback method that receives events as column-oriented {@link CloudTrailEventBatch}es instead of lists
+ * of {@link CloudTrailEvent}.
+ * <p>
+ * When a <code>ColumnarEventsProcessor</code> is registered with
+ * {@link AWSCloudTrailProcessingExecutor.Builder#withColumnarEventsProcessor(ColumnarEventsProcessor)}, it replaces
+ * the {@link EventsProcessor}: log files are read straight into the columns returned by {@link #getColumns()} and no
+ * {@link CloudTrailEvent} is created. Because there is no event object to hand over, the {@link EventFilter} is not
+ * invoked on this path and raw event info is not available. A batch holds at most <code>maxEventsPerEmit</code>
+ * events and never spans more than one log file.
+ * </p>
+ */
+public interface ColumnarEventsProcessor {
+
+    /**
+     * The fields to read for every event. Invoked once per log file; every field must have a
+     * {@link ColumnType#of(CloudTrailEventField) column type}.
+     *
+     * @return the set of {@link CloudTrailEventField} to read.
+     */
+    public Set<CloudTrailEventField> getColumns();
+
+    /**
+     * A callback method that processes a batch of events.
+     * <p>
+     * The batch and its columns are reused once this method returns.
+     * </p>
+     *
+     * @param batch a {@link CloudTrailEventBatch}.
+     * @throws CallbackException if an error occurs while processing <code>batch</code>.
+     */
+    public void process(CloudTrailEventBatch batch) throws CallbackException;
+}
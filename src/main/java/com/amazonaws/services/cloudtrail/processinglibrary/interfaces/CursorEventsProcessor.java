@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.interfaces;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.AWSCloudTrailProcessingExecutor;
+import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.CallbackException;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEvent;
+import com.amazonaws.services.cloudtrail.processinglibrary.serializer.EventCursor;
+
+/**
+ * Provides a callback method that reads each event through an {@link EventCursor} instead of receiving lists of
+ * {@link CloudTrailEvent}.
+ * <p>
+ * When a <code>CursorEventsProcessor</code> is registered with
+ * {@link AWSCloudTrailProcessingExecutor.Builder#withCursorEventsProcessor(CursorEventsProcessor)}, it replaces the
+ * {@link EventsProcessor}: one cursor is moved over every event of a log file and {@link #process(EventCursor)} is
+ * called once for each of them, so no {@link CloudTrailEvent} is created unless the processor
+ * {@link EventCursor#copy() copies} one. As with {@link ColumnarEventsProcessor}, the {@link EventFilter} is not
+ * invoked and raw event info is not available on this path.
+ * </p>
+ */
+public interface CursorEventsProcessor {
+
+    /**
+     * A callback method that processes the event the cursor is on.
+     * <p>
+     * The cursor is only valid until this method returns, and must not be moved by it; {@link EventCursor#copy()} the
+     * events to keep.
+     * </p>
+     *
+     * @param cursor an {@link EventCursor} on the event to process.
+     * @throws CallbackException if an error occurs while processing the event.
+     */
+    public void process(EventCursor cursor) throws CallbackException;
+}
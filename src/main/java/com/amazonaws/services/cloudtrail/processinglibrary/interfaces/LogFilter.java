@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.interfaces;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.CallbackException;
+import com.amazonaws.services.cloudtrail.processinglibrary.manager.S3Manager;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLogKey;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
+
+/**
+ * LogFilter is a call back function that hands each CloudTrailLog of an accepted CloudTrailSource to user. User can
+ * determinate whether want to process this log. The filter() method is invoked after {@link SourceFilter} accepted
+ * the source and before the log is downloaded with {@link S3Manager#downloadLog(CloudTrailLog, CloudTrailSource)},
+ * so logs that are filtered out cost no S3 request. For performance, neither the log nor the source is cloned,
+ * caller should not change their content.
+ */
+public interface LogFilter {
+
+    /**
+     * A callback method used to filter a {@link CloudTrailLog} prior to download.
+     * <p>
+     * The bucket and object key are available from the log, as well as the account ID, region and delivery time
+     * parsed from the object key through {@link CloudTrailLog#getLogKey()}. A log that is filtered out counts as
+     * successfully processed, so the SQS message is still deleted once the rest of the source is processed.
+     * </p>
+     * @param log The {@link CloudTrailLog} to filter.
+     * @param source The {@link CloudTrailSource} that contains <code>log</code>.
+     * @return <code>true</code> if the log should be downloaded and processed.
+     * @throws CallbackException When error happened during filtering <code>log</code>. CPL will eventually hand this
+     * exception back to <code>ExceptionHandler</code>.
+     * @see CloudTrailLogKey
+     */
+    public boolean filterLog(final CloudTrailLog log, final CloudTrailSource source) throws CallbackException;
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.interfaces;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.manager.S3Manager;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
+
+/**
+ * ProcessedLogLedger remembers which CloudTrail log files have been processed, so the same log is not downloaded and
+ * processed again when its SQS message is redelivered, S3 sends a duplicate notification or a backfill replays it.
+ * <p>
+ * {@link #isProcessed(CloudTrailLog)} is consulted after the {@link LogFilter} and before
+ * {@link S3Manager#downloadLog(CloudTrailLog, CloudTrailSource)}; a log that is already processed counts as
+ * successfully processed, so its SQS message is still deleted. {@link #markProcessed(CloudTrailLog)} is called once
+ * all events of a log have been handed to the {@link EventsProcessor}. A ledger is called from multiple threads
+ * concurrently and should never throw: forgetting a log only costs processing it again.
+ * </p>
+ */
+public interface ProcessedLogLedger {
+
+    /**
+     * Whether a log has already been processed.
+     *
+     * @param log The {@link CloudTrailLog} about to be downloaded, identified by its bucket, object key and ETag.
+     * @return <code>true</code> if the log was processed and should be skipped.
+     */
+    public boolean isProcessed(CloudTrailLog log);
+
+    /**
+     * Record that a log has been processed.
+     *
+     * @param log The {@link CloudTrailLog} whose events were all handed to the {@link EventsProcessor}.
+     */
+    public void markProcessed(CloudTrailLog log);
+}
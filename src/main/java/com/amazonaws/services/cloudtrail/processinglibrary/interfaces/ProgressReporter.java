@@ -39,6 +39,9 @@ import java.util.List;
  *   <li>Downloading an AWS CloudTrail log file - {@link S3Manager#downloadLog(CloudTrailLog, CloudTrailSource)}.</li>
  *   <li>Processing the AWS CloudTrail log file - {@link EventReader#processSource(CloudTrailSource)}.</li>
  * </ol>
+ * <p>
+ * Implement {@link SelectiveProgressReporter} to skip some of these actions, and the cost of reporting them, entirely.
+ * </p>
  *
  * @see ProgressStatus for more information.
  */
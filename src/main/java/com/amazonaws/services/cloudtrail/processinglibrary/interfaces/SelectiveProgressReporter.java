@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.interfaces;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStatus;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+/**
+ * A {@link ProgressReporter} that tells the AWS CloudTrail Processing Library up front whether it wants to hear
+ * about a stage.
+ * <p>
+ * {@link #isReportable(ProgressState, Message, CloudTrailLog)} is invoked once at the beginning of every action listed
+ * in {@link ProgressReporter}, or {@link #isReportable(ProgressState)} for actions that are not about a single
+ * message, such as {@link ProgressState#pollQueue}. When it returns <code>false</code>, neither {@link #reportStart(ProgressStatus)} nor
+ * {@link #reportEnd(ProgressStatus, Object)} is invoked for that action and no {@link ProgressStatus} is created
+ * for it, unless one is needed to report an exception to the {@link ExceptionHandler}.
+ * </p>
+ */
+public interface SelectiveProgressReporter extends ProgressReporter {
+
+    /**
+     * A callback method that decides whether the action about to start should be reported.
+     * <p>
+     * This method is invoked on the processing threads for every action, so it must be cheap and thread safe.
+     * </p>
+     *
+     * @param progressState the {@link ProgressState} of the action about to start.
+     * @return <code>true</code> if {@link #reportStart(ProgressStatus)} and {@link #reportEnd(ProgressStatus, Object)}
+     * should be invoked for this action.
+     */
+    public boolean isReportable(ProgressState progressState);
+
+    /**
+     * A callback method that decides whether an action about a given message or log should be reported, so that a
+     * reporter can take the same decision for every action about the same message. The default implementation ignores
+     * the message and the log.
+     * <p>
+     * This method is invoked on the processing threads for every action, so it must be cheap and thread safe.
+     * </p>
+     *
+     * @param progressState the {@link ProgressState} of the action about to start.
+     * @param sqsMessage the SQS message the action is about, or <code>null</code> if there is none.
+     * @param ctLog the {@link CloudTrailLog} the action is about, or <code>null</code> for an action about the whole
+     * message.
+     * @return <code>true</code> if {@link #reportStart(ProgressStatus)} and {@link #reportEnd(ProgressStatus, Object)}
+     * should be invoked for this action.
+     */
+    default boolean isReportable(ProgressState progressState, Message sqsMessage, CloudTrailLog ctLog) {
+        return isReportable(progressState);
+    }
+}
@@ -0,0 +1,528 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.manager;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.metrics.ConcurrencyLimitMetricsMXBean;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@link S3ObjectFetcher} that limits the number of concurrent S3 GETs and adapts the limit to how S3 responds.
+ * <p>
+ * The limit follows an additive-increase, multiplicative-decrease rule:
+ * </p>
+ * <ul>
+ *     <li>Every successful GET raises the limit by <code>1/limit</code>, so the limit grows by about one per round of
+ *     requests.</li>
+ *     <li>A throttling error (<code>503 SlowDown</code>) multiplies the limit by the throttle backoff ratio, 0.5 by
+ *     default. The throttled GET is retried after a jittered delay instead of failing the log.</li>
+ *     <li>When the smoothed response time rises above the latency tolerance times the baseline (the response time
+ *     without queuing), the limit is multiplied by the latency backoff ratio, 0.9 by default, since further
+ *     concurrency only adds queuing.</li>
+ * </ul>
+ * <p>
+ * At most one decrease is applied per smoothed response time, so a burst of errors from one round of requests counts
+ * once. A GET holds its permit until its response stream is closed or aborted, so the limit covers the whole transfer.
+ * Callers block while the limit is reached. The current limit and related metrics are available through
+ * {@link ConcurrencyLimitMetricsMXBean} and can be published with {@link #registerMBean(String)}.
+ * </p>
+ * <p>
+ * The SDK retries throttled requests on its own and only the last error, if any, reaches this fetcher, so with the
+ * default client configuration most throttling goes unnoticed. Either register an {@link S3ThrottleInterceptor} on the
+ * client and pass it to {@link Builder#withThrottleInterceptor(S3ThrottleInterceptor)}, which reports every throttled
+ * attempt, or give the delegate a client that does not retry throttling errors, e.g. one built with
+ * <code>RetryPolicy.none()</code>. Without an interceptor the fetcher logs a warning when it is built.
+ * </p>
+ */
+public class AdaptiveConcurrencyS3ObjectFetcher implements S3ObjectFetcher, ConcurrencyLimitMetricsMXBean {
+    private static final Log logger = LogFactory.getLog(AdaptiveConcurrencyS3ObjectFetcher.class);
+
+    private static final String OBJECT_NAME_PREFIX = "com.amazonaws.services.cloudtrail.processinglibrary:type=ConcurrencyLimitMetrics,name=";
+
+    /**
+     * Weight of a new response time in the smoothed response time.
+     */
+    private static final double SMOOTHING = 0.1;
+
+    /**
+     * The baseline is the fastest response time seen in the current and the previous window of this length, so it
+     * recovers within two windows after S3 gets slower for good.
+     */
+    private static final long BASELINE_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final S3ObjectFetcher delegate;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double throttleBackoffRatio;
+    private final double latencyBackoffRatio;
+    private final double latencyTolerance;
+    private final int maxThrottleRetries;
+    private final long throttleRetryDelayMillis;
+    private final boolean observesAttempts;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private long currentWindowMinNanos = Long.MAX_VALUE;
+    private long previousWindowMinNanos = Long.MAX_VALUE;
+    private long windowStartNanos;
+    private double baselineNanos;
+    private double smoothedNanos;
+    private long lastDecreaseNanos;
+
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder latencyBackoffs = new LongAdder();
+
+    private volatile ObjectName objectName;
+
+    private AdaptiveConcurrencyS3ObjectFetcher(Builder builder) {
+        this.delegate = builder.delegate;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.limit = builder.initialLimit;
+        this.throttleBackoffRatio = builder.throttleBackoffRatio;
+        this.latencyBackoffRatio = builder.latencyBackoffRatio;
+        this.latencyTolerance = builder.latencyTolerance;
+        this.maxThrottleRetries = builder.maxThrottleRetries;
+        this.throttleRetryDelayMillis = builder.throttleRetryDelayMillis;
+        this.observesAttempts = builder.throttleInterceptor != null;
+        this.lastDecreaseNanos = System.nanoTime();
+        this.windowStartNanos = lastDecreaseNanos;
+    }
+
+    /**
+     * Issue the request once a permit is available, retrying it if S3 throttles it.
+     *
+     * @param request the GET request to issue.
+     * @return the response; its permit is released when the stream is closed or aborted.
+     */
+    @Override
+    public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+        for (int attempt = 0; ; attempt++) {
+            acquire();
+            long start = System.nanoTime();
+            ResponseInputStream<GetObjectResponse> response;
+            try {
+                response = delegate.getObject(request);
+            } catch (AwsServiceException e) {
+                release();
+                if (!isThrottling(e)) {
+                    throw e;
+                }
+                if (!observesAttempts) {
+                    onThrottled();
+                }
+                if (attempt >= maxThrottleRetries) {
+                    throw e;
+                }
+                logger.debug("S3 throttled GET " + request.key() + ", retrying with concurrency limit " + getLimit());
+                sleepBeforeRetry(attempt, request);
+                continue;
+            } catch (RuntimeException | Error e) {
+                release();
+                throw e;
+            }
+
+            long now = System.nanoTime();
+            onSuccess(now - start, now);
+            return releaseOnClose(response);
+        }
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                permitAvailable.await();
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.builder().message("Interrupted while waiting for an S3 concurrency permit").cause(e).build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSuccess(long latencyNanos, long now) {
+        lock.lock();
+        try {
+            if (now - windowStartNanos >= BASELINE_WINDOW_NANOS) {
+                previousWindowMinNanos = currentWindowMinNanos;
+                currentWindowMinNanos = Long.MAX_VALUE;
+                windowStartNanos = now;
+            }
+            currentWindowMinNanos = Math.min(currentWindowMinNanos, latencyNanos);
+            baselineNanos = Math.min(currentWindowMinNanos, previousWindowMinNanos);
+            smoothedNanos = smoothedNanos == 0 ? latencyNanos : smoothedNanos + (latencyNanos - smoothedNanos) * SMOOTHING;
+
+            if (smoothedNanos > baselineNanos * latencyTolerance) {
+                if (decrease(latencyBackoffRatio, now)) {
+                    latencyBackoffs.increment();
+                }
+            } else {
+                double oldLimit = limit;
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+                if ((int) limit > (int) oldLimit) {
+                    permitAvailable.signal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Multiply the limit by <code>ratio</code>, unless it was already reduced within the last smoothed response time.
+     *
+     * @return whether the limit was reduced.
+     */
+    private boolean decrease(double ratio, long now) {
+        lock.lock();
+        try {
+            if (now - lastDecreaseNanos < smoothedNanos) {
+                return false;
+            }
+            lastDecreaseNanos = now;
+            limit = Math.max(minLimit, limit * ratio);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Count a throttled attempt and reduce the limit.
+     */
+    void onThrottled() {
+        throttled.increment();
+        decrease(throttleBackoffRatio, System.nanoTime());
+    }
+
+    private static boolean isThrottling(AwsServiceException e) {
+        if (isThrottling(e.statusCode())) {
+            return true;
+        }
+        return e.awsErrorDetails() != null && "SlowDown".equals(e.awsErrorDetails().errorCode());
+    }
+
+    static boolean isThrottling(int statusCode) {
+        return statusCode == 503 || statusCode == 429;
+    }
+
+    private void sleepBeforeRetry(int attempt, GetObjectRequest request) {
+        long delay = throttleRetryDelayMillis << Math.min(attempt, 16);
+        try {
+            Thread.sleep(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.builder().message("Interrupted while retrying S3 GET " + request.key()).cause(e).build();
+        }
+    }
+
+    /**
+     * Wrap a response so its permit is released exactly once, when the stream is closed or aborted.
+     */
+    private ResponseInputStream<GetObjectResponse> releaseOnClose(ResponseInputStream<GetObjectResponse> response) {
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable releaseOnce = () -> {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        };
+        FilterInputStream body = new FilterInputStream(response) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    releaseOnce.run();
+                }
+            }
+        };
+        return new ResponseInputStream<>(response.response(), AbortableInputStream.create(body, () -> {
+            try {
+                response.abort();
+            } finally {
+                releaseOnce.run();
+            }
+        }));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLatencyBackoffs() {
+        return latencyBackoffs.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getBaselineLatencyMillis() {
+        lock.lock();
+        try {
+            return baselineNanos / TimeUnit.MILLISECONDS.toNanos(1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getSmoothedLatencyMillis() {
+        lock.lock();
+        try {
+            return smoothedNanos / TimeUnit.MILLISECONDS.toNanos(1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Register this fetcher with the platform MBean server.
+     *
+     * @param name the value of the <code>name</code> key of the MBean object name.
+     * @return the object name the MBean was registered under.
+     */
+    public synchronized ObjectName registerMBean(String name) {
+        try {
+            ObjectName newName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+            objectName = newName;
+            return newName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register concurrency limit metrics MBean " + name, e);
+        }
+    }
+
+    /**
+     * Unregister this fetcher from the platform MBean server, if it was registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister concurrency limit metrics MBean " + objectName, e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    /**
+     * Builder for an {@link AdaptiveConcurrencyS3ObjectFetcher}.
+     */
+    public static class Builder {
+        private final S3ObjectFetcher delegate;
+        private int initialLimit = 8;
+        private int minLimit = 1;
+        private int maxLimit = 256;
+        private double throttleBackoffRatio = 0.5;
+        private double latencyBackoffRatio = 0.9;
+        private double latencyTolerance = 2.0;
+        private int maxThrottleRetries = 3;
+        private long throttleRetryDelayMillis = 100L;
+        private S3ThrottleInterceptor throttleInterceptor;
+
+        /**
+         * @param delegate the {@link S3ObjectFetcher} that issues the requests, e.g. <code>s3Client::getObject</code>.
+         */
+        public Builder(S3ObjectFetcher delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * @param initialLimit the concurrency limit to start with; 8 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * @param minLimit the lowest concurrency limit; 1 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        /**
+         * @param maxLimit the highest concurrency limit; 256 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * @param throttleBackoffRatio the factor applied to the limit when S3 throttles a GET; 0.5 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withThrottleBackoffRatio(double throttleBackoffRatio) {
+            this.throttleBackoffRatio = throttleBackoffRatio;
+            return this;
+        }
+
+        /**
+         * @param latencyBackoffRatio the factor applied to the limit when response times are inflated; 0.9 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withLatencyBackoffRatio(double latencyBackoffRatio) {
+            this.latencyBackoffRatio = latencyBackoffRatio;
+            return this;
+        }
+
+        /**
+         * @param latencyTolerance how many times the baseline response time the smoothed response time may reach
+         *     before the limit is reduced; 2.0 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withLatencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        /**
+         * @param maxThrottleRetries how many times a throttled GET is retried before the error is returned; 3 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withMaxThrottleRetries(int maxThrottleRetries) {
+            this.maxThrottleRetries = maxThrottleRetries;
+            return this;
+        }
+
+        /**
+         * @param throttleRetryDelayMillis the delay, in milliseconds, before the first retry of a throttled GET;
+         *     it doubles with every further retry. 100 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withThrottleRetryDelayMillis(long throttleRetryDelayMillis) {
+            this.throttleRetryDelayMillis = throttleRetryDelayMillis;
+            return this;
+        }
+
+        /**
+         * @param throttleInterceptor the {@link S3ThrottleInterceptor} registered on the client the delegate uses; the
+         *     fetcher then learns of every throttled attempt, including the ones the SDK retries.
+         * @return this {@link Builder}.
+         */
+        public Builder withThrottleInterceptor(S3ThrottleInterceptor throttleInterceptor) {
+            this.throttleInterceptor = throttleInterceptor;
+            return this;
+        }
+
+        /**
+         * @return a new {@link AdaptiveConcurrencyS3ObjectFetcher}.
+         */
+        public AdaptiveConcurrencyS3ObjectFetcher build() {
+            LibraryUtils.checkArgumentNotNull(delegate, "delegate is null.");
+            LibraryUtils.checkCondition(minLimit < 1, "minLimit is less than 1.");
+            LibraryUtils.checkCondition(maxLimit < minLimit, "maxLimit is less than minLimit.");
+            LibraryUtils.checkCondition(initialLimit < minLimit || initialLimit > maxLimit, "initialLimit is not between minLimit and maxLimit.");
+            LibraryUtils.checkCondition(throttleBackoffRatio <= 0 || throttleBackoffRatio >= 1, "throttleBackoffRatio is not between 0 and 1.");
+            LibraryUtils.checkCondition(latencyBackoffRatio <= 0 || latencyBackoffRatio >= 1, "latencyBackoffRatio is not between 0 and 1.");
+            LibraryUtils.checkCondition(latencyTolerance <= 1, "latencyTolerance is not greater than 1.");
+            LibraryUtils.checkCondition(maxThrottleRetries < 0, "maxThrottleRetries is negative.");
+            LibraryUtils.checkCondition(throttleRetryDelayMillis < 0, "throttleRetryDelayMillis is negative.");
+            AdaptiveConcurrencyS3ObjectFetcher fetcher = new AdaptiveConcurrencyS3ObjectFetcher(this);
+            if (throttleInterceptor != null) {
+                throttleInterceptor.bind(fetcher);
+            } else {
+                logger.warn("No S3ThrottleInterceptor given; throttling retried by the SDK is not seen by the concurrency limit.");
+            }
+            return fetcher;
+        }
+    }
+}
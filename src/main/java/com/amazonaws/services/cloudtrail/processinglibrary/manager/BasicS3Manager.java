@@ -25,6 +25,7 @@ import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStat
 import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStatus;
 import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
 import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
@@ -33,7 +34,11 @@ import software.amazon.awssdk.services.s3.model.S3Exception;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Manages Amazon S3 service-related operations.
@@ -41,11 +46,17 @@ import java.io.IOException;
 public class BasicS3Manager implements S3Manager {
     private static final Log logger = LogFactory.getLog(S3Manager.class);
 
-    private S3Client s3Client;
+    private S3ObjectFetcher objectFetcher;
     private ProcessingConfiguration config;
     private ExceptionHandler exceptionHandler;
     private ProgressReporter progressReporter;
 
+    /**
+     * Issues byte-range GETs for logs above the ranged GET threshold; <code>null</code> when ranged downloads are
+     * disabled.
+     */
+    private ExecutorService rangeExecutor;
+
     /**
      * S3Manager constructor.
      *
@@ -58,12 +69,36 @@ public class BasicS3Manager implements S3Manager {
                           ProcessingConfiguration config,
                           ExceptionHandler exceptionHandler,
                           ProgressReporter progressReporter) {
+        this(s3Client == null ? null : s3Client::getObject, config, exceptionHandler, progressReporter);
+    }
+
+    /**
+     * S3Manager constructor that issues its GET requests through an {@link S3ObjectFetcher}, such as a
+     * {@link HedgingS3ObjectFetcher}.
+     *
+     * @param objectFetcher The {@link S3ObjectFetcher} used to issue GET requests.
+     * @param config A {@link ProcessingConfiguration}.
+     * @param exceptionHandler An implementation of {@link ExceptionHandler} used to handle errors.
+     * @param progressReporter An implementation of {@link ProgressReporter} used to report progress.
+     */
+    public BasicS3Manager(S3ObjectFetcher objectFetcher,
+                          ProcessingConfiguration config,
+                          ExceptionHandler exceptionHandler,
+                          ProgressReporter progressReporter) {
         this.config = config;
         this.exceptionHandler = exceptionHandler;
         this.progressReporter = progressReporter;
-        this.s3Client = s3Client;
+        this.objectFetcher = objectFetcher;
 
         validate();
+
+        if (config.getRangedGetThresholdBytes() > 0) {
+            rangeExecutor = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "cpl-s3-ranged-get");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
     }
 
     /**
@@ -75,8 +110,9 @@ public class BasicS3Manager implements S3Manager {
      */
     public byte[] downloadLog(CloudTrailLog ctLog, CloudTrailSource source) {
         boolean success = false;
-        ProgressStatus downloadLogStatus = new ProgressStatus(ProgressState.downloadLog, new BasicProcessLogInfo(source, ctLog, success));
-        final Object downloadSourceReportObject = progressReporter.reportStart(downloadLogStatus);
+        ProgressStatus downloadLogStatus = LibraryUtils.isReportable(progressReporter, ProgressState.downloadLog, source, ctLog)
+                ? new ProgressStatus(ProgressState.downloadLog, new BasicProcessLogInfo(source, ctLog, success)) : null;
+        final Object downloadSourceReportObject = LibraryUtils.startToProcess(progressReporter, downloadLogStatus);
 
         byte[] s3ObjectBytes = null;
 
@@ -94,7 +130,9 @@ public class BasicS3Manager implements S3Manager {
 
         } catch (S3Exception | IOException e) {
             String exceptionMessage = String.format("Fail to download log file %s/%s.", ctLog.getS3Bucket(), ctLog.getS3ObjectKey());
-            LibraryUtils.handleException(exceptionHandler, downloadLogStatus, e, exceptionMessage);
+            ProgressStatus exceptionStatus = downloadLogStatus != null ? downloadLogStatus
+                    : new ProgressStatus(ProgressState.downloadLog, new BasicProcessLogInfo(source, ctLog, false));
+            LibraryUtils.handleException(exceptionHandler, exceptionStatus, e, exceptionMessage);
 
         } finally {
             LibraryUtils.endToProcess(progressReporter, success, downloadLogStatus, downloadSourceReportObject);
@@ -103,6 +141,128 @@ public class BasicS3Manager implements S3Manager {
         return s3ObjectBytes;
     }
 
+    /**
+     * Opens an AWS CloudTrail log from the specified source as a stream of its compressed content.
+     * <p>
+     * When {@link ProcessingConfiguration#getRangedGetThresholdBytes()} is positive, a log whose notification reports a
+     * size up to the threshold is downloaded completely with a single GET. Otherwise the first
+     * {@link ProcessingConfiguration#getRangedGetPartSizeBytes()} bytes are requested on their own to learn the object
+     * size, and the rest of the object is fetched as up to {@link ProcessingConfiguration#getRangedGetParallelism()}
+     * concurrent byte-range GETs and returned as a stream that reassembles them in order, so decompression can start
+     * before the last range arrives. The {@link ProgressState#downloadLog} stage ends when that stream is closed.
+     * </p>
+     *
+     * @param ctLog The {@link CloudTrailLog} to download
+     * @param source The {@link CloudTrailSource} to download the log from.
+     * @return A stream of the log data, or <code>null</code> if the download failed.
+     */
+    @Override
+    public InputStream downloadLogStream(CloudTrailLog ctLog, CloudTrailSource source) {
+        if (!useRangedGet(ctLog)) {
+            return S3Manager.super.downloadLogStream(ctLog, source);
+        }
+
+        boolean success = false;
+        boolean handedOff = false;
+        ProgressStatus downloadLogStatus = LibraryUtils.isReportable(progressReporter, ProgressState.downloadLog, source, ctLog)
+                ? new ProgressStatus(ProgressState.downloadLog, new BasicProcessLogInfo(source, ctLog, success)) : null;
+        final Object downloadSourceReportObject = LibraryUtils.startToProcess(progressReporter, downloadLogStatus);
+
+        InputStream logStream = null;
+        final String bucketName = ctLog.getS3Bucket();
+        final String objectKey = ctLog.getS3ObjectKey();
+
+        try {
+            logStream = openRanged(ctLog, (complete, failure) -> {
+                if (failure != null) {
+                    String exceptionMessage = String.format("Fail to download log file %s/%s.", bucketName, objectKey);
+                    ProgressStatus exceptionStatus = downloadLogStatus != null ? downloadLogStatus
+                            : new ProgressStatus(ProgressState.downloadLog, new BasicProcessLogInfo(source, ctLog, false));
+                    Exception e = failure instanceof Exception ? (Exception) failure : new IOException(failure);
+                    LibraryUtils.handleException(exceptionHandler, exceptionStatus, e, exceptionMessage);
+                } else if (complete) {
+                    logger.info("Downloaded log file " + objectKey + " from " + bucketName + " in ranges");
+                }
+                LibraryUtils.endToProcess(progressReporter, complete && failure == null, downloadLogStatus,
+                        downloadSourceReportObject);
+            });
+            handedOff = logStream instanceof RangedObjectInputStream;
+            if (!handedOff) {
+                success = true;
+                logger.info("Downloaded log file " + objectKey + " from " + bucketName);
+            }
+
+        } catch (S3Exception | IOException e) {
+            String exceptionMessage = String.format("Fail to download log file %s/%s.", bucketName, objectKey);
+            ProgressStatus exceptionStatus = downloadLogStatus != null ? downloadLogStatus
+                    : new ProgressStatus(ProgressState.downloadLog, new BasicProcessLogInfo(source, ctLog, false));
+            LibraryUtils.handleException(exceptionHandler, exceptionStatus, e, exceptionMessage);
+
+        } finally {
+            if (!handedOff) {
+                LibraryUtils.endToProcess(progressReporter, success, downloadLogStatus, downloadSourceReportObject);
+            }
+        }
+
+        return logStream;
+    }
+
+    /**
+     * Opens an AWS CloudTrail log without reporting progress or failures, through the same ranged GETs as
+     * {@link #downloadLogStream(CloudTrailLog, CloudTrailSource)}.
+     *
+     * @param ctLog The {@link CloudTrailLog} to download
+     * @return A stream of the log data; reading it may still fail with an {@link IOException}.
+     * @throws IOException if the log cannot be downloaded.
+     */
+    @Override
+    public InputStream fetchLogStream(CloudTrailLog ctLog) throws IOException {
+        if (!useRangedGet(ctLog)) {
+            return S3Manager.super.fetchLogStream(ctLog);
+        }
+        try {
+            return openRanged(ctLog, (complete, failure) -> { });
+        } catch (SdkException e) {
+            throw new IOException(String.format("Fail to download log file %s/%s.", ctLog.getS3Bucket(), ctLog.getS3ObjectKey()), e);
+        }
+    }
+
+    /**
+     * Whether a log is downloaded in ranges: a log whose notification reports a size up to the threshold is not.
+     */
+    private boolean useRangedGet(CloudTrailLog ctLog) {
+        long notifiedSize = ctLog.getLogFileSize();
+        return rangeExecutor != null && (notifiedSize <= 0 || notifiedSize > config.getRangedGetThresholdBytes());
+    }
+
+    /**
+     * Request the first part of a log to learn its size, and return it if that is the whole log, or a
+     * {@link RangedObjectInputStream} that fetches the rest in parallel and notifies <code>closeListener</code>.
+     */
+    private InputStream openRanged(CloudTrailLog ctLog, RangedObjectInputStream.CloseListener closeListener) throws IOException {
+        final String bucketName = ctLog.getS3Bucket();
+        final String objectKey = ctLog.getS3ObjectKey();
+        int partSize = config.getRangedGetPartSizeBytes();
+        byte[] firstPart;
+        long objectSize;
+        String eTag;
+        ResponseInputStream<GetObjectResponse> response = getObjectRange(bucketName, objectKey, 0, partSize - 1, null);
+        try {
+            firstPart = LibraryUtils.toByteArray(response);
+            objectSize = getObjectSize(response.response(), firstPart.length);
+            eTag = response.response().eTag();
+        } finally {
+            response.close();
+        }
+        ctLog.setLogFileSize(objectSize);
+
+        if (objectSize <= firstPart.length) {
+            return new ByteArrayInputStream(firstPart);
+        }
+        return new RangedObjectInputStream(firstPart, objectSize, partSize, config.getRangedGetParallelism(),
+                rangeExecutor, (first, last) -> getObjectRange(bucketName, objectKey, first, last, eTag), closeListener);
+    }
+
     /**
      * Download an S3 object.
      *
@@ -118,13 +278,51 @@ public class BasicS3Manager implements S3Manager {
                     .key(objectKey)
                     .requestPayer(RequestPayer.REQUESTER)
                     .build();
-            return s3Client.getObject(request);
+            return objectFetcher.getObject(request);
         } catch (S3Exception e) {
             logger.error("Failed to get object " + objectKey + " from s3 bucket " + bucketName);
             throw e;
         }
     }
 
+    /**
+     * Download an inclusive byte range of an S3 object. With an <code>eTag</code>, the request fails instead of
+     * returning bytes of a different version of the object.
+     */
+    private ResponseInputStream<GetObjectResponse> getObjectRange(String bucketName, String objectKey, long first, long last,
+                                                                  String eTag) {
+        try {
+            GetObjectRequest request = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectKey)
+                    .range("bytes=" + first + "-" + last)
+                    .ifMatch(eTag)
+                    .requestPayer(RequestPayer.REQUESTER)
+                    .build();
+            return objectFetcher.getObject(request);
+        } catch (S3Exception e) {
+            logger.error("Failed to get range " + first + "-" + last + " of object " + objectKey + " from s3 bucket " + bucketName);
+            throw e;
+        }
+    }
+
+    /**
+     * Get the total object size from the <code>Content-Range</code> of a ranged response, e.g.
+     * <code>bytes 0-8388607/734003200</code>. A response without one holds the whole object.
+     */
+    private long getObjectSize(GetObjectResponse response, long received) throws IOException {
+        String contentRange = response.contentRange();
+        if (contentRange == null) {
+            return received;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Cannot parse Content-Range " + contentRange, e);
+        }
+    }
+
     /**
      * Validates input parameters.
      */
@@ -132,6 +330,6 @@ public class BasicS3Manager implements S3Manager {
         LibraryUtils.checkArgumentNotNull(config, "configuration is null");
         LibraryUtils.checkArgumentNotNull(exceptionHandler, "exceptionHandler is null");
         LibraryUtils.checkArgumentNotNull(progressReporter, "progressReporter is null");
-        LibraryUtils.checkArgumentNotNull(s3Client, "s3Client is null");
+        LibraryUtils.checkArgumentNotNull(objectFetcher, "objectFetcher is null");
     }
 }
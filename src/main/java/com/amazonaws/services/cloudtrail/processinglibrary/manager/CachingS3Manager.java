@@ -0,0 +1,513 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.manager;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An {@link S3Manager} that keeps downloaded log files in a local directory, so retrying a source whose processing
+ * failed, or processing the same logs again, costs no S3 request.
+ * <p>
+ * Compressed log files are cached as they were downloaded, keyed by bucket, object key and ETag when the notification
+ * carries one. The cache is bounded by size and evicts the least recently used files first. A hit maps the file, and
+ * {@link #downloadLogStream(CloudTrailLog, CloudTrailSource)} reads the mapping directly without copying it to the
+ * heap. Misses are downloaded with the wrapped <code>S3Manager</code>, which keeps reporting the
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState#downloadLog} stage and handling
+ * download errors; a streamed miss is written to the cache as it is read. The cache index is rebuilt from the
+ * directory on start.
+ * </p>
+ */
+public class CachingS3Manager implements S3Manager {
+    private static final Log logger = LogFactory.getLog(CachingS3Manager.class);
+
+    private static final String FILE_SUFFIX = ".gz";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final S3Manager delegate;
+    private final Path directory;
+    private final long maxBytes;
+
+    /** Cached files by name, in access order. Guarded by itself. */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * CachingS3Manager constructor.
+     *
+     * @param delegate the {@link S3Manager} that downloads logs missing from the cache, usually a {@link BasicS3Manager}.
+     * @param directory the cache directory, used by one <code>CachingS3Manager</code> at a time.
+     * @param maxBytes the maximum total size of the cached files.
+     * @throws IOException if the directory cannot be created or read.
+     */
+    public CachingS3Manager(S3Manager delegate, Path directory, long maxBytes) throws IOException {
+        LibraryUtils.checkArgumentNotNull(delegate, "delegate S3Manager is null");
+        LibraryUtils.checkArgumentNotNull(directory, "cache directory is null");
+        LibraryUtils.checkCondition(maxBytes <= 0, "cache size must be positive");
+        this.delegate = delegate;
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        Files.createDirectories(directory);
+        loadIndex();
+    }
+
+    /**
+     * Returns the cached log, or downloads it with the wrapped {@link S3Manager} and caches it.
+     *
+     * @param ctLog The {@link CloudTrailLog} to download
+     * @param source The {@link CloudTrailSource} to download the log from.
+     * @return A byte array containing the log data, or <code>null</code> if the download failed.
+     */
+    @Override
+    public byte[] downloadLog(CloudTrailLog ctLog, CloudTrailSource source) {
+        String name = fileName(ctLog);
+        ByteBuffer cached = map(name);
+        if (cached != null) {
+            hit(ctLog, cached.remaining());
+            byte[] bytes = new byte[cached.remaining()];
+            cached.get(bytes);
+            return bytes;
+        }
+
+        missCount.incrementAndGet();
+        byte[] downloaded = delegate.downloadLog(ctLog, source);
+        if (downloaded != null) {
+            write(name, downloaded);
+        }
+        return downloaded;
+    }
+
+    /**
+     * Returns a stream over the mapping of the cached log, or streams the log from the wrapped {@link S3Manager} and
+     * caches it once it has been read to the end.
+     * <p>
+     * Closing a streamed miss before its end reads the rest of the log, so a source whose processing failed still
+     * hits the cache when it is retried.
+     * </p>
+     *
+     * @param ctLog The {@link CloudTrailLog} to download
+     * @param source The {@link CloudTrailSource} to download the log from.
+     * @return A stream of the log data, or <code>null</code> if the download failed.
+     */
+    @Override
+    public InputStream downloadLogStream(CloudTrailLog ctLog, CloudTrailSource source) {
+        String name = fileName(ctLog);
+        ByteBuffer cached = map(name);
+        if (cached != null) {
+            hit(ctLog, cached.remaining());
+            return new ByteBufferInputStream(cached);
+        }
+
+        missCount.incrementAndGet();
+        InputStream downloaded = delegate.downloadLogStream(ctLog, source);
+        return downloaded == null ? null : new CachingInputStream(name, downloaded);
+    }
+
+    /**
+     * Returns a stream over the mapping of the cached log, or fetches the log with the wrapped {@link S3Manager}
+     * without reporting, and caches it like {@link #downloadLogStream(CloudTrailLog, CloudTrailSource)}.
+     *
+     * @param ctLog The {@link CloudTrailLog} to download
+     * @return A stream of the log data; reading it may still fail with an {@link IOException}.
+     * @throws IOException if the log cannot be downloaded.
+     */
+    @Override
+    public InputStream fetchLogStream(CloudTrailLog ctLog) throws IOException {
+        String name = fileName(ctLog);
+        ByteBuffer cached = map(name);
+        if (cached != null) {
+            hit(ctLog, cached.remaining());
+            return new ByteBufferInputStream(cached);
+        }
+
+        missCount.incrementAndGet();
+        return new CachingInputStream(name, delegate.fetchLogStream(ctLog));
+    }
+
+    @Override
+    public ResponseInputStream<GetObjectResponse> getObject(String bucketName, String objectKey) {
+        return delegate.getObject(bucketName, objectKey);
+    }
+
+    /**
+     * @return the number of logs read from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of logs downloaded because they were not cached.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return the number of files evicted to stay within the maximum size.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return the total size of the cached files.
+     */
+    public long getCachedBytes() {
+        synchronized (entries) {
+            return cachedBytes;
+        }
+    }
+
+    private void hit(CloudTrailLog ctLog, int size) {
+        hitCount.incrementAndGet();
+        ctLog.setLogFileSize(size);
+        logger.debug("Read log file " + ctLog.getS3ObjectKey() + " from the download cache.");
+    }
+
+    /**
+     * Map a cached file. Cached files are only ever replaced or deleted, never written in place, so the mapping stays
+     * valid after the file is evicted.
+     */
+    private ByteBuffer map(String name) {
+        synchronized (entries) {
+            if (entries.get(name) == null) {
+                return null;
+            }
+        }
+        Path file = directory.resolve(name);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            // Keep the access order for the index rebuilt on the next start.
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return mapping;
+
+        } catch (IOException e) {
+            // Evicted concurrently or damaged: forget it and download again.
+            logger.debug("Failed to read cached log file " + name + ".", e);
+            remove(name);
+            return null;
+        }
+    }
+
+    private void write(String name, byte[] bytes) {
+        if (bytes.length > maxBytes) {
+            return;
+        }
+        Path temp = tempFile(name);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to cache log file " + name + ".", e);
+            deleteQuietly(temp);
+            return;
+        }
+        publish(name, temp, bytes.length);
+    }
+
+    private Path tempFile(String name) {
+        return directory.resolve(name + "." + UUID.randomUUID() + TEMP_SUFFIX);
+    }
+
+    /**
+     * Move a fully written temporary file into place and add it to the index, evicting the least recently used files
+     * beyond the maximum size.
+     */
+    private void publish(String name, Path temp, long size) {
+        try {
+            try {
+                Files.move(temp, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to cache log file " + name + ".", e);
+            deleteQuietly(temp);
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Long previous = entries.put(name, size);
+            cachedBytes += size - (previous == null ? 0 : previous);
+            for (Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator(); cachedBytes > maxBytes && iterator.hasNext(); ) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                if (eldest.getKey().equals(name)) {
+                    continue;
+                }
+                cachedBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+        for (String evictedName : evicted) {
+            evictionCount.incrementAndGet();
+            deleteQuietly(directory.resolve(evictedName));
+        }
+    }
+
+    private void remove(String name) {
+        synchronized (entries) {
+            Long size = entries.remove(name);
+            if (size != null) {
+                cachedBytes -= size;
+            }
+        }
+    }
+
+    /**
+     * Rebuild the index from the directory, oldest modification first, and drop leftover temporary files.
+     */
+    private void loadIndex() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        List<Path> cachedFiles = new ArrayList<>();
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            if (fileName.endsWith(TEMP_SUFFIX)) {
+                deleteQuietly(file);
+            } else if (fileName.endsWith(FILE_SUFFIX)) {
+                cachedFiles.add(file);
+            }
+        }
+        cachedFiles.sort(Comparator.comparing(CachingS3Manager::lastModified));
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (entries) {
+            for (Path file : cachedFiles) {
+                long size = Files.size(file);
+                entries.put(file.getFileName().toString(), size);
+                cachedBytes += size;
+            }
+            for (Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator(); cachedBytes > maxBytes && iterator.hasNext(); ) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                cachedBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+        for (String evictedName : evicted) {
+            deleteQuietly(directory.resolve(evictedName));
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Failed to delete " + file + ".", e);
+        }
+    }
+
+    /**
+     * The cache file name: a SHA-256 of the bucket, object key and ETag, so any key maps to a safe, fixed-length name.
+     */
+    private static String fileName(CloudTrailLog ctLog) {
+        String eTag = ctLog.getETag();
+        String identity = ctLog.getS3Bucket() + '\n' + ctLog.getS3ObjectKey() + '\n' + (eTag == null ? "" : eTag);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + FILE_SUFFIX.length());
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return name.append(FILE_SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Passes a streamed log through to the reader while writing it to a temporary file, which is published to the
+     * cache once the log was read to the end. A download failure, a log larger than the cache or a failed write
+     * discards the file; the reader still gets the log.
+     */
+    private final class CachingInputStream extends FilterInputStream {
+        private final String name;
+        private final Path temp;
+        private FileChannel channel;
+        private long size;
+        private boolean complete;
+        private boolean closed;
+
+        CachingInputStream(String name, InputStream in) {
+            super(in);
+            this.name = name;
+            this.temp = tempFile(name);
+            try {
+                this.channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                logger.warn("Failed to cache log file " + name + ".", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                complete = true;
+            } else {
+                cache(new byte[] {(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n < 0) {
+                complete = true;
+            } else {
+                cache(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must still reach the cache.
+            byte[] skipped = new byte[(int) Math.max(0, Math.min(n, 8192))];
+            int read = read(skipped, 0, skipped.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (channel != null && !complete) {
+                    byte[] rest = new byte[8192];
+                    try {
+                        while (read(rest, 0, rest.length) >= 0) {
+                            // Read the rest of the log into the cache.
+                        }
+                    } catch (IOException e) {
+                        logger.debug("Failed to read the rest of log file " + name + ", it is not cached.", e);
+                        discard();
+                    }
+                }
+            } finally {
+                try {
+                    in.close();
+                } finally {
+                    if (channel != null) {
+                        try {
+                            channel.close();
+                            channel = null;
+                            publish(name, temp, size);
+                        } catch (IOException e) {
+                            logger.warn("Failed to cache log file " + name + ".", e);
+                            discard();
+                        }
+                    }
+                }
+            }
+        }
+
+        private void cache(byte[] b, int off, int len) {
+            if (channel == null) {
+                return;
+            }
+            size += len;
+            if (size > maxBytes) {
+                discard();
+                return;
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to cache log file " + name + ".", e);
+                discard();
+            }
+        }
+
+        private void discard() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.debug("Failed to close " + temp + ".", e);
+                }
+                channel = null;
+            }
+            deleteQuietly(temp);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.manager;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.metrics.ConcurrentHistogram;
+import com.amazonaws.services.cloudtrail.processinglibrary.metrics.HedgingMetricsMXBean;
+import com.amazonaws.services.cloudtrail.processinglibrary.metrics.HistogramSnapshot;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link S3ObjectFetcher} that hedges slow GET requests.
+ * <p>
+ * If a request has not responded within the hedge delay, an identical second request is sent, the first response
+ * from either one is returned, and the other one is cancelled. The hedge delay tracks a percentile (by default the
+ * 95th) of recent response times, so only the slowest requests are hedged. A budget caps hedges to a fraction of all
+ * requests, so hedging cannot multiply load on S3 when every request is slow.
+ * </p>
+ * <p>
+ * Response time is measured until the response headers arrive, which is when the wrapped fetcher returns. Metrics can
+ * be read through {@link HedgingMetricsMXBean} or published with {@link #registerMBean(String)}.
+ * </p>
+ */
+public class HedgingS3ObjectFetcher implements S3ObjectFetcher, HedgingMetricsMXBean, Closeable {
+    private static final String OBJECT_NAME_PREFIX = "com.amazonaws.services.cloudtrail.processinglibrary:type=HedgingMetrics,name=";
+
+    /**
+     * The hedge delay is recomputed after this many responses.
+     */
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    /**
+     * The response times used for the hedge delay are discarded after this many responses, so the delay follows
+     * changes in S3 latency.
+     */
+    private static final int WINDOW_SIZE = 1024;
+
+    private static final long TOKEN = 1000L;
+
+    private final S3ObjectFetcher delegate;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long tokensPerRequest;
+    private final long maxTokens;
+    private final ExecutorService executor;
+
+    private final ConcurrentHistogram window = new ConcurrentHistogram();
+    private final ConcurrentHistogram latency = new ConcurrentHistogram();
+    private final AtomicLong windowCount = new AtomicLong();
+    private final AtomicLong tokens;
+    private volatile long hedgeDelayNanos;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedgesFired = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+    private final LongAdder hedgesDenied = new LongAdder();
+
+    private volatile ObjectName objectName;
+
+    private HedgingS3ObjectFetcher(Builder builder) {
+        this.delegate = builder.delegate;
+        this.percentile = builder.percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(builder.minDelayMillis);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(builder.maxDelayMillis);
+        this.tokensPerRequest = Math.round(builder.budgetRatio * TOKEN);
+        this.maxTokens = builder.budgetBurst * TOKEN;
+        this.tokens = new AtomicLong(maxTokens);
+        this.hedgeDelayNanos = maxDelayNanos;
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "cpl-s3-hedged-get");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Issue the request and, if it is slower than the hedge delay and the budget allows, an identical hedge request.
+     *
+     * @param request the GET request to issue.
+     * @return the response of whichever request responded first.
+     */
+    @Override
+    public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+        long start = System.nanoTime();
+        requests.increment();
+        tokens.accumulateAndGet(tokensPerRequest, (current, added) -> Math.min(maxTokens, current + added));
+
+        HedgedGet call = new HedgedGet();
+        Future<?> primary = executor.submit(() -> attempt(call, request, false));
+        Future<?> hedge = null;
+        try {
+            Attempt winner;
+            try {
+                winner = call.result.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (tryAcquireHedge()) {
+                    hedgesFired.increment();
+                    call.pending.incrementAndGet();
+                    hedge = executor.submit(() -> attempt(call, request, true));
+                } else {
+                    hedgesDenied.increment();
+                }
+                winner = call.result.get();
+            }
+
+            if (winner.hedge) {
+                hedgesWon.increment();
+                primary.cancel(true);
+            } else if (hedge != null) {
+                hedge.cancel(true);
+            }
+            record(System.nanoTime() - start);
+            return winner.response;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.abandon();
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+            throw AbortedException.builder().message("Interrupted while waiting for S3 GET " + request.key()).cause(e).build();
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw SdkClientException.create("Failed S3 GET " + request.key(), cause);
+        }
+    }
+
+    /**
+     * Run one of the requests of a hedged GET; the response of a request that loses the race is aborted.
+     */
+    private void attempt(HedgedGet call, GetObjectRequest request, boolean hedge) {
+        try {
+            ResponseInputStream<GetObjectResponse> response = delegate.getObject(request);
+            if (!call.result.complete(new Attempt(response, hedge))) {
+                response.abort();
+            }
+        } catch (Throwable t) {
+            call.fail(t);
+        }
+    }
+
+    private boolean tryAcquireHedge() {
+        long current;
+        while ((current = tokens.get()) >= TOKEN) {
+            if (tokens.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record the time the caller waited for a response, hedge delay included, and periodically move the hedge delay to the configured percentile of the window.
+     */
+    private void record(long latencyNanos) {
+        latency.record(latencyNanos);
+        window.record(latencyNanos);
+        long count = windowCount.incrementAndGet();
+        if (count % RECOMPUTE_INTERVAL == 0) {
+            long delay = window.getValueAtPercentile(percentile);
+            hedgeDelayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, delay));
+            if (count >= WINDOW_SIZE && windowCount.compareAndSet(count, 0L)) {
+                window.reset();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHedgesFired() {
+        return hedgesFired.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHedgesWon() {
+        return hedgesWon.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHedgesDenied() {
+        return hedgesDenied.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHedgeDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HistogramSnapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    /**
+     * Register this fetcher with the platform MBean server.
+     *
+     * @param name the value of the <code>name</code> key of the MBean object name.
+     * @return the object name the MBean was registered under.
+     */
+    public synchronized ObjectName registerMBean(String name) {
+        try {
+            ObjectName newName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+            objectName = newName;
+            return newName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register hedging metrics MBean " + name, e);
+        }
+    }
+
+    /**
+     * Unregister this fetcher from the platform MBean server, if it was registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister hedging metrics MBean " + objectName, e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    /**
+     * Stop the threads that issue requests. Requests in flight are interrupted.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The outcome shared by the requests of one hedged GET.
+     */
+    private static class HedgedGet {
+        final CompletableFuture<Attempt> result = new CompletableFuture<>();
+        final AtomicInteger pending = new AtomicInteger(1);
+        private Throwable failure;
+
+        /**
+         * The result fails once every request that was sent has failed.
+         */
+        synchronized void fail(Throwable t) {
+            if (failure == null) {
+                failure = t;
+            } else {
+                failure.addSuppressed(t);
+            }
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(failure);
+            }
+        }
+
+        /**
+         * Make any response that arrives after the caller gave up be aborted.
+         */
+        void abandon() {
+            result.cancel(false);
+        }
+    }
+
+    private static class Attempt {
+        final ResponseInputStream<GetObjectResponse> response;
+        final boolean hedge;
+
+        Attempt(ResponseInputStream<GetObjectResponse> response, boolean hedge) {
+            this.response = response;
+            this.hedge = hedge;
+        }
+    }
+
+    /**
+     * Builder for a {@link HedgingS3ObjectFetcher}.
+     */
+    public static class Builder {
+        private final S3ObjectFetcher delegate;
+        private double percentile = 95.0;
+        private long minDelayMillis = 10L;
+        private long maxDelayMillis = 1000L;
+        private double budgetRatio = 0.05;
+        private int budgetBurst = 10;
+
+        /**
+         * @param delegate the {@link S3ObjectFetcher} that issues the requests, e.g. <code>s3Client::getObject</code>.
+         */
+        public Builder(S3ObjectFetcher delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * @param percentile the percentile of recent response times used as the hedge delay; 95 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withPercentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * @param minDelayMillis the lower bound of the hedge delay, in milliseconds; 10 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withMinDelayMillis(long minDelayMillis) {
+            this.minDelayMillis = minDelayMillis;
+            return this;
+        }
+
+        /**
+         * @param maxDelayMillis the upper bound of the hedge delay, in milliseconds, also used until enough response
+         *     times are known; 1000 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withMaxDelayMillis(long maxDelayMillis) {
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        /**
+         * @param budgetRatio the largest fraction of requests that may be hedged; 0.05 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+            return this;
+        }
+
+        /**
+         * @param budgetBurst the number of hedges that may be sent back to back when the budget is full; 10 by default.
+         * @return this {@link Builder}.
+         */
+        public Builder withBudgetBurst(int budgetBurst) {
+            this.budgetBurst = budgetBurst;
+            return this;
+        }
+
+        /**
+         * @return a new {@link HedgingS3ObjectFetcher}.
+         */
+        public HedgingS3ObjectFetcher build() {
+            LibraryUtils.checkArgumentNotNull(delegate, "delegate is null.");
+            LibraryUtils.checkCondition(percentile <= 0 || percentile >= 100, "percentile is not between 0 and 100.");
+            LibraryUtils.checkCondition(minDelayMillis < 0, "minDelayMillis is negative.");
+            LibraryUtils.checkCondition(maxDelayMillis < minDelayMillis, "maxDelayMillis is less than minDelayMillis.");
+            LibraryUtils.checkCondition(budgetRatio < 0 || budgetRatio > 1, "budgetRatio is not between 0 and 1.");
+            LibraryUtils.checkCondition(budgetBurst < 1, "budgetBurst is less than 1.");
+            return new HedgingS3ObjectFetcher(this);
+        }
+    }
+}
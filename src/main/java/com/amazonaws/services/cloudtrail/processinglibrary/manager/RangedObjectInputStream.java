@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.manager;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.LogDownloadException;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import software.amazon.awssdk.core.ResponseInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Reassembles an S3 object from concurrent byte-range GETs into a single in-order stream.
+ * <p>
+ * At most <code>parallelism</code> ranges are in flight or buffered at any time; a new range is requested each time the
+ * reader finishes the oldest one, so memory stays bounded by <code>parallelism * partSize</code> while the reader
+ * consumes the object from the beginning.
+ * </p>
+ * <p>
+ * A failed range surfaces as a {@link LogDownloadException} from <code>read</code>; the failure is handed to the
+ * {@link CloseListener} when the stream is closed. Closing the stream early interrupts the range requests still in
+ * flight and aborts their connections.
+ * </p>
+ */
+class RangedObjectInputStream extends InputStream {
+
+    /**
+     * Opens the response of one inclusive range of the object.
+     */
+    interface RangeFetcher {
+        ResponseInputStream<?> open(long first, long last) throws IOException;
+    }
+
+    /**
+     * Notified once when the stream is closed, with whether every range was received and the failure, if any, that was
+     * raised to the reader.
+     */
+    interface CloseListener {
+        void closed(boolean complete, Throwable failure);
+    }
+
+    private final long objectSize;
+    private final int partSize;
+    private final int parallelism;
+    private final Executor executor;
+    private final RangeFetcher fetcher;
+    private final CloseListener closeListener;
+
+    private final Deque<RangeTask> pending = new ArrayDeque<>();
+    private long nextOffset;
+
+    private byte[] current;
+    private int position;
+    private Throwable failure;
+    private boolean closed;
+
+    /**
+     * @param firstPart the bytes already received from the start of the object.
+     * @param objectSize the total size of the object.
+     * @param partSize the size of each further range.
+     * @param parallelism the maximum number of ranges in flight or buffered.
+     * @param executor the executor that issues range requests.
+     * @param fetcher fetches a single range.
+     * @param closeListener notified when the stream is closed.
+     */
+    RangedObjectInputStream(byte[] firstPart, long objectSize, int partSize, int parallelism, Executor executor,
+                            RangeFetcher fetcher, CloseListener closeListener) {
+        this.objectSize = objectSize;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+        this.executor = executor;
+        this.fetcher = fetcher;
+        this.closeListener = closeListener;
+
+        this.current = firstPart;
+        this.nextOffset = firstPart.length;
+        for (int i = 0; i < parallelism; i++) {
+            scheduleNext();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // The reader may stop before the gzip trailer; the download is complete once every range has arrived.
+        boolean complete = failure == null && nextOffset >= objectSize;
+        for (RangeTask part : pending) {
+            complete &= part.succeeded();
+            part.cancel(true);
+        }
+        pending.clear();
+        current = null;
+        closeListener.closed(complete, failure);
+    }
+
+    /**
+     * Move to the next range once the current one is consumed, waiting for it if it has not arrived yet.
+     *
+     * @return <code>false</code> at the end of the object.
+     */
+    private boolean ensureAvailable() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == current.length) {
+            RangeTask next = pending.poll();
+            if (next == null) {
+                return false;
+            }
+            try {
+                current = next.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+                throw new LogDownloadException("Interrupted while waiting for a range of the object.", e);
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+                throw new LogDownloadException("Failed to download a range of the object.", failure);
+            }
+            position = 0;
+            scheduleNext();
+        }
+        return true;
+    }
+
+    /**
+     * Request the next range of the object, if any remains and the window has room.
+     */
+    private void scheduleNext() {
+        if (nextOffset >= objectSize || pending.size() >= parallelism) {
+            return;
+        }
+        long first = nextOffset;
+        long last = Math.min(objectSize, first + partSize) - 1;
+        nextOffset = last + 1;
+        RangeTask task = new RangeTask(new RangeRequest(first, last));
+        pending.add(task);
+        executor.execute(task);
+    }
+
+    /**
+     * The request of one range, which can be aborted while its response is being read: a blocking socket read does
+     * not respond to interrupts.
+     */
+    private final class RangeRequest implements Callable<byte[]> {
+        private final long first;
+        private final long last;
+        private ResponseInputStream<?> response;
+        private boolean aborted;
+
+        RangeRequest(long first, long last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public byte[] call() throws IOException {
+            ResponseInputStream<?> in = fetcher.open(first, last);
+            synchronized (this) {
+                if (aborted) {
+                    in.abort();
+                    throw new CancellationException();
+                }
+                response = in;
+            }
+            try (ResponseInputStream<?> stream = in) {
+                byte[] part = LibraryUtils.toByteArray(stream);
+                if (part.length != last - first + 1) {
+                    throw new IOException(String.format("Expected %d bytes for range %d-%d, received %d.",
+                            last - first + 1, first, last, part.length));
+                }
+                return part;
+            }
+        }
+
+        synchronized void abort() {
+            aborted = true;
+            if (response != null) {
+                response.abort();
+            }
+        }
+    }
+
+    /**
+     * A range request that interrupts its thread and aborts the connection when it is cancelled.
+     */
+    private static final class RangeTask extends FutureTask<byte[]> {
+        private final RangeRequest request;
+
+        RangeTask(RangeRequest request) {
+            super(request);
+            this.request = request;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                request.abort();
+            }
+            return cancelled;
+        }
+
+        /**
+         * @return <code>true</code> if the range has been received.
+         */
+        boolean succeeded() {
+            if (!isDone() || isCancelled()) {
+                return false;
+            }
+            try {
+                get();
+                return true;
+            } catch (InterruptedException | ExecutionException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.manager;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * An {@link S3ObjectFetcher} that sends each GET to a client in the region of the requested bucket.
+ * <p>
+ * The region of a bucket is discovered once, with a <code>HeadBucket</code> request in the default region, and
+ * cached. S3 reports the region in the <code>x-amz-bucket-region</code> header even when it rejects the request as
+ * forbidden or redirects it, so only <code>s3:GetObject</code> permission is needed. If a GET is still redirected
+ * (<code>301</code>), for example because the bucket was recreated elsewhere, the region from that response replaces
+ * the cached one and the GET is retried once. A bucket whose region cannot be discovered, because S3 did not report it
+ * or the <code>HeadBucket</code> request failed, is sent to the default region; that choice is cached for
+ * {@link #FALLBACK_EXPIRY_MILLIS} before discovery is tried again.
+ * </p>
+ * <p>
+ * Regional clients are created when first needed. When constructed from an {@link SdkHttpClient}, all regional
+ * clients share that HTTP client and its connection pool.
+ * </p>
+ */
+public class RegionRoutingS3ObjectFetcher implements S3ObjectFetcher, Closeable {
+    private static final Log logger = LogFactory.getLog(RegionRoutingS3ObjectFetcher.class);
+
+    private static final String BUCKET_REGION_HEADER = "x-amz-bucket-region";
+
+    /**
+     * How long, in milliseconds, a bucket whose region could not be discovered is sent to the default region before
+     * discovery is tried again; {@value}.
+     */
+    public static final long FALLBACK_EXPIRY_MILLIS = 5 * 60 * 1000L;
+
+    private final Region defaultRegion;
+    private final Function<Region, S3Client> clientFactory;
+
+    private final ConcurrentMap<Region, S3Client> clients = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, BucketRegion> bucketRegions = new ConcurrentHashMap<>();
+
+    private final LongAdder redirects = new LongAdder();
+
+    /**
+     * Create a fetcher whose regional clients share one HTTP client.
+     * <p>
+     * Closing this fetcher closes the regional clients but not <code>httpClient</code>.
+     * </p>
+     *
+     * @param defaultRegion the region used to discover bucket regions, and for buckets whose region is unknown.
+     * @param credentialsProvider the credentials provider of the regional clients.
+     * @param httpClient the HTTP client shared by the regional clients.
+     */
+    public RegionRoutingS3ObjectFetcher(Region defaultRegion, AwsCredentialsProvider credentialsProvider, SdkHttpClient httpClient) {
+        this(defaultRegion, region -> S3Client.builder()
+                .credentialsProvider(credentialsProvider)
+                .region(region)
+                .httpClient(httpClient)
+                .build());
+        LibraryUtils.checkArgumentNotNull(credentialsProvider, "credentialsProvider is null.");
+        LibraryUtils.checkArgumentNotNull(httpClient, "httpClient is null.");
+    }
+
+    /**
+     * Create a fetcher that obtains regional clients from <code>clientFactory</code>.
+     * <p>
+     * Closing this fetcher closes every client returned by the factory.
+     * </p>
+     *
+     * @param defaultRegion the region used to discover bucket regions, and for buckets whose region is unknown.
+     * @param clientFactory creates the client for a region; called at most once per region.
+     */
+    public RegionRoutingS3ObjectFetcher(Region defaultRegion, Function<Region, S3Client> clientFactory) {
+        LibraryUtils.checkArgumentNotNull(defaultRegion, "defaultRegion is null.");
+        LibraryUtils.checkArgumentNotNull(clientFactory, "clientFactory is null.");
+        this.defaultRegion = defaultRegion;
+        this.clientFactory = clientFactory;
+    }
+
+    /**
+     * Issue the request with the client of the bucket's region.
+     *
+     * @param request the GET request to issue.
+     * @return the response.
+     */
+    @Override
+    public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+        Region region = getBucketRegion(request.bucket());
+        try {
+            return clientFor(region).getObject(request);
+        } catch (S3Exception e) {
+            Optional<Region> actual = e.statusCode() == 301 ? regionOf(e) : Optional.empty();
+            if (!actual.isPresent() || actual.get().equals(region)) {
+                throw e;
+            }
+            redirects.increment();
+            logger.info("Bucket " + request.bucket() + " moved from " + region + " to " + actual.get());
+            bucketRegions.put(request.bucket(), new BucketRegion(actual.get(), false));
+            return clientFor(actual.get()).getObject(request);
+        }
+    }
+
+    /**
+     * Get the region of a bucket, discovering it on first use.
+     * <p>
+     * Discovery calls S3 outside of any lock, so threads that see the same new bucket at once may each discover it;
+     * the first region stored wins. A bucket whose region could not be discovered is cached as the default region for
+     * {@link #FALLBACK_EXPIRY_MILLIS}, after which the next GET tries again.
+     * </p>
+     *
+     * @param bucketName the bucket name.
+     * @return the region of the bucket, or the default region if it could not be discovered.
+     */
+    public Region getBucketRegion(String bucketName) {
+        BucketRegion cached = bucketRegions.get(bucketName);
+        if (cached != null && !cached.isExpired()) {
+            return cached.region;
+        }
+        Optional<Region> discovered = discoverRegion(bucketName);
+        BucketRegion region = discovered.isPresent()
+                ? new BucketRegion(discovered.get(), false) : new BucketRegion(defaultRegion, true);
+        if (cached != null) {
+            // Replace the expired fallback, unless another thread already did.
+            return bucketRegions.replace(bucketName, cached, region) ? region.region : getBucketRegion(bucketName);
+        }
+        BucketRegion existing = bucketRegions.putIfAbsent(bucketName, region);
+        return existing != null ? existing.region : region.region;
+    }
+
+    /**
+     * @return a copy of the bucket regions discovered so far, without the buckets sent to the default region because
+     *     their region could not be discovered.
+     */
+    public Map<String, Region> getBucketRegions() {
+        Map<String, Region> regions = new HashMap<>();
+        for (Map.Entry<String, BucketRegion> entry : bucketRegions.entrySet()) {
+            if (!entry.getValue().fallback) {
+                regions.put(entry.getKey(), entry.getValue().region);
+            }
+        }
+        return Collections.unmodifiableMap(regions);
+    }
+
+    /**
+     * @return the number of GETs that were redirected to another region after the bucket region was cached.
+     */
+    public long getRedirectCount() {
+        return redirects.sum();
+    }
+
+    private Optional<Region> discoverRegion(String bucketName) {
+        Optional<Region> region;
+        try {
+            HeadBucketRequest request = HeadBucketRequest.builder()
+                    .bucket(bucketName)
+                    .build();
+            region = regionOf(clientFor(defaultRegion).headBucket(request).sdkHttpResponse());
+        } catch (S3Exception e) {
+            region = regionOf(e);
+        } catch (SdkClientException e) {
+            logger.debug("Failed to discover the region of bucket " + bucketName + ".", e);
+            region = Optional.empty();
+        }
+
+        if (region.isPresent()) {
+            logger.debug("Bucket " + bucketName + " is in region " + region.get());
+        } else {
+            logger.warn("Cannot discover the region of bucket " + bucketName + ", using " + defaultRegion);
+        }
+        return region;
+    }
+
+    private S3Client clientFor(Region region) {
+        return clients.computeIfAbsent(region, clientFactory);
+    }
+
+    private static Optional<Region> regionOf(S3Exception e) {
+        if (e.awsErrorDetails() == null || e.awsErrorDetails().sdkHttpResponse() == null) {
+            return Optional.empty();
+        }
+        return regionOf(e.awsErrorDetails().sdkHttpResponse());
+    }
+
+    private static Optional<Region> regionOf(SdkHttpResponse response) {
+        return response.firstMatchingHeader(BUCKET_REGION_HEADER).map(Region::of);
+    }
+
+    /**
+     * Close the regional clients created by this fetcher.
+     */
+    @Override
+    public void close() {
+        for (S3Client client : clients.values()) {
+            client.close();
+        }
+        clients.clear();
+    }
+
+    /**
+     * The cached region of a bucket. A fallback to the default region expires, a discovered region does not.
+     */
+    private static final class BucketRegion {
+        final Region region;
+        final boolean fallback;
+        final long expiresAtNanos;
+
+        BucketRegion(Region region, boolean fallback) {
+            this.region = region;
+            this.fallback = fallback;
+            this.expiresAtNanos = fallback ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FALLBACK_EXPIRY_MILLIS) : 0;
+        }
+
+        boolean isExpired() {
+            return fallback && System.nanoTime() - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -15,11 +15,17 @@
 
 package com.amazonaws.services.cloudtrail.processinglibrary.manager;
 
+import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.LogDownloadException;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
 import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * Manages Amazon S3 service-related operations.
  */
@@ -34,6 +40,49 @@ public interface S3Manager {
      */
     byte[] downloadLog(CloudTrailLog ctLog, CloudTrailSource source);
 
+    /**
+     * Opens an AWS CloudTrail log from the specified source as a stream of its compressed content.
+     * <p>
+     * Implementations may return a stream that is still being downloaded; a failure while reading it is signalled
+     * with a {@link LogDownloadException}. The default implementation wraps the result of
+     * {@link #downloadLog(CloudTrailLog, CloudTrailSource)}.
+     * </p>
+     *
+     * @param ctLog The {@link CloudTrailLog} to download
+     * @param source The {@link CloudTrailSource} to download the log from.
+     * @return A stream of the log data, or <code>null</code> if the download failed.
+     */
+    default InputStream downloadLogStream(CloudTrailLog ctLog, CloudTrailSource source) {
+        byte[] s3ObjectBytes = downloadLog(ctLog, source);
+        return s3ObjectBytes == null ? null : new ByteArrayInputStream(s3ObjectBytes);
+    }
+
+    /**
+     * Opens an AWS CloudTrail log as a stream of its compressed content without reporting progress or failures, for a
+     * caller that hands a failure to the code that processes the log, such as a
+     * {@link com.amazonaws.services.cloudtrail.processinglibrary.reader.LogPrefetcher}.
+     * <p>
+     * The default implementation issues a single GET with {@link #getObject(String, String)}.
+     * </p>
+     *
+     * @param ctLog The {@link CloudTrailLog} to download
+     * @return A stream of the log data; reading it may still fail with an {@link IOException}.
+     * @throws IOException if the log cannot be downloaded.
+     */
+    default InputStream fetchLogStream(CloudTrailLog ctLog) throws IOException {
+        ResponseInputStream<GetObjectResponse> response;
+        try {
+            response = getObject(ctLog.getS3Bucket(), ctLog.getS3ObjectKey());
+        } catch (SdkException e) {
+            throw new IOException(String.format("Fail to download log file %s/%s.", ctLog.getS3Bucket(), ctLog.getS3ObjectKey()), e);
+        }
+        Long contentLength = response.response().contentLength();
+        if (contentLength != null) {
+            ctLog.setLogFileSize(contentLength);
+        }
+        return response;
+    }
+
     /**
      * Download an S3 object.
      *
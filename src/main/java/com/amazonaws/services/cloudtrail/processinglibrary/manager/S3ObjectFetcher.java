@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.manager;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+/**
+ * Issues the S3 GET requests made by a {@link BasicS3Manager}.
+ * <p>
+ * The simplest implementation is <code>s3Client::getObject</code>. Implementations can wrap another fetcher to change
+ * how requests are issued, for example {@link HedgingS3ObjectFetcher}.
+ * </p>
+ */
+@FunctionalInterface
+public interface S3ObjectFetcher {
+
+    /**
+     * Issue a GET request for an S3 object.
+     *
+     * @param request the
+     *     <a href="https://sdk.amazonaws.com/java/api/latest/software/amazon/awssdk/services/s3/model/GetObjectRequest.html">GetObjectRequest</a>
+     *     to issue.
+     * @return the response stream; the caller must close it.
+     */
+    ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request);
+}
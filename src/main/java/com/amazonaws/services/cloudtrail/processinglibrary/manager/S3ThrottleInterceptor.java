@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.manager;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+/**
+ * An {@link ExecutionInterceptor} that reports every throttled attempt of an S3 GET to an
+ * {@link AdaptiveConcurrencyS3ObjectFetcher}.
+ * <p>
+ * The SDK retries a <code>503 SlowDown</code> response on its own, so a GET that succeeded after a retry looks like a
+ * slow success to the fetcher. Add this interceptor to the client that issues the fetcher's requests and pass it to
+ * {@link AdaptiveConcurrencyS3ObjectFetcher.Builder#withThrottleInterceptor(S3ThrottleInterceptor)}; it is called for
+ * each attempt, including the ones the SDK retries:
+ * </p>
+ * <pre>
+ * S3ThrottleInterceptor throttles = new S3ThrottleInterceptor();
+ * S3Client s3 = S3Client.builder().overrideConfiguration(c -&gt; c.addExecutionInterceptor(throttles)).build();
+ * AdaptiveConcurrencyS3ObjectFetcher fetcher = new AdaptiveConcurrencyS3ObjectFetcher.Builder(s3::getObject)
+ *         .withThrottleInterceptor(throttles)
+ *         .build();
+ * </pre>
+ */
+public class S3ThrottleInterceptor implements ExecutionInterceptor {
+    private volatile AdaptiveConcurrencyS3ObjectFetcher fetcher;
+
+    /**
+     * Report throttled GET attempts to <code>fetcher</code>.
+     */
+    void bind(AdaptiveConcurrencyS3ObjectFetcher fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        AdaptiveConcurrencyS3ObjectFetcher current = fetcher;
+        if (current != null && context.request() instanceof GetObjectRequest
+                && AdaptiveConcurrencyS3ObjectFetcher.isThrottling(context.httpResponse().statusCode())) {
+            current.onThrottled();
+        }
+    }
+}
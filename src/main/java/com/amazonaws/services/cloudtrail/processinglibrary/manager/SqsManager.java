@@ -23,6 +23,8 @@ import com.amazonaws.services.cloudtrail.processinglibrary.model.SourceAttribute
 import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.SourceType;
 import com.amazonaws.services.cloudtrail.processinglibrary.progress.BasicParseMessageInfo;
 import com.amazonaws.services.cloudtrail.processinglibrary.progress.BasicPollQueueInfo;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.BasicProcessSourceInfo;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressInfo;
 import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState;
 import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStatus;
 import com.amazonaws.services.cloudtrail.processinglibrary.serializer.SourceSerializer;
@@ -112,8 +114,9 @@ public class SqsManager {
      */
     public List<Message> pollQueue() {
         boolean success = false;
-        ProgressStatus pollQueueStatus = new ProgressStatus(ProgressState.pollQueue, new BasicPollQueueInfo(0, success));
-        final Object reportObject = progressReporter.reportStart(pollQueueStatus);
+        ProgressStatus pollQueueStatus = LibraryUtils.isReportable(progressReporter, ProgressState.pollQueue)
+                ? new ProgressStatus(ProgressState.pollQueue, new BasicPollQueueInfo(0, success)) : null;
+        final Object reportObject = LibraryUtils.startToProcess(progressReporter, pollQueueStatus);
 
         ReceiveMessageRequest request = ReceiveMessageRequest.builder()
                 .queueUrl(config.getSqsUrl())
@@ -132,7 +135,9 @@ public class SqsManager {
 
             success = true;
         } catch (SqsException e) {
-            LibraryUtils.handleException(exceptionHandler, pollQueueStatus, e, "Failed to poll sqs message.");
+            ProgressStatus exceptionStatus = pollQueueStatus != null ? pollQueueStatus
+                    : new ProgressStatus(ProgressState.pollQueue, new BasicPollQueueInfo(0, false));
+            LibraryUtils.handleException(exceptionHandler, exceptionStatus, e, "Failed to poll sqs message.");
 
         } finally {
             LibraryUtils.endToProcess(progressReporter, success, pollQueueStatus, reportObject);
@@ -153,8 +158,9 @@ public class SqsManager {
 
         for (Message sqsMessage : sqsMessages) {
             boolean parseMessageSuccess = false;
-            ProgressStatus parseMessageStatus = new ProgressStatus(ProgressState.parseMessage, new BasicParseMessageInfo(sqsMessage, parseMessageSuccess));
-            final Object reportObject = progressReporter.reportStart(parseMessageStatus);
+            ProgressStatus parseMessageStatus = LibraryUtils.isReportable(progressReporter, ProgressState.parseMessage, sqsMessage, null)
+                    ? new ProgressStatus(ProgressState.parseMessage, new BasicParseMessageInfo(sqsMessage, parseMessageSuccess)) : null;
+            final Object reportObject = LibraryUtils.startToProcess(progressReporter, parseMessageStatus);
             CloudTrailSource ctSource = null;
 
             try {
@@ -165,11 +171,13 @@ public class SqsManager {
                     parseMessageSuccess = true;
                 }
             } catch (Exception e) {
-                LibraryUtils.handleException(exceptionHandler, parseMessageStatus, e, "Failed to parse sqs message.");
+                ProgressStatus exceptionStatus = parseMessageStatus != null ? parseMessageStatus
+                        : new ProgressStatus(ProgressState.parseMessage, new BasicParseMessageInfo(sqsMessage, false));
+                LibraryUtils.handleException(exceptionHandler, exceptionStatus, e, "Failed to parse sqs message.");
 
             } finally {
                 if (containsCloudTrailValidationMessage(ctSource) || shouldDeleteMessageUponFailure(parseMessageSuccess)) {
-                    deleteMessageFromQueue(sqsMessage, new ProgressStatus(ProgressState.deleteMessage, new BasicParseMessageInfo(sqsMessage, false)));
+                    deleteMessageFromQueue(sqsMessage, ProgressState.deleteMessage, null);
                 }
                 LibraryUtils.endToProcess(progressReporter, parseMessageSuccess, parseMessageStatus, reportObject);
             }
@@ -185,18 +193,63 @@ public class SqsManager {
      *
      */
     public void deleteMessageFromQueue(Message sqsMessage, ProgressStatus progressStatus) {
-        final Object reportObject = progressReporter.reportStart(progressStatus);
-        boolean deleteMessageSuccess = false;
+        ProgressStatus reportedStatus = LibraryUtils.isReportable(progressReporter, progressStatus.getProgressState(), sqsMessage, null) ? progressStatus : null;
+        final Object reportObject = LibraryUtils.startToProcess(progressReporter, reportedStatus);
+
+        SqsException failure = deleteMessage(sqsMessage);
+        if (failure != null) {
+            LibraryUtils.handleException(exceptionHandler, progressStatus, failure, "Failed to delete sqs message.");
+        }
+        LibraryUtils.endToProcess(progressReporter, failure == null, reportedStatus, reportObject);
+    }
+
+    /**
+     * Delete a message from the SQS queue that you specified in the configuration file.
+     * <p>
+     * Unlike {@link #deleteMessageFromQueue(Message, ProgressStatus)}, the {@link ProgressStatus} is only created if
+     * the deletion is reported or fails.
+     * </p>
+     *
+     * @param sqsMessage the {@link Message} that you want to delete.
+     * @param progressState either {@link ProgressState#deleteMessage} or {@link ProgressState#deleteFilteredMessage}.
+     * @param source the {@link CloudTrailSource} parsed from <code>sqsMessage</code>, or <code>null</code> if the
+     * message could not be parsed.
+     */
+    public void deleteMessageFromQueue(Message sqsMessage, ProgressState progressState, CloudTrailSource source) {
+        ProgressStatus reportedStatus = LibraryUtils.isReportable(progressReporter, progressState, sqsMessage, null)
+                ? newDeleteMessageStatus(sqsMessage, progressState, source) : null;
+        final Object reportObject = LibraryUtils.startToProcess(progressReporter, reportedStatus);
+
+        SqsException failure = deleteMessage(sqsMessage);
+        if (failure != null) {
+            ProgressStatus exceptionStatus = reportedStatus != null ? reportedStatus
+                    : newDeleteMessageStatus(sqsMessage, progressState, source);
+            LibraryUtils.handleException(exceptionHandler, exceptionStatus, failure, "Failed to delete sqs message.");
+        }
+        LibraryUtils.endToProcess(progressReporter, failure == null, reportedStatus, reportObject);
+    }
+
+    /**
+     * Delete a message from the SQS queue.
+     *
+     * @param sqsMessage the {@link Message} to delete.
+     * @return the {@link SqsException} thrown by SQS, or <code>null</code> if the message was deleted.
+     */
+    private SqsException deleteMessage(Message sqsMessage) {
         try {
             sqsClient.deleteMessage(DeleteMessageRequest.builder()
                     .queueUrl(config.getSqsUrl())
                     .receiptHandle(sqsMessage.receiptHandle())
                     .build());
-            deleteMessageSuccess = true;
+            return null;
         } catch (SqsException e) {
-            LibraryUtils.handleException(exceptionHandler, progressStatus, e, "Failed to delete sqs message.");
+            return e;
         }
-        LibraryUtils.endToProcess(progressReporter, deleteMessageSuccess, progressStatus, reportObject);
+    }
+
+    private ProgressStatus newDeleteMessageStatus(Message sqsMessage, ProgressState progressState, CloudTrailSource source) {
+        ProgressInfo progressInfo = source == null ? new BasicParseMessageInfo(sqsMessage, false) : new BasicProcessSourceInfo(source, false);
+        return new ProgressStatus(progressState, progressInfo);
     }
 
     /**
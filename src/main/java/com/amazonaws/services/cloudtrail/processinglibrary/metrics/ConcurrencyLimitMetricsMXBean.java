@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.metrics;
+
+/**
+ * JMX view of the metrics collected by
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.manager.AdaptiveConcurrencyS3ObjectFetcher}.
+ */
+public interface ConcurrencyLimitMetricsMXBean {
+
+    /**
+     * @return the current number of S3 GETs that may be in flight at once.
+     */
+    int getLimit();
+
+    /**
+     * @return the number of S3 GETs currently in flight, counted until their response stream is closed.
+     */
+    int getInFlight();
+
+    /**
+     * @return the number of S3 GETs rejected by S3 with a throttling error.
+     */
+    long getThrottled();
+
+    /**
+     * @return the number of times the limit was reduced because response times rose above the baseline.
+     */
+    long getLatencyBackoffs();
+
+    /**
+     * @return the estimated response time, in milliseconds, of an S3 GET without queuing.
+     */
+    double getBaselineLatencyMillis();
+
+    /**
+     * @return the smoothed recent response time, in milliseconds, of S3 GETs.
+     */
+    double getSmoothedLatencyMillis();
+}
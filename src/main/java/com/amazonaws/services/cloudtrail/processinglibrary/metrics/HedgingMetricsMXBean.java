@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.metrics;
+
+/**
+ * JMX view of the metrics collected by
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.manager.HedgingS3ObjectFetcher}.
+ */
+public interface HedgingMetricsMXBean {
+
+    /**
+     * @return the total number of GET requests issued by callers.
+     */
+    long getRequests();
+
+    /**
+     * @return the number of hedge requests sent because the first request was slower than the hedge delay.
+     */
+    long getHedgesFired();
+
+    /**
+     * @return the number of hedge requests that responded before the request they hedged.
+     */
+    long getHedgesWon();
+
+    /**
+     * @return the number of hedges that were not sent because the hedge budget was exhausted.
+     */
+    long getHedgesDenied();
+
+    /**
+     * @return the current hedge delay, in milliseconds.
+     */
+    long getHedgeDelayMillis();
+
+    /**
+     * @return the distribution of time to first response of the winning request, in nanoseconds.
+     */
+    HistogramSnapshot getLatency();
+}
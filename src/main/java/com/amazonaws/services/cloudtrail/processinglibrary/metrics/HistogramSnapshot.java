@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.metrics;
+
+/**
+ * An immutable summary of the values recorded in a {@link ConcurrentHistogram}.
+ * <p>
+ * Percentiles are reported as the highest value equivalent to the bucket they fall into, so they may overstate the
+ * recorded value by at most 1/{@value ConcurrentHistogram#SUB_BUCKET_COUNT}.
+ * </p>
+ */
+public class HistogramSnapshot {
+    /**
+     * Snapshot of a histogram with no recorded value.
+     */
+    public static final HistogramSnapshot EMPTY = new HistogramSnapshot(0L, 0L, 0L, 0.0, 0L, 0L, 0L, 0L);
+
+    private final long count;
+    private final long min;
+    private final long max;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+
+    public HistogramSnapshot(long count, long min, long max, double mean, long p50, long p90, long p99, long p999) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    /**
+     * @return the number of recorded values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the smallest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * @return the largest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the arithmetic mean of the recorded values.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the median.
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * @return the 90th percentile.
+     */
+    public long getP90() {
+        return p90;
+    }
+
+    /**
+     * @return the 99th percentile.
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * @return the 99.9th percentile.
+     */
+    public long getP999() {
+        return p999;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("HistogramSnapshot [count=");
+        builder.append(count);
+        builder.append(", min=");
+        builder.append(min);
+        builder.append(", max=");
+        builder.append(max);
+        builder.append(", mean=");
+        builder.append(mean);
+        builder.append(", p50=");
+        builder.append(p50);
+        builder.append(", p90=");
+        builder.append(p90);
+        builder.append(", p99=");
+        builder.append(p99);
+        builder.append(", p999=");
+        builder.append(p999);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics collected by
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.impl.MetricsProgressReporter}.
+ */
+public interface ProgressMetricsMXBean {
+
+    /**
+     * @return per stage metrics keyed by {@link com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState} name.
+     */
+    Map<String, StageMetricsSnapshot> getStages();
+
+    /**
+     * @return the total number of bytes downloaded from S3.
+     */
+    long getBytesDownloaded();
+
+    /**
+     * @return the total number of events read from successfully processed logs.
+     */
+    long getEventsProcessed();
+
+    /**
+     * @return the distribution of the number of events per successfully processed log.
+     */
+    HistogramSnapshot getEventsPerLog();
+
+    /**
+     * Clear all collected metrics.
+     */
+    void reset();
+}
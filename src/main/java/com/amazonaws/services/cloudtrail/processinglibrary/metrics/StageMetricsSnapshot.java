@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.metrics;
+
+/**
+ * An immutable summary of one processing stage: how many times it ended successfully or not and how long it took.
+ */
+public class StageMetricsSnapshot {
+    private final String stage;
+    private final long successCount;
+    private final long failureCount;
+    private final HistogramSnapshot latencyNanos;
+
+    public StageMetricsSnapshot(String stage, long successCount, long failureCount, HistogramSnapshot latencyNanos) {
+        this.stage = stage;
+        this.successCount = successCount;
+        this.failureCount = failureCount;
+        this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     * @return the name of the {@link com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState}.
+     */
+    public String getStage() {
+        return stage;
+    }
+
+    /**
+     * @return the number of times the stage ended successfully.
+     */
+    public long getSuccessCount() {
+        return successCount;
+    }
+
+    /**
+     * @return the number of times the stage ended unsuccessfully.
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return the distribution of the stage's duration, in nanoseconds.
+     */
+    public HistogramSnapshot getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("StageMetricsSnapshot [stage=");
+        builder.append(stage);
+        builder.append(", successCount=");
+        builder.append(successCount);
+        builder.append(", failureCount=");
+        builder.append(failureCount);
+        builder.append(", latencyNanos=");
+        builder.append(latencyNanos);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -18,6 +18,7 @@ package com.amazonaws.services.cloudtrail.processinglibrary.model;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.Addendum;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailDataStore;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.DeferredValueSource;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.InScopeOf;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.InsightDetails;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.InvokedByDelegate;
@@ -40,6 +41,22 @@ import java.util.UUID;
  * @see <a href="http://docs.aws.amazon.com/awscloudtrail/latest/userguide/event_reference_top_level.html">CloudTrail Event Reference</a>
  */
 public class CloudTrailEventData extends CloudTrailDataStore {
+
+    public CloudTrailEventData() {
+        super();
+    }
+
+    /**
+     * Internal use only.
+     * <p>
+     * Create event data whose fields are decoded when they are first read.
+     *
+     * @param deferredValues the source of the fields.
+     */
+    public CloudTrailEventData(DeferredValueSource deferredValues) {
+        super(deferredValues);
+    }
+
     /**
      * Get the event version.
      *
@@ -34,6 +34,21 @@ public class CloudTrailLog {
      */
     private long logFileSize;
 
+    /**
+     * The number of events read from the CloudTrail log file.
+     */
+    private long eventCount;
+
+    /**
+     * The S3 object ETag, when the notification carries it.
+     */
+    private String eTag;
+
+    /**
+     * The information parsed from the S3 object key.
+     */
+    private final CloudTrailLogKey logKey;
+
     /**
      * Constructs a new CloudTrailLog object.
      *
@@ -41,8 +56,20 @@ public class CloudTrailLog {
      * @param s3ObjectKey The S3 object key.
      */
     public CloudTrailLog(String s3Bucket, String s3ObjectKey) {
+        this(s3Bucket, s3ObjectKey, null);
+    }
+
+    /**
+     * Constructs a new CloudTrailLog object with the information already parsed from its S3 object key.
+     *
+     * @param s3Bucket The S3 bucket where log files are stored.
+     * @param s3ObjectKey The S3 object key.
+     * @param logKey The {@link CloudTrailLogKey} parsed from <code>s3ObjectKey</code>, may be <code>null</code>.
+     */
+    public CloudTrailLog(String s3Bucket, String s3ObjectKey, CloudTrailLogKey logKey) {
         this.s3Bucket = s3Bucket;
         this.s3ObjectKey = s3ObjectKey;
+        this.logKey = logKey;
     }
 
     /**
@@ -61,6 +88,14 @@ public class CloudTrailLog {
         return s3ObjectKey;
     }
 
+    /**
+     * Get the account ID, region and delivery time encoded in the S3 object key.
+     * @return the parsed {@link CloudTrailLogKey}, or <code>null</code> if the object key was not parsed.
+     */
+    public CloudTrailLogKey getLogKey() {
+        return logKey;
+    }
+
     /**
      * CloudTrail log File size in bytes.
      * @return CloudTrail log file size in bytes.
@@ -77,6 +112,38 @@ public class CloudTrailLog {
         this.logFileSize = logFileSize;
     }
 
+    /**
+     * Number of events read from this CloudTrail log file, before any {@link com.amazonaws.services.cloudtrail.processinglibrary.interfaces.EventFilter} is applied.
+     * @return the number of events read, or 0 if the log has not been processed yet.
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Set the number of events read from this CloudTrail log file once it has been processed.
+     * @param eventCount The number of events read.
+     */
+    public void setEventCount(long eventCount) {
+        this.eventCount = eventCount;
+    }
+
+    /**
+     * S3 object ETag, as reported by the S3 event notification.
+     * @return the ETag, or <code>null</code> if the notification did not carry one, as with CloudTrail SNS notifications.
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Set the S3 object ETag when it is known from the notification.
+     * @param eTag The S3 object ETag.
+     */
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
     /**
      * Returns a string representation of this object; useful for testing and debugging.
      */
@@ -94,8 +161,15 @@ public class CloudTrailLog {
             builder.append(s3ObjectKey);
             builder.append(", ");
         }
+        if (eTag != null) {
+            builder.append("eTag=");
+            builder.append(eTag);
+            builder.append(", ");
+        }
         builder.append("logFileSize=");
         builder.append(logFileSize);
+        builder.append(", eventCount=");
+        builder.append(eventCount);
         builder.append("]");
         return builder.toString();
     }
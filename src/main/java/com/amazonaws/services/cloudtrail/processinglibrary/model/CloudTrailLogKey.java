@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.model;
+
+import java.util.Date;
+
+/**
+ * The information CloudTrail encodes in the name of a log file object:
+ * AccountID_CloudTrail_RegionName_YYYYMMDDTHHmmZ_UniqueString.json.gz
+ * <p>
+ * It is parsed once, when the log is identified in an SQS message, so that filters and the library do not need to
+ * scan the object key again.
+ * </p>
+ */
+public class CloudTrailLogKey {
+    private final String accountId;
+    private final String region;
+    private final long deliveryTimeMillis;
+    private final String uniqueString;
+
+    /**
+     * Constructs a new CloudTrailLogKey object.
+     *
+     * @param accountId The account ID that the log file belongs to.
+     * @param region The region where the events in the log file were recorded.
+     * @param deliveryTimeMillis The delivery time, to the minute, encoded in the log file name in milliseconds since the epoch.
+     * @param uniqueString The unique string that CloudTrail appends to the log file name.
+     */
+    public CloudTrailLogKey(String accountId, String region, long deliveryTimeMillis, String uniqueString) {
+        this.accountId = accountId;
+        this.region = region;
+        this.deliveryTimeMillis = deliveryTimeMillis;
+        this.uniqueString = uniqueString;
+    }
+
+    /**
+     * @return the account ID that the log file belongs to.
+     */
+    public String getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * @return the region where the events in the log file were recorded.
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * @return the delivery time encoded in the log file name, in milliseconds since the epoch.
+     */
+    public long getDeliveryTimeMillis() {
+        return deliveryTimeMillis;
+    }
+
+    /**
+     * @return the delivery time encoded in the log file name.
+     */
+    public Date getDeliveryTime() {
+        return new Date(deliveryTimeMillis);
+    }
+
+    /**
+     * @return the unique string that CloudTrail appends to the log file name.
+     */
+    public String getUniqueString() {
+        return uniqueString;
+    }
+
+    /**
+     * Returns a string representation of this object; useful for testing and debugging.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("CloudTrailLogKey [");
+        if (accountId != null) {
+            builder.append("accountId=");
+            builder.append(accountId);
+            builder.append(", ");
+        }
+        if (region != null) {
+            builder.append("region=");
+            builder.append(region);
+            builder.append(", ");
+        }
+        builder.append("deliveryTimeMillis=");
+        builder.append(deliveryTimeMillis);
+        if (uniqueString != null) {
+            builder.append(", uniqueString=");
+            builder.append(uniqueString);
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((accountId == null) ? 0 : accountId.hashCode());
+        result = prime * result + ((region == null) ? 0 : region.hashCode());
+        result = prime * result + (int) (deliveryTimeMillis ^ (deliveryTimeMillis >>> 32));
+        result = prime * result + ((uniqueString == null) ? 0 : uniqueString.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        CloudTrailLogKey other = (CloudTrailLogKey) obj;
+        if (deliveryTimeMillis != other.deliveryTimeMillis)
+            return false;
+        if (accountId == null) {
+            if (other.accountId != null)
+                return false;
+        } else if (!accountId.equals(other.accountId))
+            return false;
+        if (region == null) {
+            if (other.region != null)
+                return false;
+        } else if (!region.equals(other.region))
+            return false;
+        if (uniqueString == null) {
+            if (other.uniqueString != null)
+                return false;
+        } else if (!uniqueString.equals(other.uniqueString))
+            return false;
+        return true;
+    }
+}
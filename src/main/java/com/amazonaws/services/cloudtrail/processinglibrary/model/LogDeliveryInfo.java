@@ -20,8 +20,8 @@ package com.amazonaws.services.cloudtrail.processinglibrary.model;
  */
 public class LogDeliveryInfo implements CloudTrailEventMetadata{
     private CloudTrailLog log;
-    private int charStart;
-    private int charEnd;
+    private long charStart;
+    private long charEnd;
     private String rawEvent;
 
     /**
@@ -33,6 +33,18 @@ public class LogDeliveryInfo implements CloudTrailEventMetadata{
      * @param rawEvent the CloudTrail event in raw String - as it is in the log file and null when enableRawEventInfo is false.
      */
     public LogDeliveryInfo(CloudTrailLog log, int charStart, int charEnd, String rawEvent) {
+        this(log, (long) charStart, (long) charEnd, rawEvent);
+    }
+
+    /**
+     * The log delivery information.
+     *
+     * @param log that event was coming from.
+     * @param charStart the 0-based location of the event's starting character "{" and -1 when enableRawEventInfo is false.
+     * @param charEnd the 0-based location of the event's ending character "}" and -1 when enableRawEventInfo is false.
+     * @param rawEvent the CloudTrail event in raw String - as it is in the log file and null when enableRawEventInfo is false.
+     */
+    public LogDeliveryInfo(CloudTrailLog log, long charStart, long charEnd, String rawEvent) {
         this.log = log;
         this.charStart = charStart;
         this.charEnd = charEnd;
@@ -93,8 +105,8 @@ public class LogDeliveryInfo implements CloudTrailEventMetadata{
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + (charEnd ^ (charEnd >>> 32));
-        result = prime * result + (charStart ^ (charStart >>> 32));
+        result = prime * result + (int) (charEnd ^ (charEnd >>> 32));
+        result = prime * result + (int) (charStart ^ (charStart >>> 32));
         result = prime * result + ((log == null) ? 0 : log.hashCode());
         result = prime * result + ((rawEvent == null) ? 0 : rawEvent.hashCode());
         return result;
@@ -17,8 +17,12 @@ package com.amazonaws.services.cloudtrail.processinglibrary.model;
 
 import software.amazon.awssdk.services.sqs.model.Message;
 
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class SQSBasedSource implements CloudTrailSource{
     /**
@@ -31,6 +35,18 @@ public class SQSBasedSource implements CloudTrailSource{
      */
     private final Message sqsMessage;
 
+    /**
+     * Attributes derived by the library, such as the account ID, the source type and the extra notification fields.
+     * They are kept apart from the immutable SQS message so that serializers do not have to rebuild the message for
+     * every attribute they add.
+     */
+    private final Map<String, String> libraryAttributes;
+
+    /**
+     * Read-only view over the SQS message attributes and <code>libraryAttributes</code>.
+     */
+    private final Map<String, String> sourceAttributes;
+
     /**
      * This method return a Map of String (key) and String (value). This map contains standard SQS message
      * attributes, i.e. SenderId, SentTimestamp, ApproximateReceiveCount, and/or
@@ -40,19 +56,42 @@ public class SQSBasedSource implements CloudTrailSource{
      * @param logs A list of {@link CloudTrailLog}.
      */
     public SQSBasedSource(Message sqsMessage, List<CloudTrailLog> logs) {
+        this(sqsMessage, logs, null);
+    }
+
+    /**
+     * Creates a source whose attributes are the SQS message attributes overlaid with <code>libraryAttributes</code>.
+     * When both define the same key, the value from <code>libraryAttributes</code> is returned.
+     *
+     * @param sqsMessage {@link Message} SQS message.
+     * @param logs A list of {@link CloudTrailLog}.
+     * @param libraryAttributes attributes derived from the message by the library, may be <code>null</code>.
+     */
+    public SQSBasedSource(Message sqsMessage, List<CloudTrailLog> logs, Map<String, String> libraryAttributes) {
         this.sqsMessage = sqsMessage;
         this.logs = logs;
+        this.libraryAttributes = libraryAttributes == null ? Collections.<String, String>emptyMap() : libraryAttributes;
+        this.sourceAttributes = new OverlayAttributes(sqsMessage.attributesAsStrings(), this.libraryAttributes);
     }
 
     /**
      * Retrieve the CloudTrailSource attributes.
+     * <p>
+     * The returned map is a read-only view that merges the SQS message attributes with the attributes derived by the
+     * library; no copy of either is made.
+     * </p>
      */
     @Override
     public Map<String, String> getSourceAttributes() {
-        return sqsMessage.attributesAsStrings();
+        return sourceAttributes;
     }
 
     /**
+     * The SQS message as it was polled from the queue.
+     * <p>
+     * Attributes derived by the library are not added to the message; use {@link #getSourceAttributes()} to read them.
+     * </p>
+     *
      * @return the SQS message.
      */
     public Message getSqsMessage() {
@@ -79,6 +118,10 @@ public class SQSBasedSource implements CloudTrailSource{
             builder.append("sqsMessage: ");
             builder.append(sqsMessage);
         }
+        if (!libraryAttributes.isEmpty()) {
+            builder.append(", libraryAttributes: ");
+            builder.append(libraryAttributes);
+        }
         builder.append("}");
         return builder.toString();
     }
@@ -89,6 +132,7 @@ public class SQSBasedSource implements CloudTrailSource{
         int result = 1;
         result = prime * result + ((logs == null) ? 0 : logs.hashCode());
         result = prime * result + ((sqsMessage == null) ? 0 : sqsMessage.hashCode());
+        result = prime * result + libraryAttributes.hashCode();
         return result;
     }
 
@@ -111,6 +155,47 @@ public class SQSBasedSource implements CloudTrailSource{
                 return false;
         } else if (!sqsMessage.equals(other.sqsMessage))
             return false;
+        if (!libraryAttributes.equals(other.libraryAttributes))
+            return false;
         return true;
     }
+
+    /**
+     * Read-only map that looks keys up in the overlay first and then in the base map.
+     */
+    private static final class OverlayAttributes extends AbstractMap<String, String> {
+        private final Map<String, String> base;
+        private final Map<String, String> overlay;
+
+        OverlayAttributes(Map<String, String> base, Map<String, String> overlay) {
+            this.base = base;
+            this.overlay = overlay;
+        }
+
+        @Override
+        public String get(Object key) {
+            if (overlay.containsKey(key)) {
+                return overlay.get(key);
+            }
+            return base.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return overlay.containsKey(key) || base.containsKey(key);
+        }
+
+        /**
+         * Only materialized when the whole map is iterated, e.g. when the source is logged.
+         */
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            if (overlay.isEmpty()) {
+                return Collections.unmodifiableMap(base).entrySet();
+            }
+            Map<String, String> merged = new HashMap<>(base);
+            merged.putAll(overlay);
+            return Collections.unmodifiableMap(merged).entrySet();
+        }
+    }
 }
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.model.arrow;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.complex.ListVector;
+import org.apache.arrow.vector.complex.StructVector;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.arrow.vector.util.TransferPair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of CloudTrail events from one log file, held in an Apache Arrow {@link VectorSchemaRoot} with the schema
+ * described by {@link CloudTrailRecordSchema}.
+ * <p>
+ * The vectors take their buffers from an Arrow {@link BufferAllocator}, which tracks them until the batch is
+ * {@link #close() closed}. A batch handed to an
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ArrowEventsProcessor} is closed when the
+ * callback returns; {@link #transferTo(BufferAllocator)} moves the buffers to a root that outlives it without copying
+ * them.
+ * </p>
+ */
+public class CloudTrailRecordBatch implements AutoCloseable {
+    private static final Schema SCHEMA = createSchema();
+
+    private final CloudTrailLog log;
+    private final VectorSchemaRoot root;
+
+    /**
+     * Create an empty batch with the CloudTrail schema.
+     *
+     * @param log the {@link CloudTrailLog} the events are read from.
+     * @param allocator the {@link BufferAllocator} to take buffers from.
+     */
+    public CloudTrailRecordBatch(CloudTrailLog log, BufferAllocator allocator) {
+        LibraryUtils.checkArgumentNotNull(allocator, "allocator is null.");
+        this.log = log;
+        root = VectorSchemaRoot.create(SCHEMA, allocator);
+        try {
+            root.allocateNew();
+        } catch (RuntimeException e) {
+            root.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the Arrow {@link Schema} every batch has.
+     */
+    public static Schema getSchema() {
+        return SCHEMA;
+    }
+
+    /**
+     * @return the {@link CloudTrailLog} the events were read from.
+     */
+    public CloudTrailLog getLog() {
+        return log;
+    }
+
+    /**
+     * @return the number of events in the batch.
+     */
+    public int getRowCount() {
+        return root.getRowCount();
+    }
+
+    /**
+     * The root holding the vectors of the batch. It is closed with the batch, and must not be closed on its own.
+     *
+     * @return the {@link VectorSchemaRoot} of the batch.
+     */
+    public VectorSchemaRoot getVectorSchemaRoot() {
+        return root;
+    }
+
+    /**
+     * @return the <code>eventTime</code> vector.
+     */
+    public TimeStampMilliTZVector getEventTimeVector() {
+        return (TimeStampMilliTZVector) root.getVector(CloudTrailRecordSchema.EVENT_TIME);
+    }
+
+    /**
+     * @return the <code>userIdentity</code> vector.
+     */
+    public StructVector getUserIdentityVector() {
+        return (StructVector) root.getVector(CloudTrailRecordSchema.USER_IDENTITY);
+    }
+
+    /**
+     * @return the <code>resources</code> vector.
+     */
+    public ListVector getResourcesVector() {
+        return (ListVector) root.getVector(CloudTrailRecordSchema.RESOURCES);
+    }
+
+    /**
+     * @param name a name from {@link CloudTrailRecordSchema#UTF8_FIELDS}.
+     * @return the vector of the field.
+     */
+    public VarCharVector getUtf8Vector(String name) {
+        FieldVector vector = root.getVector(name);
+        if (!(vector instanceof VarCharVector)) {
+            throw new IllegalArgumentException(name + " is not a Utf8 field.");
+        }
+        return (VarCharVector) vector;
+    }
+
+    /**
+     * Set the number of events once they are all written, used by the serializer filling the batch.
+     *
+     * @param rowCount the number of events.
+     */
+    public void setRowCount(int rowCount) {
+        root.setRowCount(rowCount);
+    }
+
+    /**
+     * Move the buffers of the batch to a new {@link VectorSchemaRoot} without copying them, leaving the batch empty.
+     *
+     * @param allocator the {@link BufferAllocator} that owns the buffers from now on; it must have the same root
+     *     allocator as the one the batch was created with.
+     * @return a {@link VectorSchemaRoot} holding the events, which the caller must close.
+     */
+    public VectorSchemaRoot transferTo(BufferAllocator allocator) {
+        LibraryUtils.checkArgumentNotNull(allocator, "allocator is null.");
+        int rowCount = root.getRowCount();
+        List<FieldVector> vectors = new ArrayList<>();
+        for (FieldVector vector : root.getFieldVectors()) {
+            TransferPair transferPair = vector.getTransferPair(allocator);
+            transferPair.transfer();
+            vectors.add((FieldVector) transferPair.getTo());
+        }
+        return new VectorSchemaRoot(SCHEMA.getFields(), vectors, rowCount);
+    }
+
+    /**
+     * Release all buffers to the {@link BufferAllocator}. The vectors must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        root.close();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("CloudTrailRecordBatch [rowCount=");
+        builder.append(root.getRowCount());
+        if (log != null) {
+            builder.append(", log=");
+            builder.append(log);
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+
+    private static Schema createSchema() {
+        List<Field> fields = new ArrayList<>();
+        fields.add(new Field(CloudTrailRecordSchema.EVENT_TIME,
+                FieldType.nullable(new ArrowType.Timestamp(TimeUnit.MILLISECOND, "UTC")), null));
+        fields.add(new Field(CloudTrailRecordSchema.READ_ONLY, FieldType.nullable(ArrowType.Bool.INSTANCE), null));
+        fields.add(new Field(CloudTrailRecordSchema.MANAGEMENT_EVENT, FieldType.nullable(ArrowType.Bool.INSTANCE), null));
+        fields.addAll(utf8Fields(CloudTrailRecordSchema.UTF8_FIELDS));
+
+        Field sessionIssuer = structField(CloudTrailRecordSchema.SESSION_ISSUER,
+                utf8Fields(CloudTrailRecordSchema.SESSION_ISSUER_FIELDS));
+        Field sessionContext = structField(CloudTrailRecordSchema.SESSION_CONTEXT,
+                Collections.singletonList(sessionIssuer));
+        List<Field> userIdentity = utf8Fields(CloudTrailRecordSchema.USER_IDENTITY_FIELDS);
+        userIdentity.add(sessionContext);
+        fields.add(structField(CloudTrailRecordSchema.USER_IDENTITY, userIdentity));
+
+        Field resource = structField(CloudTrailRecordSchema.RESOURCE, utf8Fields(CloudTrailRecordSchema.RESOURCE_FIELDS));
+        fields.add(new Field(CloudTrailRecordSchema.RESOURCES, FieldType.nullable(ArrowType.List.INSTANCE),
+                Collections.singletonList(resource)));
+        return new Schema(fields);
+    }
+
+    private static Field structField(String name, List<Field> children) {
+        return new Field(name, FieldType.nullable(ArrowType.Struct.INSTANCE), children);
+    }
+
+    private static List<Field> utf8Fields(List<String> names) {
+        List<Field> fields = new ArrayList<>(names.size());
+        for (String name : names) {
+            fields.add(new Field(name, FieldType.nullable(ArrowType.Utf8.INSTANCE), null));
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.model.arrow;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The field names of the fixed CloudTrail schema of {@link CloudTrailRecordBatch}:
+ * <ul>
+ *     <li><code>eventTime</code>: <code>Timestamp(MILLISECOND, "UTC")</code>.</li>
+ *     <li><code>readOnly</code>, <code>managementEvent</code>: <code>Bool</code>.</li>
+ *     <li><code>userIdentity</code>: <code>Struct</code> of <code>Utf8</code> identity fields and a
+ *     <code>sessionContext</code> struct holding the <code>sessionIssuer</code> struct.</li>
+ *     <li><code>resources</code>: <code>List</code> of <code>Struct&lt;ARN, accountId, type&gt;</code>.</li>
+ *     <li>Every other field in {@link #UTF8_FIELDS}: <code>Utf8</code>; JSON objects such as
+ *     <code>requestParameters</code> are kept as JSON text.</li>
+ * </ul>
+ * <p>
+ * This class does not refer to Arrow types, so writers of the same schema in other formats can use it without
+ * <code>arrow-vector</code> on the classpath.
+ * </p>
+ */
+public final class CloudTrailRecordSchema {
+    public static final String EVENT_TIME = "eventTime";
+    public static final String READ_ONLY = "readOnly";
+    public static final String MANAGEMENT_EVENT = "managementEvent";
+    public static final String USER_IDENTITY = "userIdentity";
+    public static final String SESSION_CONTEXT = "sessionContext";
+    public static final String SESSION_ISSUER = "sessionIssuer";
+    public static final String RESOURCES = "resources";
+
+    /**
+     * Name of the struct elements of the <code>resources</code> list.
+     */
+    public static final String RESOURCE = "item";
+
+    /**
+     * Top level fields stored as <code>Utf8</code>.
+     */
+    public static final List<String> UTF8_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "eventVersion", "eventSource", "eventName", "awsRegion", "sourceIPAddress", "userAgent", "errorCode",
+            "errorMessage", "requestParameters", "responseElements", "additionalEventData", "requestID", "eventID",
+            "eventType", "apiVersion", "recipientAccountId", "sharedEventID", "vpcEndpointId", "eventCategory",
+            "accountId"));
+
+    /**
+     * <code>Utf8</code> children of the <code>userIdentity</code> struct.
+     */
+    public static final List<String> USER_IDENTITY_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "type", "principalId", "arn", "accountId", "accessKeyId", "userName", "invokedBy", "identityProvider"));
+
+    /**
+     * <code>Utf8</code> children of the <code>sessionIssuer</code> struct.
+     */
+    public static final List<String> SESSION_ISSUER_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "type", "principalId", "arn", "accountId", "userName"));
+
+    /**
+     * <code>Utf8</code> children of the <code>resources</code> list elements.
+     */
+    public static final List<String> RESOURCE_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "ARN", "accountId", "type"));
+
+    private CloudTrailRecordSchema() {
+    }
+}
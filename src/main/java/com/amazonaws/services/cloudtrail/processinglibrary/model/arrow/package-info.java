@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+/**
+ * CloudTrail events in Apache Arrow vectors, delivered to
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ArrowEventsProcessor}. Except for
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.model.arrow.CloudTrailRecordSchema}, the classes of this
+ * package need <code>org.apache.arrow:arrow-vector</code>, an optional dependency of the library, and an Arrow memory
+ * implementation such as <code>arrow-memory-netty</code> or <code>arrow-memory-unsafe</code> at runtime; on Java 9
+ * and later Arrow also needs <code>--add-opens=java.base/java.nio=ALL-UNNAMED</code>.
+ */
+package com.amazonaws.services.cloudtrail.processinglibrary.model.arrow;
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.model.columnar;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+
+import java.util.Arrays;
+
+/**
+ * An {@link EventColumn} with a <code>boolean</code> per row, packed one bit per row.
+ */
+public class BooleanColumn extends EventColumn {
+    private final long[] bits;
+
+    BooleanColumn(CloudTrailEventField field, int capacity) {
+        super(field, capacity);
+        bits = new long[(capacity + 63) >>> 6];
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.BOOLEAN;
+    }
+
+    /**
+     * @param row the row index.
+     * @return the value of the row, or <code>false</code> if the row is null.
+     */
+    public boolean getBoolean(int row) {
+        checkRow(row);
+        return (bits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * The backing bitmap, one bit per row with the least significant bit first. Null rows hold 0.
+     *
+     * @return the values of this column.
+     */
+    public long[] getBits() {
+        return bits;
+    }
+
+    /**
+     * Set the value of a row, used by the serializer filling the batch.
+     */
+    public void set(int row, boolean value) {
+        if (value) {
+            bits[row >>> 6] |= 1L << row;
+        }
+        setValid(row);
+    }
+
+    @Override
+    void clear() {
+        Arrays.fill(bits, 0L);
+        super.clear();
+    }
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.model.columnar;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A batch of CloudTrail events from one log file, stored as one {@link EventColumn} per selected
+ * {@link CloudTrailEventField}.
+ * <p>
+ * The library reuses a batch, and the arrays behind its columns, for every batch of a log file. A batch and its
+ * columns are only valid until the
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ColumnarEventsProcessor#process(CloudTrailEventBatch)}
+ * call it was passed to returns; copy whatever must be kept.
+ * </p>
+ */
+public class CloudTrailEventBatch {
+    private final CloudTrailLog log;
+    private final int capacity;
+    private final Map<CloudTrailEventField, EventColumn> columns;
+    private final EventColumn[] columnsByField;
+    private int size;
+
+    /**
+     * Create an empty batch.
+     *
+     * @param log the {@link CloudTrailLog} the events are read from.
+     * @param fields the fields to store, each must have a {@link ColumnType}.
+     * @param capacity the maximum number of events in the batch.
+     */
+    public CloudTrailEventBatch(CloudTrailLog log, Collection<CloudTrailEventField> fields, int capacity) {
+        LibraryUtils.checkArgumentNotNull(fields, "fields is null.");
+        LibraryUtils.checkCondition(capacity <= 0, "Batch capacity must be greater than 0.");
+
+        this.log = log;
+        this.capacity = capacity;
+        this.columns = new EnumMap<>(CloudTrailEventField.class);
+        this.columnsByField = new EventColumn[CloudTrailEventField.values().length];
+
+        for (CloudTrailEventField field : fields) {
+            ColumnType type = ColumnType.of(field);
+            LibraryUtils.checkCondition(type == null, "Field " + field + " cannot be read into a column.");
+
+            EventColumn column = newColumn(field, type, capacity);
+            columns.put(field, column);
+            columnsByField[field.ordinal()] = column;
+        }
+    }
+
+    private static EventColumn newColumn(CloudTrailEventField field, ColumnType type, int capacity) {
+        switch (type) {
+            case LONG:
+                return new LongColumn(field, capacity);
+            case BOOLEAN:
+                return new BooleanColumn(field, capacity);
+            case DICTIONARY:
+                return new DictionaryColumn(field, capacity);
+            default:
+                return new StringColumn(field, capacity);
+        }
+    }
+
+    /**
+     * @return the {@link CloudTrailLog} the events were read from.
+     */
+    public CloudTrailLog getLog() {
+        return log;
+    }
+
+    /**
+     * @return the number of events in the batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the maximum number of events in the batch.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the fields stored in this batch.
+     */
+    public Set<CloudTrailEventField> getFields() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    /**
+     * @param field a {@link CloudTrailEventField}.
+     * @return the column of <code>field</code>, or <code>null</code> if the field was not selected.
+     */
+    public EventColumn getColumn(CloudTrailEventField field) {
+        return columnsByField[field.ordinal()];
+    }
+
+    /**
+     * @param field a {@link CloudTrailEventField} of {@link ColumnType#LONG}.
+     * @return the column of <code>field</code>.
+     */
+    public LongColumn getLongColumn(CloudTrailEventField field) {
+        return (LongColumn) getColumn(field, ColumnType.LONG);
+    }
+
+    /**
+     * @param field a {@link CloudTrailEventField} of {@link ColumnType#BOOLEAN}.
+     * @return the column of <code>field</code>.
+     */
+    public BooleanColumn getBooleanColumn(CloudTrailEventField field) {
+        return (BooleanColumn) getColumn(field, ColumnType.BOOLEAN);
+    }
+
+    /**
+     * @param field a {@link CloudTrailEventField} of {@link ColumnType#STRING}.
+     * @return the column of <code>field</code>.
+     */
+    public StringColumn getStringColumn(CloudTrailEventField field) {
+        return (StringColumn) getColumn(field, ColumnType.STRING);
+    }
+
+    /**
+     * @param field a {@link CloudTrailEventField} of {@link ColumnType#DICTIONARY}.
+     * @return the column of <code>field</code>.
+     */
+    public DictionaryColumn getDictionaryColumn(CloudTrailEventField field) {
+        return (DictionaryColumn) getColumn(field, ColumnType.DICTIONARY);
+    }
+
+    private EventColumn getColumn(CloudTrailEventField field, ColumnType type) {
+        EventColumn column = columnsByField[field.ordinal()];
+        if (column == null) {
+            throw new IllegalArgumentException("Field " + field + " is not in this batch.");
+        }
+        if (column.getType() != type) {
+            throw new IllegalArgumentException("Field " + field + " is a " + column.getType() + " column.");
+        }
+        return column;
+    }
+
+    /**
+     * Remove all events, keeping the dictionaries.
+     */
+    public void clear() {
+        for (EventColumn column : columns.values()) {
+            column.clear();
+        }
+        size = 0;
+    }
+
+    /**
+     * Set the number of events once all of them have been written, used by the serializer filling the batch.
+     *
+     * @param size the number of events written.
+     */
+    public void finish(int size) {
+        this.size = size;
+        for (EventColumn column : columns.values()) {
+            column.finish(size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("CloudTrailEventBatch [size=");
+        builder.append(size);
+        builder.append(", fields=");
+        builder.append(columns.keySet());
+        if (log != null) {
+            builder.append(", log=");
+            builder.append(log);
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+}
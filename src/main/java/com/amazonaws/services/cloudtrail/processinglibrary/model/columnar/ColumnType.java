@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.model.columnar;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+
+/**
+ * The physical representation of an {@link EventColumn}.
+ */
+public enum ColumnType {
+    /**
+     * A <code>long</code> per row, see {@link LongColumn}.
+     */
+    LONG,
+
+    /**
+     * A <code>boolean</code> per row, see {@link BooleanColumn}.
+     */
+    BOOLEAN,
+
+    /**
+     * Characters of every row stored back to back, see {@link StringColumn}.
+     */
+    STRING,
+
+    /**
+     * An <code>int</code> code per row into a dictionary of distinct values, see {@link DictionaryColumn}.
+     */
+    DICTIONARY;
+
+    /**
+     * Get the column type used for a CloudTrail event field.
+     *
+     * @param field the {@link CloudTrailEventField}.
+     * @return the {@link ColumnType}, or <code>null</code> if the field cannot be read into a column.
+     */
+    public static ColumnType of(CloudTrailEventField field) {
+        switch (field) {
+            case eventTime:
+                return LONG;
+            case readOnly:
+            case managementEvent:
+                return BOOLEAN;
+            case accountId:
+            case apiVersion:
+            case awsRegion:
+            case errorCode:
+            case eventCategory:
+            case eventName:
+            case eventSource:
+            case eventType:
+            case eventVersion:
+            case recipientAccountId:
+                return DICTIONARY;
+            case errorMessage:
+            case eventID:
+            case requestID:
+            case sharedEventID:
+            case sourceIPAddress:
+            case userAgent:
+            case vpcEndpointId:
+                return STRING;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.model.columnar;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A dictionary-encoded {@link EventColumn} for low cardinality text values such as <code>eventName</code> or
+ * <code>awsRegion</code>. Every row holds an <code>int</code> code into the dictionary, {@link #NULL_CODE} for
+ * null rows.
+ * <p>
+ * The dictionary only grows while the batches of one log file are read, so a code refers to the same value in every
+ * batch of that log file. A <code>String</code> is only created the first time a value is seen.
+ * </p>
+ */
+public class DictionaryColumn extends EventColumn {
+    /**
+     * The code of a null row.
+     */
+    public static final int NULL_CODE = -1;
+
+    private final int[] codes;
+
+    private String[] entries = new String[16];
+    private int entryCount;
+
+    /**
+     * Open addressing table of <code>code + 1</code>, 0 for an empty slot.
+     */
+    private int[] table = new int[32];
+
+    DictionaryColumn(CloudTrailEventField field, int capacity) {
+        super(field, capacity);
+        codes = new int[capacity];
+        Arrays.fill(codes, NULL_CODE);
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.DICTIONARY;
+    }
+
+    /**
+     * @param row the row index.
+     * @return the dictionary code of the row, or {@link #NULL_CODE} if the row is null.
+     */
+    public int getCode(int row) {
+        checkRow(row);
+        return codes[row];
+    }
+
+    /**
+     * @param row the row index.
+     * @return the value of the row, or <code>null</code> if the row is null.
+     */
+    public String getString(int row) {
+        int code = getCode(row);
+        return code == NULL_CODE ? null : entries[code];
+    }
+
+    /**
+     * The backing array of codes. Only the first {@link #size()} entries belong to the batch.
+     *
+     * @return the codes of this column.
+     */
+    public int[] getCodes() {
+        return codes;
+    }
+
+    /**
+     * @return the number of distinct values in the dictionary.
+     */
+    public int getDictionarySize() {
+        return entryCount;
+    }
+
+    /**
+     * @param code a dictionary code.
+     * @return the value of <code>code</code>.
+     */
+    public String getDictionaryValue(int code) {
+        if (code < 0 || code >= entryCount) {
+            throw new IndexOutOfBoundsException("Code " + code + " is not in the dictionary of column " + getField());
+        }
+        return entries[code];
+    }
+
+    /**
+     * @return the dictionary, indexed by code.
+     */
+    public List<String> getDictionary() {
+        return Collections.unmodifiableList(Arrays.asList(entries).subList(0, entryCount));
+    }
+
+    /**
+     * Set the value of a row, used by the serializer filling the batch.
+     */
+    public void set(int row, char[] source, int start, int length) {
+        codes[row] = encode(source, start, length);
+        setValid(row);
+    }
+
+    /**
+     * Set the value of a row, used by the serializer filling the batch.
+     */
+    public void set(int row, String value) {
+        char[] source = value.toCharArray();
+        set(row, source, 0, source.length);
+    }
+
+    /**
+     * Set the code of a row, used by the serializer filling the batch.
+     */
+    public void setCode(int row, int code) {
+        codes[row] = code;
+        if (code != NULL_CODE) {
+            setValid(row);
+        }
+    }
+
+    /**
+     * Find or add a value in the dictionary, used by the serializer filling the batch.
+     *
+     * @param source characters of the value.
+     * @param start index of the first character.
+     * @param length number of characters.
+     * @return the code of the value.
+     */
+    public int encode(char[] source, int start, int length) {
+        int hash = hash(source, start, length);
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return add(slot, new String(source, start, length));
+            }
+            if (matches(entries[entry - 1], source, start, length)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private int add(int slot, String value) {
+        if (entryCount == entries.length) {
+            entries = Arrays.copyOf(entries, entryCount << 1);
+        }
+        int code = entryCount++;
+        entries[code] = value;
+        table[slot] = code + 1;
+
+        if (entryCount << 1 > table.length) {
+            rehash(table.length << 1);
+        }
+        return code;
+    }
+
+    private void rehash(int newLength) {
+        int[] newTable = new int[newLength];
+        int mask = newLength - 1;
+        for (int code = 0; code < entryCount; code++) {
+            String value = entries[code];
+            int slot = mix(value.hashCode()) & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = code + 1;
+        }
+        table = newTable;
+    }
+
+    /**
+     * Same hash as {@link String#hashCode()}, so entries can be rehashed from their <code>String</code>.
+     */
+    private static int hash(char[] source, int start, int length) {
+        int hash = 0;
+        for (int i = start, end = start + length; i < end; i++) {
+            hash = 31 * hash + source[i];
+        }
+        return mix(hash);
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String value, char[] source, int start, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != source[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    void clear() {
+        Arrays.fill(codes, 0, size, NULL_CODE);
+        super.clear();
+    }
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.model.columnar;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+
+import java.util.Arrays;
+
+/**
+ * One column of a {@link CloudTrailEventBatch}: the values of a single {@link CloudTrailEventField} for every event
+ * in the batch. A row is null when the event does not have the field or its value is JSON <code>null</code>.
+ */
+public abstract class EventColumn {
+    private final CloudTrailEventField field;
+
+    /**
+     * One bit per row, set when the row is not null.
+     */
+    long[] validity;
+
+    int size;
+
+    EventColumn(CloudTrailEventField field, int capacity) {
+        this.field = field;
+        this.validity = new long[(capacity + 63) >>> 6];
+    }
+
+    /**
+     * @return the {@link CloudTrailEventField} stored in this column.
+     */
+    public CloudTrailEventField getField() {
+        return field;
+    }
+
+    /**
+     * @return the {@link ColumnType} of this column.
+     */
+    public abstract ColumnType getType();
+
+    /**
+     * @return the number of rows in this column.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param row the row index.
+     * @return <code>true</code> if the row has no value.
+     */
+    public boolean isNull(int row) {
+        checkRow(row);
+        return (validity[row >>> 6] & (1L << row)) == 0;
+    }
+
+    /**
+     * @return the number of rows with no value.
+     */
+    public int getNullCount() {
+        int valid = 0;
+        int words = (size + 63) >>> 6;
+        for (int i = 0; i < words; i++) {
+            valid += Long.bitCount(validity[i]);
+        }
+        return size - valid;
+    }
+
+    void setValid(int row) {
+        validity[row >>> 6] |= 1L << row;
+    }
+
+    void clear() {
+        Arrays.fill(validity, 0L);
+        size = 0;
+    }
+
+    /**
+     * Called once all rows of a batch are written.
+     *
+     * @param size the number of rows in the batch.
+     */
+    void finish(int size) {
+        this.size = size;
+    }
+
+    void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " is out of bounds for column " + field + " of size " + size);
+        }
+    }
+}
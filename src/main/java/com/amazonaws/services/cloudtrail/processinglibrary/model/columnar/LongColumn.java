@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.model.columnar;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+
+import java.util.Arrays;
+
+/**
+ * An {@link EventColumn} with a <code>long</code> per row. <code>eventTime</code> is stored as milliseconds since
+ * the epoch.
+ */
+public class LongColumn extends EventColumn {
+    private final long[] values;
+
+    LongColumn(CloudTrailEventField field, int capacity) {
+        super(field, capacity);
+        values = new long[capacity];
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.LONG;
+    }
+
+    /**
+     * @param row the row index.
+     * @return the value of the row, or 0 if the row is null.
+     */
+    public long getLong(int row) {
+        checkRow(row);
+        return values[row];
+    }
+
+    /**
+     * The backing array. Only the first {@link #size()} entries belong to the batch, null rows hold 0.
+     *
+     * @return the values of this column.
+     */
+    public long[] getValues() {
+        return values;
+    }
+
+    /**
+     * Set the value of a row, used by the serializer filling the batch.
+     */
+    public void set(int row, long value) {
+        values[row] = value;
+        setValid(row);
+    }
+
+    @Override
+    void clear() {
+        Arrays.fill(values, 0, size, 0L);
+        super.clear();
+    }
+}
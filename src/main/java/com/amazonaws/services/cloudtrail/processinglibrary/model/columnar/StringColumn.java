@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.model.columnar;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+
+import java.util.Arrays;
+
+/**
+ * An {@link EventColumn} of text values. The characters of all rows are stored back to back in one array and row
+ * <code>i</code> spans <code>[getOffsets()[i], getOffsets()[i + 1])</code>, so reading a batch does not create a
+ * <code>String</code> per row. Null rows have a length of 0.
+ */
+public class StringColumn extends EventColumn {
+    private static final int INITIAL_CHARS_PER_ROW = 32;
+
+    private char[] chars;
+    private final int[] offsets;
+
+    /**
+     * Number of rows whose offsets have been written.
+     */
+    private int written;
+
+    StringColumn(CloudTrailEventField field, int capacity) {
+        super(field, capacity);
+        chars = new char[Math.max(16, capacity * INITIAL_CHARS_PER_ROW)];
+        offsets = new int[capacity + 1];
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.STRING;
+    }
+
+    /**
+     * Create a <code>String</code> for a row.
+     *
+     * @param row the row index.
+     * @return the value of the row, or <code>null</code> if the row is null.
+     */
+    public String getString(int row) {
+        if (isNull(row)) {
+            return null;
+        }
+        return new String(chars, offsets[row], offsets[row + 1] - offsets[row]);
+    }
+
+    /**
+     * @param row the row index.
+     * @return the number of characters in the row.
+     */
+    public int getLength(int row) {
+        checkRow(row);
+        return offsets[row + 1] - offsets[row];
+    }
+
+    /**
+     * The backing character data, valid up to <code>getOffsets()[size()]</code>.
+     *
+     * @return the characters of all rows.
+     */
+    public char[] getChars() {
+        return chars;
+    }
+
+    /**
+     * The start offset of every row in {@link #getChars()}, followed by the end offset of the last row.
+     *
+     * @return <code>size() + 1</code> offsets.
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Set the value of a row, used by the serializer filling the batch.
+     */
+    public void set(int row, char[] source, int start, int length) {
+        fillTo(row);
+        int end = offsets[row];
+        if (end + length > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length << 1, end + length));
+        }
+        System.arraycopy(source, start, chars, end, length);
+        offsets[row + 1] = end + length;
+        written = row + 1;
+        setValid(row);
+    }
+
+    /**
+     * Set the value of a row, used by the serializer filling the batch.
+     */
+    public void set(int row, String value) {
+        char[] source = value.toCharArray();
+        set(row, source, 0, source.length);
+    }
+
+    /**
+     * Give every row before <code>row</code> that was not written a length of 0.
+     */
+    private void fillTo(int row) {
+        for (; written < row; written++) {
+            offsets[written + 1] = offsets[written];
+        }
+    }
+
+    @Override
+    void finish(int size) {
+        fillTo(size);
+        super.finish(size);
+    }
+
+    @Override
+    void clear() {
+        super.clear();
+        written = 0;
+        offsets[0] = 0;
+    }
+}
@@ -15,6 +15,9 @@
 
 package com.amazonaws.services.cloudtrail.processinglibrary.model.internal;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -22,6 +25,12 @@ import java.util.Map;
  * Internal use only.
  * <p>
  * Generic data store for the AWS CloudTrail model.
+ * <p>
+ * A data store created with a {@link DeferredValueSource} decodes each value the first time it is read, and all of
+ * them before it is compared, hashed, printed, or viewed as a map, so it is equal to a data store that was filled
+ * eagerly. Such a data store is not thread-safe: it must be read by one thread at a time, as its source requires.
+ * Once every value is decoded it no longer uses the source and is read like any other data store.
+ * </p>
  */
 public class CloudTrailDataStore {
     /**
@@ -29,8 +38,30 @@ public class CloudTrailDataStore {
      */
     private Map<String, Object> dataStore;
 
+    /**
+     * Values not decoded yet; <code>null</code> when all values are added eagerly.
+     */
+    private final DeferredValueSource deferredValues;
+
+    /**
+     * Whether every value of {@link #deferredValues} has been decoded.
+     */
+    private boolean materialized;
+
     public CloudTrailDataStore() {
+        this(null);
+    }
+
+    /**
+     * Internal use only.
+     * <p>
+     * Create a data store whose values are decoded when they are first read.
+     *
+     * @param deferredValues the source of the values, or <code>null</code> to add all values eagerly.
+     */
+    public CloudTrailDataStore(DeferredValueSource deferredValues) {
         this.dataStore = new HashMap<>();
+        this.deferredValues = deferredValues;
     }
 
     /**
@@ -54,6 +85,9 @@ public class CloudTrailDataStore {
      * @return the value associated with the provided key.
      */
     public Object get(String key) {
+        if (deferredValues != null && !materialized) {
+            materialize(key);
+        }
         return this.dataStore.get(key);
     }
 
@@ -66,11 +100,52 @@ public class CloudTrailDataStore {
      * @return <code>true</code> if the provided key exists in the data store; <code>false</code> otherwise.
      */
     public boolean has(String key) {
-        return this.dataStore.containsKey(key);
+        if (deferredValues == null || materialized) {
+            return this.dataStore.containsKey(key);
+        }
+        return this.dataStore.containsKey(key) || deferredValues.has(key, this);
+    }
+
+    /**
+     * Internal use only.
+     * <p>
+     * Provides a read-only view of the underlying data store, for example to serialize it as a whole.
+     *
+     * @return an unmodifiable view of the key/value pairs in the data store.
+     */
+    public Map<String, Object> asMap() {
+        materializeAll();
+        return Collections.unmodifiableMap(this.dataStore);
+    }
+
+    /**
+     * Decode the value of a key if it was not decoded yet.
+     */
+    private void materialize(String key) {
+        if (!dataStore.containsKey(key) && deferredValues.has(key, this)) {
+            try {
+                deferredValues.materialize(key, this);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot decode " + key, e);
+            }
+        }
+    }
+
+    /**
+     * Decode every value that was not decoded yet.
+     */
+    private void materializeAll() {
+        if (deferredValues != null && !materialized) {
+            for (String key : deferredValues.keys()) {
+                materialize(key);
+            }
+            materialized = true;
+        }
     }
 
     @Override
     public String toString() {
+        materializeAll();
         StringBuilder builder = new StringBuilder();
         builder.append("{");
         if (dataStore != null) {
@@ -84,6 +159,7 @@ public class CloudTrailDataStore {
 
     @Override
     public int hashCode() {
+        materializeAll();
         final int prime = 31;
         int result = 1;
         result = prime * result + ((dataStore == null) ? 0 : dataStore.hashCode());
@@ -99,6 +175,8 @@ public class CloudTrailDataStore {
         if (getClass() != obj.getClass())
             return false;
         CloudTrailDataStore other = (CloudTrailDataStore) obj;
+        other.materializeAll();
+        materializeAll();
         if (dataStore == null) {
             if (other.dataStore != null)
                 return false;
@@ -15,6 +15,9 @@
 
 package com.amazonaws.services.cloudtrail.processinglibrary.model.internal;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Internal use only.
  */
@@ -99,5 +102,23 @@ public enum CloudTrailEventField {
     value,
     vpcEndpointAccountId,
     vpcEndpointId,
-    webIdFederationData
+    webIdFederationData;
+
+    private static final Map<String, CloudTrailEventField> FIELDS_BY_NAME = new HashMap<>();
+
+    static {
+        for (CloudTrailEventField field : values()) {
+            FIELDS_BY_NAME.put(field.name(), field);
+        }
+    }
+
+    /**
+     * Look up the field with the given name.
+     *
+     * @param name the name of a field.
+     * @return the field, or <code>null</code> if no field has that name.
+     */
+    public static CloudTrailEventField fromName(String name) {
+        return FIELDS_BY_NAME.get(name);
+    }
 }
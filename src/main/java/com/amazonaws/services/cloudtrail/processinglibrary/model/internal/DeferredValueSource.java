@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.model.internal;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Internal use only.
+ * <p>
+ * Supplies the values of a {@link CloudTrailDataStore} that are decoded only when they are first read.
+ */
+public interface DeferredValueSource {
+    /**
+     * @return every key the source may have a value for.
+     */
+    Collection<String> keys();
+
+    /**
+     * Whether the source has a value for a key.
+     *
+     * @param key the key to look for.
+     * @param store the data store the source supplies.
+     * @return <code>true</code> if the source has a value for the key.
+     */
+    boolean has(String key, CloudTrailDataStore store);
+
+    /**
+     * Decode the value of a key and add it to the data store.
+     *
+     * @param key a key the source has a value for.
+     * @param store the data store the source supplies.
+     * @throws IOException if the value cannot be decoded.
+     */
+    void materialize(String key, CloudTrailDataStore store) throws IOException;
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.progress.jfr;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProgressReporter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Loads <code>FlightRecorderProgressReporter</code> reflectively, so that the library keeps running on Java runtimes
+ * without Java Flight Recorder. That class and the events it emits are compiled for Java 11 and only packaged under
+ * <code>META-INF/versions/11</code> of the multi-release jar; this class does not reference <code>jdk.jfr</code>
+ * itself and is initialized only when Java Flight Recorder events are enabled.
+ */
+public final class FlightRecorderSupport {
+    private static final Log logger = LogFactory.getLog(FlightRecorderSupport.class);
+
+    private static final String REPORTER_CLASS_NAME =
+            "com.amazonaws.services.cloudtrail.processinglibrary.progress.jfr.FlightRecorderProgressReporter";
+
+    private static final Constructor<?> REPORTER_CONSTRUCTOR = loadReporterConstructor();
+
+    private FlightRecorderSupport() {
+    }
+
+    /**
+     * @return <code>true</code> if Java Flight Recorder is available in this runtime.
+     */
+    public static boolean isAvailable() {
+        return REPORTER_CONSTRUCTOR != null;
+    }
+
+    /**
+     * Wrap <code>progressReporter</code> so that every action is also emitted as a Java Flight Recorder event.
+     *
+     * @param progressReporter the {@link ProgressReporter} to wrap.
+     * @return a <code>FlightRecorderProgressReporter</code> forwarding to <code>progressReporter</code>, or
+     * <code>progressReporter</code> itself if Java Flight Recorder is not available or it is already wrapped.
+     */
+    public static ProgressReporter wrap(ProgressReporter progressReporter) {
+        if (REPORTER_CONSTRUCTOR == null || progressReporter == null
+                || REPORTER_CLASS_NAME.equals(progressReporter.getClass().getName())) {
+            return progressReporter;
+        }
+        try {
+            return (ProgressReporter) REPORTER_CONSTRUCTOR.newInstance(progressReporter);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.debug("Failed to create Java Flight Recorder progress reporter.", e);
+            return progressReporter;
+        }
+    }
+
+    private static Constructor<?> loadReporterConstructor() {
+        try {
+            Class<?> flightRecorder = Class.forName("jdk.jfr.FlightRecorder");
+            if (!(Boolean) flightRecorder.getMethod("isAvailable").invoke(null)) {
+                logger.warn("Java Flight Recorder events are enabled but Java Flight Recorder is not available, they are not emitted.");
+                return null;
+            }
+            return Class.forName(REPORTER_CLASS_NAME).getConstructor(ProgressReporter.class);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("Java Flight Recorder events are enabled but not available in this runtime, they are not emitted.");
+            return null;
+        }
+    }
+}
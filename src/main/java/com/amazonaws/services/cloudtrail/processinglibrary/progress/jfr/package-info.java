@@ -0,0 +1,22 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+/**
+ * Java Flight Recorder events for the AWS CloudTrail Processing Library stages. Classes in this package, except
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.progress.jfr.FlightRecorderSupport}, are built from
+ * <code>src/main/java11</code> into <code>META-INF/versions/11</code> of the multi-release jar, require the
+ * <code>jdk.jfr</code> module and must only be loaded through it.
+ */
+package com.amazonaws.services.cloudtrail.processinglibrary.progress.jfr;
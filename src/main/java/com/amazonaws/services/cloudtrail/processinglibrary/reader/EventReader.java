@@ -17,9 +17,18 @@ package com.amazonaws.services.cloudtrail.processinglibrary.reader;
 
 import com.amazonaws.services.cloudtrail.processinglibrary.configuration.ProcessingConfiguration;
 import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.CallbackException;
+import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.LogDownloadException;
+import com.amazonaws.services.cloudtrail.processinglibrary.factory.EventParserFactory;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultLogFilter;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.NoOpProcessedLogLedger;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ArrowEventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ColumnarEventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.CursorEventsProcessor;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.EventFilter;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.EventsProcessor;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ExceptionHandler;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.LogFilter;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProcessedLogLedger;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProgressReporter;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.SourceFilter;
 import com.amazonaws.services.cloudtrail.processinglibrary.manager.S3Manager;
@@ -28,50 +37,72 @@ import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEvent
 import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.SQSBasedSource;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.arrow.CloudTrailRecordBatch;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.columnar.CloudTrailEventBatch;
 import com.amazonaws.services.cloudtrail.processinglibrary.progress.BasicProcessLogInfo;
 import com.amazonaws.services.cloudtrail.processinglibrary.progress.BasicProcessSourceInfo;
 import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState;
 import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStatus;
+import com.amazonaws.services.cloudtrail.processinglibrary.serializer.ArrowEventSerializer;
+import com.amazonaws.services.cloudtrail.processinglibrary.serializer.ColumnarEventSerializer;
 import com.amazonaws.services.cloudtrail.processinglibrary.serializer.DefaultEventSerializer;
+import com.amazonaws.services.cloudtrail.processinglibrary.serializer.EventCursor;
 import com.amazonaws.services.cloudtrail.processinglibrary.serializer.EventSerializer;
 import com.amazonaws.services.cloudtrail.processinglibrary.serializer.RawLogDeliveryEventSerializer;
+import com.amazonaws.services.cloudtrail.processinglibrary.serializer.TapeEventSerializer;
 import com.amazonaws.services.cloudtrail.processinglibrary.utils.EventBuffer;
 import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
 import software.amazon.awssdk.services.sqs.model.Message;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.GZIPInputStream;
 
 /**
  * EventReader is responsible for processing a stream of events. It parses each event and hands
  * the events to EventsProcessor to process.
+ * <p>
+ * A reader keeps no state for the source it processes, so a single reader can be reused for any number of sources,
+ * from any number of threads. The only exception is the outcome of the filters evaluated by
+ * {@link #prefetch(CloudTrailSource)}, which is held until {@link #processSource(CloudTrailSource)} takes it.
+ * </p>
  */
 public class EventReader {
     private static final Log logger = LogFactory.getLog(EventReader.class);
 
     private final SourceFilter sourceFilter;
+    private final LogFilter logFilter;
+    private final ProcessedLogLedger ledger;
+    private final LogPrefetcher prefetcher;
+    private final MemoryGovernor memoryGovernor;
     private final EventFilter eventFilter;
     private final EventsProcessor eventsProcessor;
+    private final ColumnarEventsProcessor columnarEventsProcessor;
+    private final ArrowEventsProcessor arrowEventsProcessor;
+    private final CursorEventsProcessor cursorEventsProcessor;
     private final ProgressReporter progressReporter;
     private final ExceptionHandler exceptionHandler;
 
+    /**
+     * Sources screened by {@link #prefetch(CloudTrailSource)} and not yet processed. Keyed by identity, since the hash
+     * code of a source changes as its logs are downloaded.
+     */
+    private final Map<CloudTrailSource, ScreenedSource> screenedSources = Collections.synchronizedMap(new IdentityHashMap<>());
+
     private ProcessingConfiguration config;
 
     private SqsManager sqsManager;
     private S3Manager s3Manager;
 
-    /**
-     * Jackson parser to parse CloudTrail log files.
-     */
-    private ObjectMapper mapper;
-
     /**
      * Internal use only.
      *
@@ -89,18 +120,33 @@ public class EventReader {
     public EventReader(EventsProcessor eventsProcessor, SourceFilter sourceFilter, EventFilter eventFilter,
             ProgressReporter progressReporter, ExceptionHandler exceptionHandler, SqsManager sqsManager,
             S3Manager s3Manager, ProcessingConfiguration configuration) {
+        this(new Builder(configuration)
+                .withEventsProcessor(eventsProcessor)
+                .withSourceFilter(sourceFilter)
+                .withEventFilter(eventFilter)
+                .withProgressReporter(progressReporter)
+                .withExceptionHandler(exceptionHandler)
+                .withSQSManager(sqsManager)
+                .withS3Manager(s3Manager));
+    }
 
-        this.eventsProcessor = eventsProcessor;
-        this.sourceFilter = sourceFilter;
-        this.eventFilter = eventFilter;
-        this.progressReporter = progressReporter;
-        this.exceptionHandler = exceptionHandler;
-        this.config = configuration;
-
-        this.sqsManager = sqsManager;
-        this.s3Manager = s3Manager;
-
-        this.mapper = new ObjectMapper();
+    private EventReader(Builder builder) {
+        this.eventsProcessor = builder.eventsProcessor;
+        this.columnarEventsProcessor = builder.columnarEventsProcessor;
+        this.arrowEventsProcessor = builder.arrowEventsProcessor;
+        this.cursorEventsProcessor = builder.cursorEventsProcessor;
+        this.sourceFilter = builder.sourceFilter;
+        this.logFilter = builder.logFilter;
+        this.ledger = builder.ledger;
+        this.prefetcher = builder.prefetcher;
+        this.memoryGovernor = builder.memoryGovernor;
+        this.eventFilter = builder.eventFilter;
+        this.progressReporter = builder.progressReporter;
+        this.exceptionHandler = builder.exceptionHandler;
+        this.config = builder.config;
+
+        this.sqsManager = builder.sqsManager;
+        this.s3Manager = builder.s3Manager;
     }
 
     /**
@@ -113,6 +159,71 @@ public class EventReader {
         return sqsManager.parseMessage(sqsMessages);
     }
 
+    /**
+     * Queue the logs of a source to be downloaded ahead of processing, if download-ahead is enabled.
+     * <p>
+     * Only logs of a source accepted by the {@link SourceFilter}, accepted by the {@link LogFilter} and not recorded
+     * in the {@link ProcessedLogLedger} are queued. The filters and the ledger are consulted once per source and log;
+     * {@link #processSource(CloudTrailSource)} reuses their answers.
+     * </p>
+     *
+     * @param source {@link CloudTrailSource} that will be processed.
+     */
+    public void prefetch(CloudTrailSource source) {
+        if (prefetcher == null || !(source instanceof SQSBasedSource)) {
+            return;
+        }
+        ScreenedSource screened;
+        try {
+            screened = screen(source);
+        } catch (CallbackException e) {
+            // The source is screened again, and the exception handled, when the source is processed.
+            logger.debug("Not downloading the logs of " + source + " ahead: " + e.getMessage());
+            return;
+        }
+        screenedSources.put(source, screened);
+        for (CloudTrailLog ctLog : screened.logs) {
+            prefetcher.prefetch(ctLog, source);
+        }
+    }
+
+    /**
+     * Forget a source passed to {@link #prefetch(CloudTrailSource)} that will not be processed, for example because it
+     * could not be dispatched, and drop the logs downloaded ahead for it.
+     *
+     * @param source {@link CloudTrailSource} that will not be processed.
+     */
+    public void cancelPrefetch(CloudTrailSource source) {
+        screenedSources.remove(source);
+        if (prefetcher != null) {
+            prefetcher.discard(source);
+        }
+    }
+
+    /**
+     * Apply the source filter, the log filter and the ledger to a source.
+     */
+    private ScreenedSource screen(CloudTrailSource source) throws CallbackException {
+        if (!sourceFilter.filterSource(source)) {
+            return new ScreenedSource(false, Collections.<CloudTrailLog>emptyList());
+        }
+        List<CloudTrailLog> logs = new ArrayList<>();
+        for (CloudTrailLog ctLog : ((SQSBasedSource) source).getLogs()) {
+            // A filtered out log counts as processed.
+            if (!logFilter.filterLog(ctLog, source)) {
+                logger.debug("CloudTrailLog " + ctLog + " has been filtered out.");
+                continue;
+            }
+            // A log that was already processed is skipped, and counts as processed.
+            if (ledger.isProcessed(ctLog)) {
+                logger.debug("CloudTrailLog " + ctLog + " has already been processed.");
+                continue;
+            }
+            logs.add(ctLog);
+        }
+        return new ScreenedSource(true, logs);
+    }
+
     /**
      * Retrieve S3 object URL from source then downloads the object processes each event through
      * call back functions.
@@ -124,47 +235,90 @@ public class EventReader {
         boolean downloadLogSuccess = true;
         boolean processSourceSuccess = false;
 
-        ProgressStatus processSourceStatus = new ProgressStatus(ProgressState.processSource, new BasicProcessSourceInfo(source, processSourceSuccess));
-        final Object processSourceReportObject = progressReporter.reportStart(processSourceStatus);
+        ProgressStatus processSourceStatus = LibraryUtils.isReportable(progressReporter, ProgressState.processSource, source, null)
+                ? new ProgressStatus(ProgressState.processSource, new BasicProcessSourceInfo(source, processSourceSuccess)) : null;
+        final Object processSourceReportObject = LibraryUtils.startToProcess(progressReporter, processSourceStatus);
 
         // Start to process the source
         try {
-            // Apply source filter first. If source filtered out then delete source immediately and return.
-            if (!sourceFilter.filterSource(source)) {
+            // Apply source filter first, then log filter and ledger before downloading, unless prefetch already did.
+            ScreenedSource screened = screenedSources.remove(source);
+            if (screened == null) {
+                screened = screen(source);
+            }
+
+            // If source filtered out then delete source immediately and return.
+            if (!screened.accepted) {
                 logger.debug("AWSCloudTrailSource " + source + " has been filtered out.");
                 processSourceSuccess = true;
                 filterSourceOut = true;
 
             } else {
-                int nLogFilesToProcess = ((SQSBasedSource)source).getLogs().size();
+                int nLogFilesToProcess = screened.logs.size();
 
-                for (CloudTrailLog ctLog : ((SQSBasedSource)source).getLogs()) {
+                for (CloudTrailLog ctLog : screened.logs) {
                     //start to process the log
                     boolean processLogSuccess = false;
-                    ProgressStatus processLogStatus = new ProgressStatus(ProgressState.processLog, new BasicProcessLogInfo(source, ctLog, processLogSuccess));
-                    final Object processLogReportObject = progressReporter.reportStart(processLogStatus);
+                    ProgressStatus processLogStatus = LibraryUtils.isReportable(progressReporter, ProgressState.processLog, source, ctLog)
+                            ? new ProgressStatus(ProgressState.processLog, new BasicProcessLogInfo(source, ctLog, processLogSuccess)) : null;
+                    final Object processLogReportObject = LibraryUtils.startToProcess(progressReporter, processLogStatus);
 
+                    MemoryGovernor.Reservation memoryReservation = null;
                     try {
-                        byte[] s3ObjectBytes = s3Manager.downloadLog(ctLog, source);
-                        if (s3ObjectBytes == null) {
+                        // Take a log downloaded ahead before waiting for memory, so its bytes go back to the budget.
+                        InputStream s3ObjectStream;
+                        try {
+                            s3ObjectStream = takePrefetched(ctLog, source);
+                        } catch (LogDownloadException e) {
+                            downloadLogSuccess = false;
+                            continue; //Failure downloading log file ahead. Skip it.
+                        }
+                        if (memoryGovernor != null) {
+                            memoryReservation = memoryGovernor.reserve(memoryGovernor.estimate(ctLog));
+                        }
+                        if (s3ObjectStream == null) {
+                            s3ObjectStream = s3Manager.downloadLogStream(ctLog, source);
+                        }
+                        if (s3ObjectStream == null) {
                             downloadLogSuccess = false;
                             continue; //Failure downloading log file. Skip it.
                         }
+                        if (memoryReservation != null) {
+                            // The download reported the size of the log.
+                            memoryGovernor.recordSize(ctLog);
+                            memoryReservation.resize(memoryGovernor.estimate(ctLog));
+                        }
 
-                        try (GZIPInputStream gzippedInputStream = new GZIPInputStream(new ByteArrayInputStream(s3ObjectBytes));
-                            EventSerializer serializer = getEventSerializer(gzippedInputStream, ctLog)) {
+                        try (InputStream s3Object = s3ObjectStream;
+                             GZIPInputStream gzippedInputStream = new GZIPInputStream(s3Object)) {
 
-                            emitEvents(serializer);
+                            ctLog.setEventCount(readEvents(gzippedInputStream, ctLog));
 
                             //decrement this value upon successfully processed a log
                             nLogFilesToProcess --;
                             processLogSuccess = true;
+                            ledger.markProcessed(ctLog);
+
+                        } catch (LogDownloadException e) {
+                            // The S3Manager already reported the failure; a partially downloaded log was not processed.
+                            downloadLogSuccess = false;
 
                         } catch (IllegalArgumentException | IOException e) {
-                            LibraryUtils.handleException(exceptionHandler, processLogStatus, e, "Failed to parse log file.");
+                            ProgressStatus exceptionStatus = processLogStatus != null ? processLogStatus
+                                    : new ProgressStatus(ProgressState.processLog, new BasicProcessLogInfo(source, ctLog, false));
+                            LibraryUtils.handleException(exceptionHandler, exceptionStatus, e, "Failed to parse log file.");
                         }
 
+                    } catch (InterruptedException e) {
+                        // Stopped while waiting for memory; the log was not downloaded.
+                        Thread.currentThread().interrupt();
+                        downloadLogSuccess = false;
+                        break;
+
                     } finally {
+                        if (memoryReservation != null) {
+                            memoryReservation.close();
+                        }
                         //end to process the log
                         LibraryUtils.endToProcess(progressReporter, processLogSuccess, processLogStatus, processLogReportObject);
                     }
@@ -179,12 +333,54 @@ public class EventReader {
             exceptionHandler.handleException(ex);
 
         } finally {
+            if (prefetcher != null) {
+                prefetcher.discard(source);
+            }
             cleanupMessage(filterSourceOut, downloadLogSuccess, processSourceSuccess, source);
             // end to process the source
             LibraryUtils.endToProcess(progressReporter, processSourceSuccess, processSourceStatus, processSourceReportObject);
         }
     }
 
+    /**
+     * Take a log downloaded ahead, and report the {@link ProgressState#downloadLog} stage that the
+     * {@link LogPrefetcher} does not report, with its failure if the download ahead failed.
+     *
+     * @return the log, or <code>null</code> if it was not downloaded ahead and must be downloaded here.
+     * @throws LogDownloadException if the download ahead failed; the failure has been reported.
+     */
+    private InputStream takePrefetched(CloudTrailLog ctLog, CloudTrailSource source) throws LogDownloadException {
+        if (prefetcher == null) {
+            return null;
+        }
+        InputStream s3ObjectStream;
+        IOException failure = null;
+        try {
+            s3ObjectStream = prefetcher.take(ctLog);
+            if (s3ObjectStream == null) {
+                return null;
+            }
+        } catch (IOException e) {
+            s3ObjectStream = null;
+            failure = e;
+        }
+
+        ProgressStatus downloadLogStatus = LibraryUtils.isReportable(progressReporter, ProgressState.downloadLog, source, ctLog)
+                ? new ProgressStatus(ProgressState.downloadLog, new BasicProcessLogInfo(source, ctLog, false)) : null;
+        Object downloadLogReportObject = LibraryUtils.startToProcess(progressReporter, downloadLogStatus);
+        if (failure != null) {
+            ProgressStatus exceptionStatus = downloadLogStatus != null ? downloadLogStatus
+                    : new ProgressStatus(ProgressState.downloadLog, new BasicProcessLogInfo(source, ctLog, false));
+            LibraryUtils.handleException(exceptionHandler, exceptionStatus, failure, failure.getMessage());
+        }
+        LibraryUtils.endToProcess(progressReporter, failure == null, downloadLogStatus, downloadLogReportObject);
+
+        if (failure != null) {
+            throw new LogDownloadException(failure.getMessage(), failure.getCause());
+        }
+        return s3ObjectStream;
+    }
+
     /**
      * Delete SQS message after processing source.
      *
@@ -192,8 +388,7 @@ public class EventReader {
      * @param source {@link CloudTrailSource} that contains the SQS message that will be deleted.
      */
     private void deleteMessageAfterProcessSource(ProgressState progressState, CloudTrailSource source) {
-        ProgressStatus deleteMessageStatus = new ProgressStatus(progressState, new BasicProcessSourceInfo(source, false));
-        sqsManager.deleteMessageFromQueue(((SQSBasedSource)source).getSqsMessage(), deleteMessageStatus);
+        sqsManager.deleteMessageFromQueue(((SQSBasedSource)source).getSqsMessage(), progressState, source);
     }
 
     /**
@@ -214,6 +409,39 @@ public class EventReader {
         }
     }
 
+    /**
+     * Read all events of a log file and hand them to the {@link EventsProcessor}, as lists of events, as
+     * {@link CloudTrailEventBatch}es for a {@link ColumnarEventsProcessor}, as {@link CloudTrailRecordBatch}es for
+     * an {@link ArrowEventsProcessor}, or one at a time through an {@link EventCursor} for a
+     * {@link CursorEventsProcessor}.
+     *
+     * @param inputStream the Gzipped content from CloudTrail log file.
+     * @param ctLog CloudTrail log file.
+     * @return the number of events read from the log file.
+     */
+    private long readEvents(GZIPInputStream inputStream, CloudTrailLog ctLog) throws IOException, CallbackException {
+        if (arrowEventsProcessor != null) {
+            try (ArrowEventSerializer serializer = new ArrowEventSerializer(ctLog, EventParserFactory.createParser(inputStream), arrowEventsProcessor.getAllocator())) {
+                return emitRecordBatches(serializer, arrowEventsProcessor);
+            }
+        }
+
+        if (columnarEventsProcessor != null) {
+            try (ColumnarEventSerializer serializer = new ColumnarEventSerializer(ctLog, EventParserFactory.createParser(inputStream))) {
+                return emitBatches(serializer, columnarEventsProcessor);
+            }
+        }
+
+        if (cursorEventsProcessor != null) {
+            EventCursor cursor = new EventCursor(ctLog, LibraryUtils.toByteArray(inputStream), EventParserFactory.getJsonFactory());
+            return emitCursor(cursor, cursorEventsProcessor);
+        }
+
+        try (EventSerializer serializer = getEventSerializer(inputStream, ctLog)) {
+            return emitEvents(serializer);
+        }
+    }
+
     /**
      * Gets the EventSerializer based on user's configuration.
      *
@@ -226,10 +454,12 @@ public class EventReader {
 
         if (config.isEnableRawEventInfo()) {
             String logFileContent = new String(LibraryUtils.toByteArray(inputStream), StandardCharsets.UTF_8);
-            JsonParser jsonParser = mapper.getFactory().createParser(logFileContent);
+            JsonParser jsonParser = EventParserFactory.createParser(logFileContent);
             serializer = new RawLogDeliveryEventSerializer(logFileContent, ctLog, jsonParser);
+        } else if (config.isEnableTapeParsing()) {
+            serializer = new TapeEventSerializer(ctLog, LibraryUtils.toByteArray(inputStream), EventParserFactory.getJsonFactory());
         } else {
-            JsonParser jsonParser = mapper.getFactory().createParser(inputStream);
+            JsonParser jsonParser = EventParserFactory.createParser(inputStream);
             serializer = new DefaultEventSerializer(ctLog, jsonParser);
         }
         return serializer;
@@ -239,14 +469,17 @@ public class EventReader {
      * Filter, buffer, and emit CloudTrailEvents.
      *
      * @param serializer {@link EventSerializer} that parses CloudTrail log file.
+     * @return the number of events read from the log file, including the ones filtered out.
      *
      * @throws IOException If the log cannot be read.
      * @throws CallbackException If an error occurs when filtering or processing events.
      */
-    private void emitEvents(EventSerializer serializer) throws IOException, CallbackException {
+    private long emitEvents(EventSerializer serializer) throws IOException, CallbackException {
         EventBuffer<CloudTrailEvent> eventBuffer = new EventBuffer<>(config.getMaxEventsPerEmit());
+        long eventCount = 0;
         while (serializer.hasNextEvent()) {
             CloudTrailEvent event = serializer.getNextEvent();
+            eventCount ++;
             try {
                 if (eventFilter.filterEvent(event)) {
                     eventBuffer.addEvent(event);
@@ -269,5 +502,186 @@ public class EventReader {
         if (!events.isEmpty()) {
             eventsProcessor.process(events);
         }
+        return eventCount;
+    }
+
+    /**
+     * Read and emit CloudTrail events in columnar batches. The {@link EventFilter} does not apply to this path.
+     *
+     * @param serializer {@link ColumnarEventSerializer} that reads the CloudTrail log file.
+     * @param processor the {@link ColumnarEventsProcessor} to emit batches to.
+     * @return the number of events read from the log file.
+     *
+     * @throws IOException If the log cannot be read.
+     * @throws CallbackException If an error occurs when processing events.
+     */
+    private long emitBatches(ColumnarEventSerializer serializer, ColumnarEventsProcessor processor) throws IOException, CallbackException {
+        CloudTrailEventBatch batch = new CloudTrailEventBatch(serializer.getLog(), processor.getColumns(), config.getMaxEventsPerEmit());
+        long eventCount = 0;
+        while (serializer.readBatch(batch) > 0) {
+            eventCount += batch.size();
+            processor.process(batch);
+        }
+        return eventCount;
+    }
+
+    /**
+     * Move a cursor over every CloudTrail event of a log file. The {@link EventFilter} does not apply to this path.
+     *
+     * @param cursor {@link EventCursor} over the CloudTrail log file.
+     * @param processor the {@link CursorEventsProcessor} to call for each event.
+     * @return the number of events read from the log file.
+     *
+     * @throws IOException If the log cannot be read.
+     * @throws CallbackException If an error occurs when processing events.
+     */
+    private long emitCursor(EventCursor cursor, CursorEventsProcessor processor) throws IOException, CallbackException {
+        long eventCount = 0;
+        while (cursor.next()) {
+            eventCount ++;
+            processor.process(cursor);
+        }
+        return eventCount;
+    }
+
+    /**
+     * Read and emit CloudTrail events as Arrow record batches. The {@link EventFilter} does not apply to this path.
+     *
+     * @param serializer {@link ArrowEventSerializer} that reads the CloudTrail log file.
+     * @param processor the {@link ArrowEventsProcessor} to emit batches to; each batch is closed once it returns.
+     * @return the number of events read from the log file.
+     *
+     * @throws IOException If the log cannot be read.
+     * @throws CallbackException If an error occurs when processing events.
+     */
+    private long emitRecordBatches(ArrowEventSerializer serializer, ArrowEventsProcessor processor) throws IOException, CallbackException {
+        long eventCount = 0;
+        CloudTrailRecordBatch batch;
+        while ((batch = serializer.readBatch(config.getMaxEventsPerEmit())) != null) {
+            eventCount += batch.getRowCount();
+            try {
+                processor.process(batch);
+            } finally {
+                batch.close();
+            }
+        }
+        return eventCount;
+    }
+
+    /**
+     * The answers of the source filter, the log filter and the ledger for one source.
+     */
+    private static class ScreenedSource {
+        final boolean accepted;
+        final List<CloudTrailLog> logs;
+
+        ScreenedSource(boolean accepted, List<CloudTrailLog> logs) {
+            this.accepted = accepted;
+            this.logs = logs;
+        }
+    }
+
+    /**
+     * Internal use only.
+     *
+     * Builds an {@link EventReader}; used by
+     * {@link com.amazonaws.services.cloudtrail.processinglibrary.factory.EventReaderFactory}, which validates the
+     * components. Components that are not set are <code>null</code>, except the log filter and the ledger, which
+     * accept every log.
+     */
+    public static class Builder {
+        private final ProcessingConfiguration config;
+        private EventsProcessor eventsProcessor;
+        private ColumnarEventsProcessor columnarEventsProcessor;
+        private ArrowEventsProcessor arrowEventsProcessor;
+        private CursorEventsProcessor cursorEventsProcessor;
+        private SourceFilter sourceFilter;
+        private LogFilter logFilter = new DefaultLogFilter();
+        private ProcessedLogLedger ledger = new NoOpProcessedLogLedger();
+        private EventFilter eventFilter;
+        private ProgressReporter progressReporter;
+        private ExceptionHandler exceptionHandler;
+        private S3Manager s3Manager;
+        private SqsManager sqsManager;
+        private LogPrefetcher prefetcher;
+        private MemoryGovernor memoryGovernor;
+
+        public Builder(ProcessingConfiguration config) {
+            this.config = config;
+        }
+
+        public Builder withEventsProcessor(EventsProcessor eventsProcessor) {
+            this.eventsProcessor = eventsProcessor;
+            return this;
+        }
+
+        public Builder withColumnarEventsProcessor(ColumnarEventsProcessor columnarEventsProcessor) {
+            this.columnarEventsProcessor = columnarEventsProcessor;
+            return this;
+        }
+
+        public Builder withArrowEventsProcessor(ArrowEventsProcessor arrowEventsProcessor) {
+            this.arrowEventsProcessor = arrowEventsProcessor;
+            return this;
+        }
+
+        public Builder withCursorEventsProcessor(CursorEventsProcessor cursorEventsProcessor) {
+            this.cursorEventsProcessor = cursorEventsProcessor;
+            return this;
+        }
+
+        public Builder withSourceFilter(SourceFilter sourceFilter) {
+            this.sourceFilter = sourceFilter;
+            return this;
+        }
+
+        public Builder withLogFilter(LogFilter logFilter) {
+            this.logFilter = logFilter;
+            return this;
+        }
+
+        public Builder withProcessedLogLedger(ProcessedLogLedger ledger) {
+            this.ledger = ledger;
+            return this;
+        }
+
+        public Builder withEventFilter(EventFilter eventFilter) {
+            this.eventFilter = eventFilter;
+            return this;
+        }
+
+        public Builder withProgressReporter(ProgressReporter progressReporter) {
+            this.progressReporter = progressReporter;
+            return this;
+        }
+
+        public Builder withExceptionHandler(ExceptionHandler exceptionHandler) {
+            this.exceptionHandler = exceptionHandler;
+            return this;
+        }
+
+        public Builder withS3Manager(S3Manager s3Manager) {
+            this.s3Manager = s3Manager;
+            return this;
+        }
+
+        public Builder withSQSManager(SqsManager sqsManager) {
+            this.sqsManager = sqsManager;
+            return this;
+        }
+
+        public Builder withLogPrefetcher(LogPrefetcher prefetcher) {
+            this.prefetcher = prefetcher;
+            return this;
+        }
+
+        public Builder withMemoryGovernor(MemoryGovernor memoryGovernor) {
+            this.memoryGovernor = memoryGovernor;
+            return this;
+        }
+
+        public EventReader build() {
+            return new EventReader(this);
+        }
     }
 }
@@ -0,0 +1,395 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.reader;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.manager.S3Manager;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.SQSBasedSource;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Downloads log files on a separate pool of I/O threads ahead of the {@link EventReader} that processes them, so the
+ * network is busy while the reader threads decompress and parse.
+ * <p>
+ * Downloaded logs are held in memory until they are taken. An I/O thread only starts a download when the bytes held
+ * and being downloaded stay within the byte budget, and waits for logs to be taken otherwise. A log that is still
+ * queued, or waiting for budget, when the reader gets to it is downloaded by the reader itself, while a log that is
+ * being downloaded is waited for, so the reader never waits on the budget.
+ * </p>
+ * <p>
+ * The size of a log is known only after it is downloaded, so a download reserves the size reported in the
+ * {@link CloudTrailLog}, if any, or the average size of the logs downloaded so far, and the reservation is corrected
+ * once the download completes.
+ * </p>
+ * <p>
+ * Logs are downloaded with {@link S3Manager#fetchLogStream(CloudTrailLog)}, which reports neither progress nor
+ * failures. A failed download is kept and handed to the reader by {@link #take(CloudTrailLog)}, so the reader reports
+ * it once, as it would report its own download.
+ * </p>
+ * <p>
+ * When a {@link MemoryGovernor} is given, the bytes held are also counted against its budget. Downloading ahead only
+ * takes room the budget has to spare and never waits for it, so the logs being processed always come first.
+ * </p>
+ */
+public class LogPrefetcher implements Closeable {
+    private static final Log logger = LogFactory.getLog(LogPrefetcher.class);
+
+    /**
+     * The size reserved for a log of unknown size before any log was downloaded.
+     */
+    private static final long INITIAL_SIZE_ESTIMATE = 1024 * 1024;
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int CLAIMED = 2;
+
+    private final S3Manager s3Manager;
+    private final long budgetBytes;
+    private final MemoryGovernor memoryGovernor;
+    private final ExecutorService ioThreadPool;
+
+    private final ConcurrentMap<String, Prefetch> prefetches = new ConcurrentHashMap<>();
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final ReentrantLock budgetLock = new ReentrantLock();
+    private final Condition budgetReleased = budgetLock.newCondition();
+    private volatile long averageSize = -1L;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder budgetWaits = new LongAdder();
+
+    /**
+     * Create a <code>LogPrefetcher</code>.
+     *
+     * @param s3Manager the {@link S3Manager} used to download log files.
+     * @param budgetBytes the maximum number of bytes held or being downloaded ahead of processing.
+     * @param threadCount the number of I/O threads.
+     */
+    public LogPrefetcher(S3Manager s3Manager, long budgetBytes, int threadCount) {
+        this(s3Manager, budgetBytes, threadCount, null);
+    }
+
+    /**
+     * Create a <code>LogPrefetcher</code> whose held bytes also count against a {@link MemoryGovernor}.
+     *
+     * @param s3Manager the {@link S3Manager} used to download log files.
+     * @param budgetBytes the maximum number of bytes held or being downloaded ahead of processing.
+     * @param threadCount the number of I/O threads.
+     * @param memoryGovernor the {@link MemoryGovernor} shared with the readers, or <code>null</code>.
+     */
+    public LogPrefetcher(S3Manager s3Manager, long budgetBytes, int threadCount, MemoryGovernor memoryGovernor) {
+        LibraryUtils.checkArgumentNotNull(s3Manager, "s3Manager is null.");
+        LibraryUtils.checkCondition(budgetBytes <= 0, "budgetBytes is a non-positive number.");
+        LibraryUtils.checkCondition(threadCount <= 0, "threadCount is a non-positive integer.");
+
+        this.s3Manager = s3Manager;
+        this.budgetBytes = budgetBytes;
+        this.memoryGovernor = memoryGovernor;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.ioThreadPool = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "cpl-prefetch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue a log file to be downloaded ahead of processing. Logs already queued are ignored.
+     *
+     * @param ctLog the {@link CloudTrailLog} to download.
+     * @param source the {@link CloudTrailSource} the log belongs to.
+     */
+    public void prefetch(CloudTrailLog ctLog, CloudTrailSource source) {
+        Prefetch prefetch = new Prefetch(ctLog, source);
+        if (prefetches.putIfAbsent(keyOf(ctLog), prefetch) == null) {
+            ioThreadPool.execute(() -> download(prefetch));
+        }
+    }
+
+    /**
+     * Take the content of a log file that was downloaded ahead, waiting for it if it is being downloaded.
+     *
+     * @param ctLog the {@link CloudTrailLog} to take.
+     * @return a stream of the compressed log, or <code>null</code> if the log was not downloaded ahead and must be
+     *     downloaded by the caller.
+     * @throws IOException if the log could not be downloaded ahead; the failure was not reported.
+     */
+    public InputStream take(CloudTrailLog ctLog) throws IOException {
+        Prefetch prefetch = prefetches.remove(keyOf(ctLog));
+        if (prefetch == null || prefetch.state.compareAndSet(QUEUED, CLAIMED)) {
+            misses.increment();
+            return null;
+        }
+
+        byte[] s3ObjectBytes;
+        try {
+            s3ObjectBytes = prefetch.bytes.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(prefetch);
+            return null;
+        } catch (ExecutionException e) {
+            release(prefetch);
+            failures.increment();
+            throw new IOException(String.format("Fail to download log file %s/%s ahead of processing.",
+                    ctLog.getS3Bucket(), ctLog.getS3ObjectKey()), e.getCause());
+        }
+        release(prefetch);
+        hits.increment();
+        return new ByteArrayInputStream(s3ObjectBytes);
+    }
+
+    /**
+     * Drop the logs of a source that were downloaded ahead but not taken, for example because the source was
+     * filtered out or failed.
+     *
+     * @param source the {@link CloudTrailSource} that finished processing.
+     */
+    public void discard(CloudTrailSource source) {
+        if (!(source instanceof SQSBasedSource)) {
+            return;
+        }
+        for (CloudTrailLog ctLog : ((SQSBasedSource) source).getLogs()) {
+            String key = keyOf(ctLog);
+            Prefetch prefetch = prefetches.get(key);
+            if (prefetch != null && prefetch.source == source && prefetches.remove(key, prefetch)
+                    && !prefetch.state.compareAndSet(QUEUED, CLAIMED)) {
+                release(prefetch);
+            }
+        }
+    }
+
+    /**
+     * @return the number of logs taken from the prefetched content.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of logs the reader had to download itself.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of logs whose download ahead failed.
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * @return the number of times an I/O thread waited for the byte budget before starting a download.
+     */
+    public long getBudgetWaitCount() {
+        return budgetWaits.sum();
+    }
+
+    /**
+     * @return the number of bytes currently held or reserved for downloads in progress.
+     */
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    /**
+     * Stop the I/O threads. Logs that were not downloaded yet are downloaded by the reader.
+     */
+    @Override
+    public void close() {
+        ioThreadPool.shutdownNow();
+        prefetches.clear();
+    }
+
+    private void download(Prefetch prefetch) {
+        long estimate = prefetch.log.getLogFileSize() > 0 ? prefetch.log.getLogFileSize()
+                : averageSize >= 0 ? averageSize : Math.min(INITIAL_SIZE_ESTIMATE, budgetBytes);
+        if (!awaitBudget(prefetch, estimate)) {
+            return;
+        }
+        if (!prefetch.state.compareAndSet(QUEUED, RUNNING)) {
+            // taken by the reader while this thread waited for budget
+            releaseBytes(estimate);
+            closeMemoryReservation(prefetch);
+            return;
+        }
+
+        byte[] s3ObjectBytes = null;
+        Exception failure = null;
+        try (InputStream s3ObjectStream = s3Manager.fetchLogStream(prefetch.log)) {
+            s3ObjectBytes = LibraryUtils.toByteArray(s3ObjectStream);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Failed to download log file " + prefetch.log.getS3ObjectKey() + " ahead of processing.", e);
+            s3ObjectBytes = null;
+            failure = e;
+        } finally {
+            long actual = s3ObjectBytes == null ? 0L : s3ObjectBytes.length;
+            releaseBytes(estimate - actual);
+            prefetch.reserved = actual;
+            if (prefetch.memory != null) {
+                prefetch.memory.resize(actual);
+            }
+            if (s3ObjectBytes != null) {
+                long average = averageSize;
+                averageSize = average < 0 ? actual : average + (actual - average) / 8;
+            }
+            if (s3ObjectBytes != null) {
+                prefetch.bytes.complete(s3ObjectBytes);
+            } else {
+                prefetch.bytes.completeExceptionally(failure != null ? failure
+                        : new IOException("Download ahead of processing did not finish."));
+            }
+        }
+    }
+
+    /**
+     * Wait until the budget has room for a download, or until the reader took the log itself.
+     *
+     * @return <code>true</code> if the bytes were reserved.
+     */
+    private boolean awaitBudget(Prefetch prefetch, long bytes) {
+        if (tryReserve(prefetch, bytes)) {
+            return true;
+        }
+        budgetWaits.increment();
+        budgetLock.lock();
+        try {
+            while (!tryReserve(prefetch, bytes)) {
+                if (prefetch.state.get() != QUEUED) {
+                    return false;
+                }
+                // wake up periodically to notice a log the reader took itself
+                budgetReleased.await(100, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            budgetLock.unlock();
+        }
+    }
+
+    /**
+     * Reserve part of the budget, and of the memory budget if any.
+     */
+    private boolean tryReserve(Prefetch prefetch, long bytes) {
+        if (!tryReserve(bytes)) {
+            return false;
+        }
+        if (memoryGovernor != null) {
+            prefetch.memory = memoryGovernor.tryReserve(bytes);
+            if (prefetch.memory == null) {
+                reservedBytes.addAndGet(-bytes);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reserve part of the budget. A single download may always proceed when nothing is reserved, so a log larger than
+     * the budget can still be downloaded ahead.
+     */
+    private boolean tryReserve(long bytes) {
+        long current;
+        do {
+            current = reservedBytes.get();
+            if (current > 0 && current + bytes > budgetBytes) {
+                return false;
+            }
+        } while (!reservedBytes.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    /**
+     * Return the bytes of a prefetch to the budget once its download has finished.
+     */
+    private void release(Prefetch prefetch) {
+        prefetch.bytes.whenComplete((bytes, failure) -> {
+            releaseBytes(prefetch.reserved);
+            closeMemoryReservation(prefetch);
+        });
+    }
+
+    private static void closeMemoryReservation(Prefetch prefetch) {
+        if (prefetch.memory != null) {
+            prefetch.memory.close();
+        }
+    }
+
+    private void releaseBytes(long bytes) {
+        reservedBytes.addAndGet(-bytes);
+        budgetLock.lock();
+        try {
+            budgetReleased.signalAll();
+        } finally {
+            budgetLock.unlock();
+        }
+    }
+
+    private static String keyOf(CloudTrailLog ctLog) {
+        return ctLog.getS3Bucket() + "/" + ctLog.getS3ObjectKey();
+    }
+
+    /**
+     * A log file queued, being downloaded, or downloaded ahead of processing.
+     */
+    private static class Prefetch {
+        final CloudTrailLog log;
+        final CloudTrailSource source;
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        final CompletableFuture<byte[]> bytes = new CompletableFuture<>();
+
+        /**
+         * Bytes counted against the budget; written by the I/O thread before <code>bytes</code> is completed.
+         */
+        long reserved;
+
+        /**
+         * Bytes counted against the {@link MemoryGovernor}, if any; written by the I/O thread like <code>reserved</code>.
+         */
+        MemoryGovernor.Reservation memory;
+
+        Prefetch(CloudTrailLog log, CloudTrailSource source) {
+            this.log = log;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.reader;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the number of bytes that log files being downloaded, held and processed keep alive at once, so the heap can
+ * be sized for a known budget regardless of how many threads process logs or how large the logs are.
+ * <p>
+ * A log reserves its compressed size plus the expansion factor times its compressed size, which covers the
+ * decompressed content, the raw event strings, and the events buffered before they are emitted. The compressed size
+ * is taken from the {@link CloudTrailLog} when the notification carries it, and otherwise from the average size of
+ * the logs seen so far until the download reports its <code>Content-Length</code>, at which point the reservation is
+ * corrected.
+ * </p>
+ * <p>
+ * {@link #reserve(long)} blocks until the budget has room. A caller holding no other reservation is always admitted
+ * when no other blocking reservation is outstanding, so a log larger than the whole budget is still processed, on its
+ * own. {@link #tryReserve(long)} never blocks and is meant for optional work, such as downloading ahead, that must
+ * not hold back the logs being processed.
+ * </p>
+ */
+public class MemoryGovernor {
+    /**
+     * The compressed size assumed for a log of unknown size before the size of any log was seen.
+     */
+    private static final long INITIAL_SIZE_ESTIMATE = 1024 * 1024;
+
+    private final long budgetBytes;
+    private final int expansionFactor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private long reservedBytes;
+    private int blockingReservations;
+    private volatile long averageSize = -1L;
+
+    private final LongAdder waits = new LongAdder();
+
+    /**
+     * Create a <code>MemoryGovernor</code>.
+     *
+     * @param budgetBytes the maximum number of bytes reserved at once.
+     * @param expansionFactor the number of bytes kept alive for each compressed byte of a log, besides the compressed
+     *     byte itself.
+     */
+    public MemoryGovernor(long budgetBytes, int expansionFactor) {
+        LibraryUtils.checkCondition(budgetBytes <= 0, "budgetBytes is a non-positive number.");
+        LibraryUtils.checkCondition(expansionFactor < 0, "expansionFactor is a negative integer.");
+
+        this.budgetBytes = budgetBytes;
+        this.expansionFactor = expansionFactor;
+    }
+
+    /**
+     * Estimate the bytes a log keeps alive while it is processed. A log whose size is not known yet is assumed to have
+     * the average size recorded with {@link #recordSize(CloudTrailLog)}.
+     *
+     * @param ctLog the {@link CloudTrailLog} to estimate.
+     * @return the number of bytes to reserve for the log.
+     */
+    public long estimate(CloudTrailLog ctLog) {
+        long size = ctLog.getLogFileSize();
+        if (size <= 0) {
+            long average = averageSize;
+            size = average >= 0 ? average : INITIAL_SIZE_ESTIMATE;
+        }
+        return size * (1 + expansionFactor);
+    }
+
+    /**
+     * Add the size of a downloaded log to the average used to estimate logs of unknown size. Call it once per log.
+     *
+     * @param ctLog the {@link CloudTrailLog} whose size is known; a log of unknown size is ignored.
+     */
+    public void recordSize(CloudTrailLog ctLog) {
+        long size = ctLog.getLogFileSize();
+        if (size > 0) {
+            long average = averageSize;
+            averageSize = average < 0 ? size : average + (size - average) / 8;
+        }
+    }
+
+    /**
+     * Reserve part of the budget, waiting until it has room.
+     *
+     * @param bytes the number of bytes to reserve.
+     * @return the {@link Reservation}, to close once the bytes are no longer live.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public Reservation reserve(long bytes) throws InterruptedException {
+        lock.lock();
+        try {
+            if (blockingReservations > 0 && reservedBytes + bytes > budgetBytes) {
+                waits.increment();
+                do {
+                    released.await();
+                } while (blockingReservations > 0 && reservedBytes + bytes > budgetBytes);
+            }
+            reservedBytes += bytes;
+            blockingReservations++;
+            return new Reservation(bytes, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserve part of the budget if it has room, without waiting.
+     *
+     * @param bytes the number of bytes to reserve.
+     * @return the {@link Reservation}, to close once the bytes are no longer live, or <code>null</code> if the budget
+     *     has no room.
+     */
+    public Reservation tryReserve(long bytes) {
+        lock.lock();
+        try {
+            if (reservedBytes + bytes > budgetBytes) {
+                return null;
+            }
+            reservedBytes += bytes;
+            return new Reservation(bytes, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the budget is not exhausted, so that new work is only accepted when it can make progress.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void awaitHeadroom() throws InterruptedException {
+        lock.lock();
+        try {
+            if (reservedBytes >= budgetBytes) {
+                waits.increment();
+                do {
+                    released.await();
+                } while (reservedBytes >= budgetBytes);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the maximum number of bytes reserved at once.
+     */
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * @return the number of bytes currently reserved.
+     */
+    public long getReservedBytes() {
+        lock.lock();
+        try {
+            return reservedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of times a thread waited for the budget.
+     */
+    public long getWaitCount() {
+        return waits.sum();
+    }
+
+    private void adjust(long delta, boolean blocking, boolean closing) {
+        lock.lock();
+        try {
+            reservedBytes += delta;
+            if (closing && blocking) {
+                blockingReservations--;
+            }
+            if (delta < 0 || closing) {
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bytes reserved from the budget.
+     */
+    public class Reservation implements AutoCloseable {
+        private final boolean blocking;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private long bytes;
+
+        private Reservation(long bytes, boolean blocking) {
+            this.bytes = bytes;
+            this.blocking = blocking;
+        }
+
+        /**
+         * Correct the reservation once the actual size is known. Growing a reservation never waits, so the budget may
+         * be exceeded until the reservation is closed.
+         *
+         * @param newBytes the number of bytes now reserved.
+         */
+        public synchronized void resize(long newBytes) {
+            if (!closed.get()) {
+                adjust(newBytes - bytes, blocking, false);
+                bytes = newBytes;
+            }
+        }
+
+        /**
+         * Return the reserved bytes to the budget.
+         */
+        @Override
+        public synchronized void close() {
+            if (closed.compareAndSet(false, true)) {
+                adjust(-bytes, blocking, true);
+            }
+        }
+    }
+}
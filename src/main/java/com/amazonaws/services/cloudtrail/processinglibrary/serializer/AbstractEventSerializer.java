@@ -42,11 +42,93 @@ public abstract class AbstractEventSerializer implements EventSerializer {
     private static final String RECORDS = "Records";
     private static final double SUPPORTED_EVENT_VERSION = 1.08d;
 
+    /**
+     * Field matchers of the event and of each kind of object in it, in the order CloudTrail usually writes the fields.
+     * Each serializer matches with its own copies.
+     */
+    private static final FieldMatcher EVENT_FIELDS = new FieldMatcher(CloudTrailEventField.eventVersion,
+            CloudTrailEventField.userIdentity, CloudTrailEventField.eventTime, CloudTrailEventField.eventSource,
+            CloudTrailEventField.eventName, CloudTrailEventField.awsRegion, CloudTrailEventField.sourceIPAddress,
+            CloudTrailEventField.userAgent, CloudTrailEventField.errorCode, CloudTrailEventField.errorMessage,
+            CloudTrailEventField.requestParameters, CloudTrailEventField.responseElements,
+            CloudTrailEventField.additionalEventData, CloudTrailEventField.requestID, CloudTrailEventField.eventID,
+            CloudTrailEventField.readOnly, CloudTrailEventField.resources, CloudTrailEventField.eventType,
+            CloudTrailEventField.apiVersion, CloudTrailEventField.managementEvent,
+            CloudTrailEventField.recipientAccountId, CloudTrailEventField.sharedEventID,
+            CloudTrailEventField.annotation, CloudTrailEventField.vpcEndpointId,
+            CloudTrailEventField.vpcEndpointAccountId, CloudTrailEventField.serviceEventDetails,
+            CloudTrailEventField.eventCategory, CloudTrailEventField.tlsDetails,
+            CloudTrailEventField.sessionCredentialFromConsole, CloudTrailEventField.edgeDeviceDetails,
+            CloudTrailEventField.insightDetails, CloudTrailEventField.addendum);
+    private static final FieldMatcher USER_IDENTITY_FIELDS = new FieldMatcher(CloudTrailEventField.type,
+            CloudTrailEventField.principalId, CloudTrailEventField.arn, CloudTrailEventField.accountId,
+            CloudTrailEventField.accessKeyId, CloudTrailEventField.userName, CloudTrailEventField.sessionContext,
+            CloudTrailEventField.invokedBy, CloudTrailEventField.identityProvider, CloudTrailEventField.credentialId,
+            CloudTrailEventField.onBehalfOf, CloudTrailEventField.inScopeOf, CloudTrailEventField.invokedByDelegate);
+    private static final FieldMatcher ON_BEHALF_OF_FIELDS = new FieldMatcher(CloudTrailEventField.onBehalfOfUserId,
+            CloudTrailEventField.onBehalfOfIdentityStoreArn)
+            .withName(CloudTrailEventField.onBehalfOfUserId, "userId")
+            .withName(CloudTrailEventField.onBehalfOfIdentityStoreArn, "identityStoreArn");
+    private static final FieldMatcher SESSION_CONTEXT_FIELDS = new FieldMatcher(CloudTrailEventField.sessionIssuer,
+            CloudTrailEventField.webIdFederationData, CloudTrailEventField.attributes);
+    private static final FieldMatcher INSIGHT_DETAILS_FIELDS = new FieldMatcher(CloudTrailEventField.eventName,
+            CloudTrailEventField.eventSource, CloudTrailEventField.insightType, CloudTrailEventField.state,
+            CloudTrailEventField.insightContext, CloudTrailEventField.errorCode);
+    private static final FieldMatcher INSIGHT_CONTEXT_FIELDS = new FieldMatcher(CloudTrailEventField.statistics,
+            CloudTrailEventField.attributions);
+    private static final FieldMatcher INSIGHT_STATISTICS_FIELDS = new FieldMatcher(CloudTrailEventField.baseline,
+            CloudTrailEventField.insight, CloudTrailEventField.insightDuration, CloudTrailEventField.baselineDuration);
+    private static final FieldMatcher INSIGHT_ATTRIBUTIONS_FIELDS = new FieldMatcher(CloudTrailEventField.attribute,
+            CloudTrailEventField.baseline, CloudTrailEventField.insight);
+    private static final FieldMatcher ATTRIBUTE_VALUE_FIELDS = new FieldMatcher(CloudTrailEventField.value,
+            CloudTrailEventField.average);
+    private static final FieldMatcher WEB_ID_FEDERATION_DATA_FIELDS = new FieldMatcher(CloudTrailEventField.attributes,
+            CloudTrailEventField.federatedProvider);
+    private static final FieldMatcher SESSION_ISSUER_FIELDS = new FieldMatcher(CloudTrailEventField.type,
+            CloudTrailEventField.principalId, CloudTrailEventField.arn, CloudTrailEventField.accountId,
+            CloudTrailEventField.userName);
+    private static final FieldMatcher ADDENDUM_FIELDS = new FieldMatcher(CloudTrailEventField.reason,
+            CloudTrailEventField.updatedFields, CloudTrailEventField.originalRequestID,
+            CloudTrailEventField.originalEventID);
+    private static final FieldMatcher TLS_DETAILS_FIELDS = new FieldMatcher(CloudTrailEventField.tlsVersion,
+            CloudTrailEventField.cipherSuite, CloudTrailEventField.clientProvidedHostHeader);
+    private static final FieldMatcher EDGE_DEVICE_DETAILS_FIELDS = new FieldMatcher(CloudTrailEventField.attributes,
+            CloudTrailEventField.type, CloudTrailEventField.snowJobId, CloudTrailEventField.deviceId,
+            CloudTrailEventField.deviceFamily);
+    private static final FieldMatcher IN_SCOPE_OF_FIELDS = new FieldMatcher(CloudTrailEventField.inScopeOfSourceAccount,
+            CloudTrailEventField.inScopeOfSourceArn, CloudTrailEventField.inScopeOfIssuerType,
+            CloudTrailEventField.inScopeOfCredentialsIssuedTo)
+            .withName(CloudTrailEventField.inScopeOfSourceAccount, "sourceAccount")
+            .withName(CloudTrailEventField.inScopeOfSourceArn, "sourceArn")
+            .withName(CloudTrailEventField.inScopeOfIssuerType, "issuerType")
+            .withName(CloudTrailEventField.inScopeOfCredentialsIssuedTo, "credentialsIssuedTo");
+    private static final FieldMatcher INVOKED_BY_DELEGATE_FIELDS = new FieldMatcher(
+            CloudTrailEventField.invokedByDelegateAccountId)
+            .withName(CloudTrailEventField.invokedByDelegateAccountId, "accountId");
+
     /**
      * A Jackson JSON Parser object.
      */
     private JsonParser jsonParser;
 
+    private final FieldMatcher eventFields = EVENT_FIELDS.copy();
+    private final FieldMatcher userIdentityFields = USER_IDENTITY_FIELDS.copy();
+    private final FieldMatcher onBehalfOfFields = ON_BEHALF_OF_FIELDS.copy();
+    private final FieldMatcher sessionContextFields = SESSION_CONTEXT_FIELDS.copy();
+    private final FieldMatcher insightDetailsFields = INSIGHT_DETAILS_FIELDS.copy();
+    private final FieldMatcher insightContextFields = INSIGHT_CONTEXT_FIELDS.copy();
+    private final FieldMatcher insightStatisticsFields = INSIGHT_STATISTICS_FIELDS.copy();
+    private final FieldMatcher insightAttributionsFields = INSIGHT_ATTRIBUTIONS_FIELDS.copy();
+    private final FieldMatcher attributeValueFields = ATTRIBUTE_VALUE_FIELDS.copy();
+    private final FieldMatcher webIdFederationDataFields = WEB_ID_FEDERATION_DATA_FIELDS.copy();
+    private final FieldMatcher sessionIssuerFields = SESSION_ISSUER_FIELDS.copy();
+    private final FieldMatcher addendumFields = ADDENDUM_FIELDS.copy();
+    private final FieldMatcher tlsDetailsFields = TLS_DETAILS_FIELDS.copy();
+    private final FieldMatcher edgeDeviceDetailsFields = EDGE_DEVICE_DETAILS_FIELDS.copy();
+    private final FieldMatcher inScopeOfFields = IN_SCOPE_OF_FIELDS.copy();
+    private final FieldMatcher invokedByDelegateFields = INVOKED_BY_DELEGATE_FIELDS.copy();
+
+
     /**
      * Construct an AbstractEventSerializer object
      *
@@ -59,6 +141,15 @@ public abstract class AbstractEventSerializer implements EventSerializer {
         this.jsonParser = jsonParser;
     }
 
+    /**
+     * Replace the parser, so that one serializer can decode values read by several parsers in turn.
+     *
+     * @param jsonParser the parser to read from.
+     */
+    void setJsonParser(JsonParser jsonParser) {
+        this.jsonParser = jsonParser;
+    }
+
     /**
      * An abstract class that returns an
      * {@link CloudTrailEventMetadata} object.
@@ -76,6 +167,17 @@ public abstract class AbstractEventSerializer implements EventSerializer {
      * @throws IOException if the log could not be opened or accessed.
      */
     protected void readArrayHeader() throws IOException {
+        readArrayHeader(jsonParser);
+    }
+
+    /**
+     * Read the header of an AWS CloudTrail log with the given parser.
+     *
+     * @param jsonParser the parser positioned at the start of the log.
+     * @throws JsonParseException if the log could not be parsed.
+     * @throws IOException if the log could not be opened or accessed.
+     */
+    static void readArrayHeader(JsonParser jsonParser) throws IOException {
         if (jsonParser.nextToken() != JsonToken.START_OBJECT) {
             throw new JsonParseException("Not a Json object", jsonParser.getCurrentLocation());
         }
@@ -120,7 +222,6 @@ public abstract class AbstractEventSerializer implements EventSerializer {
      */
     public CloudTrailEvent getNextEvent() throws IOException {
         CloudTrailEventData eventData = new CloudTrailEventData();
-        String key;
 
         /* Get next CloudTrailEvent event from log file. When failed to parse a event,
          * IOException will be thrown. In this case, the charEnd index the place we
@@ -130,53 +231,10 @@ public abstract class AbstractEventSerializer implements EventSerializer {
         // from input that starts the current token
         int charStart = (int) jsonParser.getTokenLocation().getCharOffset();
 
-        while(jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            key = jsonParser.getCurrentName();
-
-            switch (key) {
-                case "eventVersion":
-                    String eventVersion = jsonParser.nextTextValue();
-                    if (Double.parseDouble(eventVersion) > SUPPORTED_EVENT_VERSION) {
-                        logger.debug(String.format("EventVersion %s is not supported by CloudTrail.", eventVersion));
-                    }
-                    eventData.add(key, eventVersion);
-                    break;
-                case "userIdentity":
-                    this.parseUserIdentity(eventData);
-                    break;
-                case "eventTime":
-                    eventData.add(CloudTrailEventField.eventTime.name(), convertToDate(jsonParser.nextTextValue()));
-                    break;
-                case "eventID":
-                    eventData.add(key, convertToUUID(jsonParser.nextTextValue()));
-                    break;
-                case "readOnly":
-                    this.parseReadOnly(eventData);
-                    break;
-                case "resources":
-                    this.parseResources(eventData);
-                    break;
-                case "managementEvent":
-                    this.parseManagementEvent(eventData);
-                    break;
-                case "insightDetails":
-                    this.parseInsightDetails(eventData);
-                    break;
-                case "addendum":
-                    this.parseAddendum(eventData);
-                    break;
-                case "tlsDetails":
-                    this.parseTlsDetails(eventData);
-                    break;
-                case "edgeDeviceDetails":
-                    this.parseEdgeDeviceDetails(eventData);
-                    break;
-                default:
-                    eventData.add(key, parseDefaultValue(key));
-                    break;
-            }
+        while (eventFields.nextField(jsonParser)) {
+            parseField(eventFields.field(), eventFields.name(), eventData);
         }
-        this.setAccountId(eventData);
+        setAccountId(eventData);
 
         // event's last character position in the log file.
         int charEnd = (int) jsonParser.getTokenLocation().getCharOffset();
@@ -186,6 +244,138 @@ public abstract class AbstractEventSerializer implements EventSerializer {
         return new CloudTrailEvent(eventData, metaData);
     }
 
+    /**
+     * Parse the value of a top-level field of an event and add it to the event data. The parser is positioned on the
+     * name of the field, or before the value when a single value is parsed on its own.
+     *
+     * @param key the name of the field.
+     * @param eventData the {@link CloudTrailEventData} to add the value to.
+     * @throws IOException if the value could not be parsed.
+     */
+    void parseField(String key, CloudTrailEventData eventData) throws IOException {
+        parseField(eventFields.field(key), key, eventData);
+    }
+
+    /**
+     * Parse the value of a top-level field that was matched by {@link #eventFields}.
+     *
+     * @param field the field, or <code>null</code> if its name is not one of the top-level fields.
+     * @param key the name of the field.
+     * @param eventData the {@link CloudTrailEventData} to add the value to.
+     * @throws IOException if the value could not be parsed.
+     */
+    private void parseField(CloudTrailEventField field, String key, CloudTrailEventData eventData) throws IOException {
+        if (field == null) {
+            eventData.add(key, parseDefaultValue(key));
+            return;
+        }
+
+        switch (field) {
+            case eventVersion:
+                addEventVersion(key, jsonParser.nextTextValue(), eventData);
+                break;
+            case userIdentity:
+                this.parseUserIdentity(eventData);
+                break;
+            case eventTime:
+                eventData.add(CloudTrailEventField.eventTime.name(), convertToDate(jsonParser.nextTextValue()));
+                break;
+            case eventID:
+                eventData.add(key, convertToUUID(jsonParser.nextTextValue()));
+                break;
+            case readOnly:
+                this.parseReadOnly(eventData);
+                break;
+            case resources:
+                this.parseResources(eventData);
+                break;
+            case managementEvent:
+                this.parseManagementEvent(eventData);
+                break;
+            case insightDetails:
+                this.parseInsightDetails(eventData);
+                break;
+            case addendum:
+                this.parseAddendum(eventData);
+                break;
+            case tlsDetails:
+                this.parseTlsDetails(eventData);
+                break;
+            case edgeDeviceDetails:
+                this.parseEdgeDeviceDetails(eventData);
+                break;
+            default:
+                eventData.add(key, parseDefaultValue(key));
+                break;
+        }
+    }
+
+    /**
+     * Add the value of a top-level field that is a plain JSON scalar, without a parser, the same way
+     * {@link #parseField} adds it. Values that {@link #parseField} reads as objects are not added.
+     *
+     * @param key the name of the field.
+     * @param text the content of the JSON string, which has no escapes, or the text of the JSON number or boolean, or
+     *     <code>null</code> for a JSON null.
+     * @param string whether the value is a JSON string.
+     * @param eventData the {@link CloudTrailEventData} to add the value to.
+     * @return <code>true</code> if the value was added; <code>false</code> if it has to be parsed with
+     *     {@link #parseField}.
+     * @throws IOException if the value could not be converted.
+     */
+    boolean parseScalarField(String key, String text, boolean string, CloudTrailEventData eventData) throws IOException {
+        CloudTrailEventField field = eventFields.field(key);
+        if (field == null) {
+            eventData.add(key, text);
+            return true;
+        }
+
+        switch (field) {
+            case eventVersion:
+                if (!string) {
+                    return false;
+                }
+                addEventVersion(key, text, eventData);
+                return true;
+            case eventTime:
+                if (!string) {
+                    return false;
+                }
+                eventData.add(CloudTrailEventField.eventTime.name(), convertToDate(text));
+                return true;
+            case eventID:
+                if (!string) {
+                    return false;
+                }
+                eventData.add(key, convertToUUID(text));
+                return true;
+            case readOnly:
+            case managementEvent:
+                if (string || (text != null && !text.equals("true") && !text.equals("false"))) {
+                    return false;
+                }
+                eventData.add(key, text == null ? null : Boolean.valueOf(text));
+                return true;
+            case userIdentity:
+            case resources:
+            case insightDetails:
+            case addendum:
+            case tlsDetails:
+            case edgeDeviceDetails:
+                return false;
+            default:
+                eventData.add(key, text);
+                return true;
+        }
+    }
+
+    private static void addEventVersion(String key, String eventVersion, CloudTrailEventData eventData) {
+        if (Double.parseDouble(eventVersion) > SUPPORTED_EVENT_VERSION) {
+            logger.debug(String.format("EventVersion %s is not supported by CloudTrail.", eventVersion));
+        }
+        eventData.add(key, eventVersion);
+    }
+
     /**
      * Set AccountId in CloudTrailEventData top level from either recipientAccountID or from UserIdentity.
      * If recipientAccountID exists then recipientAccountID is set to accountID; otherwise, accountID is retrieved
@@ -199,16 +389,27 @@ public abstract class AbstractEventSerializer implements EventSerializer {
      *
      * @param eventData the event data to set.
      */
-    private void setAccountId(CloudTrailEventData eventData) {
+    static void setAccountId(CloudTrailEventData eventData) {
+        String accountId = deriveAccountId(eventData);
+        if (accountId != null) {
+            eventData.add("accountId", accountId);
+        }
+    }
+
+    /**
+     * Find the AccountId of an event the way {@link #setAccountId} does.
+     *
+     * @param eventData the event data.
+     * @return the AccountId, or <code>null</code> if none of the 3 places has one.
+     */
+    static String deriveAccountId(CloudTrailEventData eventData) {
         if (eventData.getRecipientAccountId() != null) {
-            eventData.add("accountId", eventData.getRecipientAccountId());
-            return;
+            return eventData.getRecipientAccountId();
         }
 
         if (eventData.getUserIdentity() != null &&
                 eventData.getUserIdentity().getAccountId() != null) {
-            eventData.add("accountId", eventData.getUserIdentity().getAccountId());
-            return;
+            return eventData.getUserIdentity().getAccountId();
         }
 
         if (eventData.getUserIdentity() != null &&
@@ -216,8 +417,9 @@ public abstract class AbstractEventSerializer implements EventSerializer {
                 eventData.getUserIdentity().getSessionContext() != null &&
                 eventData.getUserIdentity().getSessionContext().getSessionIssuer() != null &&
                 eventData.getUserIdentity().getSessionContext().getSessionIssuer().getAccountId() != null) {
-            eventData.add("accountId", eventData.getUserIdentity().getSessionContext().getSessionIssuer().getAccountId());
+            return eventData.getUserIdentity().getSessionContext().getSessionIssuer().getAccountId();
         }
+        return null;
     }
 
     /**
@@ -238,52 +440,54 @@ public abstract class AbstractEventSerializer implements EventSerializer {
         }
         UserIdentity userIdentity = new UserIdentity();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
+        while (userIdentityFields.nextField(jsonParser)) {
+            CloudTrailEventField field = userIdentityFields.field();
+            if (field == null) {
+                String key = userIdentityFields.name();
+                userIdentity.add(key, parseDefaultValue(key));
+                continue;
+            }
 
-            switch (key) {
-                case "type":
+            switch (field) {
+                case type:
                     userIdentity.add(CloudTrailEventField.type.name(), jsonParser.nextTextValue());
                     break;
-                case "principalId":
+                case principalId:
                     userIdentity.add(CloudTrailEventField.principalId.name(), jsonParser.nextTextValue());
                     break;
-                case "arn":
+                case arn:
                     userIdentity.add(CloudTrailEventField.arn.name(), jsonParser.nextTextValue());
                     break;
-                case "accountId":
+                case accountId:
                     userIdentity.add(CloudTrailEventField.accountId.name(), jsonParser.nextTextValue());
                     break;
-                case "accessKeyId":
+                case accessKeyId:
                     userIdentity.add(CloudTrailEventField.accessKeyId.name(), jsonParser.nextTextValue());
                     break;
-                case "userName":
+                case userName:
                     userIdentity.add(CloudTrailEventField.userName.name(), jsonParser.nextTextValue());
                     break;
-                case "sessionContext":
+                case sessionContext:
                     this.parseSessionContext(userIdentity);
                     break;
-                case "invokedBy":
+                case invokedBy:
                     userIdentity.add(CloudTrailEventField.invokedBy.name(), jsonParser.nextTextValue());
                     break;
-                case "identityProvider":
+                case identityProvider:
                     userIdentity.add(CloudTrailEventField.identityProvider.name(), jsonParser.nextTextValue());
                     break;
-                case "credentialId":
+                case credentialId:
                     userIdentity.add(CloudTrailEventField.credentialId.name(), jsonParser.nextTextValue());
                     break;
-                case "onBehalfOf":
+                case onBehalfOf:
                     this.parseOnBehalfOf(userIdentity);
                     break;
-                case "inScopeOf":
+                case inScopeOf:
                     this.parseInScopeOf(userIdentity);
                     break;
-                case "invokedByDelegate":
+                case invokedByDelegate:
                     this.parseInvokedByDelegate(userIdentity);
                     break;
-                default:
-                    userIdentity.add(key, parseDefaultValue(key));
-                    break;
             }
         }
         eventData.add(CloudTrailEventField.userIdentity.name(), userIdentity);
@@ -296,20 +500,22 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         OnBehalfOf onBehalfOf = new OnBehalfOf();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
-            switch (key) {
-                case "userId":
+        while (onBehalfOfFields.nextField(jsonParser)) {
+            userIdentity.add(CloudTrailEventField.onBehalfOf.name(), onBehalfOf);
+            CloudTrailEventField field = onBehalfOfFields.field();
+            if (field == null) {
+                String key = onBehalfOfFields.name();
+                onBehalfOf.add(key, parseDefaultValue(key));
+                continue;
+            }
+            switch (field) {
+                case onBehalfOfUserId:
                     onBehalfOf.add(CloudTrailEventField.onBehalfOfUserId.name(), jsonParser.nextTextValue());
                     break;
-                case "identityStoreArn":
+                case onBehalfOfIdentityStoreArn:
                     onBehalfOf.add(CloudTrailEventField.onBehalfOfIdentityStoreArn.name(), jsonParser.nextTextValue());
                     break;
-                default:
-                    onBehalfOf.add(key, parseDefaultValue(key));
-                    break;
             }
-            userIdentity.add(CloudTrailEventField.onBehalfOf.name(), onBehalfOf);
         }
     }
 
@@ -327,22 +533,24 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         SessionContext sessionContext = new SessionContext();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
+        while (sessionContextFields.nextField(jsonParser)) {
+            CloudTrailEventField field = sessionContextFields.field();
+            if (field == null) {
+                String key = sessionContextFields.name();
+                sessionContext.add(key, parseDefaultValue(key));
+                continue;
+            }
 
-            switch (key) {
-                case "attributes":
+            switch (field) {
+                case attributes:
                     sessionContext.add(CloudTrailEventField.attributes.name(), parseAttributes());
                     break;
-                case "sessionIssuer":
+                case sessionIssuer:
                     sessionContext.add(CloudTrailEventField.sessionIssuer.name(), parseSessionIssuer(sessionContext));
                     break;
-                case "webIdFederationData":
+                case webIdFederationData:
                     sessionContext.add(CloudTrailEventField.webIdFederationData.name(), parseWebIdentitySessionContext(sessionContext));
                     break;
-                default:
-                    sessionContext.add(key, parseDefaultValue(key));
-                    break;
             }
         }
 
@@ -369,31 +577,33 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         InsightDetails insightDetails = new InsightDetails();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
+        while (insightDetailsFields.nextField(jsonParser)) {
+            CloudTrailEventField field = insightDetailsFields.field();
+            if (field == null) {
+                String key = insightDetailsFields.name();
+                insightDetails.add(key, parseDefaultValue(key));
+                continue;
+            }
 
-            switch (key) {
-                case "eventName":
+            switch (field) {
+                case eventName:
                     insightDetails.add(CloudTrailEventField.eventName.name(), jsonParser.nextTextValue());
                     break;
-                case "eventSource":
+                case eventSource:
                     insightDetails.add(CloudTrailEventField.eventSource.name(), jsonParser.nextTextValue());
                     break;
-                case "insightType":
+                case insightType:
                     insightDetails.add(CloudTrailEventField.insightType.name(), jsonParser.nextTextValue());
                     break;
-                case "state":
+                case state:
                     insightDetails.add(CloudTrailEventField.state.name(), jsonParser.nextTextValue());
                     break;
-                case "insightContext":
+                case insightContext:
                     this.parseInsightContext(insightDetails);
                     break;
-                case "errorCode":
+                case errorCode:
                     insightDetails.add(CloudTrailEventField.errorCode.name(), jsonParser.nextTextValue());
                     break;
-                default:
-                    insightDetails.add(key, parseDefaultValue(key));
-                    break;
             }
         }
         eventData.add(CloudTrailEventField.insightDetails.name(), insightDetails);
@@ -413,18 +623,21 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         InsightContext insightContext = new InsightContext();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
+        while (insightContextFields.nextField(jsonParser)) {
+            CloudTrailEventField field = insightContextFields.field();
+            if (field == null) {
+                String key = insightContextFields.name();
+                insightContext.add(key, parseDefaultValue(key));
+                continue;
+            }
 
-            switch (key) {
-                case "statistics":
+            switch (field) {
+                case statistics:
                     this.parseInsightStatistics(insightContext);
                     break;
-                case "attributions":
+                case attributions:
                     this.parseInsightAttributionsList(insightContext);
                     break;
-                default:
-                    insightContext.add(key, parseDefaultValue(key));
             }
         }
 
@@ -445,23 +658,25 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         InsightStatistics insightStatistics = new InsightStatistics();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
-            switch (key) {
-                case "insightDuration":
-                    insightStatistics.add(key, Integer.valueOf(jsonParser.getValueAsInt()));
-                    break;
-                case "baselineDuration":
-                    insightStatistics.add(key, Integer.valueOf(jsonParser.getValueAsInt()));
+        while (insightStatisticsFields.nextField(jsonParser)) {
+            CloudTrailEventField field = insightStatisticsFields.field();
+            if (field == null) {
+                String key = insightStatisticsFields.name();
+                insightStatistics.add(key, parseDefaultValue(key));
+                continue;
+            }
+            switch (field) {
+                case insightDuration:
+                    insightStatistics.add(CloudTrailEventField.insightDuration.name(), Integer.valueOf(jsonParser.getValueAsInt()));
                     break;
-                case "baseline":
-                    insightStatistics.add(key, parseAttributesWithDoubleValues());
+                case baselineDuration:
+                    insightStatistics.add(CloudTrailEventField.baselineDuration.name(), Integer.valueOf(jsonParser.getValueAsInt()));
                     break;
-                case "insight":
-                    insightStatistics.add(key, parseAttributesWithDoubleValues());
+                case baseline:
+                    insightStatistics.add(CloudTrailEventField.baseline.name(), parseAttributesWithDoubleValues());
                     break;
-                default:
-                    insightStatistics.add(key, parseDefaultValue(key));
+                case insight:
+                    insightStatistics.add(CloudTrailEventField.insight.name(), parseAttributesWithDoubleValues());
                     break;
             }
 
@@ -505,20 +720,23 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         InsightAttributions insightAttributions = new InsightAttributions();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
-            switch (key) {
-                case "attribute":
+        while (insightAttributionsFields.nextField(jsonParser)) {
+            CloudTrailEventField field = insightAttributionsFields.field();
+            if (field == null) {
+                String key = insightAttributionsFields.name();
+                insightAttributions.add(key, parseDefaultValue(key));
+                continue;
+            }
+            switch (field) {
+                case attribute:
                     insightAttributions.add(CloudTrailEventField.attribute.name(), jsonParser.nextTextValue());
                     break;
-                case "baseline":
+                case baseline:
                     insightAttributions.add(CloudTrailEventField.baseline.name(), parseAttributeValueList());
                     break;
-                case "insight":
+                case insight:
                     insightAttributions.add(CloudTrailEventField.insight.name(), parseAttributeValueList());
                     break;
-                default:
-                    insightAttributions.add(key, parseDefaultValue(key));
             }
         }
 
@@ -561,17 +779,20 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         AttributeValue attributeValue = new AttributeValue();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
-            switch (key) {
-                case "value":
+        while (attributeValueFields.nextField(jsonParser)) {
+            CloudTrailEventField field = attributeValueFields.field();
+            if (field == null) {
+                String key = attributeValueFields.name();
+                attributeValue.add(key, parseDefaultValue(key));
+                continue;
+            }
+            switch (field) {
+                case value:
                     attributeValue.add(CloudTrailEventField.value.name(), jsonParser.nextTextValue());
                     break;
-                case "average":
+                case average:
                     attributeValue.add(CloudTrailEventField.average.name(), Double.valueOf(jsonParser.getValueAsDouble()));
                     break;
-                default:
-                    attributeValue.add(key, parseDefaultValue(key));
             }
         }
 
@@ -592,19 +813,21 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         WebIdentitySessionContext webIdFederationData = new WebIdentitySessionContext();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
+        while (webIdFederationDataFields.nextField(jsonParser)) {
+            CloudTrailEventField field = webIdFederationDataFields.field();
+            if (field == null) {
+                String key = webIdFederationDataFields.name();
+                webIdFederationData.add(key, parseDefaultValue(key));
+                continue;
+            }
 
-            switch (key) {
-                case "attributes":
+            switch (field) {
+                case attributes:
                     webIdFederationData.add(CloudTrailEventField.attributes.name(), parseAttributes());
                     break;
-                case "federatedProvider":
+                case federatedProvider:
                     webIdFederationData.add(CloudTrailEventField.federatedProvider.name(), jsonParser.nextTextValue());
                     break;
-                default:
-                    webIdFederationData.add(key, parseDefaultValue(key));
-                    break;
             }
         }
 
@@ -628,28 +851,30 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         SessionIssuer sessionIssuer = new SessionIssuer();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
+        while (sessionIssuerFields.nextField(jsonParser)) {
+            CloudTrailEventField field = sessionIssuerFields.field();
+            if (field == null) {
+                String key = sessionIssuerFields.name();
+                sessionIssuer.add(key, parseDefaultValue(key));
+                continue;
+            }
 
-            switch (key) {
-                case "type":
+            switch (field) {
+                case type:
                     sessionIssuer.add(CloudTrailEventField.type.name(), this.jsonParser.nextTextValue());
                     break;
-                case "principalId":
+                case principalId:
                     sessionIssuer.add(CloudTrailEventField.principalId.name(), this.jsonParser.nextTextValue());
                     break;
-                case "arn":
+                case arn:
                     sessionIssuer.add(CloudTrailEventField.arn.name(), this.jsonParser.nextTextValue());
                     break;
-                case "accountId":
+                case accountId:
                     sessionIssuer.add(CloudTrailEventField.accountId.name(), this.jsonParser.nextTextValue());
                     break;
-                case "userName":
+                case userName:
                     sessionIssuer.add(CloudTrailEventField.userName.name(), this.jsonParser.nextTextValue());
                     break;
-                default:
-                    sessionIssuer.add(key, this.parseDefaultValue(key));
-                    break;
             }
         }
 
@@ -760,25 +985,27 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         Addendum addendum = new Addendum();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
+        while (addendumFields.nextField(jsonParser)) {
+            CloudTrailEventField field = addendumFields.field();
+            if (field == null) {
+                String key = addendumFields.name();
+                addendum.add(key, parseDefaultValue(key));
+                continue;
+            }
 
-            switch (key) {
-                case "reason":
+            switch (field) {
+                case reason:
                     addendum.add(CloudTrailEventField.reason.name(), jsonParser.nextTextValue());
                     break;
-                case "updatedFields":
+                case updatedFields:
                     addendum.add(CloudTrailEventField.updatedFields.name(), jsonParser.nextTextValue());
                     break;
-                case "originalRequestID":
+                case originalRequestID:
                     addendum.add(CloudTrailEventField.originalRequestID.name(), jsonParser.nextTextValue());
                     break;
-                case "originalEventID":
+                case originalEventID:
                     addendum.add(CloudTrailEventField.originalEventID.name(), jsonParser.nextTextValue());
                     break;
-                default:
-                    addendum.add(key, parseDefaultValue(key));
-                    break;
             }
         }
         eventData.add(CloudTrailEventField.addendum.name(), addendum);
@@ -798,22 +1025,24 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         TlsDetails tlsDetails = new TlsDetails();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
+        while (tlsDetailsFields.nextField(jsonParser)) {
+            CloudTrailEventField field = tlsDetailsFields.field();
+            if (field == null) {
+                String key = tlsDetailsFields.name();
+                tlsDetails.add(key, parseDefaultValue(key));
+                continue;
+            }
 
-            switch (key) {
-                case "tlsVersion":
+            switch (field) {
+                case tlsVersion:
                     tlsDetails.add(CloudTrailEventField.tlsVersion.name(), jsonParser.nextTextValue());
                     break;
-                case "cipherSuite":
+                case cipherSuite:
                     tlsDetails.add(CloudTrailEventField.cipherSuite.name(), jsonParser.nextTextValue());
                     break;
-                case "clientProvidedHostHeader":
+                case clientProvidedHostHeader:
                     tlsDetails.add(CloudTrailEventField.clientProvidedHostHeader.name(), jsonParser.nextTextValue());
                     break;
-                default:
-                    tlsDetails.add(key, this.parseDefaultValue(key));
-                    break;
             }
         }
 
@@ -833,28 +1062,30 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         EdgeDeviceDetails edgeDeviceDetails = new EdgeDeviceDetails();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
+        while (edgeDeviceDetailsFields.nextField(jsonParser)) {
+            CloudTrailEventField field = edgeDeviceDetailsFields.field();
+            if (field == null) {
+                String key = edgeDeviceDetailsFields.name();
+                edgeDeviceDetails.add(key, parseDefaultValue(key));
+                continue;
+            }
 
-            switch (key) {
-                case "attributes":
+            switch (field) {
+                case attributes:
                     edgeDeviceDetails.add(CloudTrailEventField.attributes.name(), parseAttributes());
                     break;
-                case "type":
+                case type:
                     edgeDeviceDetails.add(CloudTrailEventField.type.name(), jsonParser.nextTextValue());
                     break;
-                case "snowJobId":
+                case snowJobId:
                     edgeDeviceDetails.add(CloudTrailEventField.snowJobId.name(), jsonParser.nextTextValue());
                     break;
-                case "deviceId":
+                case deviceId:
                     edgeDeviceDetails.add(CloudTrailEventField.deviceId.name(), jsonParser.nextTextValue());
                     break;
-                case "deviceFamily":
+                case deviceFamily:
                     edgeDeviceDetails.add(CloudTrailEventField.deviceFamily.name(), jsonParser.nextTextValue());
                     break;
-                default:
-                    edgeDeviceDetails.add(key, this.parseDefaultValue(key));
-                    break;
             }
         }
 
@@ -874,25 +1105,27 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         InScopeOf inScopeOf = new InScopeOf();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
+        while (inScopeOfFields.nextField(jsonParser)) {
+            CloudTrailEventField field = inScopeOfFields.field();
+            if (field == null) {
+                String key = inScopeOfFields.name();
+                inScopeOf.add(key, parseDefaultValue(key));
+                continue;
+            }
 
-            switch (key) {
-                case "sourceAccount":
+            switch (field) {
+                case inScopeOfSourceAccount:
                     inScopeOf.add(CloudTrailEventField.inScopeOfSourceAccount.name(), jsonParser.nextTextValue());
                     break;
-                case "sourceArn":
+                case inScopeOfSourceArn:
                     inScopeOf.add(CloudTrailEventField.inScopeOfSourceArn.name(), jsonParser.nextTextValue());
                     break;
-                case "issuerType":
+                case inScopeOfIssuerType:
                     inScopeOf.add(CloudTrailEventField.inScopeOfIssuerType.name(), jsonParser.nextTextValue());
                     break;
-                case "credentialsIssuedTo":
+                case inScopeOfCredentialsIssuedTo:
                     inScopeOf.add(CloudTrailEventField.inScopeOfCredentialsIssuedTo.name(), jsonParser.nextTextValue());
                     break;
-                default:
-                    inScopeOf.add(key, parseDefaultValue(key));
-                    break;
             }
         }
         userIdentity.add(CloudTrailEventField.inScopeOf.name(), inScopeOf);
@@ -905,17 +1138,19 @@ public abstract class AbstractEventSerializer implements EventSerializer {
 
         InvokedByDelegate invokedByDelegate = new InvokedByDelegate();
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
-            String key = jsonParser.getCurrentName();
-            switch (key) {
-                case "accountId":
+        while (invokedByDelegateFields.nextField(jsonParser)) {
+            userIdentity.add(CloudTrailEventField.invokedByDelegate.name(), invokedByDelegate);
+            CloudTrailEventField field = invokedByDelegateFields.field();
+            if (field == null) {
+                String key = invokedByDelegateFields.name();
+                invokedByDelegate.add(key, parseDefaultValue(key));
+                continue;
+            }
+            switch (field) {
+                case invokedByDelegateAccountId:
                     invokedByDelegate.add(CloudTrailEventField.invokedByDelegateAccountId.name(), jsonParser.nextTextValue());
                     break;
-                default:
-                    invokedByDelegate.add(key, parseDefaultValue(key));
-                    break;
             }
-            userIdentity.add(CloudTrailEventField.invokedByDelegate.name(), invokedByDelegate);
         }
     }
 
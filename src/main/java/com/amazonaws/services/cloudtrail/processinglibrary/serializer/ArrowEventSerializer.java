@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.arrow.CloudTrailRecordBatch;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.arrow.CloudTrailRecordSchema;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.complex.ListVector;
+import org.apache.arrow.vector.complex.StructVector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a CloudTrail log file straight into {@link CloudTrailRecordBatch}es of Apache Arrow vectors.
+ * <p>
+ * Text is encoded as UTF-8 from the parser's character buffer through a reused scratch array into the vectors, so no
+ * object is created per event except for the JSON text of nested fields such as <code>requestParameters</code>.
+ * Fields that are not in the CloudTrail schema are skipped. <code>accountId</code> is derived the same way as by
+ * {@link AbstractEventSerializer}.
+ * </p>
+ */
+public class ArrowEventSerializer implements Closeable {
+    private static final String ACCOUNT_ID = "accountId";
+    private static final String RECIPIENT_ACCOUNT_ID = "recipientAccountId";
+
+    private final CloudTrailLog ctLog;
+    private final JsonParser jsonParser;
+    private final BufferAllocator allocator;
+    private boolean endOfLog;
+
+    private boolean hasIdentityAccountId;
+    private boolean hasIssuerAccountId;
+
+    /**
+     * UTF-8 bytes of the value being written.
+     */
+    private byte[] utf8 = new byte[256];
+
+    /**
+     * @param ctLog The CloudTrail Log needs to be read.
+     * @param jsonParser The JSON parser to read events with.
+     * @param allocator The Arrow {@link BufferAllocator} batches take their buffers from.
+     * @throws IOException if the log is not a CloudTrail log.
+     */
+    public ArrowEventSerializer(CloudTrailLog ctLog, JsonParser jsonParser, BufferAllocator allocator) throws IOException {
+        this.ctLog = ctLog;
+        this.jsonParser = jsonParser;
+        this.allocator = allocator;
+        AbstractEventSerializer.readArrayHeader(jsonParser);
+    }
+
+    /**
+     * Read up to <code>maxRows</code> events into a new batch. The caller owns the batch and must close it.
+     *
+     * @param maxRows the maximum number of events in the batch.
+     * @return the batch, or <code>null</code> once the end of the log is reached.
+     * @throws IOException if an event could not be parsed.
+     */
+    public CloudTrailRecordBatch readBatch(int maxRows) throws IOException {
+        if (endOfLog) {
+            return null;
+        }
+
+        CloudTrailRecordBatch batch = new CloudTrailRecordBatch(ctLog, allocator);
+        try {
+            int row = 0;
+            while (row < maxRows && hasNextEvent()) {
+                readEvent(batch, row++);
+            }
+            if (row == 0) {
+                batch.close();
+                return null;
+            }
+            batch.setRowCount(row);
+            return batch;
+        } catch (IOException | RuntimeException e) {
+            batch.close();
+            throw e;
+        }
+    }
+
+    private boolean hasNextEvent() throws IOException {
+        if (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+            return true;
+        }
+        endOfLog = true;
+        return false;
+    }
+
+    private void readEvent(CloudTrailRecordBatch batch, int row) throws IOException {
+        boolean hasRecipientAccountId = false;
+        hasIdentityAccountId = false;
+        hasIssuerAccountId = false;
+
+        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+            String key = jsonParser.getCurrentName();
+            JsonToken token = jsonParser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+
+            switch (key) {
+                case CloudTrailRecordSchema.EVENT_TIME:
+                    if (token == JsonToken.VALUE_STRING) {
+                        batch.getEventTimeVector().setSafe(row, ColumnarEventSerializer.parseUtcMillis(jsonParser));
+                    } else {
+                        jsonParser.skipChildren();
+                    }
+                    break;
+                case CloudTrailRecordSchema.READ_ONLY:
+                case CloudTrailRecordSchema.MANAGEMENT_EVENT:
+                    if (token.isScalarValue()) {
+                        BitVector vector = (BitVector) batch.getVectorSchemaRoot().getVector(key);
+                        vector.setSafe(row, jsonParser.getValueAsBoolean() ? 1 : 0);
+                    } else {
+                        jsonParser.skipChildren();
+                    }
+                    break;
+                case CloudTrailRecordSchema.USER_IDENTITY:
+                    readUserIdentity(batch.getUserIdentityVector(), row, token);
+                    break;
+                case CloudTrailRecordSchema.RESOURCES:
+                    readResources(batch.getResourcesVector(), row, token);
+                    break;
+                default:
+                    FieldVector vector = batch.getVectorSchemaRoot().getVector(key);
+                    if (vector instanceof VarCharVector) {
+                        writeText((VarCharVector) vector, row, token);
+                        hasRecipientAccountId |= RECIPIENT_ACCOUNT_ID.equals(key);
+                    } else {
+                        jsonParser.skipChildren();
+                    }
+                    break;
+            }
+        }
+
+        setAccountId(batch, row, hasRecipientAccountId);
+    }
+
+    /**
+     * Copy the account ID from <code>recipientAccountId</code>, the user identity, or the session issuer, in that
+     * order, as {@link AbstractEventSerializer} does.
+     */
+    private void setAccountId(CloudTrailRecordBatch batch, int row, boolean hasRecipientAccountId) {
+        FieldVector source = null;
+        if (hasRecipientAccountId) {
+            source = batch.getUtf8Vector(RECIPIENT_ACCOUNT_ID);
+        } else if (hasIdentityAccountId) {
+            source = batch.getUserIdentityVector().getChild(ACCOUNT_ID);
+        } else if (hasIssuerAccountId) {
+            StructVector sessionContext = (StructVector) batch.getUserIdentityVector().getChild(CloudTrailRecordSchema.SESSION_CONTEXT);
+            StructVector sessionIssuer = (StructVector) sessionContext.getChild(CloudTrailRecordSchema.SESSION_ISSUER);
+            source = sessionIssuer.getChild(ACCOUNT_ID);
+        }
+        if (source != null) {
+            batch.getUtf8Vector(ACCOUNT_ID).copyFromSafe(row, row, source);
+        }
+    }
+
+    private void readUserIdentity(StructVector userIdentity, int row, JsonToken token) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            jsonParser.skipChildren();
+            return;
+        }
+        userIdentity.setIndexDefined(row);
+
+        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+            String key = jsonParser.getCurrentName();
+            JsonToken valueToken = jsonParser.nextToken();
+
+            if (CloudTrailRecordSchema.SESSION_CONTEXT.equals(key)) {
+                readSessionContext((StructVector) userIdentity.getChild(key), row, valueToken);
+            } else {
+                hasIdentityAccountId |= writeChild(userIdentity, key, row, valueToken) && ACCOUNT_ID.equals(key);
+            }
+        }
+    }
+
+    private void readSessionContext(StructVector sessionContext, int row, JsonToken token) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            jsonParser.skipChildren();
+            return;
+        }
+        sessionContext.setIndexDefined(row);
+
+        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+            String key = jsonParser.getCurrentName();
+            JsonToken valueToken = jsonParser.nextToken();
+
+            if (CloudTrailRecordSchema.SESSION_ISSUER.equals(key) && valueToken == JsonToken.START_OBJECT) {
+                StructVector sessionIssuer = (StructVector) sessionContext.getChild(key);
+                sessionIssuer.setIndexDefined(row);
+                while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+                    String issuerKey = jsonParser.getCurrentName();
+                    JsonToken issuerToken = jsonParser.nextToken();
+                    hasIssuerAccountId |= writeChild(sessionIssuer, issuerKey, row, issuerToken) && ACCOUNT_ID.equals(issuerKey);
+                }
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+    }
+
+    private void readResources(ListVector resources, int row, JsonToken token) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            jsonParser.skipChildren();
+            return;
+        }
+        StructVector resource = (StructVector) resources.getDataVector();
+        int start = resources.startNewValue(row);
+        int count = 0;
+
+        while (jsonParser.nextToken() != JsonToken.END_ARRAY) {
+            int index = start + count++;
+            if (jsonParser.getCurrentToken() != JsonToken.START_OBJECT) {
+                jsonParser.skipChildren();
+                continue;
+            }
+            resource.setIndexDefined(index);
+            while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+                String key = jsonParser.getCurrentName();
+                writeChild(resource, key, index, jsonParser.nextToken());
+            }
+        }
+        resources.endValue(row, count);
+    }
+
+    /**
+     * Write a value to the <code>Utf8</code> child <code>key</code> of a struct.
+     *
+     * @return <code>true</code> if a non null value was written.
+     */
+    private boolean writeChild(StructVector parent, String key, int index, JsonToken token) throws IOException {
+        FieldVector child = parent.getChild(key);
+        if (!(child instanceof VarCharVector) || token == JsonToken.VALUE_NULL) {
+            jsonParser.skipChildren();
+            return false;
+        }
+        writeText((VarCharVector) child, index, token);
+        return true;
+    }
+
+    private void writeText(VarCharVector vector, int index, JsonToken token) throws IOException {
+        if (token.isScalarValue()) {
+            int length = encode(jsonParser.getTextCharacters(), jsonParser.getTextOffset(), jsonParser.getTextLength());
+            vector.setSafe(index, utf8, 0, length);
+        } else {
+            byte[] json = jsonParser.readValueAsTree().toString().getBytes(StandardCharsets.UTF_8);
+            vector.setSafe(index, json, 0, json.length);
+        }
+    }
+
+    /**
+     * Encode characters as UTF-8 into {@link #utf8}, replacing unpaired surrogates with <code>'?'</code>.
+     *
+     * @return the number of bytes written.
+     */
+    private int encode(char[] chars, int start, int length) {
+        if (utf8.length < length * 3) {
+            utf8 = new byte[Math.max(length * 3, utf8.length * 2)];
+        }
+        byte[] bytes = utf8;
+        int position = 0;
+
+        for (int i = start, end = start + length; i < end; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                bytes[position++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[position++] = (byte) (0xC0 | (c >> 6));
+                bytes[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                int codePoint = Character.toCodePoint(c, chars[++i]);
+                bytes[position++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                bytes[position++] = (byte) '?';
+            } else {
+                bytes[position++] = (byte) (0xE0 | (c >> 12));
+                bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Close the JSON parser object used to read the CloudTrail log.
+     *
+     * @throws IOException if the log could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        jsonParser.close();
+    }
+}
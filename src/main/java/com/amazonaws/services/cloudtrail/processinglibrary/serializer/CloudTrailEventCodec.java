@@ -0,0 +1,410 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEventData;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.Addendum;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.AttributeValue;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailDataStore;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.EdgeDeviceDetails;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.InScopeOf;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.InsightAttributions;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.InsightContext;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.InsightDetails;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.InsightStatistics;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.InvokedByDelegate;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.OnBehalfOf;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.Resource;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.SessionContext;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.SessionIssuer;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.TlsDetails;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.UserIdentity;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.WebIdentitySessionContext;
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of {@link CloudTrailEventData}, including its nested types, for spilling events to disk or
+ * forwarding them to other processes.
+ * <p>
+ * Events are encoded as <a href="https://www.rfc-editor.org/rfc/rfc8949">CBOR</a>. Keys known to
+ * {@link CloudTrailEventField} are written as small integer field IDs instead of names, other keys as text. Event times
+ * use the standard epoch-based date/time tag and event IDs the standard UUID tag, so neither is converted to text.
+ * Every nested data store is tagged with its type, so decoding restores the same classes
+ * {@link DefaultEventSerializer} produces and a decoded event is equal to the encoded one.
+ * </p>
+ * <p>
+ * Field and type IDs are stable across releases: new IDs are only ever appended, so data encoded by one version of the
+ * library can be decoded by any later version. Several events can be written to the same generator back to back and
+ * read back one at a time with {@link #decode(JsonParser)}. Instances are thread-safe.
+ * </p>
+ */
+public class CloudTrailEventCodec {
+    /** Standard CBOR tag for an epoch-based date/time in seconds. */
+    private static final int TAG_EPOCH_TIME = 1;
+
+    /** Standard CBOR tag for a binary UUID. */
+    private static final int TAG_UUID = 37;
+
+    /** First of the private tags marking the type of a nested data store, in the order of {@link #DATA_STORE_TYPES}. */
+    private static final int TAG_DATA_STORE = 0xC700;
+
+    /**
+     * The field ID of a key is its position in this list. Append only: reordering or removing an entry breaks data
+     * encoded by earlier versions.
+     */
+    private static final String[] FIELD_NAMES = {
+            "Records", "accessKeyId", "accountId", "addendum", "additionalEventData", "annotation", "apiVersion", "arn",
+            "ARN", "ARNPrefix", "attribute", "attributes", "attributions", "average", "awsRegion", "baseline",
+            "baselineDuration", "cipherSuite", "clientProvidedHostHeader", "credentialId", "deviceFamily", "deviceId",
+            "edgeDeviceDetails", "errorCode", "errorMessage", "eventCategory", "eventID", "eventName", "eventSource",
+            "eventTime", "eventType", "eventVersion", "federatedProvider", "identityProvider", "inScopeOf",
+            "inScopeOfCredentialsIssuedTo", "inScopeOfIssuerType", "inScopeOfSourceAccount", "inScopeOfSourceArn",
+            "insight", "insightContext", "insightDetails", "insightDuration", "insightType", "invokedBy",
+            "invokedByDelegate", "invokedByDelegateAccountId", "managementEvent", "originalRequestID", "originalEventID",
+            "onBehalfOf", "onBehalfOfUserId", "onBehalfOfIdentityStoreArn", "principalId", "readOnly", "reason",
+            "recipientAccountId", "requestID", "requestParameters", "resources", "responseElements",
+            "serviceEventDetails", "sessionContext", "sessionCredentialFromConsole", "sessionIssuer", "sharedEventID",
+            "snowJobId", "sourceIPAddress", "state", "statistics", "tlsDetails", "tlsVersion", "type", "updatedFields",
+            "userAgent", "userIdentity", "userName", "value", "vpcEndpointAccountId", "vpcEndpointId",
+            "webIdFederationData"
+    };
+
+    /**
+     * The type ID of a data store is its position in this list. Append only, like {@link #FIELD_NAMES}.
+     */
+    private static final List<Class<? extends CloudTrailDataStore>> DATA_STORE_TYPES = Arrays.asList(
+            CloudTrailDataStore.class, CloudTrailEventData.class, UserIdentity.class, SessionContext.class,
+            SessionIssuer.class, WebIdentitySessionContext.class, OnBehalfOf.class, InScopeOf.class,
+            InvokedByDelegate.class, Resource.class, TlsDetails.class, Addendum.class, EdgeDeviceDetails.class,
+            InsightDetails.class, InsightContext.class, InsightStatistics.class, InsightAttributions.class,
+            AttributeValue.class);
+
+    private static final Map<String, Integer> FIELD_IDS = new HashMap<>(FIELD_NAMES.length * 2);
+    private static final Map<Class<?>, Integer> DATA_STORE_TYPE_IDS = new IdentityHashMap<>();
+
+    static {
+        for (int i = 0; i < FIELD_NAMES.length; i++) {
+            FIELD_IDS.put(FIELD_NAMES[i], i);
+        }
+        for (int i = 0; i < DATA_STORE_TYPES.size(); i++) {
+            DATA_STORE_TYPE_IDS.put(DATA_STORE_TYPES.get(i), i);
+        }
+    }
+
+    private final CBORFactory factory;
+
+    /**
+     * Creates a codec with a default {@link CBORFactory}.
+     */
+    public CloudTrailEventCodec() {
+        this(new CBORFactory());
+    }
+
+    /**
+     * Creates a codec.
+     *
+     * @param factory the {@link CBORFactory} used to create generators and parsers.
+     */
+    public CloudTrailEventCodec(CBORFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @return the {@link CBORFactory} to create the generators and parsers for streaming encode and decode.
+     */
+    public CBORFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * Encodes an event to a byte array.
+     *
+     * @param eventData the {@link CloudTrailEventData} to encode.
+     * @return the encoded event.
+     * @throws IOException if the event contains a value that cannot be encoded.
+     */
+    public byte[] encode(CloudTrailEventData eventData) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (JsonGenerator generator = factory.createGenerator(bytes)) {
+            encode(eventData, generator);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes an event to a generator created by {@link #getFactory()}.
+     *
+     * @param eventData the {@link CloudTrailEventData} to encode.
+     * @param generator the CBOR generator to write to.
+     * @throws IOException if the event cannot be written.
+     */
+    public void encode(CloudTrailEventData eventData, JsonGenerator generator) throws IOException {
+        writeDataStore(eventData, cbor(generator));
+    }
+
+    /**
+     * Decodes an event from a byte array.
+     *
+     * @param bytes an event encoded by {@link #encode(CloudTrailEventData)}.
+     * @return the decoded {@link CloudTrailEventData}.
+     * @throws IOException if the bytes are not an encoded event.
+     */
+    public CloudTrailEventData decode(byte[] bytes) throws IOException {
+        try (JsonParser parser = factory.createParser(bytes)) {
+            CloudTrailEventData eventData = decode(parser);
+            if (eventData == null) {
+                throw new JsonParseException(parser, "No CloudTrail event in input.");
+            }
+            return eventData;
+        }
+    }
+
+    /**
+     * Reads the next event from a parser created by {@link #getFactory()}.
+     *
+     * @param parser the CBOR parser to read from.
+     * @return the next {@link CloudTrailEventData}, or <code>null</code> at the end of the input.
+     * @throws IOException if the input is not an encoded event.
+     */
+    public CloudTrailEventData decode(JsonParser parser) throws IOException {
+        CBORParser cborParser = cbor(parser);
+        JsonToken token = cborParser.nextToken();
+        if (token == null) {
+            return null;
+        }
+        Object value = readValue(cborParser, token);
+        if (!(value instanceof CloudTrailEventData)) {
+            throw new JsonParseException(parser, "Not a CloudTrail event.");
+        }
+        return (CloudTrailEventData) value;
+    }
+
+    private void writeDataStore(CloudTrailDataStore dataStore, CBORGenerator generator) throws IOException {
+        Integer typeId = DATA_STORE_TYPE_IDS.get(dataStore.getClass());
+        generator.writeTag(TAG_DATA_STORE + (typeId == null ? 0 : typeId));
+
+        Map<String, Object> values = dataStore.asMap();
+        generator.writeStartObject(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Integer fieldId = FIELD_IDS.get(entry.getKey());
+            if (fieldId != null) {
+                generator.writeFieldId(fieldId);
+            } else {
+                generator.writeFieldName(entry.getKey());
+            }
+            writeValue(entry.getValue(), generator);
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeValue(Object value, CBORGenerator generator) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof CloudTrailDataStore) {
+            writeDataStore((CloudTrailDataStore) value, generator);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            generator.writeNumber((Integer) value);
+        } else if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof Date) {
+            long millis = ((Date) value).getTime();
+            generator.writeTag(TAG_EPOCH_TIME);
+            if (millis % 1000 == 0) {
+                generator.writeNumber(millis / 1000);
+            } else {
+                generator.writeNumber(millis / 1000.0);
+            }
+        } else if (value instanceof UUID) {
+            UUID uuid = (UUID) value;
+            byte[] bytes = new byte[16];
+            writeLong(bytes, 0, uuid.getMostSignificantBits());
+            writeLong(bytes, 8, uuid.getLeastSignificantBits());
+            generator.writeTag(TAG_UUID);
+            generator.writeBinary(bytes);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            generator.writeStartArray(list, list.size());
+            for (Object element : list) {
+                writeValue(element, generator);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            generator.writeStartObject(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(entry.getValue(), generator);
+            }
+            generator.writeEndObject();
+        } else {
+            throw new JsonGenerationException("Cannot encode value of type " + value.getClass().getName() + ".", generator);
+        }
+    }
+
+    private Object readValue(CBORParser parser, JsonToken token) throws IOException {
+        int tag = parser.getCurrentTag();
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NUMBER_INT:
+                if (tag == TAG_EPOCH_TIME) {
+                    return new Date(parser.getLongValue() * 1000);
+                }
+                return parser.getNumberType() == JsonParser.NumberType.INT ? (Object) parser.getIntValue() : (Object) parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                if (tag == TAG_EPOCH_TIME) {
+                    return new Date(Math.round(parser.getDoubleValue() * 1000));
+                }
+                return parser.getDoubleValue();
+            case VALUE_EMBEDDED_OBJECT:
+                if (tag == TAG_UUID) {
+                    byte[] bytes = parser.getBinaryValue();
+                    if (bytes.length == 16) {
+                        return new UUID(readLong(bytes, 0), readLong(bytes, 8));
+                    }
+                }
+                throw new JsonParseException(parser, "Unexpected binary value.");
+            case START_ARRAY:
+                List<Object> list = new ArrayList<>();
+                JsonToken element;
+                while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    list.add(readValue(parser, element));
+                }
+                return list;
+            case START_OBJECT:
+                if (tag >= TAG_DATA_STORE && tag < TAG_DATA_STORE + DATA_STORE_TYPES.size()) {
+                    return readDataStore(parser, tag - TAG_DATA_STORE);
+                }
+                Map<String, Object> map = new HashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String key = parser.getCurrentName();
+                    map.put(key, readValue(parser, parser.nextToken()));
+                }
+                return map;
+            default:
+                throw new JsonParseException(parser, "Unexpected token " + token + ".");
+        }
+    }
+
+    private CloudTrailDataStore readDataStore(CBORParser parser, int typeId) throws IOException {
+        CloudTrailDataStore dataStore = newDataStore(typeId);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = fieldName(parser.getCurrentName());
+            dataStore.add(key, readValue(parser, parser.nextToken()));
+        }
+        return dataStore;
+    }
+
+    /**
+     * CBOR integer keys are reported as their decimal text; map them back to names. CloudTrail field names never start
+     * with a digit.
+     */
+    private static String fieldName(String key) {
+        if (!key.isEmpty() && key.charAt(0) >= '0' && key.charAt(0) <= '9') {
+            int fieldId = 0;
+            for (int i = 0; i < key.length(); i++) {
+                fieldId = fieldId * 10 + key.charAt(i) - '0';
+            }
+            if (fieldId < FIELD_NAMES.length) {
+                return FIELD_NAMES[fieldId];
+            }
+        }
+        return key;
+    }
+
+    private static CloudTrailDataStore newDataStore(int typeId) {
+        switch (typeId) {
+            case 1: return new CloudTrailEventData();
+            case 2: return new UserIdentity();
+            case 3: return new SessionContext();
+            case 4: return new SessionIssuer();
+            case 5: return new WebIdentitySessionContext();
+            case 6: return new OnBehalfOf();
+            case 7: return new InScopeOf();
+            case 8: return new InvokedByDelegate();
+            case 9: return new Resource();
+            case 10: return new TlsDetails();
+            case 11: return new Addendum();
+            case 12: return new EdgeDeviceDetails();
+            case 13: return new InsightDetails();
+            case 14: return new InsightContext();
+            case 15: return new InsightStatistics();
+            case 16: return new InsightAttributions();
+            case 17: return new AttributeValue();
+            default: return new CloudTrailDataStore();
+        }
+    }
+
+    private static CBORGenerator cbor(JsonGenerator generator) {
+        if (!(generator instanceof CBORGenerator)) {
+            throw new IllegalArgumentException("Generator was not created by a CBORFactory.");
+        }
+        return (CBORGenerator) generator;
+    }
+
+    private static CBORParser cbor(JsonParser parser) {
+        if (!(parser instanceof CBORParser)) {
+            throw new IllegalArgumentException("Parser was not created by a CBORFactory.");
+        }
+        return (CBORParser) parser;
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+}
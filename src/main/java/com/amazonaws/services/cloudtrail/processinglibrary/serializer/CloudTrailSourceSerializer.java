@@ -17,6 +17,7 @@ package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
 
 import com.amazonaws.services.cloudtrail.processinglibrary.factory.SourceSerializerFactory;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLogKey;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.SQSBasedSource;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.SourceAttributeKeys;
@@ -31,8 +32,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The <code>CloudTrailSourceSerializer</code> extracts CloudTrail log file information from notifications that CloudTrail
@@ -56,69 +59,60 @@ public class CloudTrailSourceSerializer implements SourceSerializer {
     @Override
     public CloudTrailSource getSource(Message sqsMessage) throws IOException {
         List<CloudTrailLog> cloudTrailLogs = new ArrayList<>();
+        Map<String, String> attributes = new HashMap<>();
         JsonNode messageNode = messageExtractor.getMessageBody(sqsMessage);
 
-        sqsMessage = addCloudTrailLogsAndMessageAttributes(sqsMessage, cloudTrailLogs, messageNode);
-        sqsMessage = addRestMessageAttributes(sqsMessage, messageNode);
+        addCloudTrailLogsAndMessageAttributes(sqsMessage, attributes, cloudTrailLogs, messageNode);
+        addRestMessageAttributes(attributes, messageNode);
 
-        return new SQSBasedSource(sqsMessage, cloudTrailLogs);
+        return new SQSBasedSource(sqsMessage, cloudTrailLogs, attributes);
     }
 
     /**
      * As long as there is at least one CloudTrail log object:
      * <p>
      *     <li>Add the CloudTrail log object key to the list.</li>
-     *     <li>Add <code>accountId</code> extracted from log object key to <code>sqsMessage</code>.</li>
-     *     <li>Add {@link SourceType#CloudTrailLog} to the <code>sqsMessage</code>.</li>
+     *     <li>Add <code>accountId</code> extracted from log object key to the source <code>attributes</code>.</li>
+     *     <li>Add {@link SourceType#CloudTrailLog} to the source <code>attributes</code>.</li>
      * </p>
      *
      * If there is no CloudTrail log object and it is a valid CloudTrail message, CPL adds only {@link SourceType#Other}
-     * to the <code>sqsMessage</code>.
+     * to the source <code>attributes</code>.
      *
      */
-    private Message addCloudTrailLogsAndMessageAttributes(Message sqsMessage, List<CloudTrailLog> cloudTrailLogs, JsonNode messageNode) throws IOException {
+    private void addCloudTrailLogsAndMessageAttributes(Message sqsMessage, Map<String, String> attributes, List<CloudTrailLog> cloudTrailLogs, JsonNode messageNode) throws IOException {
         SourceType sourceType = SourceType.Other;
 
         String bucketName = messageNode.get(S3_BUCKET_NAME).textValue();
         List<String> objectKeys = mapper.readValue(messageNode.get(S3_OBJECT_KEY).traverse(), new TypeReference<List<String>>() {});
 
         for (String objectKey: objectKeys) {
-            SourceType currSourceType = sourceIdentifier.identify(objectKey);
-            if (currSourceType == SourceType.CloudTrailLog) {
-                cloudTrailLogs.add(new CloudTrailLog(bucketName, objectKey));
-                sourceType = currSourceType;
-                sqsMessage = LibraryUtils.setMessageAccountId(sqsMessage, objectKey);
+            CloudTrailLogKey logKey = sourceIdentifier.parse(objectKey);
+            if (logKey != null) {
+                CloudTrailLog ctLog = new CloudTrailLog(bucketName, objectKey, logKey);
+                cloudTrailLogs.add(ctLog);
+                sourceType = SourceType.CloudTrailLog;
+                LibraryUtils.addAccountIdAttribute(attributes, sqsMessage, ctLog);
             }
         }
 
-        sqsMessage = addAttributeToMessage(sqsMessage, SourceAttributeKeys.SOURCE_TYPE.getAttributeKey(), sourceType.name());
-        return sqsMessage;
+        attributes.put(SourceAttributeKeys.SOURCE_TYPE.getAttributeKey(), sourceType.name());
     }
 
     /**
-     * Helper method to add an attribute to an immutable SQS Message.
-     */
-    private Message addAttributeToMessage(Message message, String key, String value) {
-        java.util.Map<String, String> updatedAttributes = new java.util.HashMap<>(message.attributesAsStrings());
-        updatedAttributes.put(key, value);
-        return message.toBuilder().attributesWithStrings(updatedAttributes).build();
-    }
-
-    /**
-     * Excluding S3_BUCKET, S3_OBJECT_KEY, add all other attributes from the message body to <code>sqsMessage</code>.
-     * @param sqsMessage The SQS message.
+     * Excluding S3_BUCKET, S3_OBJECT_KEY, add all other attributes from the message body to the source
+     * <code>attributes</code>.
+     * @param attributes The attributes derived from the message.
      * @param messageNode The message body.
-     * @return The updated SQS message with additional attributes.
      */
-    private Message addRestMessageAttributes(Message sqsMessage, JsonNode messageNode) {
+    private void addRestMessageAttributes(Map<String, String> attributes, JsonNode messageNode) {
         Iterator<String> it = messageNode.fieldNames();
         while(it.hasNext()) {
             String key = it.next();
             if (!key.equals(S3_OBJECT_KEY) && !key.equals(S3_BUCKET_NAME)) {
-                sqsMessage = addAttributeToMessage(sqsMessage, key, messageNode.get(key).textValue());
+                attributes.put(key, messageNode.get(key).textValue());
             }
         }
-        return sqsMessage;
     }
 
 
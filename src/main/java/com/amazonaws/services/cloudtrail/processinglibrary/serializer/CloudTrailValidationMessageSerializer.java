@@ -24,6 +24,7 @@ import com.amazonaws.services.cloudtrail.processinglibrary.utils.SNSMessageBodyE
 import software.amazon.awssdk.services.sqs.model.Message;
 
 import java.io.IOException;
+import java.util.Collections;
 
 /**
  * The <code>CloudTrailValidationMessageSerializer</code> extracts CloudTrail validation message from notifications that CloudTrail
@@ -41,10 +42,8 @@ public class CloudTrailValidationMessageSerializer implements SourceSerializer {
     @Override
     public CloudTrailSource getSource(Message sqsMessage) throws IOException {
         if (messageExtractor.getMessageText(sqsMessage).equals(CLOUD_TRAIL_VALIDATION_MESSAGE)) {
-            java.util.Map<String, String> updatedAttributes = new java.util.HashMap<>(sqsMessage.attributesAsStrings());
-            updatedAttributes.put(SourceAttributeKeys.SOURCE_TYPE.getAttributeKey(), SourceType.CloudTrailValidationMessage.name());
-            sqsMessage = sqsMessage.toBuilder().attributesWithStrings(updatedAttributes).build();
-            return new SQSBasedSource(sqsMessage, null);
+            return new SQSBasedSource(sqsMessage, null, Collections.singletonMap(
+                    SourceAttributeKeys.SOURCE_TYPE.getAttributeKey(), SourceType.CloudTrailValidationMessage.name()));
         }
 
         return null;
@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.columnar.BooleanColumn;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.columnar.CloudTrailEventBatch;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.columnar.DictionaryColumn;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.columnar.EventColumn;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.columnar.LongColumn;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.columnar.StringColumn;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.ParseException;
+
+/**
+ * Reads a CloudTrail log file straight into {@link CloudTrailEventBatch}es.
+ * <p>
+ * Text values are copied from the parser's character buffer into the columns, dictionary values are looked up without
+ * creating a <code>String</code>, and <code>eventTime</code> is converted to milliseconds in place, so no object is
+ * created per event. Fields that are not in the batch are skipped without being parsed. <code>accountId</code> is
+ * derived the same way as by {@link AbstractEventSerializer}: from <code>recipientAccountId</code>, then the user
+ * identity, then the session issuer.
+ * </p>
+ */
+public class ColumnarEventSerializer implements Closeable {
+    private static final int UTC_DATE_LENGTH = "yyyy-MM-ddTHH:mm:ssZ".length();
+
+    private final CloudTrailLog ctLog;
+    private final JsonParser jsonParser;
+    private boolean endOfLog;
+
+    private int identityAccountCode;
+    private int issuerAccountCode;
+
+    /**
+     * @param ctLog The CloudTrail Log needs to be read.
+     * @param jsonParser The JSON parser to read events with.
+     * @throws IOException if the log is not a CloudTrail log.
+     */
+    public ColumnarEventSerializer(CloudTrailLog ctLog, JsonParser jsonParser) throws IOException {
+        this.ctLog = ctLog;
+        this.jsonParser = jsonParser;
+        AbstractEventSerializer.readArrayHeader(jsonParser);
+    }
+
+    /**
+     * @return the {@link CloudTrailLog} being read.
+     */
+    public CloudTrailLog getLog() {
+        return ctLog;
+    }
+
+    /**
+     * Clear <code>batch</code> and fill it with up to {@link CloudTrailEventBatch#getCapacity()} events.
+     *
+     * @param batch the {@link CloudTrailEventBatch} to fill.
+     * @return the number of events read, 0 once the end of the log is reached.
+     * @throws IOException if an event could not be parsed.
+     */
+    public int readBatch(CloudTrailEventBatch batch) throws IOException {
+        batch.clear();
+        EventColumn accountIdColumn = batch.getColumn(CloudTrailEventField.accountId);
+
+        int row = 0;
+        while (row < batch.getCapacity() && hasNextEvent()) {
+            readEvent(batch, (DictionaryColumn) accountIdColumn, row++);
+        }
+        batch.finish(row);
+        return row;
+    }
+
+    private boolean hasNextEvent() throws IOException {
+        if (endOfLog) {
+            return false;
+        }
+        if (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+            return true;
+        }
+        endOfLog = true;
+        return false;
+    }
+
+    private void readEvent(CloudTrailEventBatch batch, DictionaryColumn accountIdColumn, int row) throws IOException {
+        int recipientAccountCode = DictionaryColumn.NULL_CODE;
+        identityAccountCode = DictionaryColumn.NULL_CODE;
+        issuerAccountCode = DictionaryColumn.NULL_CODE;
+
+        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+            CloudTrailEventField field = CloudTrailEventField.fromName(jsonParser.getCurrentName());
+
+            if (field == CloudTrailEventField.userIdentity && accountIdColumn != null) {
+                readUserIdentity(accountIdColumn);
+                continue;
+            }
+
+            JsonToken token = jsonParser.nextToken();
+            if (field == CloudTrailEventField.recipientAccountId && accountIdColumn != null
+                    && token == JsonToken.VALUE_STRING) {
+                recipientAccountCode = encode(accountIdColumn);
+            }
+
+            EventColumn column = field == null ? null : batch.getColumn(field);
+            if (column == null || token == JsonToken.VALUE_NULL) {
+                jsonParser.skipChildren();
+                continue;
+            }
+            write(column, row, token);
+        }
+
+        if (accountIdColumn != null) {
+            int accountCode = recipientAccountCode != DictionaryColumn.NULL_CODE ? recipientAccountCode
+                    : identityAccountCode != DictionaryColumn.NULL_CODE ? identityAccountCode
+                    : issuerAccountCode;
+            if (accountCode != DictionaryColumn.NULL_CODE) {
+                accountIdColumn.setCode(row, accountCode);
+            }
+        }
+    }
+
+    private void write(EventColumn column, int row, JsonToken token) throws IOException {
+        switch (column.getType()) {
+            case LONG:
+                if (token == JsonToken.VALUE_STRING) {
+                    ((LongColumn) column).set(row, parseUtcMillis());
+                } else if (token == JsonToken.VALUE_NUMBER_INT) {
+                    ((LongColumn) column).set(row, jsonParser.getLongValue());
+                } else {
+                    jsonParser.skipChildren();
+                }
+                break;
+            case BOOLEAN:
+                if (token.isScalarValue()) {
+                    ((BooleanColumn) column).set(row, jsonParser.getValueAsBoolean());
+                } else {
+                    jsonParser.skipChildren();
+                }
+                break;
+            case DICTIONARY:
+                if (token.isScalarValue()) {
+                    ((DictionaryColumn) column).set(row, jsonParser.getTextCharacters(), jsonParser.getTextOffset(), jsonParser.getTextLength());
+                } else {
+                    ((DictionaryColumn) column).set(row, jsonParser.readValueAsTree().toString());
+                }
+                break;
+            default:
+                if (token.isScalarValue()) {
+                    ((StringColumn) column).set(row, jsonParser.getTextCharacters(), jsonParser.getTextOffset(), jsonParser.getTextLength());
+                } else {
+                    ((StringColumn) column).set(row, jsonParser.readValueAsTree().toString());
+                }
+                break;
+        }
+    }
+
+    /**
+     * Only looks for the account IDs of the user identity and of its session issuer, everything else is skipped.
+     */
+    private void readUserIdentity(DictionaryColumn accountIdColumn) throws IOException {
+        if (jsonParser.nextToken() != JsonToken.START_OBJECT) {
+            jsonParser.skipChildren();
+            return;
+        }
+        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+            String key = jsonParser.getCurrentName();
+            JsonToken token = jsonParser.nextToken();
+
+            if ("accountId".equals(key) && token == JsonToken.VALUE_STRING) {
+                identityAccountCode = encode(accountIdColumn);
+            } else if ("sessionContext".equals(key) && token == JsonToken.START_OBJECT) {
+                readSessionContext(accountIdColumn);
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+    }
+
+    private void readSessionContext(DictionaryColumn accountIdColumn) throws IOException {
+        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+            String key = jsonParser.getCurrentName();
+            JsonToken token = jsonParser.nextToken();
+
+            if ("sessionIssuer".equals(key) && token == JsonToken.START_OBJECT) {
+                while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+                    String issuerKey = jsonParser.getCurrentName();
+                    JsonToken issuerToken = jsonParser.nextToken();
+                    if ("accountId".equals(issuerKey) && issuerToken == JsonToken.VALUE_STRING) {
+                        issuerAccountCode = encode(accountIdColumn);
+                    } else {
+                        jsonParser.skipChildren();
+                    }
+                }
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+    }
+
+    private int encode(DictionaryColumn column) throws IOException {
+        return column.encode(jsonParser.getTextCharacters(), jsonParser.getTextOffset(), jsonParser.getTextLength());
+    }
+
+    /**
+     * Convert the current <code>yyyy-MM-dd'T'HH:mm:ss'Z'</code> value to milliseconds since the epoch. Values in any
+     * other shape go through the same date format as {@link AbstractEventSerializer}.
+     */
+    private long parseUtcMillis() throws IOException {
+        return parseUtcMillis(jsonParser);
+    }
+
+    /**
+     * Convert the current value of <code>jsonParser</code> to milliseconds since the epoch.
+     */
+    static long parseUtcMillis(JsonParser jsonParser) throws IOException {
+        char[] chars = jsonParser.getTextCharacters();
+        int offset = jsonParser.getTextOffset();
+        int length = jsonParser.getTextLength();
+
+        if (length == UTC_DATE_LENGTH
+                && chars[offset + 4] == '-' && chars[offset + 7] == '-' && chars[offset + 10] == 'T'
+                && chars[offset + 13] == ':' && chars[offset + 16] == ':' && chars[offset + 19] == 'Z') {
+            long millis = toMillis(digits(chars, offset, 4), digits(chars, offset + 5, 2), digits(chars, offset + 8, 2),
+                    digits(chars, offset + 11, 2), digits(chars, offset + 14, 2), digits(chars, offset + 17, 2));
+            if (millis != Long.MIN_VALUE) {
+                return millis;
+            }
+        }
+
+        String dateInString = jsonParser.getText();
+        try {
+            return LibraryUtils.getUtcSdf().parse(dateInString).getTime();
+        } catch (ParseException e) {
+            throw new IOException("Cannot parse " + dateInString + " as Date", e);
+        }
+    }
+
+    /**
+     * Convert a <code>yyyy-MM-dd'T'HH:mm:ss'Z'</code> value held as bytes to milliseconds since the epoch.
+     *
+     * @return the milliseconds, or {@link Long#MIN_VALUE} if the value has any other shape.
+     */
+    static long parseUtcMillis(byte[] bytes, int offset, int length) {
+        if (length == UTC_DATE_LENGTH
+                && bytes[offset + 4] == '-' && bytes[offset + 7] == '-' && bytes[offset + 10] == 'T'
+                && bytes[offset + 13] == ':' && bytes[offset + 16] == ':' && bytes[offset + 19] == 'Z') {
+            return toMillis(digits(bytes, offset, 4), digits(bytes, offset + 5, 2), digits(bytes, offset + 8, 2),
+                    digits(bytes, offset + 11, 2), digits(bytes, offset + 14, 2), digits(bytes, offset + 17, 2));
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * @return the milliseconds since the epoch of a UTC date, or {@link Long#MIN_VALUE} if a field is out of range.
+     */
+    private static long toMillis(int year, int month, int day, int hour, int minute, int second) {
+        if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= 31
+                && hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60) {
+            return ((LibraryUtils.daysFromCivil(year, month, day) * 24 + hour) * 60 + minute) * 60_000L + second * 1000L;
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * @return the decimal value of <code>count</code> digits, or -1 if one of them is not a digit.
+     */
+    private static int digits(byte[] bytes, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * @return the decimal value of <code>count</code> digits, or -1 if one of them is not a digit.
+     */
+    private static int digits(char[] chars, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Close the JSON parser object used to read the CloudTrail log.
+     *
+     * @throws IOException if the log could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        jsonParser.close();
+    }
+}
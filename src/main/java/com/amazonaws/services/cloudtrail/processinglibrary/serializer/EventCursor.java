@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEvent;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEventData;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.LogDeliveryInfo;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import com.fasterxml.jackson.core.JsonFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+/**
+ * A single mutable view over the events of a CloudTrail log, moved from one event to the next by {@link #next()}.
+ * <p>
+ * The cursor scans each event onto an {@link EventTape} that only ever holds the current event, and its accessors read
+ * values straight from the log bytes: <code>eventName</code>, <code>eventSource</code> and <code>awsRegion</code> are
+ * looked up in a dictionary so a <code>String</code> is only created the first time a value is seen in the log, and
+ * <code>eventTime</code> is converted to milliseconds in place. No object is created per event unless a value is
+ * decoded into a new <code>String</code> or the event is {@link #copy() copied}.
+ * </p>
+ * <p>
+ * The values read from the cursor are those a {@link CloudTrailEvent} of the same event would return. A value that
+ * cannot be decoded is reported with an {@link UncheckedIOException}. A cursor is not thread-safe.
+ * </p>
+ */
+public class EventCursor {
+    private static final int NO_EVENT = -1;
+
+    private final CloudTrailLog ctLog;
+    private final byte[] log;
+    private final EventTape tape;
+    private int event = NO_EVENT;
+
+    /**
+     * Open addressing table of the dictionary values, <code>null</code> for an empty slot.
+     */
+    private String[] dictionary = new String[64];
+    private int dictionarySize;
+
+    /**
+     * @param ctLog The CloudTrail Log needs to be read.
+     * @param logFileContent the decompressed content of the log.
+     * @param jsonFactory the factory of the parsers that decode values; it must have an object codec, like the factory
+     *     of an <code>ObjectMapper</code>.
+     * @throws IOException if the content is not a CloudTrail log.
+     */
+    public EventCursor(CloudTrailLog ctLog, byte[] logFileContent, JsonFactory jsonFactory) throws IOException {
+        this.ctLog = ctLog;
+        this.log = logFileContent;
+        this.tape = new EventTape(logFileContent, jsonFactory);
+    }
+
+    /**
+     * @return the {@link CloudTrailLog} being read.
+     */
+    public CloudTrailLog getLog() {
+        return ctLog;
+    }
+
+    /**
+     * Move the cursor to the next event of the log. Used by the library, which calls the processor once for each
+     * event the cursor is on.
+     *
+     * @return <code>true</code> if the cursor is on the next event, <code>false</code> at the end of the log.
+     * @throws IOException if the event is malformed.
+     */
+    public boolean next() throws IOException {
+        event = NO_EVENT;
+        if (!tape.hasNextEvent()) {
+            return false;
+        }
+        tape.discardEvents();
+        event = tape.nextEvent();
+        return true;
+    }
+
+    /**
+     * @param field a top-level {@link CloudTrailEventField}.
+     * @return <code>true</code> if the current event has <code>field</code>, even with a null value.
+     */
+    public boolean has(CloudTrailEventField field) {
+        return tape.findField(current(), field) >= 0;
+    }
+
+    /**
+     * @return the <code>eventName</code> of the current event, or <code>null</code> if it has none.
+     */
+    public String eventName() {
+        return dictionaryValue(CloudTrailEventField.eventName);
+    }
+
+    /**
+     * @return the <code>eventSource</code> of the current event, or <code>null</code> if it has none.
+     */
+    public String eventSource() {
+        return dictionaryValue(CloudTrailEventField.eventSource);
+    }
+
+    /**
+     * @return the <code>awsRegion</code> of the current event, or <code>null</code> if it has none.
+     */
+    public String awsRegion() {
+        return dictionaryValue(CloudTrailEventField.awsRegion);
+    }
+
+    /**
+     * @return the <code>eventTime</code> of the current event in milliseconds since the epoch, or
+     *     {@link Long#MIN_VALUE} if it has none.
+     */
+    public long eventTimeMillis() {
+        int entry = tape.findField(current(), CloudTrailEventField.eventTime);
+        if (entry < 0) {
+            return Long.MIN_VALUE;
+        }
+        int start = tape.getValueStart(entry);
+        int end = tape.getValueEnd(entry);
+        if (log[start] != '"') {
+            return Long.MIN_VALUE;
+        }
+
+        long millis = ColumnarEventSerializer.parseUtcMillis(log, start + 1, end - start - 2);
+        if (millis != Long.MIN_VALUE) {
+            return millis;
+        }
+        String dateInString = textValue(start, end, CloudTrailEventField.eventTime);
+        try {
+            return LibraryUtils.getUtcSdf().parse(dateInString).getTime();
+        } catch (ParseException e) {
+            throw new UncheckedIOException(new IOException("Cannot parse " + dateInString + " as Date", e));
+        }
+    }
+
+    /**
+     * @return the <code>arn</code> of the user identity of the current event, or <code>null</code> if it has none.
+     */
+    public String userArn() {
+        int entry = tape.findField(current(), CloudTrailEventField.userIdentity);
+        if (entry < 0) {
+            return null;
+        }
+        try {
+            int start = tape.findMember(tape.getValueStart(entry), CloudTrailEventField.arn.name());
+            if (start < 0 || log[start] != '"') {
+                return null;
+            }
+            return tape.textValue(start, tape.endOfValue(start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode " + CloudTrailEventField.userIdentity, e);
+        }
+    }
+
+    /**
+     * Decode the whole current event into a {@link CloudTrailEvent} that does not depend on the cursor, to keep it
+     * after the cursor has moved.
+     *
+     * @return the {@link CloudTrailEvent}.
+     */
+    public CloudTrailEvent copy() {
+        int event = current();
+        CloudTrailEventData eventData = new CloudTrailEventData();
+        try {
+            for (int i = 0; i < tape.getFieldCount(event); i++) {
+                tape.decodeField(tape.getField(event, i), eventData);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode event", e);
+        }
+        AbstractEventSerializer.setAccountId(eventData);
+        return new CloudTrailEvent(eventData, new LogDeliveryInfo(ctLog, -1, -1, null));
+    }
+
+    private int current() {
+        LibraryUtils.checkCondition(event == NO_EVENT, "The cursor is not on an event.");
+        return event;
+    }
+
+    private String dictionaryValue(CloudTrailEventField field) {
+        int entry = tape.findField(current(), field);
+        if (entry < 0) {
+            return null;
+        }
+        int start = tape.getValueStart(entry);
+        int end = tape.getValueEnd(entry);
+        if (log[start] == '"') {
+            String value = lookup(start + 1, end - 1);
+            if (value != null) {
+                return value;
+            }
+        }
+        return textValue(start, end, field);
+    }
+
+    private String textValue(int start, int end, CloudTrailEventField field) {
+        try {
+            return tape.textValue(start, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode " + field, e);
+        }
+    }
+
+    /**
+     * Find or add the ASCII text between <code>start</code> and <code>end</code> in the dictionary.
+     *
+     * @return the dictionary value, or <code>null</code> if the text has escapes or non-ASCII characters.
+     */
+    private String lookup(int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            byte b = log[i];
+            if (b < 0 || b == '\\') {
+                return null;
+            }
+            hash = 31 * hash + b;
+        }
+
+        int mask = dictionary.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            String value = dictionary[slot];
+            if (value == null) {
+                value = new String(log, start, end - start, StandardCharsets.US_ASCII);
+                dictionary[slot] = value;
+                if (++dictionarySize << 1 > dictionary.length) {
+                    rehash();
+                }
+                return value;
+            }
+            if (matches(value, start, end)) {
+                return value;
+            }
+        }
+    }
+
+    private boolean matches(String value, int start, int end) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != log[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Values are ASCII, so {@link String#hashCode()} is the hash of their bytes.
+     */
+    private void rehash() {
+        String[] newDictionary = new String[dictionary.length << 1];
+        int mask = newDictionary.length - 1;
+        for (String value : dictionary) {
+            if (value != null) {
+                int slot = mix(value.hashCode()) & mask;
+                while (newDictionary[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                newDictionary[slot] = value;
+            }
+        }
+        dictionary = newDictionary;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,751 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEventData;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEventMetadata;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailDataStore;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.DeferredValueSource;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Structural index of a decompressed CloudTrail log, read in a single pass and decoded only where it is read.
+ * <p>
+ * Scanning an event records, on an <code>int</code> tape shared by all events of the log, the byte offsets of the
+ * event and of the name and value of each of its top-level fields, along with the {@link CloudTrailEventField}
+ * ordinal of the name. Nothing is decoded while scanning: a value is only decoded from the log bytes when it is read,
+ * the same way {@link AbstractEventSerializer} decodes it, so an event read from the tape is equal to one parsed
+ * eagerly.
+ * </p>
+ * <p>
+ * Scanning only checks the structure the tape needs; a value that is not valid JSON is reported when it is decoded.
+ * The tape and the log bytes stay reachable as long as any event read from them, so events outliving their log keep
+ * the whole log in memory.
+ * </p>
+ * <p>
+ * A tape is not thread-safe. Its events share the tape and one decoder, so the events of a log must be read by one
+ * thread at a time, normally the thread that processes the log. An event that was compared, hashed, printed or viewed
+ * as a map has every field decoded and no longer reads the tape, so it can then be handed to another thread like any
+ * other event.
+ * </p>
+ */
+public class EventTape {
+    /* Layout of an event on the tape: a header followed by one entry per field. */
+    private static final int EVENT_START = 0;
+    private static final int EVENT_END = 1;
+    private static final int FIELD_COUNT = 2;
+    private static final int EVENT_HEADER = 3;
+
+    private static final int KEY_START = 0;
+    private static final int KEY_END = 1;
+    private static final int FIELD_ID = 2;
+    private static final int VALUE_START = 3;
+    private static final int VALUE_END = 4;
+    private static final int FIELD_ENTRY = 5;
+
+    private static final int UNKNOWN_FIELD = -1;
+
+    private static final String ACCOUNT_ID = CloudTrailEventField.accountId.name();
+    private static final byte[] RECORDS = CloudTrailEventField.Records.name().getBytes(StandardCharsets.US_ASCII);
+
+    private static final CloudTrailEventField[] FIELDS = CloudTrailEventField.values();
+    private static final byte[][] FIELD_NAMES = new byte[FIELDS.length][];
+
+    /**
+     * Open addressing table from the hash of a field name to its ordinal plus one.
+     */
+    private static final int[] FIELD_TABLE = new int[512];
+
+    static {
+        for (CloudTrailEventField field : FIELDS) {
+            byte[] name = field.name().getBytes(StandardCharsets.US_ASCII);
+            FIELD_NAMES[field.ordinal()] = name;
+            int slot = hash(name, 0, name.length) & (FIELD_TABLE.length - 1);
+            while (FIELD_TABLE[slot] != 0) {
+                slot = (slot + 1) & (FIELD_TABLE.length - 1);
+            }
+            FIELD_TABLE[slot] = field.ordinal() + 1;
+        }
+    }
+
+    private final byte[] log;
+    private final JsonFactory jsonFactory;
+    private int position;
+
+    private int[] tape = new int[1024];
+    private int tapeLength;
+    private boolean scanned;
+
+    /**
+     * Decodes the values that need a parser; created when first needed and reused for every value of the log.
+     */
+    private ValueDecoder decoder;
+
+    /**
+     * Create a tape over a CloudTrail log and read its header.
+     *
+     * @param log the decompressed content of the log.
+     * @param jsonFactory the factory of the parsers that decode values; it must have an object codec, like the
+     *     factory of an <code>ObjectMapper</code>.
+     * @throws IOException if the content is not a CloudTrail log.
+     */
+    public EventTape(byte[] log, JsonFactory jsonFactory) throws IOException {
+        this.log = log;
+        this.jsonFactory = jsonFactory;
+        readArrayHeader();
+    }
+
+    /**
+     * Indicates whether the log has more events to scan.
+     *
+     * @return <code>true</code> if {@link #nextEvent()} can scan another event.
+     * @throws IOException if the log is malformed.
+     */
+    public boolean hasNextEvent() throws IOException {
+        int p = skipWhitespace(position);
+        if (byteAt(p) == ',' && scanned) {
+            p = skipWhitespace(p + 1);
+        }
+        position = p;
+        byte b = byteAt(p);
+        if (b == ']') {
+            return false;
+        }
+        if (b != '{') {
+            throw malformed("an event", p);
+        }
+        return true;
+    }
+
+    /**
+     * Scan the next event onto the tape.
+     *
+     * @return the handle of the event, to read its fields with.
+     * @throws IOException if the event is malformed.
+     */
+    public int nextEvent() throws IOException {
+        int event = tapeLength;
+        ensureCapacity(EVENT_HEADER);
+        tapeLength += EVENT_HEADER;
+
+        int start = position;
+        int p = skipWhitespace(start + 1);
+        int fieldCount = 0;
+        if (byteAt(p) != '}') {
+            while (true) {
+                if (byteAt(p) != '"') {
+                    throw malformed("a field name", p);
+                }
+                int keyStart = p + 1;
+                p = skipString(p);
+                int keyEnd = p - 1;
+
+                p = skipWhitespace(p);
+                if (byteAt(p) != ':') {
+                    throw malformed("':'", p);
+                }
+                int valueStart = skipWhitespace(p + 1);
+                p = skipValue(valueStart);
+
+                ensureCapacity(FIELD_ENTRY);
+                int entry = tapeLength;
+                tape[entry + KEY_START] = keyStart;
+                tape[entry + KEY_END] = keyEnd;
+                tape[entry + FIELD_ID] = lookupField(keyStart, keyEnd);
+                tape[entry + VALUE_START] = valueStart;
+                tape[entry + VALUE_END] = p;
+                tapeLength += FIELD_ENTRY;
+                fieldCount++;
+
+                p = skipWhitespace(p);
+                if (byteAt(p) == ',') {
+                    p = skipWhitespace(p + 1);
+                } else if (byteAt(p) == '}') {
+                    break;
+                } else {
+                    throw malformed("',' or '}'", p);
+                }
+            }
+        }
+        position = p + 1;
+
+        tape[event + EVENT_START] = start;
+        tape[event + EVENT_END] = position;
+        tape[event + FIELD_COUNT] = fieldCount;
+        scanned = true;
+        return event;
+    }
+
+    /**
+     * Forget the events scanned so far, so a reader done with each event before scanning the next one keeps the tape
+     * at the size of a single event. The handles of the forgotten events, and the event data created from them, must
+     * not be used anymore.
+     */
+    void discardEvents() {
+        tapeLength = 0;
+    }
+
+    /**
+     * Create the event data of a scanned event, whose fields are decoded when they are first read.
+     *
+     * @param event the handle of the event.
+     * @return the {@link CloudTrailEventData}.
+     */
+    public CloudTrailEventData eventData(int event) {
+        return new CloudTrailEventData(new EventValues(event));
+    }
+
+    /**
+     * @return the decompressed content of the log.
+     */
+    public byte[] getLog() {
+        return log;
+    }
+
+    /**
+     * @param event the handle of an event.
+     * @return the offset of the first byte of the event in the log.
+     */
+    public int getEventStart(int event) {
+        return tape[event + EVENT_START];
+    }
+
+    /**
+     * @param event the handle of an event.
+     * @return the offset just past the last byte of the event in the log.
+     */
+    public int getEventEnd(int event) {
+        return tape[event + EVENT_END];
+    }
+
+    /**
+     * Find the entry of a field in an event. When a name occurs more than once, the last one counts, as when parsing.
+     *
+     * @param event the handle of the event.
+     * @param field the field to find.
+     * @return the entry of the field, or <code>-1</code> if the event does not have it.
+     */
+    public int findField(int event, CloudTrailEventField field) {
+        int[] tape = this.tape;
+        int found = -1;
+        int entry = event + EVENT_HEADER;
+        for (int i = 0; i < tape[event + FIELD_COUNT]; i++, entry += FIELD_ENTRY) {
+            if (tape[entry + FIELD_ID] == field.ordinal()) {
+                found = entry;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find the entry of a field in an event by name.
+     *
+     * @param event the handle of the event.
+     * @param key the name of the field.
+     * @return the entry of the field, or <code>-1</code> if the event does not have it.
+     * @throws IOException if the name of a field cannot be decoded.
+     */
+    public int findField(int event, String key) throws IOException {
+        CloudTrailEventField field = CloudTrailEventField.fromName(key);
+        if (field != null) {
+            return findField(event, field);
+        }
+        int[] tape = this.tape;
+        int found = -1;
+        int entry = event + EVENT_HEADER;
+        for (int i = 0; i < tape[event + FIELD_COUNT]; i++, entry += FIELD_ENTRY) {
+            if (tape[entry + FIELD_ID] == UNKNOWN_FIELD && fieldName(entry).equals(key)) {
+                found = entry;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param event the handle of an event.
+     * @return the number of fields of the event, including repeated names.
+     */
+    int getFieldCount(int event) {
+        return tape[event + FIELD_COUNT];
+    }
+
+    /**
+     * @param event the handle of an event.
+     * @param index the index of a field of the event, in log order.
+     * @return the entry of the field.
+     */
+    int getField(int event, int index) {
+        return event + EVENT_HEADER + index * FIELD_ENTRY;
+    }
+
+    /**
+     * @param entry the entry of a field.
+     * @return the offset of the first byte of the value of the field in the log.
+     */
+    int getValueStart(int entry) {
+        return tape[entry + VALUE_START];
+    }
+
+    /**
+     * @param entry the entry of a field.
+     * @return the offset just past the last byte of the value of the field in the log.
+     */
+    int getValueEnd(int entry) {
+        return tape[entry + VALUE_END];
+    }
+
+    /**
+     * Find a member of the JSON object starting at <code>start</code>. When a name occurs more than once, the last one
+     * counts.
+     *
+     * @param start the offset of the value, which does not have to be an object.
+     * @param name the name of the member.
+     * @return the offset of the value of the member, or <code>-1</code> if the value is not an object or does not have
+     *     the member.
+     * @throws IOException if the object is malformed.
+     */
+    int findMember(int start, String name) throws IOException {
+        if (byteAt(start) != '{') {
+            return -1;
+        }
+        int found = -1;
+        int p = skipWhitespace(start + 1);
+        if (byteAt(p) == '}') {
+            return found;
+        }
+        while (true) {
+            if (byteAt(p) != '"') {
+                throw malformed("a field name", p);
+            }
+            int keyStart = p;
+            p = skipString(p);
+            boolean matches = nameEquals(keyStart, p, name);
+
+            p = skipWhitespace(p);
+            if (byteAt(p) != ':') {
+                throw malformed("':'", p);
+            }
+            int valueStart = skipWhitespace(p + 1);
+            if (matches) {
+                found = valueStart;
+            }
+            p = skipWhitespace(skipValue(valueStart));
+            if (byteAt(p) == ',') {
+                p = skipWhitespace(p + 1);
+            } else if (byteAt(p) == '}') {
+                return found;
+            } else {
+                throw malformed("',' or '}'", p);
+            }
+        }
+    }
+
+    /**
+     * @param start the offset of a value.
+     * @return the offset just past the value.
+     * @throws IOException if the value is malformed.
+     */
+    int endOfValue(int start) throws IOException {
+        return skipValue(start);
+    }
+
+    /**
+     * Decode a value the way {@link AbstractEventSerializer} decodes the fields it keeps as text: strings as they are,
+     * other scalars as their text, objects and arrays as JSON.
+     *
+     * @param start the offset of the value.
+     * @param end the offset just past the value.
+     * @return the text of the value, or <code>null</code> for a JSON null.
+     * @throws IOException if the value cannot be decoded.
+     */
+    String textValue(int start, int end) throws IOException {
+        if (log[start] == '"') {
+            return decodeString(start, end);
+        }
+        if (isNull(start, end)) {
+            return null;
+        }
+        if (isLiteral(start, end)) {
+            return new String(log, start, end - start, StandardCharsets.US_ASCII);
+        }
+        try (JsonParser jsonParser = jsonFactory.createParser(log, start, end - start)) {
+            JsonToken token = jsonParser.nextToken();
+            if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) {
+                return jsonParser.readValueAsTree().toString();
+            }
+            return jsonParser.getValueAsString();
+        }
+    }
+
+    /**
+     * Get the name of a field.
+     *
+     * @param entry the entry of the field.
+     * @return the name of the field.
+     * @throws IOException if the name cannot be decoded.
+     */
+    public String fieldName(int entry) throws IOException {
+        int[] tape = this.tape;
+        int fieldId = tape[entry + FIELD_ID];
+        if (fieldId != UNKNOWN_FIELD) {
+            return FIELDS[fieldId].name();
+        }
+        return decodeString(tape[entry + KEY_START] - 1, tape[entry + KEY_END] + 1);
+    }
+
+    /**
+     * Decode the value of a field and add it to event data, as {@link AbstractEventSerializer} would.
+     *
+     * @param entry the entry of the field.
+     * @param eventData the {@link CloudTrailEventData} to add the value to.
+     * @throws IOException if the value cannot be decoded.
+     */
+    public void decodeField(int entry, CloudTrailEventData eventData) throws IOException {
+        int valueStart = tape[entry + VALUE_START];
+        int valueEnd = tape[entry + VALUE_END];
+        String key = fieldName(entry);
+        if (decoder == null) {
+            decoder = new ValueDecoder();
+        }
+
+        // strings without escapes, nulls, numbers and booleans need no parser
+        if (log[valueStart] == '"') {
+            if (!hasEscape(valueStart + 1, valueEnd - 1)) {
+                String text = new String(log, valueStart + 1, valueEnd - valueStart - 2, StandardCharsets.UTF_8);
+                if (decoder.parseScalarField(key, text, true, eventData)) {
+                    return;
+                }
+            }
+        } else if (isNull(valueStart, valueEnd)) {
+            if (decoder.parseScalarField(key, null, false, eventData)) {
+                return;
+            }
+        } else if (isLiteral(valueStart, valueEnd)) {
+            String text = new String(log, valueStart, valueEnd - valueStart, StandardCharsets.US_ASCII);
+            if (decoder.parseScalarField(key, text, false, eventData)) {
+                return;
+            }
+        }
+
+        try (JsonParser jsonParser = jsonFactory.createParser(log, valueStart, valueEnd - valueStart)) {
+            decoder.setJsonParser(jsonParser);
+            decoder.parseField(key, eventData);
+        } finally {
+            decoder.setJsonParser(null);
+        }
+    }
+
+    private void readArrayHeader() throws IOException {
+        int p = skipWhitespace(0);
+        if (byteAt(p) != '{') {
+            throw malformed("a Json object", p);
+        }
+        p = skipWhitespace(p + 1);
+        if (byteAt(p) != '"') {
+            throw malformed("Records", p);
+        }
+        int keyStart = p + 1;
+        p = skipString(p);
+        if (!Arrays.equals(Arrays.copyOfRange(log, keyStart, p - 1), RECORDS)) {
+            throw malformed("Records", keyStart);
+        }
+        p = skipWhitespace(p);
+        if (byteAt(p) != ':') {
+            throw malformed("':'", p);
+        }
+        p = skipWhitespace(p + 1);
+        if (byteAt(p) != '[') {
+            throw malformed("'['", p);
+        }
+        position = p + 1;
+    }
+
+    private int skipWhitespace(int p) {
+        while (p < log.length && (log[p] == ' ' || log[p] == '\n' || log[p] == '\r' || log[p] == '\t')) {
+            p++;
+        }
+        return p;
+    }
+
+    /**
+     * @return the offset just past the closing quote of the string starting at <code>p</code>.
+     */
+    private int skipString(int p) throws IOException {
+        for (p++; p < log.length; p++) {
+            if (log[p] == '\\') {
+                p++;
+            } else if (log[p] == '"') {
+                return p + 1;
+            }
+        }
+        throw malformed("the end of a string", p);
+    }
+
+    /**
+     * @return the offset just past the value starting at <code>p</code>.
+     */
+    private int skipValue(int p) throws IOException {
+        byte b = byteAt(p);
+        if (b == '"') {
+            return skipString(p);
+        }
+        if (b == '{' || b == '[') {
+            int depth = 0;
+            while (p < log.length) {
+                b = log[p];
+                if (b == '"') {
+                    p = skipString(p);
+                    continue;
+                }
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0) {
+                    return p + 1;
+                }
+                p++;
+            }
+            throw malformed("the end of a value", p);
+        }
+        int start = p;
+        while (p < log.length && b != ',' && b != '}' && b != ']' && b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+            b = ++p < log.length ? log[p] : 0;
+        }
+        if (p == start) {
+            throw malformed("a value", p);
+        }
+        return p;
+    }
+
+    private byte byteAt(int p) throws IOException {
+        if (p >= log.length) {
+            throw new IOException("Unexpected end of CloudTrail log at byte " + p + ".");
+        }
+        return log[p];
+    }
+
+    private IOException malformed(String expected, int p) {
+        return new IOException("Not a CloudTrail log: expected " + expected + " at byte " + p + ".");
+    }
+
+    private int lookupField(int start, int end) {
+        int slot = hash(log, start, end) & (FIELD_TABLE.length - 1);
+        for (int id = FIELD_TABLE[slot]; id != 0; slot = (slot + 1) & (FIELD_TABLE.length - 1), id = FIELD_TABLE[slot]) {
+            byte[] name = FIELD_NAMES[id - 1];
+            if (name.length == end - start && regionMatches(name, start)) {
+                return id - 1;
+            }
+        }
+        return UNKNOWN_FIELD;
+    }
+
+    private boolean regionMatches(byte[] name, int start) {
+        for (int i = 0; i < name.length; i++) {
+            if (log[start + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return whether the JSON string between <code>start</code>, its opening quote, and <code>end</code>, past its
+     *     closing quote, is <code>name</code>.
+     */
+    private boolean nameEquals(int start, int end, String name) throws IOException {
+        if (hasEscape(start + 1, end - 1)) {
+            return decodeString(start, end).equals(name);
+        }
+        if (end - start - 2 != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (log[start + 1 + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isNull(int start, int end) {
+        return end - start == 4 && log[start] == 'n' && log[start + 1] == 'u' && log[start + 2] == 'l' && log[start + 3] == 'l';
+    }
+
+    /**
+     * @return whether the value between <code>start</code> and <code>end</code> is a JSON boolean or number.
+     */
+    private boolean isLiteral(int start, int end) {
+        int length = end - start;
+        if (length == 4 && log[start] == 't') {
+            return log[start + 1] == 'r' && log[start + 2] == 'u' && log[start + 3] == 'e';
+        }
+        if (length == 5 && log[start] == 'f') {
+            return log[start + 1] == 'a' && log[start + 2] == 'l' && log[start + 3] == 's' && log[start + 4] == 'e';
+        }
+        // -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?
+        int p = start;
+        if (p < end && log[p] == '-') {
+            p++;
+        }
+        if (p < end && log[p] == '0') {
+            p++;
+        } else {
+            int digits = skipDigits(p, end);
+            if (digits == p) {
+                return false;
+            }
+            p = digits;
+        }
+        if (p < end && log[p] == '.') {
+            int digits = skipDigits(p + 1, end);
+            if (digits == p + 1) {
+                return false;
+            }
+            p = digits;
+        }
+        if (p < end && (log[p] == 'e' || log[p] == 'E')) {
+            p++;
+            if (p < end && (log[p] == '+' || log[p] == '-')) {
+                p++;
+            }
+            int digits = skipDigits(p, end);
+            if (digits == p) {
+                return false;
+            }
+            p = digits;
+        }
+        return p == end;
+    }
+
+    private int skipDigits(int p, int end) {
+        while (p < end && log[p] >= '0' && log[p] <= '9') {
+            p++;
+        }
+        return p;
+    }
+
+    private boolean hasEscape(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (log[i] == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decode the JSON string between <code>start</code>, its opening quote, and <code>end</code>, past its closing
+     * quote.
+     */
+    private String decodeString(int start, int end) throws IOException {
+        if (!hasEscape(start + 1, end - 1)) {
+            return new String(log, start + 1, end - start - 2, StandardCharsets.UTF_8);
+        }
+        try (JsonParser jsonParser = jsonFactory.createParser(log, start, end - start)) {
+            return jsonParser.nextTextValue();
+        }
+    }
+
+    private void ensureCapacity(int ints) {
+        if (tapeLength + ints > tape.length) {
+            tape = Arrays.copyOf(tape, Math.max(tape.length * 2, tapeLength + ints));
+        }
+    }
+
+    /**
+     * The fields of one event on the tape, decoded into its {@link CloudTrailEventData} as they are read.
+     * <code>accountId</code> is derived as by {@link AbstractEventSerializer}.
+     */
+    private class EventValues implements DeferredValueSource {
+        private final int event;
+
+        EventValues(int event) {
+            this.event = event;
+        }
+
+        @Override
+        public Collection<String> keys() {
+            int fieldCount = tape[event + FIELD_COUNT];
+            List<String> keys = new ArrayList<>(fieldCount + 1);
+            try {
+                int entry = event + EVENT_HEADER;
+                for (int i = 0; i < fieldCount; i++, entry += FIELD_ENTRY) {
+                    keys.add(fieldName(entry));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot decode a field name", e);
+            }
+            keys.add(ACCOUNT_ID);
+            return keys;
+        }
+
+        @Override
+        public boolean has(String key, CloudTrailDataStore store) {
+            try {
+                if (findField(event, key) >= 0) {
+                    return true;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot decode a field name", e);
+            }
+            return key.equals(ACCOUNT_ID) && AbstractEventSerializer.deriveAccountId((CloudTrailEventData) store) != null;
+        }
+
+        @Override
+        public void materialize(String key, CloudTrailDataStore store) throws IOException {
+            CloudTrailEventData eventData = (CloudTrailEventData) store;
+            int entry = findField(event, key);
+            if (entry >= 0) {
+                decodeField(entry, eventData);
+            }
+            if (key.equals(ACCOUNT_ID)) {
+                AbstractEventSerializer.setAccountId(eventData);
+            }
+        }
+    }
+
+    /**
+     * Decodes single values with the parsing rules of {@link AbstractEventSerializer}, from whichever parser is set.
+     */
+    private static class ValueDecoder extends AbstractEventSerializer {
+        ValueDecoder() throws IOException {
+            super(null);
+        }
+
+        @Override
+        public CloudTrailEventMetadata getMetadata(int charStart, int charEnd) {
+            return null;
+        }
+    }
+}
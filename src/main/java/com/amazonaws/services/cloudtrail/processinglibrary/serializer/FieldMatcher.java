@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Matches the field names of one kind of JSON object, such as a user identity, to {@link CloudTrailEventField}
+ * constants, so that parse methods switch on the field instead of on its name.
+ * <p>
+ * CloudTrail writes the fields of an object in much the same order in every event. For each field, the matcher
+ * remembers the field that followed it last time and asks the parser whether the next name is that one, with
+ * {@link JsonParser#nextFieldName(SerializableString)} and the name pre-encoded as a {@link SerializedString}. The
+ * parser then compares the raw bytes of the name in place, without decoding it or looking it up in its symbol table.
+ * Only a name that was not expected is read and looked up by value.
+ * </p>
+ * <p>
+ * The fields and their encoded names are shared by the copies of a matcher, but each copy learns the order on its own
+ * and is not thread-safe. Matchers are declared once, and each serializer uses its own copies.
+ * </p>
+ */
+final class FieldMatcher {
+    private final CloudTrailEventField[] fields;
+    private final SerializableString[] names;
+    private final Map<String, Integer> indexesByName;
+
+    /*
+     * The index of the field expected after each slot, or -1 if none is. Slot 0 is the start of the object, slot i + 1
+     * follows the field at index i, and the last slot follows an unknown name.
+     */
+    private final int[] expected;
+    private final int unknown;
+
+    private int previous;
+    private CloudTrailEventField field;
+    private String name;
+
+    /**
+     * Create a matcher for the given fields, whose names in the log are their constant names.
+     *
+     * @param fields the fields of the object, in the order CloudTrail usually writes them.
+     */
+    FieldMatcher(CloudTrailEventField... fields) {
+        this.fields = fields.clone();
+        this.names = new SerializableString[fields.length];
+        this.indexesByName = new HashMap<>();
+        this.expected = new int[fields.length + 2];
+        this.unknown = fields.length + 1;
+        for (int i = 0; i < fields.length; i++) {
+            names[i] = new SerializedString(fields[i].name());
+            indexesByName.put(fields[i].name(), i);
+            expected[i] = i;
+        }
+        expected[fields.length] = -1;
+        expected[unknown] = -1;
+    }
+
+    private FieldMatcher(FieldMatcher matcher) {
+        this.fields = matcher.fields;
+        this.names = matcher.names;
+        this.indexesByName = matcher.indexesByName;
+        this.expected = matcher.expected.clone();
+        this.unknown = matcher.unknown;
+    }
+
+    /**
+     * Match a field under a name other than its constant name.
+     *
+     * @param field one of the fields of this matcher.
+     * @param name the name of the field in the log.
+     * @return this matcher.
+     */
+    FieldMatcher withName(CloudTrailEventField field, String name) {
+        int index = Arrays.asList(fields).indexOf(field);
+        indexesByName.remove(names[index].getValue());
+        names[index] = new SerializedString(name);
+        indexesByName.put(name, index);
+        return this;
+    }
+
+    /**
+     * @return a matcher of the same fields, for one serializer, that has not learned any order yet.
+     */
+    FieldMatcher copy() {
+        return new FieldMatcher(this);
+    }
+
+    /**
+     * Advance the parser to the next field of the object, like {@link JsonParser#nextToken()}.
+     *
+     * @param jsonParser the parser, positioned on the start of the object or on the last token of a field.
+     * @return <code>true</code> if the parser is on the next field; <code>false</code> at the end of the object.
+     * @throws IOException if the log could not be parsed.
+     */
+    boolean nextField(JsonParser jsonParser) throws IOException {
+        int predicted = expected[previous];
+        if (predicted >= 0) {
+            if (jsonParser.nextFieldName(names[predicted])) {
+                field = fields[predicted];
+                name = names[predicted].getValue();
+                previous = predicted + 1;
+                return true;
+            }
+        } else {
+            jsonParser.nextToken();
+        }
+
+        if (jsonParser.currentToken() == JsonToken.END_OBJECT) {
+            previous = 0;
+            return false;
+        }
+
+        // like the parse loops, a value left unread is looked up by the name of its field
+        name = jsonParser.getCurrentName();
+        Integer index = indexesByName.get(name);
+        if (index == null) {
+            field = null;
+            previous = unknown;
+        } else {
+            field = fields[index];
+            expected[previous] = index;
+            previous = index + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Look up a field by its name in the log.
+     *
+     * @param name the name of the field.
+     * @return the field, or <code>null</code> if this matcher does not match that name.
+     */
+    CloudTrailEventField field(String name) {
+        Integer index = indexesByName.get(name);
+        return index == null ? null : fields[index];
+    }
+
+    /**
+     * @return the field the parser is on, or <code>null</code> if this matcher does not match its name.
+     */
+    CloudTrailEventField field() {
+        return field;
+    }
+
+    /**
+     * @return the name of the field the parser is on, as it appears in the log.
+     */
+    String name() {
+        return name;
+    }
+}
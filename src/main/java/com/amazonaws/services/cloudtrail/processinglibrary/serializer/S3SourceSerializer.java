@@ -16,6 +16,7 @@ package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
 
 import com.amazonaws.services.cloudtrail.processinglibrary.factory.SourceSerializerFactory;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLogKey;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.SQSBasedSource;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.SourceAttributeKeys;
@@ -29,7 +30,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The <code>S3SourceSerializer</code> extracts CloudTrail log file information from notifications sent directly
@@ -38,6 +41,8 @@ import java.util.List;
 public class S3SourceSerializer implements SourceSerializer {
     private static final JsonPointer S3_BUCKET_NAME = JsonPointer.compile("/s3/bucket/name");
     private static final JsonPointer S3_OBJECT_KEY = JsonPointer.compile("/s3/object/key");
+    private static final JsonPointer S3_OBJECT_ETAG = JsonPointer.compile("/s3/object/eTag");
+    private static final JsonPointer S3_OBJECT_SIZE = JsonPointer.compile("/s3/object/size");
     private static final String RECORDS = "Records";
     private static final String EVENT_NAME = "eventName";
 
@@ -58,26 +63,27 @@ public class S3SourceSerializer implements SourceSerializer {
     public CloudTrailSource getCloudTrailSource(Message sqsMessage, JsonNode s3MessageNode) throws IOException {
         JsonNode s3RecordsNode = s3MessageNode.get(RECORDS);
         List<CloudTrailLog> cloudTrailLogs = new ArrayList<>();
+        Map<String, String> attributes = new HashMap<>();
 
-        sqsMessage = addCloudTrailLogsAndMessageAttributes(sqsMessage, s3RecordsNode, cloudTrailLogs);
+        addCloudTrailLogsAndMessageAttributes(sqsMessage, attributes, s3RecordsNode, cloudTrailLogs);
 
-        return new SQSBasedSource(sqsMessage, cloudTrailLogs);
+        return new SQSBasedSource(sqsMessage, cloudTrailLogs, attributes);
     }
 
 
     /**
      * As long as there is at least one CloudTrail log object:
      * <p>
-     *     <li>Add the CloudTrail log object key to the list.</li>
-     *     <li>Add <code>accountId</code> extracted from log object key to <code>sqsMessage</code>.</li>
-     *     <li>Add {@link SourceType#CloudTrailLog} to the <code>sqsMessage</code>.</li>
+     *     <li>Add the CloudTrail log object key, with its ETag and size when present, to the list.</li>
+     *     <li>Add <code>accountId</code> extracted from log object key to the source <code>attributes</code>.</li>
+     *     <li>Add {@link SourceType#CloudTrailLog} to the source <code>attributes</code>.</li>
      * </p>
      *
      * If there is no CloudTrail log object and it is a valid S3 message, CPL adds only {@link SourceType#Other}
-     * to the <code>sqsMessage</code>.
+     * to the source <code>attributes</code>.
      *
      */
-    private Message addCloudTrailLogsAndMessageAttributes(Message sqsMessage, JsonNode s3RecordsNode, List<CloudTrailLog> cloudTrailLogs) {
+    private void addCloudTrailLogsAndMessageAttributes(Message sqsMessage, Map<String, String> attributes, JsonNode s3RecordsNode, List<CloudTrailLog> cloudTrailLogs) {
         SourceType sourceType = SourceType.Other;
 
         for (JsonNode s3Record: s3RecordsNode) {
@@ -85,17 +91,17 @@ public class S3SourceSerializer implements SourceSerializer {
             String objectKey = s3Record.at(S3_OBJECT_KEY).textValue();
             String eventName = s3Record.get(EVENT_NAME).textValue();
 
-            SourceType currSourceType = sourceIdentifier.identifyWithEventName(objectKey, eventName);
-            if (currSourceType == SourceType.CloudTrailLog) {
-                cloudTrailLogs.add(new CloudTrailLog(bucketName, objectKey));
-                sourceType = currSourceType;
-                sqsMessage = LibraryUtils.setMessageAccountId(sqsMessage, objectKey);
+            CloudTrailLogKey logKey = sourceIdentifier.parseWithEventName(objectKey, eventName);
+            if (logKey != null) {
+                CloudTrailLog ctLog = new CloudTrailLog(bucketName, objectKey, logKey);
+                ctLog.setETag(s3Record.at(S3_OBJECT_ETAG).textValue());
+                ctLog.setLogFileSize(s3Record.at(S3_OBJECT_SIZE).asLong());
+                cloudTrailLogs.add(ctLog);
+                sourceType = SourceType.CloudTrailLog;
+                LibraryUtils.addAccountIdAttribute(attributes, sqsMessage, ctLog);
             }
         }
 
-        java.util.Map<String, String> updatedAttributes = new java.util.HashMap<>(sqsMessage.attributesAsStrings());
-        updatedAttributes.put(SourceAttributeKeys.SOURCE_TYPE.getAttributeKey(), sourceType.name());
-        sqsMessage = sqsMessage.toBuilder().attributesWithStrings(updatedAttributes).build();
-        return sqsMessage;
+        attributes.put(SourceAttributeKeys.SOURCE_TYPE.getAttributeKey(), sourceType.name());
     }
 }
@@ -17,29 +17,54 @@ package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
 import com.amazonaws.services.cloudtrail.processinglibrary.factory.SourceSerializerFactory;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
 import software.amazon.awssdk.services.sqs.model.Message;
-import com.fasterxml.jackson.core.JsonProcessingException;
 
 import java.io.IOException;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 
 
 /**
  * {@link SourceSerializer} implementation that chains together multiple source serializers. When a caller passes {@link Message}
- * to this serializer, it calls all the serializers in the chain, in the original order specified, until one can parse
- * and return  {@link CloudTrailSource}. If all source serializers in the chain are called, and they cannot successfully
- * parse the message, then this class throws an {@link IOException} that indicates that no sources are available.
+ * to this serializer, it calls the serializers in the chain until one can parse and return {@link CloudTrailSource}.
+ * If all source serializers in the chain are called, and they cannot successfully parse the message, then this class
+ * throws an {@link IOException} that indicates that no sources are available.
 
  * <p>
- *     This class remembers the first source serializer in the chain that can successfully parse messages, and will
- *     continue to use that serializer when there are future messages.
+ *     This class keeps a hit count for every source serializer in the chain and probes them in the order of observed
+ *     frequency, falling back to the original order for serializers with equal counts. Queues that mix notification
+ *     formats therefore settle on the most common format first instead of thrashing on a single remembered serializer.
+ *     The counters are lock-free, so a single chain can be shared by all readers when <code>numOfParallelReaders</code>
+ *     is greater than one.
+ * </p>
+ * <p>
+ *     A message is a <i>hit</i> when the first serializer probed is able to parse it, and a <i>miss</i> otherwise.
+ *     Use {@link #getHitCount()}, {@link #getMissCount()} and {@link #getHitRatio()} to monitor how well the probe order
+ *     matches the queue.
  * </p>
  */
 public class SourceSerializerChain implements SourceSerializer {
 
-    private final List<SourceSerializer> sourceSerializers;
+    /**
+     * Once a serializer reaches this many hits, all counts are halved so that the probe order keeps adapting when the
+     * mix of notification formats in the queue changes.
+     */
+    private static final long DECAY_THRESHOLD = 1L << 20;
 
-    private SourceSerializer lastUsedSourceSerializer;
+    private final SourceSerializer[] sourceSerializers;
+
+    /**
+     * Number of messages successfully parsed by each serializer, indexed like <code>sourceSerializers</code>.
+     */
+    private final AtomicLongArray hitCounts;
+
+    /**
+     * Serializer indexes ordered by descending hit count. Replaced, never mutated, so readers can use it without locking.
+     */
+    private volatile int[] probeOrder;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
 
 
     /**
@@ -48,8 +73,8 @@ public class SourceSerializerChain implements SourceSerializer {
      * Use {@link SourceSerializerFactory#createSourceSerializerChain()} for default construction.
      * </p>
      * <p>
-     * When source are required from this serializer, it will call each of these source serializers in the same order
-     * specified here until one of them return {@link CloudTrailSource}.
+     * Until hit counts are collected, source serializers are called in the same order specified here until one of
+     * them return {@link CloudTrailSource}.
      * </p>
      *
      * @param sourceSerializers A list of at least one {@link SourceSerializer} implementation instance.
@@ -58,7 +83,14 @@ public class SourceSerializerChain implements SourceSerializer {
         if (sourceSerializers == null || sourceSerializers.isEmpty() || sourceSerializers.contains(null)) {
             throw new IllegalArgumentException("No source serializer specified or contains null serializers.");
         }
-        this.sourceSerializers = new LinkedList<>(sourceSerializers);
+        this.sourceSerializers = sourceSerializers.toArray(new SourceSerializer[0]);
+        this.hitCounts = new AtomicLongArray(this.sourceSerializers.length);
+
+        int[] initialOrder = new int[this.sourceSerializers.length];
+        for (int i = 0; i < initialOrder.length; i++) {
+            initialOrder[i] = i;
+        }
+        this.probeOrder = initialOrder;
     }
 
     /**
@@ -67,27 +99,88 @@ public class SourceSerializerChain implements SourceSerializer {
     @Override
     public CloudTrailSource getSource(Message sqsMessage) throws IOException {
         ExceptionChain exceptionChain = new ExceptionChain();
+        int[] order = probeOrder;
 
-        if (lastUsedSourceSerializer != null) {
-            CloudTrailSource source = getCloudTrailSource(sqsMessage, lastUsedSourceSerializer, exceptionChain);
+        for (int i = 0; i < order.length; i++) {
+            int index = order[i];
+            CloudTrailSource source = getCloudTrailSource(sqsMessage, sourceSerializers[index], exceptionChain);
             if (source != null) {
+                recordHit(index, i == 0);
                 return source;
             }
         }
 
-        for (SourceSerializer serializer: sourceSerializers) {
-            // already tried lastUsedSourceSerializer, so skip it and move on
-            if (serializer == lastUsedSourceSerializer) {
-                continue;
-            }
-            CloudTrailSource source = getCloudTrailSource(sqsMessage, serializer, exceptionChain);
-            if (source != null) {
-                lastUsedSourceSerializer = serializer;
-                return source;
+        misses.increment();
+        throw exceptionChain.throwOut();
+    }
+
+    /**
+     * @return the number of messages parsed by the first serializer probed.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of messages that could not be parsed by the first serializer probed, including messages
+     *     that no serializer in the chain could parse.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the ratio of hits to all parsed messages, or <code>0</code> if no message has been parsed yet.
+     */
+    public double getHitRatio() {
+        long hitCount = getHitCount();
+        long total = hitCount + getMissCount();
+        return total == 0 ? 0d : (double) hitCount / total;
+    }
+
+    private void recordHit(int index, boolean firstProbe) {
+        if (firstProbe) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+
+        if (hitCounts.incrementAndGet(index) >= DECAY_THRESHOLD) {
+            for (int i = 0; i < hitCounts.length(); i++) {
+                hitCounts.getAndUpdate(i, count -> count >>> 1);
             }
         }
 
-        throw exceptionChain.throwOut();
+        // Only a miss can change which serializer should be probed first, so keep the hit path free of reordering.
+        if (!firstProbe) {
+            probeOrder = computeProbeOrder();
+        }
+    }
+
+    /**
+     * Sort serializer indexes by descending hit count. Insertion sort is stable, so serializers with equal counts keep
+     * the order in which they were passed to the constructor.
+     */
+    private int[] computeProbeOrder() {
+        int size = sourceSerializers.length;
+        long[] counts = new long[size];
+        int[] order = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            counts[i] = hitCounts.get(i);
+            order[i] = i;
+        }
+
+        for (int i = 1; i < size; i++) {
+            int current = order[i];
+            int j = i - 1;
+            while (j >= 0 && counts[order[j]] < counts[current]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+        return order;
     }
 
     private CloudTrailSource getCloudTrailSource(Message sqsMessage, SourceSerializer serializer, ExceptionChain exceptionChain) throws IOException {
@@ -101,19 +194,26 @@ public class SourceSerializerChain implements SourceSerializer {
 
     /**
      * The exception will provide information why every chained serializer failed to parse the message.
+     * <p>
+     * The exception is only created once a serializer fails, so messages parsed by the first serializer probed do not
+     * pay for capturing a stack trace.
+     * </p>
      */
     private class ExceptionChain {
         IOException exception;
 
-        ExceptionChain() {
-            exception =  new IOException("Unable to parse the message from any source serializers in the chain.");
-        }
-
         void addSuppressedException(Exception e) {
-            exception.addSuppressed(e);
+            getException().addSuppressed(e);
         }
 
         IOException throwOut() {
+            return getException();
+        }
+
+        private IOException getException() {
+            if (exception == null) {
+                exception = new IOException("Unable to parse the message from any source serializers in the chain.");
+            }
             return exception;
         }
     }
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEvent;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.LogDeliveryInfo;
+import com.fasterxml.jackson.core.JsonFactory;
+
+import java.io.IOException;
+
+/**
+ * Event serializer that reads events from an {@link EventTape} instead of parsing them.
+ * <p>
+ * Each event only records where its fields are in the log; the {@link CloudTrailEvent}'s
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEventData} decodes a field the first time
+ * its getter is called, so processors that read a few fields of each event do not pay for the others. A value that
+ * cannot be decoded is reported by its getter with an {@link java.io.UncheckedIOException} rather than by
+ * {@link #getNextEvent()}. The events of a log must be read by one thread at a time, as {@link EventTape} explains.
+ * </p>
+ */
+public class TapeEventSerializer implements EventSerializer {
+    private final CloudTrailLog ctLog;
+    private final EventTape tape;
+
+    /**
+     * @param ctLog The CloudTrail Log needs to be read.
+     * @param logFileContent the decompressed content of the log.
+     * @param jsonFactory the factory of the parsers that decode values; it must have an object codec, like the factory
+     *     of an <code>ObjectMapper</code>.
+     * @throws IOException if the content is not a CloudTrail log.
+     */
+    public TapeEventSerializer(CloudTrailLog ctLog, byte[] logFileContent, JsonFactory jsonFactory) throws IOException {
+        this.ctLog = ctLog;
+        this.tape = new EventTape(logFileContent, jsonFactory);
+    }
+
+    @Override
+    public boolean hasNextEvent() throws IOException {
+        return tape.hasNextEvent();
+    }
+
+    @Override
+    public CloudTrailEvent getNextEvent() throws IOException {
+        int event = tape.nextEvent();
+        return new CloudTrailEvent(tape.eventData(event), new LogDeliveryInfo(ctLog, -1, -1, null));
+    }
+
+    /**
+     * Nothing to close: the events keep reading from the log content.
+     */
+    @Override
+    public void close() {
+    }
+}
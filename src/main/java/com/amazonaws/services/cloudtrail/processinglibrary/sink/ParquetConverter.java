@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.sink;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Converts a durable segment of gzip compressed JSON Lines into a Parquet file.
+ * <p>
+ * The Parquet file is written under a hidden in-progress name, forced to disk and moved to its final name before the
+ * segment is deleted, so a crash at any point leaves either the segment or the published file. Converting the same
+ * segment twice replaces the file published the first time.
+ * </p>
+ */
+class ParquetConverter {
+    static final String PARQUET_SUFFIX = ".parquet";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ObjectMapper mapper;
+
+    ParquetConverter(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Convert a segment to a Parquet file next to it and delete the segment.
+     *
+     * @param segment a rolled segment, see {@link RollingFile}.
+     * @return the number of events written.
+     */
+    long convert(Path segment) throws IOException {
+        String fileName = RollingFile.fileName(segment);
+        Path target = segment.resolveSibling(fileName + PARQUET_SUFFIX);
+        Path inProgress = segment.resolveSibling(RollingFile.IN_PROGRESS_PREFIX + fileName + PARQUET_SUFFIX
+                + RollingFile.IN_PROGRESS_SUFFIX);
+
+        long count = 0;
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(segment), BUFFER_SIZE), BUFFER_SIZE);
+             MappingIterator<JsonNode> events = mapper.readerFor(JsonNode.class).readValues(in);
+             ParquetWriter<JsonNode> writer = new Builder(new ChannelOutputFile(inProgress))
+                     .withConf(new Configuration(false))
+                     .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                     .withCompressionCodec(CompressionCodecName.SNAPPY)
+                     .withDictionaryEncoding(true)
+                     .build()) {
+            while (events.hasNextValue()) {
+                writer.write(events.nextValue());
+                count++;
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(inProgress);
+            throw e;
+        }
+
+        RollingFile.publish(inProgress, target);
+        Files.delete(segment);
+        return count;
+    }
+
+    /**
+     * Whether the name is the name of a Parquet file left in progress by an interrupted conversion.
+     */
+    static boolean isInProgress(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(RollingFile.IN_PROGRESS_PREFIX)
+                && name.endsWith(PARQUET_SUFFIX + RollingFile.IN_PROGRESS_SUFFIX);
+    }
+
+    private static final class Builder extends ParquetWriter.Builder<JsonNode, Builder> {
+
+        Builder(OutputFile file) {
+            super(file);
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<JsonNode> getWriteSupport(Configuration configuration) {
+            return new ParquetEventWriteSupport();
+        }
+    }
+
+    /**
+     * A local file written through a {@link FileChannel} that is forced to disk when the stream is closed.
+     */
+    private static final class ChannelOutputFile implements OutputFile {
+        private final Path path;
+
+        ChannelOutputFile(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) throws IOException {
+            return new ChannelOutputStream(FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) throws IOException {
+            return new ChannelOutputStream(FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+
+        @Override
+        public String getPath() {
+            return path.toString();
+        }
+    }
+
+    /**
+     * A buffered stream that forces the file to disk before closing it.
+     */
+    private static final class ChannelOutputStream extends PositionOutputStream {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long position;
+
+        ChannelOutputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public long getPos() {
+            return position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+            buffer.put((byte) b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length > buffer.remaining()) {
+                flushBuffer();
+                if (length > buffer.capacity()) {
+                    writeFully(ByteBuffer.wrap(bytes, offset, length));
+                    position += length;
+                    return;
+                }
+            }
+            buffer.put(bytes, offset, length);
+            position += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!channel.isOpen()) {
+                return;
+            }
+            try {
+                flushBuffer();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.sink;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.arrow.CloudTrailRecordSchema;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes CloudTrail events, held as JSON trees, as Parquet records.
+ * <p>
+ * The schema is the one of {@link CloudTrailRecordSchema}: <code>eventTime</code> is a UTC timestamp in milliseconds,
+ * <code>readOnly</code> and <code>managementEvent</code> are booleans, <code>userIdentity</code> is a group holding
+ * the <code>sessionIssuer</code>, <code>resources</code> is a list of groups and every other field is a string, with
+ * nested documents such as <code>requestParameters</code> kept as JSON text. Fields that are not in the schema are
+ * dropped. <code>accountId</code> is derived the same way as by the event serializers.
+ * </p>
+ */
+class ParquetEventWriteSupport extends WriteSupport<JsonNode> {
+    private static final String ACCOUNT_ID = "accountId";
+    private static final String RECIPIENT_ACCOUNT_ID = "recipientAccountId";
+    private static final String LIST = "list";
+    private static final String ELEMENT = "element";
+
+    static final MessageType SCHEMA = Types.buildMessage()
+            .addField(Types.optional(PrimitiveType.PrimitiveTypeName.INT64)
+                    .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MILLIS))
+                    .named(CloudTrailRecordSchema.EVENT_TIME))
+            .addField(Types.optional(PrimitiveType.PrimitiveTypeName.BOOLEAN).named(CloudTrailRecordSchema.READ_ONLY))
+            .addField(Types.optional(PrimitiveType.PrimitiveTypeName.BOOLEAN).named(CloudTrailRecordSchema.MANAGEMENT_EVENT))
+            .addFields(strings(CloudTrailRecordSchema.UTF8_FIELDS))
+            .addField(Types.buildGroup(Type.Repetition.OPTIONAL)
+                    .addFields(strings(CloudTrailRecordSchema.USER_IDENTITY_FIELDS))
+                    .addField(Types.buildGroup(Type.Repetition.OPTIONAL)
+                            .addField(Types.buildGroup(Type.Repetition.OPTIONAL)
+                                    .addFields(strings(CloudTrailRecordSchema.SESSION_ISSUER_FIELDS))
+                                    .named(CloudTrailRecordSchema.SESSION_ISSUER))
+                            .named(CloudTrailRecordSchema.SESSION_CONTEXT))
+                    .named(CloudTrailRecordSchema.USER_IDENTITY))
+            .addField(Types.buildGroup(Type.Repetition.OPTIONAL)
+                    .as(LogicalTypeAnnotation.listType())
+                    .addField(Types.buildGroup(Type.Repetition.REPEATED)
+                            .addField(Types.buildGroup(Type.Repetition.OPTIONAL)
+                                    .addFields(strings(CloudTrailRecordSchema.RESOURCE_FIELDS))
+                                    .named(ELEMENT))
+                            .named(LIST))
+                    .named(CloudTrailRecordSchema.RESOURCES))
+            .named("cloudtrail");
+
+    private RecordConsumer consumer;
+
+    @Override
+    public WriteContext init(Configuration configuration) {
+        return new WriteContext(SCHEMA, Collections.<String, String>emptyMap());
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.consumer = recordConsumer;
+    }
+
+    @Override
+    public void write(JsonNode event) {
+        if (event instanceof ObjectNode && !event.hasNonNull(ACCOUNT_ID)) {
+            String accountId = deriveAccountId(event);
+            if (accountId != null) {
+                ((ObjectNode) event).put(ACCOUNT_ID, accountId);
+            }
+        }
+        consumer.startMessage();
+        writeFields(SCHEMA, event);
+        consumer.endMessage();
+    }
+
+    /**
+     * The account ID from <code>recipientAccountId</code>, the user identity, or the session issuer, in that order.
+     */
+    private static String deriveAccountId(JsonNode event) {
+        if (event.hasNonNull(RECIPIENT_ACCOUNT_ID)) {
+            return event.get(RECIPIENT_ACCOUNT_ID).asText();
+        }
+        JsonNode userIdentity = event.path(CloudTrailRecordSchema.USER_IDENTITY);
+        if (userIdentity.hasNonNull(ACCOUNT_ID)) {
+            return userIdentity.get(ACCOUNT_ID).asText();
+        }
+        JsonNode sessionIssuer = userIdentity.path(CloudTrailRecordSchema.SESSION_CONTEXT).path(CloudTrailRecordSchema.SESSION_ISSUER);
+        return sessionIssuer.hasNonNull(ACCOUNT_ID) ? sessionIssuer.get(ACCOUNT_ID).asText() : null;
+    }
+
+    private void writeFields(GroupType type, JsonNode node) {
+        for (int index = 0; index < type.getFieldCount(); index++) {
+            Type field = type.getType(index);
+            JsonNode value = node.get(field.getName());
+            if (value == null || value.isNull()) {
+                continue;
+            }
+            if (field.isPrimitive()) {
+                writePrimitive(field.asPrimitiveType(), index, value);
+            } else if (field.getLogicalTypeAnnotation() instanceof LogicalTypeAnnotation.ListLogicalTypeAnnotation) {
+                writeList(field.asGroupType(), index, value);
+            } else if (value.isObject()) {
+                consumer.startField(field.getName(), index);
+                consumer.startGroup();
+                writeFields(field.asGroupType(), value);
+                consumer.endGroup();
+                consumer.endField(field.getName(), index);
+            }
+        }
+    }
+
+    private void writePrimitive(PrimitiveType field, int index, JsonNode value) {
+        switch (field.getPrimitiveTypeName()) {
+            case INT64:
+                if (!value.isTextual()) {
+                    return;
+                }
+                long millis;
+                try {
+                    millis = LibraryUtils.getUtcSdf().parse(value.asText()).getTime();
+                } catch (ParseException e) {
+                    return;
+                }
+                consumer.startField(field.getName(), index);
+                consumer.addLong(millis);
+                consumer.endField(field.getName(), index);
+                break;
+            case BOOLEAN:
+                if (!value.isValueNode()) {
+                    return;
+                }
+                consumer.startField(field.getName(), index);
+                consumer.addBoolean(value.asBoolean());
+                consumer.endField(field.getName(), index);
+                break;
+            default:
+                consumer.startField(field.getName(), index);
+                consumer.addBinary(Binary.fromString(value.isValueNode() ? value.asText() : value.toString()));
+                consumer.endField(field.getName(), index);
+                break;
+        }
+    }
+
+    /**
+     * Write a JSON array in the three-level list layout of the Parquet format.
+     */
+    private void writeList(GroupType field, int index, JsonNode value) {
+        if (!value.isArray()) {
+            return;
+        }
+        GroupType element = field.getType(0).asGroupType().getType(0).asGroupType();
+
+        consumer.startField(field.getName(), index);
+        consumer.startGroup();
+        if (value.size() > 0) {
+            consumer.startField(LIST, 0);
+            for (JsonNode item : value) {
+                consumer.startGroup();
+                if (item.isObject()) {
+                    consumer.startField(ELEMENT, 0);
+                    consumer.startGroup();
+                    writeFields(element, item);
+                    consumer.endGroup();
+                    consumer.endField(ELEMENT, 0);
+                }
+                consumer.endGroup();
+            }
+            consumer.endField(LIST, 0);
+        }
+        consumer.endGroup();
+        consumer.endField(field.getName(), index);
+    }
+
+    private static Type[] strings(List<String> names) {
+        Type[] fields = new Type[names.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = Types.optional(PrimitiveType.PrimitiveTypeName.BINARY)
+                    .as(LogicalTypeAnnotation.stringType())
+                    .named(names.get(i));
+        }
+        return fields;
+    }
+}
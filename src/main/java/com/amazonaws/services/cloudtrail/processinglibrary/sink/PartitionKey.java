@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.sink;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEventData;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+/**
+ * The Hive-style partition an event is written to: <code>account=&lt;id&gt;/region=&lt;region&gt;/date=&lt;yyyy-MM-dd&gt;</code>.
+ * <p>
+ * Missing values map to {@link #DEFAULT_PARTITION}, the name Hive and Amazon Athena use for null partition values.
+ * Characters other than letters, digits, <code>.</code>, <code>_</code> and <code>-</code> are replaced with
+ * <code>_</code> so a value can never escape its directory.
+ * </p>
+ */
+public final class PartitionKey {
+    /**
+     * Partition value used when the event has no value for a partition column.
+     */
+    public static final String DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
+
+    private final String accountId;
+    private final String region;
+    private final String date;
+
+    /**
+     * Creates a partition key.
+     *
+     * @param accountId the AWS account ID, may be <code>null</code>.
+     * @param region the AWS region, may be <code>null</code>.
+     * @param date the event date as <code>yyyy-MM-dd</code>, may be <code>null</code>.
+     */
+    public PartitionKey(String accountId, String region, String date) {
+        this.accountId = sanitize(accountId);
+        this.region = sanitize(region);
+        this.date = sanitize(date);
+    }
+
+    /**
+     * Creates the partition key of an event from its account ID, AWS region and the UTC date of its event time.
+     *
+     * @param eventData the {@link CloudTrailEventData} to partition.
+     * @return the {@link PartitionKey} of the event.
+     */
+    public static PartitionKey of(CloudTrailEventData eventData) {
+        Date eventTime = eventData.getEventTime();
+        String date = eventTime == null ? null : Instant.ofEpochMilli(eventTime.getTime()).atOffset(ZoneOffset.UTC).toLocalDate().toString();
+        return new PartitionKey(eventData.getAccountId(), eventData.getAwsRegion(), date);
+    }
+
+    /**
+     * @return the account partition value.
+     */
+    public String getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * @return the region partition value.
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * @return the date partition value.
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * @return the directory of this partition, relative to the root of the sink.
+     */
+    public String getPath() {
+        return "account=" + accountId + "/region=" + region + "/date=" + date;
+    }
+
+    private static String sanitize(String value) {
+        if (value == null || value.isEmpty()) {
+            return DEFAULT_PARTITION;
+        }
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '.' || c == '_' || c == '-')) {
+                chars[i] = '_';
+            }
+        }
+        String sanitized = new String(chars);
+        return sanitized.equals(".") || sanitized.equals("..") ? DEFAULT_PARTITION : sanitized;
+    }
+
+    @Override
+    public String toString() {
+        return getPath();
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + accountId.hashCode();
+        result = prime * result + region.hashCode();
+        result = prime * result + date.hashCode();
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        PartitionKey other = (PartitionKey) obj;
+        return accountId.equals(other.accountId) && region.equals(other.region) && date.equals(other.date);
+    }
+}
@@ -0,0 +1,569 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.sink;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.CallbackException;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.EventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEvent;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEventData;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEventMetadata;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.LogDeliveryInfo;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailDataStore;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An {@link EventsProcessor} that archives events to a local directory as Parquet files, partitioned Hive-style by
+ * account, region and event date (see {@link PartitionKey}), so the directory can be synced to Amazon S3 and queried
+ * with Amazon Athena or any other engine that understands Hive partitions. Files are written with dictionary
+ * encoding and Snappy compression, in the schema described by {@link ParquetEventWriteSupport}.
+ * <p>
+ * This sink needs <code>org.apache.parquet:parquet-hadoop</code> and <code>org.apache.hadoop:hadoop-common</code>,
+ * optional dependencies of the library.
+ * </p>
+ * <p>
+ * A Parquet file cannot be made durable a few events at a time, so events first go to a hidden segment of gzip
+ * compressed JSON Lines per partition. Each call to {@link #process(List)} serializes and compresses its events on
+ * the calling thread, then hands them to a single background writer thread. The writer appends them to the open
+ * segment of each partition and forces the segments to disk, committing the batches of all threads waiting at that
+ * moment with one <code>fsync</code> per segment. <code>process</code> only returns once its events are durable and
+ * throws a {@link CallbackException} otherwise, so the SQS message of a log file is deleted only after all of its
+ * events reached the disk. For this guarantee
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.configuration.ProcessingConfiguration#isDeleteMessageUponFailure()}
+ * must be <code>false</code>.
+ * </p>
+ * <p>
+ * Segments are rolled when they reach the maximum file size or age, then converted to a Parquet file by a background
+ * converter thread, which publishes the file and deletes the segment. Segments left by a crash are cut after their
+ * last durable batch and converted when the next sink is built on the same directory. Delivery is at-least-once: a
+ * batch that was written but not acknowledged is written again when its message is redelivered.
+ * </p>
+ * <p>
+ * When raw event info is enabled, the raw event text from the log file is written to the segment as is; otherwise
+ * the parsed event data is written. Either way, fields outside the schema are dropped by the conversion.
+ * </p>
+ */
+public class PartitionedEventSink implements EventsProcessor, Closeable {
+    private static final Log logger = LogFactory.getLog(PartitionedEventSink.class);
+
+    /**
+     * Default compressed size a segment is rolled at: 128 MiB.
+     */
+    public static final long DEFAULT_MAX_FILE_BYTES = 128L * 1024 * 1024;
+
+    /**
+     * Default age a segment is rolled at: 15 minutes.
+     */
+    public static final long DEFAULT_MAX_FILE_AGE_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * Default number of batches waiting for the writer before {@link #process(List)} blocks.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final long maxFileAgeMillis;
+    private final ObjectMapper mapper;
+    private final ParquetConverter converter;
+    private final ExecutorService converterThread;
+    private final String fileNamePrefix;
+    private final AtomicLong fileSequence = new AtomicLong();
+    private final AtomicLong committedFileCount = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private final BlockingQueue<WriteRequest> queue;
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+    /** Set once the writer thread exits, after which nothing would take new batches off the queue. */
+    private volatile boolean writerStopped;
+    private final Thread writer;
+
+    /** Open files by partition, only accessed by the writer thread. */
+    private final Map<PartitionKey, RollingFile> openFiles = new HashMap<>();
+
+    private PartitionedEventSink(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.maxFileBytes = builder.maxFileBytes;
+        this.maxFileAgeMillis = builder.maxFileAgeMillis;
+        this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+        this.fileNamePrefix = "part-" + UUID.randomUUID().toString().replace("-", "").substring(0, 16) + "-";
+        this.mapper = createMapper();
+        this.converter = new ParquetConverter(mapper);
+        this.converterThread = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "cloudtrail-partitioned-sink-converter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Files.createDirectories(directory);
+        recover();
+
+        this.writer = new Thread(this::runWriter, "cloudtrail-partitioned-sink-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Writes the events to their partitions and returns once they are durable.
+     *
+     * @param events list of {@link CloudTrailEvent}.
+     * @throws CallbackException if the events could not be made durable, or the sink is closed.
+     */
+    @Override
+    public void process(List<CloudTrailEvent> events) throws CallbackException {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        WriteRequest request;
+        try {
+            request = new WriteRequest(encode(events));
+        } catch (IOException e) {
+            throw new CallbackException("Failed to serialize events.", e, null);
+        }
+
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new CallbackException("PartitionedEventSink is closed.", null);
+            }
+            if (writerStopped) {
+                throw new CallbackException("PartitionedEventSink writer stopped after a failure.", null);
+            }
+            queue.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CallbackException("Interrupted while waiting for the writer.", e, null);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+
+        try {
+            request.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CallbackException("Interrupted while waiting for events to become durable.", e, null);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new CallbackException("Failed to write events to " + directory + ".",
+                    cause instanceof Exception ? (Exception) cause : e, null);
+        }
+    }
+
+    /**
+     * Stops accepting events, commits the waiting batches and publishes all open segments as Parquet files.
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            writer.join();
+            converterThread.shutdown();
+            converterThread.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the root directory of the sink.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the number of Parquet files published by this sink.
+     */
+    public long getCommittedFileCount() {
+        return committedFileCount.get();
+    }
+
+    /**
+     * @return the number of compressed segment bytes made durable by this sink.
+     */
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * Serialize the events as one gzip member per partition.
+     */
+    private Map<PartitionKey, byte[]> encode(List<CloudTrailEvent> events) throws IOException {
+        Map<PartitionKey, List<CloudTrailEvent>> partitions = new HashMap<>();
+        for (CloudTrailEvent event : events) {
+            partitions.computeIfAbsent(PartitionKey.of(event.getEventData()), k -> new ArrayList<>()).add(event);
+        }
+
+        Map<PartitionKey, byte[]> members = new HashMap<>(partitions.size() * 2);
+        for (Map.Entry<PartitionKey, List<CloudTrailEvent>> partition : partitions.entrySet()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(512 * partition.getValue().size());
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(new GZIPOutputStream(bytes, 8192))) {
+                generator.setRootValueSeparator(null);
+                for (CloudTrailEvent event : partition.getValue()) {
+                    String rawEvent = getRawEvent(event.getEventMetadata());
+                    if (rawEvent != null) {
+                        generator.writeRaw(rawEvent);
+                    } else {
+                        mapper.writeValue(generator, event.getEventData());
+                    }
+                    generator.writeRaw('\n');
+                }
+            }
+            members.put(partition.getKey(), bytes.toByteArray());
+        }
+        return members;
+    }
+
+    /**
+     * The raw event text, if it is available and fits on a single line.
+     */
+    private static String getRawEvent(CloudTrailEventMetadata metadata) {
+        if (metadata instanceof LogDeliveryInfo) {
+            String rawEvent = ((LogDeliveryInfo) metadata).getRawEvent();
+            if (rawEvent != null && rawEvent.indexOf('\n') < 0 && rawEvent.indexOf('\r') < 0) {
+                return rawEvent;
+            }
+        }
+        return null;
+    }
+
+    private void runWriter() {
+        List<WriteRequest> group = new ArrayList<>();
+        long pollMillis = Math.max(1, Math.min(1000, maxFileAgeMillis));
+        try {
+            while (true) {
+                WriteRequest request = queue.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (request != null) {
+                    group.add(request);
+                    queue.drainTo(group);
+                    commit(group);
+                    group.clear();
+                } else if (closed && queue.isEmpty()) {
+                    break;
+                }
+                rollExpired(System.currentTimeMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("PartitionedEventSink writer failed, no more events are accepted.", e);
+        } finally {
+            try {
+                rollAll();
+            } finally {
+                stopWriter(group);
+            }
+        }
+    }
+
+    /**
+     * Stop accepting batches and fail every batch the writer will not commit: the group it was committing when it
+     * failed, and any still waiting. Callers already past the {@link #writerStopped} check may be blocked on a full
+     * queue while holding the read lock, so keep draining until the write lock is acquired.
+     */
+    private void stopWriter(List<WriteRequest> group) {
+        writerStopped = true;
+        IOException stopped = new IOException("PartitionedEventSink writer stopped.");
+        for (WriteRequest request : group) {
+            request.result.completeExceptionally(stopped);
+        }
+        boolean interrupted = Thread.interrupted();
+        boolean locked = false;
+        try {
+            while (!locked) {
+                failWaiting(stopped);
+                try {
+                    locked = closeLock.writeLock().tryLock(10, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            failWaiting(stopped);
+        } finally {
+            if (locked) {
+                closeLock.writeLock().unlock();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void failWaiting(IOException stopped) {
+        WriteRequest request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(stopped);
+        }
+    }
+
+    /**
+     * Append a group of batches and force each file they touched once.
+     */
+    private void commit(List<WriteRequest> group) {
+        long now = System.currentTimeMillis();
+        Map<RollingFile, Boolean> touched = new IdentityHashMap<>();
+        long bytes = 0;
+        try {
+            for (WriteRequest request : group) {
+                for (Map.Entry<PartitionKey, byte[]> member : request.members.entrySet()) {
+                    RollingFile file = openFiles.get(member.getKey());
+                    if (file == null) {
+                        file = new RollingFile(directory.resolve(member.getKey().getPath()), nextFileName(), now);
+                        openFiles.put(member.getKey(), file);
+                    }
+                    file.append(member.getValue());
+                    touched.put(file, Boolean.TRUE);
+                    bytes += member.getValue().length;
+                }
+            }
+            for (RollingFile file : touched.keySet()) {
+                file.force();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to write events to " + directory + ".", e);
+            // The state of the touched files is unknown: leave them in progress, they are recovered on the next start.
+            for (Iterator<RollingFile> iterator = openFiles.values().iterator(); iterator.hasNext(); ) {
+                RollingFile file = iterator.next();
+                if (touched.containsKey(file)) {
+                    file.abandon();
+                    iterator.remove();
+                }
+            }
+            for (WriteRequest request : group) {
+                request.result.completeExceptionally(e);
+            }
+            return;
+        }
+
+        bytesWritten.addAndGet(bytes);
+        for (WriteRequest request : group) {
+            request.result.complete(null);
+        }
+        for (Iterator<RollingFile> iterator = openFiles.values().iterator(); iterator.hasNext(); ) {
+            RollingFile file = iterator.next();
+            if (file.getSize() >= maxFileBytes) {
+                roll(file);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void rollExpired(long now) {
+        for (Iterator<RollingFile> iterator = openFiles.values().iterator(); iterator.hasNext(); ) {
+            RollingFile file = iterator.next();
+            if (now - file.getOpenedAt() >= maxFileAgeMillis) {
+                roll(file);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void rollAll() {
+        for (RollingFile file : openFiles.values()) {
+            roll(file);
+        }
+        openFiles.clear();
+    }
+
+    /**
+     * Close a segment and queue it for conversion. Its data is already durable, so a failure only delays publishing
+     * until the next start.
+     */
+    private void roll(RollingFile file) {
+        try {
+            Path segment = file.roll();
+            if (segment != null) {
+                convert(segment);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to roll a file in " + directory + ", it will be recovered on the next start.", e);
+            file.abandon();
+        }
+    }
+
+    /**
+     * Convert a closed segment to a Parquet file on the converter thread.
+     */
+    private void convert(Path segment) {
+        converterThread.execute(() -> {
+            try {
+                long events = converter.convert(segment);
+                committedFileCount.incrementAndGet();
+                logger.debug("Published " + events + " events from " + segment + ".");
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to convert " + segment + ", it will be converted again on the next start.", e);
+            }
+        });
+    }
+
+    private String nextFileName() {
+        return fileNamePrefix + String.format("%06d", fileSequence.incrementAndGet());
+    }
+
+    /**
+     * Convert the segments a previous run left, and drop the Parquet files it did not finish writing.
+     */
+    private void recover() throws IOException {
+        List<Path> leftOver;
+        try (Stream<Path> files = Files.walk(directory)) {
+            leftOver = files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (Path file : leftOver) {
+            if (ParquetConverter.isInProgress(file)) {
+                Files.delete(file);
+            } else if (RollingFile.isSegment(file)) {
+                long recovered = RollingFile.recover(file);
+                logger.info("Recovered " + recovered + " bytes from " + file + ".");
+                if (recovered > 0) {
+                    convert(file);
+                }
+            }
+        }
+    }
+
+    private static ObjectMapper createMapper() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(CloudTrailDataStore.class, new JsonSerializer<CloudTrailDataStore>() {
+            @Override
+            public void serialize(CloudTrailDataStore value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                provider.defaultSerializeValue(value.asMap(), generator);
+            }
+        });
+
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(module);
+        mapper.setDateFormat(dateFormat);
+        mapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return mapper;
+    }
+
+    /**
+     * The encoded events of one {@link #process(List)} call.
+     */
+    private static final class WriteRequest {
+        final Map<PartitionKey, byte[]> members;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        WriteRequest(Map<PartitionKey, byte[]> members) {
+            this.members = members;
+        }
+    }
+
+    /**
+     * Builder for {@link PartitionedEventSink}.
+     */
+    public static class Builder {
+        private final Path directory;
+        private long maxFileBytes = DEFAULT_MAX_FILE_BYTES;
+        private long maxFileAgeMillis = DEFAULT_MAX_FILE_AGE_MILLIS;
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+        /**
+         * Builder for {@link PartitionedEventSink}.
+         *
+         * @param directory the root directory of the partitions.
+         */
+        public Builder(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * @param maxFileBytes the compressed size a segment is rolled and converted to a Parquet file at.
+         * @return This <code>Builder</code> instance.
+         */
+        public Builder withMaxFileBytes(long maxFileBytes) {
+            this.maxFileBytes = maxFileBytes;
+            return this;
+        }
+
+        /**
+         * @param maxFileAgeMillis the age in milliseconds a segment is rolled at, even if it did not reach its maximum size.
+         * @return This <code>Builder</code> instance.
+         */
+        public Builder withMaxFileAgeMillis(long maxFileAgeMillis) {
+            this.maxFileAgeMillis = maxFileAgeMillis;
+            return this;
+        }
+
+        /**
+         * @param queueCapacity the number of batches waiting for the writer before {@link PartitionedEventSink#process(List)} blocks.
+         * @return This <code>Builder</code> instance.
+         */
+        public Builder withQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Build a {@link PartitionedEventSink}, converting any segments a previous sink left in the directory.
+         *
+         * @return a new {@link PartitionedEventSink} with its writer thread started.
+         * @throws IOException if the directory cannot be created or recovered.
+         */
+        public PartitionedEventSink build() throws IOException {
+            LibraryUtils.checkArgumentNotNull(directory, "Sink directory is null.");
+            LibraryUtils.checkCondition(maxFileBytes <= 0, "Maximum file size must be positive.");
+            LibraryUtils.checkCondition(maxFileAgeMillis <= 0, "Maximum file age must be positive.");
+            LibraryUtils.checkCondition(queueCapacity <= 0, "Queue capacity must be positive.");
+            return new PartitionedEventSink(this);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.sink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A segment of a partition that is being appended to, in gzip compressed JSON Lines.
+ * <p>
+ * The segment is written under a hidden name, so readers of the sink directory never see it. Data is appended as
+ * whole gzip members; a concatenation of gzip members is itself a valid gzip file, so every member that has been
+ * forced to disk is readable. A rolled segment is converted to the published file by {@link ParquetConverter}.
+ * </p>
+ */
+class RollingFile {
+    static final String IN_PROGRESS_PREFIX = ".";
+    static final String IN_PROGRESS_SUFFIX = ".inprogress";
+    static final String SEGMENT_SUFFIX = ".jsonl.gz" + IN_PROGRESS_SUFFIX;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path inProgressPath;
+    private final FileChannel channel;
+    private final long openedAt;
+    private long size;
+    private boolean dirty;
+
+    RollingFile(Path directory, String fileName, long now) throws IOException {
+        Files.createDirectories(directory);
+        this.inProgressPath = directory.resolve(IN_PROGRESS_PREFIX + fileName + SEGMENT_SUFFIX);
+        this.channel = FileChannel.open(inProgressPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.openedAt = now;
+        syncDirectory(directory);
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getOpenedAt() {
+        return openedAt;
+    }
+
+    /**
+     * Append a complete gzip member. The data is durable only after {@link #force()}.
+     */
+    void append(byte[] member) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(member);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        size += member.length;
+        dirty = true;
+    }
+
+    void force() throws IOException {
+        if (dirty) {
+            channel.force(false);
+            dirty = false;
+        }
+    }
+
+    /**
+     * Force and close the segment.
+     *
+     * @return the segment, or <code>null</code> if it was empty and has been deleted.
+     */
+    Path roll() throws IOException {
+        force();
+        channel.close();
+        if (size == 0) {
+            Files.delete(inProgressPath);
+            return null;
+        }
+        return inProgressPath;
+    }
+
+    /**
+     * Close the file without publishing it, after a failed write. It is recovered on the next start.
+     */
+    void abandon() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the file is recovered from whatever reached the disk
+        }
+    }
+
+    /**
+     * Whether the name is the name of a segment.
+     */
+    static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(IN_PROGRESS_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    /**
+     * The file name a segment was created with.
+     */
+    static String fileName(Path segment) {
+        String name = segment.getFileName().toString();
+        return name.substring(IN_PROGRESS_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+    }
+
+    /**
+     * Recover a segment left by a previous run: cut it after its last complete gzip member, or delete it if there is
+     * none.
+     *
+     * @return the number of bytes kept.
+     */
+    static long recover(Path inProgress) throws IOException {
+        long validLength;
+        try (InputStream in = Files.newInputStream(inProgress)) {
+            validLength = validLength(in);
+        }
+        if (validLength == 0) {
+            Files.delete(inProgress);
+            return 0;
+        }
+        try (FileChannel fileChannel = FileChannel.open(inProgress, StandardOpenOption.WRITE)) {
+            if (fileChannel.size() > validLength) {
+                fileChannel.truncate(validLength);
+            }
+            fileChannel.force(true);
+        }
+        return validLength;
+    }
+
+    /**
+     * The length of the prefix of the stream made of complete gzip members with a matching CRC-32, as written by
+     * {@link java.util.zip.GZIPOutputStream}.
+     */
+    static long validLength(InputStream input) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(input, BUFFER_SIZE);
+        byte[] header = new byte[10];
+        byte[] trailer = new byte[8];
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] output = new byte[BUFFER_SIZE];
+        Inflater inflater = new Inflater(true);
+        CRC32 crc = new CRC32();
+        long validLength = 0;
+        try {
+            while (readFully(in, header) == header.length
+                    && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b && header[2] == 8 && header[3] == 0) {
+                inflater.reset();
+                crc.reset();
+                int lastRead = 0;
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        lastRead = in.read(buffer);
+                        if (lastRead < 0) {
+                            return validLength;
+                        }
+                        inflater.setInput(buffer, 0, lastRead);
+                    }
+                    int inflated = inflater.inflate(output);
+                    crc.update(output, 0, inflated);
+                    if (inflater.needsDictionary()) {
+                        return validLength;
+                    }
+                }
+                int remaining = inflater.getRemaining();
+                if (remaining > 0) {
+                    in.unread(buffer, lastRead - remaining, remaining);
+                }
+                if (readFully(in, trailer) < trailer.length
+                        || readIntLE(trailer, 0) != (int) crc.getValue()
+                        || readIntLE(trailer, 4) != (int) inflater.getBytesWritten()) {
+                    return validLength;
+                }
+                validLength += header.length + inflater.getBytesRead() + trailer.length;
+            }
+            return validLength;
+
+        } catch (DataFormatException e) {
+            return validLength;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] bytes) throws IOException {
+        int total = 0;
+        while (total < bytes.length) {
+            int read = in.read(bytes, total, bytes.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static int readIntLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8 | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Move a file that is durable to its final name and make the move durable.
+     */
+    static void publish(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        }
+        syncDirectory(target.getParent());
+    }
+
+    /**
+     * Make a file creation or rename durable. Not every platform can open a directory, in which case this is a no-op.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            // directories cannot be synced on this platform
+        }
+    }
+}
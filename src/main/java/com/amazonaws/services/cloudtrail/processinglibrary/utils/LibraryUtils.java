@@ -18,7 +18,12 @@ package com.amazonaws.services.cloudtrail.processinglibrary.utils;
 import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.ProcessingLibraryException;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ExceptionHandler;
 import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.SelectiveProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.SQSBasedSource;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.SourceAttributeKeys;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState;
 import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStatus;
 import software.amazon.awssdk.services.sqs.model.Message;
 
@@ -27,6 +32,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
 
 /**
@@ -149,7 +155,10 @@ public class LibraryUtils {
      * @param sqsMessage The SQS message.
      * @param s3ObjectKey The S3 object key.
      * @return The updated SQS message with account ID attribute, or the original message if unchanged.
+     * @deprecated Rebuilds the immutable message for every call; serializers record the account ID with
+     *     {@link #addAccountIdAttribute(Map, Message, CloudTrailLog)} instead.
      */
+    @Deprecated
     public static Message setMessageAccountId(Message sqsMessage, String s3ObjectKey) {
         if (!sqsMessage.attributesAsStrings().containsKey(SourceAttributeKeys.ACCOUNT_ID.getAttributeKey())) {
             String accountId = extractAccountIdFromObjectKey(s3ObjectKey);
@@ -162,6 +171,37 @@ public class LibraryUtils {
         return sqsMessage;
     }
 
+    /**
+     * Get the account ID of a CloudTrail log, from its parsed {@link CloudTrailLog#getLogKey()} when available.
+     *
+     * @param ctLog The CloudTrail log.
+     * @return the account ID used to access the log.
+     */
+    public static String extractAccountId(CloudTrailLog ctLog) {
+        if (ctLog.getLogKey() != null) {
+            return ctLog.getLogKey().getAccountId();
+        }
+        return extractAccountIdFromObjectKey(ctLog.getS3ObjectKey());
+    }
+
+    /**
+     * Add the account ID attribute to <code>attributes</code> if neither the <code>sqsMessage</code> nor
+     * <code>attributes</code> has one yet.
+     *
+     * @param attributes The attributes derived by the library for the source built from <code>sqsMessage</code>.
+     * @param sqsMessage The SQS message.
+     * @param ctLog The CloudTrail log found in <code>sqsMessage</code>.
+     */
+    public static void addAccountIdAttribute(Map<String, String> attributes, Message sqsMessage, CloudTrailLog ctLog) {
+        String accountIdKey = SourceAttributeKeys.ACCOUNT_ID.getAttributeKey();
+        if (!attributes.containsKey(accountIdKey) && !sqsMessage.attributesAsStrings().containsKey(accountIdKey)) {
+            String accountId = extractAccountId(ctLog);
+            if (accountId != null) {
+                attributes.put(accountIdKey, accountId);
+            }
+        }
+    }
+
     /**
      * A wrapper function of handling exceptions that have a known root cause, such as {@link software.amazon.awssdk.core.exception.SdkServiceException}.
      * @param exceptionHandler the {@link ExceptionHandler} to handle exceptions.
@@ -185,14 +225,72 @@ public class LibraryUtils {
         exceptionHandler.handleException(exception);
     }
 
+    /**
+     * Check whether the action about to start should be reported to <code>progressReporter</code>.
+     * @param progressReporter the {@link ProgressReporter} to report to.
+     * @param progressState the {@link ProgressState} of the action.
+     * @return <code>false</code> only if <code>progressReporter</code> is a {@link SelectiveProgressReporter} that
+     * does not want the action reported.
+     */
+    public static boolean isReportable(ProgressReporter progressReporter, ProgressState progressState) {
+        return !(progressReporter instanceof SelectiveProgressReporter)
+                || ((SelectiveProgressReporter) progressReporter).isReportable(progressState);
+    }
+
+    /**
+     * Check whether an action about a message or a log should be reported to <code>progressReporter</code>.
+     * @param progressReporter the {@link ProgressReporter} to report to.
+     * @param progressState the {@link ProgressState} of the action.
+     * @param sqsMessage the SQS message the action is about, or <code>null</code>.
+     * @param ctLog the {@link CloudTrailLog} the action is about, or <code>null</code>.
+     * @return <code>false</code> only if <code>progressReporter</code> is a {@link SelectiveProgressReporter} that
+     * does not want the action reported.
+     */
+    public static boolean isReportable(ProgressReporter progressReporter, ProgressState progressState, Message sqsMessage, CloudTrailLog ctLog) {
+        return !(progressReporter instanceof SelectiveProgressReporter)
+                || ((SelectiveProgressReporter) progressReporter).isReportable(progressState, sqsMessage, ctLog);
+    }
+
+    /**
+     * Check whether an action about a source or one of its logs should be reported to <code>progressReporter</code>.
+     * @param progressReporter the {@link ProgressReporter} to report to.
+     * @param progressState the {@link ProgressState} of the action.
+     * @param source the {@link CloudTrailSource} the action is about.
+     * @param ctLog the {@link CloudTrailLog} the action is about, or <code>null</code> for an action about the whole
+     * source.
+     * @return <code>false</code> only if <code>progressReporter</code> is a {@link SelectiveProgressReporter} that
+     * does not want the action reported.
+     */
+    public static boolean isReportable(ProgressReporter progressReporter, ProgressState progressState, CloudTrailSource source, CloudTrailLog ctLog) {
+        Message sqsMessage = source instanceof SQSBasedSource ? ((SQSBasedSource) source).getSqsMessage() : null;
+        return isReportable(progressReporter, progressState, sqsMessage, ctLog);
+    }
+
+    /**
+     * A wrapper function of reporting the start of the processing.
+     * @param progressReporter the {@link ProgressReporter} to report the start of process.
+     * @param progressStatus the current progress status {@link ProgressStatus}, <code>null</code> if the action is not reported.
+     * @return the object returned by {@link ProgressReporter#reportStart(ProgressStatus)}, or <code>null</code> if
+     * the action is not reported.
+     */
+    public static Object startToProcess(ProgressReporter progressReporter, ProgressStatus progressStatus) {
+        if (progressStatus == null) {
+            return null;
+        }
+        return progressReporter.reportStart(progressStatus);
+    }
+
     /**
      * A wrapper function of reporting the result of the processing.
      * @param progressReporter the {@link ProgressReporter} to report the end of process.
      * @param processSuccess the result of process.
-     * @param progressStatus the current progress status {@link ProgressStatus}.
+     * @param progressStatus the current progress status {@link ProgressStatus}, <code>null</code> if the action is not reported.
      * @param reportObject the object to send, usually the object returned by {@link ProgressReporter#reportStart(ProgressStatus)}.
      */
     public static void endToProcess(ProgressReporter progressReporter, boolean processSuccess, ProgressStatus progressStatus, Object reportObject) {
+        if (progressStatus == null) {
+            return;
+        }
         progressStatus.getProgressInfo().setIsSuccess(processSuccess);
         progressReporter.reportEnd(progressStatus, reportObject);
     }
@@ -219,4 +317,22 @@ public class LibraryUtils {
     public static SimpleDateFormat getUtcSdf() {
         return utcSdf.get();
     }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date, computed without a calendar. Days past the end of the month
+     * roll over to the next one.
+     *
+     * @param year the year.
+     * @param month the month, from 1 to 12.
+     * @param day the day of the month.
+     * @return the number of days since the epoch, negative before it.
+     */
+    public static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
 }
@@ -15,10 +15,9 @@
 
 package com.amazonaws.services.cloudtrail.processinglibrary.utils;
 
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLogKey;
 import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.SourceType;
 
-import java.util.regex.Pattern;
-
 /**
  * Identify the source type by checking the given source string and event name if applied. Specifically,
  * the <code>source</code> is usually the S3 object key and <code>eventName</code> defined by Amazon S3.
@@ -27,13 +26,26 @@ import java.util.regex.Pattern;
 public class SourceIdentifier {
     private static final String CREATE_EVENT_PREFIX = "ObjectCreated:";
 
-    /**
-     * Regex for the name format of CloudTrail log file objects that deliver to AWS S3 bucket:
+    /*
+     * The name format of CloudTrail log file objects that deliver to AWS S3 bucket:
      * AccountID_CloudTrail_RegionName_YYYYMMDDTHHmmZ_UniqueString.FileNameFormat
      *
-     * We need this regex to filter out non-CloudTrail log files as it is possible that S3 send other object notifications
+     * It is the language of the regex .+_CloudTrail_[\w\-]+_\d{8}T\d{4}Z_[\w]+\.json\.gz, which we used to match
+     * against every object key. The leading .+ made the regex backtrack on long keys, so keys are now classified by
+     * the hand-written scanner in parse(String), which accepts exactly the same keys in time linear to the key length.
+     *
+     * We need this to filter out non-CloudTrail log files as it is possible that S3 send other object notifications
+     */
+    private static final String FILE_NAME_SUFFIX = ".json.gz";
+    private static final String CLOUDTRAIL_MARKER = "_CloudTrail_";
+
+    /**
+     * Length of "_YYYYMMDDTHHmmZ_".
      */
-    private static final Pattern CT_LOGFILE_PATTERN = Pattern.compile(".+_CloudTrail_[\\w\\-]+_\\d{8}T\\d{4}Z_[\\w]+\\.json\\.gz");
+    private static final int TIMESTAMP_LENGTH = 16;
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    private static final long MINUTES_PER_DAY = 24 * 60L;
 
     /**
      * Identify the source type.
@@ -57,12 +69,155 @@ public class SourceIdentifier {
         return SourceType.Other;
     }
 
+    /**
+     * Parse the S3 object key of a CloudTrail log file.
+     *
+     * @param source the name of S3 object which is put to the bucket.
+     * @return the {@link CloudTrailLogKey} encoded in <code>source</code>, or <code>null</code> if <code>source</code>
+     *     is not the name of a CloudTrail log file.
+     */
+    public CloudTrailLogKey parse(String source) {
+        return parseLogKey(source);
+    }
+
+    /**
+     * Parse the S3 object key of a CloudTrail log file with event action.
+     *
+     * @param source the S3 object name
+     * @param eventName the event name defined by Amazon S3.
+     * @return the {@link CloudTrailLogKey} encoded in <code>source</code>, or <code>null</code> if <code>source</code>
+     *     is not the name of a newly created CloudTrail log file.
+     */
+    public CloudTrailLogKey parseWithEventName(String source, String eventName) {
+        if (eventName.startsWith(CREATE_EVENT_PREFIX)) {
+            return parseLogKey(source);
+        }
+        return null;
+    }
 
     private SourceType getCloudTrailSourceType(String source) {
-        if (CT_LOGFILE_PATTERN.matcher(source).matches()) {
+        if (parseLogKey(source) != null) {
             return SourceType.CloudTrailLog;
         }
         return SourceType.Other;
     }
 
+    /**
+     * Scans the key from its end. The unique string and the timestamp are anchored to the ".json.gz" suffix, and the
+     * region runs back to the "_CloudTrail_" marker, so the key is classified without backtracking. When several
+     * splits are possible, the one the greedy regex would have picked is returned.
+     */
+    static CloudTrailLogKey parseLogKey(String source) {
+        if (source == null || !source.endsWith(FILE_NAME_SUFFIX)) {
+            return null;
+        }
+
+        // [\w]+ unique string, the timestamp must start inside this run of word characters.
+        int uniqueEnd = source.length() - FILE_NAME_SUFFIX.length();
+        int wordRunStart = uniqueEnd;
+        while (wordRunStart > 0 && isWordChar(source.charAt(wordRunStart - 1))) {
+            wordRunStart--;
+        }
+
+        // [\w\-]+ region, the marker must start inside this run of word characters and dashes.
+        int regionRunStart = wordRunStart;
+        while (regionRunStart > 0 && isRegionChar(source.charAt(regionRunStart - 1))) {
+            regionRunStart--;
+        }
+
+        for (int timestampStart = uniqueEnd - TIMESTAMP_LENGTH - 1; timestampStart >= wordRunStart; timestampStart--) {
+            if (!isTimestamp(source, timestampStart)) {
+                continue;
+            }
+
+            // the region must not be empty, and .+ needs at least one character before the marker.
+            int markerStart = source.lastIndexOf(CLOUDTRAIL_MARKER, timestampStart - CLOUDTRAIL_MARKER.length() - 1);
+            if (markerStart < Math.max(regionRunStart, 1) || containsLineTerminator(source, markerStart)) {
+                continue;
+            }
+
+            String region = source.substring(markerStart + CLOUDTRAIL_MARKER.length(), timestampStart);
+            String uniqueString = source.substring(timestampStart + TIMESTAMP_LENGTH, uniqueEnd);
+            return new CloudTrailLogKey(extractAccountId(source, markerStart), region,
+                    parseTimestamp(source, timestampStart + 1), uniqueString);
+        }
+        return null;
+    }
+
+    /**
+     * Same rule as {@link LibraryUtils#extractAccountIdFromObjectKey(String)}: the file name up to its first underscore,
+     * or <code>null</code> if the key has no '/'. Nothing after the marker can be a '/'.
+     */
+    private static String extractAccountId(String source, int markerStart) {
+        int slash = source.lastIndexOf('/', markerStart);
+        if (slash == -1) {
+            return null;
+        }
+        return source.substring(slash + 1, source.indexOf('_', slash + 1));
+    }
+
+    /**
+     * Matches _\d{8}T\d{4}Z_ at <code>offset</code>.
+     */
+    private static boolean isTimestamp(String source, int offset) {
+        if (source.charAt(offset) != '_'
+                || source.charAt(offset + 9) != 'T'
+                || source.charAt(offset + 14) != 'Z'
+                || source.charAt(offset + 15) != '_') {
+            return false;
+        }
+        for (int i = offset + 1; i < offset + 14; i++) {
+            if (i != offset + 9 && !isDigit(source.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts YYYYMMDDTHHmm at <code>offset</code> to milliseconds since the epoch without allocating a calendar.
+     */
+    private static long parseTimestamp(String source, int offset) {
+        int year = parseDigits(source, offset, 4);
+        int month = parseDigits(source, offset + 4, 2);
+        int day = parseDigits(source, offset + 6, 2);
+        int hour = parseDigits(source, offset + 9, 2);
+        int minute = parseDigits(source, offset + 11, 2);
+
+        long minutes = LibraryUtils.daysFromCivil(year, month, day) * MINUTES_PER_DAY + hour * 60L + minute;
+        return minutes * MILLIS_PER_MINUTE;
+    }
+
+    private static int parseDigits(String source, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            value = value * 10 + (source.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * The . of the regex does not match line terminators.
+     */
+    private static boolean containsLineTerminator(String source, int end) {
+        for (int i = 0; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isRegionChar(char c) {
+        return isWordChar(c) || c == '-';
+    }
 }
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.wal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A memory-mapped file of the write-ahead log.
+ * <p>
+ * A segment is a sequence of records <code>[int length][int crc32][payload]</code>, followed by zeros up to its
+ * capacity. A record with a zero length or a CRC-32 that does not match its payload ends the segment, which is how the
+ * end of a segment torn by a crash is found.
+ * </p>
+ */
+class Segment {
+    static final int HEADER_SIZE = 8;
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".seg";
+
+    private final long id;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+
+    /** Only used by the appending thread holding the log's append lock. */
+    private final ByteBuffer writeView;
+
+    private Segment(long id, Path path, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+        this.writeView = buffer.duplicate();
+    }
+
+    /**
+     * Create a new, zero-filled segment.
+     */
+    static Segment create(Path directory, long id, int capacity) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        }
+    }
+
+    /**
+     * Open a segment written by a previous run.
+     */
+    static Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(parseId(path), path, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX) && parseId(path) >= 0;
+    }
+
+    private static String fileName(long id) {
+        return PREFIX + String.format("%019d", id) + SUFFIX;
+    }
+
+    private static long parseId(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    long getId() {
+        return id;
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Write a record. The caller makes sure it fits.
+     *
+     * @return the offset after the record.
+     */
+    int write(int offset, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        writeView.position(offset);
+        writeView.putInt(payload.length);
+        writeView.putInt((int) crc.getValue());
+        writeView.put(payload);
+        return writeView.position();
+    }
+
+    /**
+     * Read the payload of the record at an offset.
+     *
+     * @return the payload, or <code>null</code> if the segment ends at the offset.
+     */
+    byte[] read(int offset) {
+        if (offset > buffer.capacity() - HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        int length = view.getInt();
+        int checksum = view.getInt();
+        if (length <= 0 || length > view.remaining()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        view.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, length);
+        return (int) crc.getValue() == checksum ? payload : null;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
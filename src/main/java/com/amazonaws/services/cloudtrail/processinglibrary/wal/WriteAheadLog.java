@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.wal;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A segmented, memory-mapped write-ahead log with a single reader.
+ * <p>
+ * A position in the log is the segment ID in the upper 32 bits and the offset in the segment in the lower 32 bits, so
+ * positions grow monotonically across segments. Appends are serialized by a lock and only copy the record into the
+ * mapped segment; {@link #sync(long)} then makes them durable with group commit: the first waiting thread forces all
+ * segments written so far and every thread whose record it covered returns without forcing again.
+ * </p>
+ * <p>
+ * The reader only sees records up to the durable position. The position it has consumed is kept in a small mapped
+ * checkpoint file, and segments before it are deleted. Each run appends to a new segment, so recovery only has to find
+ * the checkpoint: earlier segments end at their first zero or torn record.
+ * </p>
+ */
+class WriteAheadLog implements Closeable {
+    private static final Log logger = LogFactory.getLog(WriteAheadLog.class);
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final MappedByteBuffer checkpoint;
+
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final Object durableMonitor = new Object();
+
+    /** Guarded by appendLock. */
+    private Segment active;
+    private int writeOffset;
+    private final List<Segment> unforced = new ArrayList<>();
+
+    private volatile long writtenPosition;
+    private volatile long durablePosition;
+    private final long startPosition;
+    private final long recoveredPosition;
+
+    WriteAheadLog(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.filter(Segment::isSegment).collect(Collectors.toList())) {
+                Segment segment = Segment.open(path);
+                segments.put(segment.getId(), segment);
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            checkpoint = channel.map(FileChannel.MapMode.READ_WRITE, 0, 16);
+        }
+        long checkpointPosition = checkpoint.getLong(0);
+        boolean validCheckpoint = checkpointPosition == ~checkpoint.getLong(8);
+
+        long nextId = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        this.startPosition = position(nextId, 0);
+        this.recoveredPosition = validCheckpoint && !segments.isEmpty() && checkpointPosition >= position(segments.firstKey(), 0)
+                ? checkpointPosition
+                : segments.isEmpty() ? startPosition : position(segments.firstKey(), 0);
+
+        this.active = Segment.create(directory, nextId, segmentSize);
+        segments.put(nextId, active);
+        this.writtenPosition = startPosition;
+        this.durablePosition = startPosition;
+
+        if (!segments.headMap(nextId).isEmpty()) {
+            logger.info("Recovering write-ahead log " + directory + " from " + describe(recoveredPosition) + ".");
+        }
+    }
+
+    /**
+     * @return the position before the first record written by a previous run that is not consumed yet.
+     */
+    long getRecoveredPosition() {
+        return recoveredPosition;
+    }
+
+    /**
+     * @return the position before the first record appended by this instance.
+     */
+    long getStartPosition() {
+        return startPosition;
+    }
+
+    /**
+     * Append a record. It is durable once {@link #sync(long)} returns for the returned position.
+     *
+     * @return the position after the record.
+     */
+    long append(byte[] payload) throws IOException {
+        int recordSize = Segment.HEADER_SIZE + payload.length;
+        synchronized (appendLock) {
+            // The trailing zero header marks the end of the segment, so it must always fit.
+            if (writeOffset + recordSize > active.getCapacity() - Segment.HEADER_SIZE) {
+                unforced.add(active);
+                active = Segment.create(directory, active.getId() + 1, Math.max(segmentSize, recordSize + Segment.HEADER_SIZE));
+                segments.put(active.getId(), active);
+                writeOffset = 0;
+            }
+            writeOffset = active.write(writeOffset, payload);
+            writtenPosition = position(active.getId(), writeOffset);
+            return writtenPosition;
+        }
+    }
+
+    /**
+     * Block until the log is durable up to a position.
+     */
+    void sync(long position) {
+        if (durablePosition >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durablePosition >= position) {
+                return;
+            }
+            List<Segment> toForce;
+            long target;
+            synchronized (appendLock) {
+                target = writtenPosition;
+                toForce = new ArrayList<>(unforced);
+                toForce.add(active);
+                unforced.clear();
+            }
+            for (Segment segment : toForce) {
+                segment.force();
+            }
+            durablePosition = target;
+        }
+        synchronized (durableMonitor) {
+            durableMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Read the record at a position, moving to the next segment when a segment ends.
+     *
+     * @return the record, or <code>null</code> if there is no durable record at the position yet.
+     */
+    Record read(long position) {
+        while (position < durablePosition) {
+            Segment segment = segments.get(segmentId(position));
+            byte[] payload = segment == null ? null : segment.read(offset(position));
+            if (payload != null) {
+                return new Record(payload, position(segmentId(position), offset(position) + Segment.HEADER_SIZE + payload.length));
+            }
+            Long next = segments.higherKey(segmentId(position));
+            if (next == null) {
+                return null;
+            }
+            position = position(next, 0);
+        }
+        return null;
+    }
+
+    /**
+     * Wait until the log is durable past a position, or the timeout elapses.
+     */
+    void awaitDurable(long position, long timeoutMillis) throws InterruptedException {
+        synchronized (durableMonitor) {
+            if (durablePosition <= position) {
+                durableMonitor.wait(timeoutMillis);
+            }
+        }
+    }
+
+    /**
+     * @return whether every durable record up to the last appended one has been read past the position.
+     */
+    boolean isCaughtUp(long position) {
+        return read(position) == null && durablePosition >= writtenPosition;
+    }
+
+    /**
+     * Record that every record before a position has been consumed, and delete the segments before it.
+     *
+     * @param position the position after the last consumed record.
+     * @param force whether to force the checkpoint to disk even if no segment is deleted.
+     */
+    void checkpoint(long position, boolean force) {
+        checkpoint.putLong(0, position);
+        checkpoint.putLong(8, ~position);
+
+        Map<Long, Segment> consumed = segments.headMap(segmentId(position));
+        if (!consumed.isEmpty() || force) {
+            // Never delete a segment the checkpoint on disk still points into.
+            checkpoint.force();
+        }
+        for (Segment segment : new ArrayList<>(consumed.values())) {
+            try {
+                segment.delete();
+                segments.remove(segment.getId());
+            } catch (IOException e) {
+                logger.warn("Failed to delete write-ahead log segment " + segment + ", will retry.", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        sync(writtenPosition);
+        checkpoint.force();
+    }
+
+    static long position(long segmentId, int offset) {
+        return segmentId << 32 | (offset & 0xFFFFFFFFL);
+    }
+
+    static long segmentId(long position) {
+        return position >>> 32;
+    }
+
+    static int offset(long position) {
+        return (int) position;
+    }
+
+    private static String describe(long position) {
+        return "segment " + segmentId(position) + " offset " + offset(position);
+    }
+
+    /**
+     * A record read from the log.
+     */
+    static final class Record {
+        final byte[] payload;
+        final long nextPosition;
+
+        Record(byte[] payload, long nextPosition) {
+            this.payload = payload;
+            this.nextPosition = nextPosition;
+        }
+    }
+}
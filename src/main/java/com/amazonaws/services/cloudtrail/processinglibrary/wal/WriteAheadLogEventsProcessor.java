@@ -0,0 +1,416 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.wal;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.CallbackException;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.EventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEvent;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEventData;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEventMetadata;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.LogDeliveryInfo;
+import com.amazonaws.services.cloudtrail.processinglibrary.serializer.CloudTrailEventCodec;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link EventsProcessor} that appends events to a local write-ahead log and delivers them to another
+ * <code>EventsProcessor</code> asynchronously.
+ * <p>
+ * {@link #process(List)} returns as soon as the events are durable in the log, so the SQS message of a log file is
+ * deleted without waiting for the delegate. This keeps messages from reaching their visibility timeout and being
+ * delivered again during delivery spikes, when the delegate cannot keep up. A single drain thread replays the log to
+ * the delegate in order, one call to {@link EventsProcessor#process(List)} per call this processor received, and
+ * retries a failed call with exponential backoff until it succeeds.
+ * </p>
+ * <p>
+ * Events are stored with {@link CloudTrailEventCodec}, together with the log file they came from and their raw event
+ * info. After a crash, events that were durable but not yet delivered are delivered when a processor is built on the
+ * same directory. Delivery is at-least-once: events delivered shortly before a crash can be delivered again.
+ * </p>
+ * <p>
+ * The log is bounded by {@link Builder#withMaxBacklogBytes(long)}: once the delegate falls that far behind,
+ * <code>process</code> blocks until it catches up, which hands the backpressure back to SQS.
+ * </p>
+ */
+public class WriteAheadLogEventsProcessor implements EventsProcessor, Closeable {
+    private static final Log logger = LogFactory.getLog(WriteAheadLogEventsProcessor.class);
+
+    /**
+     * Default size of a log segment: 64 MiB.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Default backlog after which {@link #process(List)} blocks: 1 GiB.
+     */
+    public static final long DEFAULT_MAX_BACKLOG_BYTES = 1024L * 1024 * 1024;
+
+    /**
+     * Default delay before the first retry of a failed delivery, doubled up to one minute.
+     */
+    public static final long DEFAULT_RETRY_BACKOFF_MILLIS = 1000;
+
+    /**
+     * Default time {@link #close()} waits for the log to be delivered: 30 seconds.
+     */
+    public static final long DEFAULT_CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final long MAX_RETRY_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 1000;
+
+    private final EventsProcessor delegate;
+    private final WriteAheadLog log;
+    private final CloudTrailEventCodec codec = new CloudTrailEventCodec();
+    private final long maxBacklogBytes;
+    private final long retryBackoffMillis;
+    private final long closeTimeoutMillis;
+
+    private final AtomicLong backlogBytes = new AtomicLong();
+    private final AtomicLong deliveredEventCount = new AtomicLong();
+    private final Object backlogMonitor = new Object();
+    private final Thread drainer;
+    private volatile boolean closed;
+    private volatile boolean stopped;
+
+    private WriteAheadLogEventsProcessor(Builder builder) throws IOException {
+        this.delegate = builder.delegate;
+        this.maxBacklogBytes = builder.maxBacklogBytes;
+        this.retryBackoffMillis = builder.retryBackoffMillis;
+        this.closeTimeoutMillis = builder.closeTimeoutMillis;
+        this.log = new WriteAheadLog(builder.directory, builder.segmentSize);
+
+        this.drainer = new Thread(this::drain, "cloudtrail-wal-drainer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Appends the events to the write-ahead log and returns once they are durable.
+     *
+     * @param events list of {@link CloudTrailEvent}.
+     * @throws CallbackException if the events could not be written, or the processor is closed.
+     */
+    @Override
+    public void process(List<CloudTrailEvent> events) throws CallbackException {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (closed) {
+            throw new CallbackException("WriteAheadLogEventsProcessor is closed.", null);
+        }
+
+        try {
+            byte[] payload = encode(events);
+            awaitBacklogBelowLimit();
+            long position = log.append(payload);
+            // Counted only once appended: from then on the drain thread reads the record and subtracts it again,
+            // even if this sync fails and a later one makes it durable.
+            backlogBytes.addAndGet(payload.length);
+            log.sync(position);
+
+        } catch (IOException e) {
+            throw new CallbackException("Failed to append events to the write-ahead log.", e, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CallbackException("Interrupted while waiting for the write-ahead log backlog.", e, null);
+        }
+    }
+
+    /**
+     * Stops accepting events, delivers what is in the log to the delegate and stops the drain thread.
+     * <p>
+     * If the log is not delivered within the close timeout, the drain thread is interrupted and the undelivered events
+     * stay in the log, to be delivered when a processor is built on the same directory.
+     * </p>
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (backlogMonitor) {
+            backlogMonitor.notifyAll();
+        }
+        try {
+            drainer.join(closeTimeoutMillis);
+            if (drainer.isAlive()) {
+                logger.warn("Write-ahead log not delivered within " + closeTimeoutMillis + " ms, leaving "
+                        + backlogBytes.get() + " bytes for the next start.");
+                stopped = true;
+                drainer.interrupt();
+                drainer.join(closeTimeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (drainer.isAlive()) {
+            // The delegate ignores interrupts; the log stays open so the drain thread never reads an unmapped segment.
+            logger.error("Write-ahead log drain thread did not stop, the log is left open.");
+            return;
+        }
+        log.close();
+    }
+
+    /**
+     * @return the payload bytes appended by this instance and not yet delivered to the delegate.
+     */
+    public long getBacklogBytes() {
+        return backlogBytes.get();
+    }
+
+    /**
+     * @return the number of events delivered to the delegate.
+     */
+    public long getDeliveredEventCount() {
+        return deliveredEventCount.get();
+    }
+
+    private void awaitBacklogBelowLimit() throws InterruptedException {
+        if (backlogBytes.get() < maxBacklogBytes) {
+            return;
+        }
+        synchronized (backlogMonitor) {
+            while (backlogBytes.get() >= maxBacklogBytes && !closed) {
+                backlogMonitor.wait(100);
+            }
+        }
+    }
+
+    private void drain() {
+        long position = log.getRecoveredPosition();
+        long lastCheckpoint = System.currentTimeMillis();
+        try {
+            while (!stopped) {
+                WriteAheadLog.Record record = log.read(position);
+                if (record == null) {
+                    if (closed && log.isCaughtUp(position)) {
+                        break;
+                    }
+                    log.awaitDurable(position, 100);
+                    continue;
+                }
+
+                List<CloudTrailEvent> events;
+                try {
+                    events = decode(record.payload);
+                } catch (IOException e) {
+                    // A record passed its checksum, so it can only fail to decode if it was written by incompatible code.
+                    logger.error("Skipping undecodable write-ahead log record at " + position + ".", e);
+                    events = null;
+                }
+                if (events != null && !deliver(events)) {
+                    break;
+                }
+
+                if (position >= log.getStartPosition()) {
+                    backlogBytes.addAndGet(-record.payload.length);
+                    synchronized (backlogMonitor) {
+                        backlogMonitor.notifyAll();
+                    }
+                }
+                position = record.nextPosition;
+
+                long now = System.currentTimeMillis();
+                boolean force = now - lastCheckpoint >= CHECKPOINT_INTERVAL_MILLIS;
+                log.checkpoint(position, force);
+                if (force) {
+                    lastCheckpoint = now;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            log.checkpoint(position, true);
+        }
+    }
+
+    /**
+     * @return <code>true</code> once the events are delivered, <code>false</code> if the processor stopped first.
+     */
+    private boolean deliver(List<CloudTrailEvent> events) throws InterruptedException {
+        long backoff = retryBackoffMillis;
+        while (!stopped) {
+            try {
+                delegate.process(events);
+                deliveredEventCount.addAndGet(events.size());
+                return true;
+            } catch (CallbackException | RuntimeException e) {
+                logger.error("Failed to deliver " + events.size() + " events from the write-ahead log, retrying in " + backoff + " ms.", e);
+            }
+            Thread.sleep(backoff);
+            backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+        }
+        return false;
+    }
+
+    /**
+     * A record is a CBOR array of entries <code>[bucket, key, charStart, charEnd, rawEvent, eventData]</code>.
+     * <code>bucket</code> and <code>key</code> are written when the log file changes from the previous entry, are
+     * both null when it is the same, and are <code>false</code> and null for an event without a log file.
+     */
+    private byte[] encode(List<CloudTrailEvent> events) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024 * events.size());
+        try (JsonGenerator generator = codec.getFactory().createGenerator(bytes)) {
+            generator.writeStartArray(events, events.size());
+            CloudTrailLog previousLog = null;
+            for (CloudTrailEvent event : events) {
+                CloudTrailEventMetadata metadata = event.getEventMetadata();
+                LogDeliveryInfo info = metadata instanceof LogDeliveryInfo ? (LogDeliveryInfo) metadata : null;
+                CloudTrailLog ctLog = info == null ? null : info.getLog();
+
+                generator.writeStartArray(event, 6);
+                if (ctLog == null) {
+                    generator.writeBoolean(false);
+                    generator.writeNull();
+                } else if (ctLog != previousLog) {
+                    generator.writeString(ctLog.getS3Bucket());
+                    generator.writeString(ctLog.getS3ObjectKey());
+                } else {
+                    generator.writeNull();
+                    generator.writeNull();
+                }
+                previousLog = ctLog;
+                generator.writeNumber(info == null ? -1L : info.getCharStart());
+                generator.writeNumber(info == null ? -1L : info.getCharEnd());
+                generator.writeString(info == null ? null : info.getRawEvent());
+                codec.encode(event.getEventData(), generator);
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<CloudTrailEvent> decode(byte[] payload) throws IOException {
+        try (JsonParser parser = codec.getFactory().createParser(payload)) {
+            expect(parser, JsonToken.START_ARRAY);
+            List<CloudTrailEvent> events = new ArrayList<>();
+            CloudTrailLog ctLog = null;
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                JsonToken bucketToken = parser.nextToken();
+                String bucket = parser.getValueAsString();
+                String key = parser.nextTextValue();
+                if (bucketToken == JsonToken.VALUE_FALSE) {
+                    ctLog = null;
+                } else if (bucket != null) {
+                    ctLog = new CloudTrailLog(bucket, key);
+                }
+                long charStart = parser.nextLongValue(-1);
+                long charEnd = parser.nextLongValue(-1);
+                String rawEvent = parser.nextTextValue();
+                CloudTrailEventData eventData = codec.decode(parser);
+                expect(parser, JsonToken.END_ARRAY);
+                events.add(new CloudTrailEvent(eventData, new LogDeliveryInfo(ctLog, charStart, charEnd, rawEvent)));
+            }
+            return events;
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.nextToken() != token) {
+            throw new JsonParseException(parser, "Expected " + token + " in write-ahead log record.");
+        }
+    }
+
+    /**
+     * Builder for {@link WriteAheadLogEventsProcessor}.
+     */
+    public static class Builder {
+        private final EventsProcessor delegate;
+        private final Path directory;
+        private int segmentSize = DEFAULT_SEGMENT_SIZE;
+        private long maxBacklogBytes = DEFAULT_MAX_BACKLOG_BYTES;
+        private long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MILLIS;
+        private long closeTimeoutMillis = DEFAULT_CLOSE_TIMEOUT_MILLIS;
+
+        /**
+         * Builder for {@link WriteAheadLogEventsProcessor}.
+         *
+         * @param delegate the {@link EventsProcessor} the events are delivered to.
+         * @param directory the directory of the write-ahead log, used by one processor at a time.
+         */
+        public Builder(EventsProcessor delegate, Path directory) {
+            this.delegate = delegate;
+            this.directory = directory;
+        }
+
+        /**
+         * @param segmentSize the size of a memory-mapped log segment in bytes.
+         * @return This <code>Builder</code> instance.
+         */
+        public Builder withSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * @param maxBacklogBytes the undelivered bytes after which {@link WriteAheadLogEventsProcessor#process(List)} blocks.
+         * @return This <code>Builder</code> instance.
+         */
+        public Builder withMaxBacklogBytes(long maxBacklogBytes) {
+            this.maxBacklogBytes = maxBacklogBytes;
+            return this;
+        }
+
+        /**
+         * @param retryBackoffMillis the delay before the first retry of a failed delivery.
+         * @return This <code>Builder</code> instance.
+         */
+        public Builder withRetryBackoffMillis(long retryBackoffMillis) {
+            this.retryBackoffMillis = retryBackoffMillis;
+            return this;
+        }
+
+        /**
+         * @param closeTimeoutMillis the time {@link WriteAheadLogEventsProcessor#close()} waits for the log to be
+         *                           delivered before it stops the drain thread.
+         * @return This <code>Builder</code> instance.
+         */
+        public Builder withCloseTimeoutMillis(long closeTimeoutMillis) {
+            this.closeTimeoutMillis = closeTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Build a {@link WriteAheadLogEventsProcessor}, recovering the events a previous processor left in the directory.
+         *
+         * @return a new {@link WriteAheadLogEventsProcessor} with its drain thread started.
+         * @throws IOException if the log cannot be created or recovered.
+         */
+        public WriteAheadLogEventsProcessor build() throws IOException {
+            LibraryUtils.checkArgumentNotNull(delegate, "Delegate EventsProcessor is null.");
+            LibraryUtils.checkArgumentNotNull(directory, "Write-ahead log directory is null.");
+            LibraryUtils.checkCondition(segmentSize < 4096, "Segment size must be at least 4096 bytes.");
+            LibraryUtils.checkCondition(maxBacklogBytes <= 0, "Maximum backlog must be positive.");
+            LibraryUtils.checkCondition(retryBackoffMillis <= 0, "Retry backoff must be positive.");
+            LibraryUtils.checkCondition(closeTimeoutMillis <= 0, "Close timeout must be positive.");
+            return new WriteAheadLogEventsProcessor(this);
+        }
+    }
+}
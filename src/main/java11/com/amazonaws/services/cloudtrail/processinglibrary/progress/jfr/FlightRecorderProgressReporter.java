@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.progress.jfr;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.ProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.SelectiveProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.SQSBasedSource;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressInfo;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressLogInfo;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressMessageInfo;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressSourceInfo;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState;
+import com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressStatus;
+import com.amazonaws.services.cloudtrail.processinglibrary.utils.LibraryUtils;
+import jdk.jfr.EventType;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+/**
+ * Implementation of {@link ProgressReporter} that emits a Java Flight Recorder event for every action and forwards
+ * every call to a delegate {@link ProgressReporter}.
+ * <p>
+ * An event is only created when its type is enabled in a running recording. Otherwise the reporter costs one flag
+ * check per action and hands the delegate's start object back as it is, so it allocates nothing. Use {@link FlightRecorderSupport#wrap(ProgressReporter)} rather than this class directly, so
+ * the library still runs where <code>jdk.jfr</code> is not available.
+ * </p>
+ */
+public class FlightRecorderProgressReporter implements SelectiveProgressReporter {
+    private final ProgressReporter delegate;
+    private final EventType[] eventTypes;
+
+    /**
+     * Create a <code>FlightRecorderProgressReporter</code>.
+     *
+     * @param delegate the {@link ProgressReporter} to forward to.
+     */
+    public FlightRecorderProgressReporter(ProgressReporter delegate) {
+        LibraryUtils.checkArgumentNotNull(delegate, "delegate is null");
+        this.delegate = delegate;
+
+        ProgressState[] states = ProgressState.values();
+        eventTypes = new EventType[states.length];
+        for (ProgressState state : states) {
+            Class<? extends ProcessingEvent> eventClass = eventClass(state);
+            if (eventClass != null) {
+                eventTypes[state.ordinal()] = EventType.getEventType(eventClass);
+            }
+        }
+    }
+
+    /**
+     * @return the delegate {@link ProgressReporter}.
+     */
+    public ProgressReporter getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean isReportable(ProgressState progressState) {
+        return isRecorded(progressState) || LibraryUtils.isReportable(delegate, progressState);
+    }
+
+    @Override
+    public boolean isReportable(ProgressState progressState, Message sqsMessage, CloudTrailLog ctLog) {
+        return isRecorded(progressState) || LibraryUtils.isReportable(delegate, progressState, sqsMessage, ctLog);
+    }
+
+    @Override
+    public Object reportStart(ProgressStatus status) {
+        ProgressState state = status.getProgressState();
+        if (!isRecorded(state)) {
+            // reportEnd passes anything but a Token through to the delegate
+            return delegate.reportStart(status);
+        }
+
+        ProcessingEvent event = newEvent(state);
+        event.begin();
+        // isReportable did not consult the delegate when the event is recorded
+        ProgressInfo info = status.getProgressInfo();
+        boolean delegated = LibraryUtils.isReportable(delegate, state, messageOf(info), logOf(info));
+        Object delegateObject = delegated ? delegate.reportStart(status) : null;
+        return new Token(event, delegated, delegateObject);
+    }
+
+    @Override
+    public void reportEnd(ProgressStatus status, Object object) {
+        if (!(object instanceof Token)) {
+            delegate.reportEnd(status, object);
+            return;
+        }
+
+        Token token = (Token) object;
+        token.event.end();
+        if (token.event.shouldCommit()) {
+            describe(token.event, status);
+            token.event.commit();
+        }
+        if (token.delegated) {
+            delegate.reportEnd(status, token.delegateObject);
+        }
+    }
+
+    private boolean isRecorded(ProgressState state) {
+        EventType eventType = eventTypes[state.ordinal()];
+        return eventType != null && eventType.isEnabled();
+    }
+
+    private static Class<? extends ProcessingEvent> eventClass(ProgressState state) {
+        switch (state) {
+            case pollQueue:
+                return PollQueueEvent.class;
+            case parseMessage:
+                return ParseMessageEvent.class;
+            case deleteMessage:
+            case deleteFilteredMessage:
+                return DeleteMessageEvent.class;
+            case processSource:
+                return ProcessSourceEvent.class;
+            case downloadLog:
+                return DownloadLogEvent.class;
+            case processLog:
+                return ProcessLogEvent.class;
+            default:
+                return null;
+        }
+    }
+
+    private static ProcessingEvent newEvent(ProgressState state) {
+        switch (state) {
+            case pollQueue:
+                return new PollQueueEvent();
+            case parseMessage:
+                return new ParseMessageEvent();
+            case deleteMessage:
+            case deleteFilteredMessage:
+                return new DeleteMessageEvent();
+            case processSource:
+                return new ProcessSourceEvent();
+            case downloadLog:
+                return new DownloadLogEvent();
+            case processLog:
+                return new ProcessLogEvent();
+            default:
+                throw new IllegalArgumentException("No event for " + state);
+        }
+    }
+
+    private static void describe(ProcessingEvent event, ProgressStatus status) {
+        event.stage = status.getProgressState().name();
+
+        ProgressInfo info = status.getProgressInfo();
+        if (info == null) {
+            return;
+        }
+        event.success = info.isSuccess();
+
+        CloudTrailLog log = logOf(info);
+        if (log != null) {
+            event.bucket = log.getS3Bucket();
+            event.key = log.getS3ObjectKey();
+            event.bytes = log.getLogFileSize();
+            event.eventCount = log.getEventCount();
+        }
+
+        Message message = messageOf(info);
+        if (message != null) {
+            event.messageId = message.messageId();
+        }
+    }
+
+    private static CloudTrailLog logOf(ProgressInfo info) {
+        return info instanceof ProgressLogInfo ? ((ProgressLogInfo) info).getLog() : null;
+    }
+
+    private static Message messageOf(ProgressInfo info) {
+        if (info instanceof ProgressMessageInfo) {
+            return ((ProgressMessageInfo) info).getMessage();
+        }
+        if (info instanceof ProgressSourceInfo) {
+            CloudTrailSource source = ((ProgressSourceInfo) info).getSource();
+            if (source instanceof SQSBasedSource) {
+                return ((SQSBasedSource) source).getSqsMessage();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returned by {@link #reportStart(ProgressStatus)} for a recorded action, to carry the event and the delegate's
+     * start object to {@link #reportEnd(ProgressStatus, Object)}.
+     */
+    private static final class Token {
+        private final ProcessingEvent event;
+        private final boolean delegated;
+        private final Object delegateObject;
+
+        private Token(ProcessingEvent event, boolean delegated, Object delegateObject) {
+            this.event = event;
+            this.delegated = delegated;
+            this.delegateObject = delegateObject;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.progress.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base of the Java Flight Recorder events emitted for each
+ * {@link com.amazonaws.services.cloudtrail.processinglibrary.progress.ProgressState}. Fields that do not apply to a
+ * stage are left empty.
+ */
+@Category({"AWS", "CloudTrail Processing Library"})
+@StackTrace(false)
+abstract class ProcessingEvent extends Event {
+
+    @Label("Stage")
+    @Description("The ProgressState of the action")
+    String stage;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("SQS Message ID")
+    String messageId;
+
+    @Label("S3 Bucket")
+    String bucket;
+
+    @Label("S3 Object Key")
+    String key;
+
+    @Label("Log File Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Event Count")
+    @Description("Number of events read from the log file")
+    long eventCount;
+}
@@ -31,6 +31,7 @@ public class SampleApp {
         final AWSCloudTrailProcessingExecutor executor = new AWSCloudTrailProcessingExecutor
                         .Builder(new SampleEventsProcessor(), "/sample/awscloudtrailprocessinglibrary.properties")
                         .withSourceFilter(new SampleSourceFilter())
+                        .withLogFilter(new SampleLogFilter())
                         .withEventFilter(new SampleEventFilter())
                         .withProgressReporter(new SampleProgressReporter())
                         .withExceptionHandler(new SampleExceptionHandler())
@@ -57,6 +58,7 @@ public class SampleApp {
                 final AWSCloudTrailProcessingExecutor executor = new AWSCloudTrailProcessingExecutor
                         .Builder(new SampleEventsProcessor(), "/sample/awscloudtrailprocessinglibrary.properties")
                         .withSourceFilter(new SampleSourceFilter())
+                        .withLogFilter(new SampleLogFilter())
                         .withEventFilter(new SampleEventFilter())
                         .withProgressReporter(new SampleProgressReporter())
                         .withExceptionHandler(new SampleExceptionHandler())
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package sample;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.exceptions.CallbackException;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.LogFilter;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLogKey;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
+
+public class SampleLogFilter implements LogFilter{
+    /**
+     * Regions would like to process.
+     */
+    private static Set<String> regions;
+    static {
+        regions = new HashSet<>();
+        regions.add("us-east-1");
+        regions.add("us-west-2");
+    }
+
+    /**
+     * This Sample Log Filter skips log files delivered for regions that are not in the list, before they are downloaded.
+     *
+     * It is useful when an organization trail delivers logs of every region to the same bucket.
+     */
+    @Override
+    public boolean filterLog(CloudTrailLog log, CloudTrailSource source) throws CallbackException {
+        CloudTrailLogKey logKey = log.getLogKey();
+        return logKey == null || regions.contains(logKey.getRegion());
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Shared harness of the JMH benchmarks: the CloudTrail log they read, and a launcher that adds the GC profiler, so
+ * every benchmark reports its allocation rate next to its time.
+ * <p>
+ * Run a benchmark from the project directory with its <code>main</code>, for example:
+ * </p>
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath com.amazonaws.services.cloudtrail.processinglibrary.serializer.EventCursorBenchmark"
+ * </pre>
+ * <p>
+ * Arguments after the class name are JMH command line options, such as <code>-f 3</code> or <code>-wi 10</code>.
+ * </p>
+ */
+public final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Run the benchmarks of a class with the GC profiler.
+     *
+     * @param benchmark the class whose benchmarks to run.
+     * @param args JMH command line options.
+     * @throws RunnerException if a benchmark fails.
+     * @throws CommandLineOptionException if the options cannot be parsed.
+     */
+    public static void run(Class<?> benchmark, String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(benchmark.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * Create an uncompressed log file of management events with a session context, a resource and TLS details.
+     *
+     * @param events the number of events.
+     * @return the log file.
+     */
+    public static byte[] createLog(int events) {
+        StringBuilder log = new StringBuilder("{\"Records\":[");
+        for (int i = 0; i < events; i++) {
+            log.append(i > 0 ? "," : "")
+                    .append("{\"eventVersion\":\"1.08\",\"userIdentity\":{\"type\":\"AssumedRole\",\"principalId\":\"AROAEXAMPLE:alice\",")
+                    .append("\"arn\":\"arn:aws:sts::123456789012:assumed-role/admin/alice\",\"accountId\":\"123456789012\",")
+                    .append("\"accessKeyId\":\"ASIAEXAMPLE\",\"sessionContext\":{\"sessionIssuer\":{\"type\":\"Role\",")
+                    .append("\"principalId\":\"AROAEXAMPLE\",\"arn\":\"arn:aws:iam::123456789012:role/admin\",")
+                    .append("\"accountId\":\"123456789012\",\"userName\":\"admin\"},\"attributes\":{")
+                    .append("\"creationDate\":\"2020-01-01T00:00:00Z\",\"mfaAuthenticated\":\"false\"}}},")
+                    .append("\"eventTime\":\"2020-01-01T00:00:").append(String.format("%02d", i % 60)).append("Z\",")
+                    .append("\"eventSource\":\"ec2.amazonaws.com\",\"eventName\":\"DescribeInstances\",\"awsRegion\":\"us-east-1\",")
+                    .append("\"sourceIPAddress\":\"192.0.2.1\",\"userAgent\":\"aws-cli/2.0\",")
+                    .append("\"requestParameters\":{\"instancesSet\":{\"items\":[{\"instanceId\":\"i-0123456789abcdef0\"}]},")
+                    .append("\"filterSet\":{}},\"responseElements\":null,\"requestID\":\"REQUEST").append(i).append("\",")
+                    .append("\"eventID\":\"0c1a5b0e-0000-4000-8000-").append(String.format("%012d", i)).append("\",")
+                    .append("\"readOnly\":true,\"resources\":[{\"ARN\":\"arn:aws:ec2:us-east-1:123456789012:instance/i-0123456789abcdef0\",")
+                    .append("\"accountId\":\"123456789012\",\"type\":\"AWS::EC2::Instance\"}],\"eventType\":\"AwsApiCall\",")
+                    .append("\"managementEvent\":true,\"recipientAccountId\":\"123456789012\",\"eventCategory\":\"Management\",")
+                    .append("\"tlsDetails\":{\"tlsVersion\":\"TLSv1.2\",\"cipherSuite\":\"ECDHE-RSA-AES128-GCM-SHA256\",")
+                    .append("\"clientProvidedHostHeader\":\"ec2.us-east-1.amazonaws.com\"}}");
+        }
+        return log.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param bytes the bytes to compress.
+     * @return the bytes compressed with gzip, as log files are stored in S3.
+     * @throws IOException if compression fails.
+     */
+    public static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
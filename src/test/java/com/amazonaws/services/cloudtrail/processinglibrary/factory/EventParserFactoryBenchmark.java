@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.factory;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.BenchmarkSupport;
+import com.amazonaws.services.cloudtrail.processinglibrary.configuration.ClientConfiguration;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultEventFilter;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultExceptionHandler;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultLogFilter;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultProgressReporter;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.DefaultSourceFilter;
+import com.amazonaws.services.cloudtrail.processinglibrary.impl.NoOpProcessedLogLedger;
+import com.amazonaws.services.cloudtrail.processinglibrary.manager.S3Manager;
+import com.amazonaws.services.cloudtrail.processinglibrary.manager.SqsManager;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailSource;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.SQSBasedSource;
+import com.amazonaws.services.cloudtrail.processinglibrary.reader.EventReader;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of creating parsers and readers for small log files, which dominates when logs hold few events.
+ * <p>
+ * It compares parsing with a new {@link ObjectMapper} per log against the shared factory of
+ * {@link EventParserFactory}, and processing a poll with a new {@link EventReader} against a reused one, as the
+ * executor's scheduled job does. Run it with <code>main</code>, as described in {@link BenchmarkSupport}, to see the
+ * allocation rate of each case.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventParserFactoryBenchmark {
+    private static final int EVENTS_PER_LOG = 5;
+    private static final int LOGS_PER_SOURCE = 4;
+
+    private byte[] log;
+    private EventReaderFactory readerFactory;
+    private EventReader sharedReader;
+    private long deliveredEvents;
+
+    @Setup
+    public void setUp() throws IOException {
+        log = BenchmarkSupport.createLog(EVENTS_PER_LOG);
+        readerFactory = createReaderFactory(BenchmarkSupport.gzip(log));
+        sharedReader = readerFactory.createReader();
+    }
+
+    @Benchmark
+    public long parserPerLogNewObjectMapper() throws IOException {
+        return countFields(new ObjectMapper().getFactory().createParser(log));
+    }
+
+    @Benchmark
+    public long parserPerLogSharedFactory() throws IOException {
+        return countFields(EventParserFactory.createParser(new ByteArrayInputStream(log)));
+    }
+
+    @Benchmark
+    public void pollNewEventReader(Blackhole blackhole) {
+        EventReader reader = readerFactory.createReader();
+        reader.processSource(createSource());
+        blackhole.consume(reader);
+    }
+
+    @Benchmark
+    public void pollReusedEventReader() {
+        sharedReader.processSource(createSource());
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkSupport.run(EventParserFactoryBenchmark.class, args);
+    }
+
+    private static long countFields(JsonParser parser) throws IOException {
+        long fields = 0;
+        try (JsonParser p = parser) {
+            JsonToken token;
+            while ((token = p.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME) {
+                    fields++;
+                }
+            }
+        }
+        return fields;
+    }
+
+    private EventReaderFactory createReaderFactory(byte[] gzippedLog) {
+        ClientConfiguration config = new ClientConfiguration("https://sqs.us-east-1.amazonaws.com/123456789012/benchmark", () -> null);
+        SqsClient sqsClient = new SqsClient() {
+            @Override
+            public String serviceName() {
+                return "sqs";
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public DeleteMessageResponse deleteMessage(DeleteMessageRequest request) {
+                return DeleteMessageResponse.builder().build();
+            }
+        };
+        S3Manager s3Manager = new S3Manager() {
+            @Override
+            public byte[] downloadLog(CloudTrailLog ctLog, CloudTrailSource source) {
+                return gzippedLog;
+            }
+
+            @Override
+            public ResponseInputStream<GetObjectResponse> getObject(String bucketName, String objectKey) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        return new EventReaderFactory.Builder(config)
+                .withEventsProcessor(batch -> deliveredEvents += batch.size())
+                .withSourceFilter(new DefaultSourceFilter())
+                .withLogFilter(new DefaultLogFilter())
+                .withProcessedLogLedger(new NoOpProcessedLogLedger())
+                .withEventFilter(new DefaultEventFilter())
+                .withProgressReporter(new DefaultProgressReporter())
+                .withExceptionHandler(new DefaultExceptionHandler())
+                .withS3Manager(s3Manager)
+                .withSQSManager(new SqsManager(sqsClient, config, new DefaultExceptionHandler(), new DefaultProgressReporter(),
+                        SourceSerializerFactory.createSourceSerializerChain()))
+                .build();
+    }
+
+    private static CloudTrailSource createSource() {
+        List<CloudTrailLog> logs = new ArrayList<>(LOGS_PER_SOURCE);
+        for (int i = 0; i < LOGS_PER_SOURCE; i++) {
+            logs.add(new CloudTrailLog("benchmark-bucket", "AWSLogs/123456789012/CloudTrail/" + i + ".json.gz"));
+        }
+        return new SQSBasedSource(Message.builder().receiptHandle("handle").build(), logs);
+    }
+}
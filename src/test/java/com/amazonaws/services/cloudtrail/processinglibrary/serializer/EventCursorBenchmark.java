@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.BenchmarkSupport;
+import com.amazonaws.services.cloudtrail.processinglibrary.factory.EventParserFactory;
+import com.amazonaws.services.cloudtrail.processinglibrary.interfaces.CursorEventsProcessor;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailEventData;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.CloudTrailLog;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.UserIdentity;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what a {@link CursorEventsProcessor} saves over an <code>EventsProcessor</code> when it only reads a few
+ * fields of each event.
+ * <p>
+ * Both cases read the event name, event time and user ARN of every event of one log file, through a
+ * {@link DefaultEventSerializer} and through an {@link EventCursor}. Scores are per event. Run it with
+ * <code>main</code>, as described in {@link BenchmarkSupport}, to see the allocation rate of each case.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(EventCursorBenchmark.EVENTS_PER_LOG)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventCursorBenchmark {
+    static final int EVENTS_PER_LOG = 200;
+
+    private final CloudTrailLog ctLog = new CloudTrailLog("benchmark-bucket", "AWSLogs/123456789012/CloudTrail/0.json.gz");
+    private final JsonFactory factory = EventParserFactory.getJsonFactory();
+    private byte[] log;
+
+    @Setup
+    public void setUp() {
+        log = BenchmarkSupport.createLog(EVENTS_PER_LOG);
+    }
+
+    @Benchmark
+    public void eventSerializer(Blackhole blackhole) throws IOException {
+        try (DefaultEventSerializer serializer = new DefaultEventSerializer(ctLog, factory.createParser(log))) {
+            while (serializer.hasNextEvent()) {
+                CloudTrailEventData data = serializer.getNextEvent().getEventData();
+                UserIdentity userIdentity = data.getUserIdentity();
+                blackhole.consume(data.getEventName());
+                blackhole.consume(data.getEventTime().getTime());
+                blackhole.consume(userIdentity == null ? null : userIdentity.getARN());
+            }
+        }
+    }
+
+    @Benchmark
+    public void eventCursor(Blackhole blackhole) throws IOException {
+        EventCursor cursor = new EventCursor(ctLog, log, factory);
+        while (cursor.next()) {
+            blackhole.consume(cursor.eventName());
+            blackhole.consume(cursor.eventTimeMillis());
+            blackhole.consume(cursor.userArn());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkSupport.run(EventCursorBenchmark.class, args);
+    }
+}
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright 2010-2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ ******************************************************************************/
+
+package com.amazonaws.services.cloudtrail.processinglibrary.serializer;
+
+import com.amazonaws.services.cloudtrail.processinglibrary.BenchmarkSupport;
+import com.amazonaws.services.cloudtrail.processinglibrary.factory.EventParserFactory;
+import com.amazonaws.services.cloudtrail.processinglibrary.model.internal.CloudTrailEventField;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the field dispatch of {@link AbstractEventSerializer}: reading the name of each field of an event and
+ * selecting its case, with the values skipped.
+ * <p>
+ * <code>stringSwitch</code> reads each name with <code>getCurrentName()</code> and switches on the string, which
+ * hashes and compares it. <code>fieldMatcher</code> matches each name with a {@link FieldMatcher} and switches on the
+ * {@link CloudTrailEventField}. It copies its matchers for each log, and they learn the order of the log from its
+ * first event, as the matchers of a serializer do. Both walk the top-level fields and the user identity of every event
+ * of one log file. Scores are per event.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(FieldDispatchBenchmark.EVENTS_PER_LOG)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldDispatchBenchmark {
+    static final int EVENTS_PER_LOG = 200;
+
+    private static final FieldMatcher EVENT_FIELDS = new FieldMatcher(CloudTrailEventField.values());
+    private static final FieldMatcher USER_IDENTITY_FIELDS = new FieldMatcher(CloudTrailEventField.values());
+
+    private final JsonFactory factory = EventParserFactory.getJsonFactory();
+    private byte[] log;
+
+    @Setup
+    public void setUp() {
+        log = BenchmarkSupport.createLog(EVENTS_PER_LOG);
+    }
+
+    @Benchmark
+    public void stringSwitch(Blackhole blackhole) throws IOException {
+        try (JsonParser jsonParser = factory.createParser(log)) {
+            AbstractEventSerializer.readArrayHeader(jsonParser);
+            while (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+                while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+                    int selected = select(jsonParser.getCurrentName());
+                    if (selected == 2) {
+                        jsonParser.nextToken();
+                        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+                            blackhole.consume(selectInUserIdentity(jsonParser.getCurrentName()));
+                            skipValue(jsonParser);
+                        }
+                    } else {
+                        blackhole.consume(selected);
+                        skipValue(jsonParser);
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void fieldMatcher(Blackhole blackhole) throws IOException {
+        FieldMatcher eventFields = EVENT_FIELDS.copy();
+        FieldMatcher userIdentityFields = USER_IDENTITY_FIELDS.copy();
+        try (JsonParser jsonParser = factory.createParser(log)) {
+            AbstractEventSerializer.readArrayHeader(jsonParser);
+            while (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+                while (eventFields.nextField(jsonParser)) {
+                    int selected = select(eventFields.field());
+                    if (selected == 2) {
+                        jsonParser.nextToken();
+                        while (userIdentityFields.nextField(jsonParser)) {
+                            blackhole.consume(selectInUserIdentity(userIdentityFields.field()));
+                            skipValue(jsonParser);
+                        }
+                    } else {
+                        blackhole.consume(selected);
+                        skipValue(jsonParser);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void skipValue(JsonParser jsonParser) throws IOException {
+        jsonParser.nextToken();
+        jsonParser.skipChildren();
+    }
+
+    /* The cases of AbstractEventSerializer#parseField. */
+    private static int select(String key) {
+        switch (key) {
+            case "eventVersion":
+                return 1;
+            case "userIdentity":
+                return 2;
+            case "eventTime":
+                return 3;
+            case "eventID":
+                return 4;
+            case "readOnly":
+                return 5;
+            case "resources":
+                return 6;
+            case "managementEvent":
+                return 7;
+            case "insightDetails":
+                return 8;
+            case "addendum":
+                return 9;
+            case "tlsDetails":
+                return 10;
+            case "edgeDeviceDetails":
+                return 11;
+            default:
+                return 0;
+        }
+    }
+
+    private static int select(CloudTrailEventField field) {
+        if (field == null) {
+            return 0;
+        }
+        switch (field) {
+            case eventVersion:
+                return 1;
+            case userIdentity:
+                return 2;
+            case eventTime:
+                return 3;
+            case eventID:
+                return 4;
+            case readOnly:
+                return 5;
+            case resources:
+                return 6;
+            case managementEvent:
+                return 7;
+            case insightDetails:
+                return 8;
+            case addendum:
+                return 9;
+            case tlsDetails:
+                return 10;
+            case edgeDeviceDetails:
+                return 11;
+            default:
+                return 0;
+        }
+    }
+
+    /* The cases of AbstractEventSerializer#parseUserIdentity. */
+    private static int selectInUserIdentity(String key) {
+        switch (key) {
+            case "type":
+                return 1;
+            case "principalId":
+                return 2;
+            case "arn":
+                return 3;
+            case "accountId":
+                return 4;
+            case "accessKeyId":
+                return 5;
+            case "userName":
+                return 6;
+            case "sessionContext":
+                return 7;
+            case "invokedBy":
+                return 8;
+            case "identityProvider":
+                return 9;
+            case "credentialId":
+                return 10;
+            case "onBehalfOf":
+                return 11;
+            case "inScopeOf":
+                return 12;
+            case "invokedByDelegate":
+                return 13;
+            default:
+                return 0;
+        }
+    }
+
+    private static int selectInUserIdentity(CloudTrailEventField field) {
+        if (field == null) {
+            return 0;
+        }
+        switch (field) {
+            case type:
+                return 1;
+            case principalId:
+                return 2;
+            case arn:
+                return 3;
+            case accountId:
+                return 4;
+            case accessKeyId:
+                return 5;
+            case userName:
+                return 6;
+            case sessionContext:
+                return 7;
+            case invokedBy:
+                return 8;
+            case identityProvider:
+                return 9;
+            case credentialId:
+                return 10;
+            case onBehalfOf:
+                return 11;
+            case inScopeOf:
+                return 12;
+            case invokedByDelegate:
+                return 13;
+            default:
+                return 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkSupport.run(FieldDispatchBenchmark.class, args);
+    }
+}